@@ -0,0 +1,63 @@
+package benchmarks;
+
+import constants.ArtType;
+import dto.Art;
+import exceptions.ConstraintViolationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average time of building one piece of art, valid or rejected by validation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ArtBuilderBenchmark {
+    private static final int NAME_CYCLE = 1024;
+
+    private final String[] names = new String[NAME_CYCLE];
+    private final String[] artistNames = new String[NAME_CYCLE];
+    private final LocalDate creationDate = LocalDate.of(1600, 02, 23);
+    private final BigInteger price = BigInteger.valueOf(15000);
+    private int next;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < NAME_CYCLE; i++) {
+            names[i] = "Piece " + i;
+            artistNames[i] = "Artist " + (i % 100);
+        }
+    }
+
+    @Benchmark
+    public Art build() {
+        int i = next++ & (NAME_CYCLE - 1);
+        return new Art.ArtBuilder(names[i], ArtType.PAINTING, artistNames[i], creationDate)
+                .price(price)
+                .build();
+    }
+
+    @Benchmark
+    public String buildRejected() {
+        try {
+            return new Art.ArtBuilder(null, ArtType.PAINTING, artistNames[next++ & (NAME_CYCLE - 1)], creationDate).build().getName();
+        } catch (ConstraintViolationException e) {
+            return e.getMessage();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package benchmarks;
+
+import constants.ArtType;
+import dto.Art;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible art for the benchmarks. Art is created in the ten years up to today, so about a tenth
+ * of it is recent.
+ */
+final class ArtGenerator {
+    static final long MAX_UNIFORM_PRICE = 10_000_000;
+
+    private static final ArtType[] ART_TYPES = ArtType.values();
+    private static final double ZIPF_EXPONENT = 1.1;
+    private static final int DAYS_OF_HISTORY = 3650;
+
+    private final Random random;
+    private final ArtistDistribution artistDistribution;
+    private final PriceDistribution priceDistribution;
+    private final int artistCount;
+    private final double[] cumulativeArtistWeights;
+    private final LocalDate today = LocalDate.now();
+
+    ArtGenerator(long seed, int artistCount, ArtistDistribution artistDistribution, PriceDistribution priceDistribution) {
+        this.random = new Random(seed);
+        this.artistCount = artistCount;
+        this.artistDistribution = artistDistribution;
+        this.priceDistribution = priceDistribution;
+        this.cumulativeArtistWeights = new double[artistCount];
+        double totalWeight = 0;
+        for (int rank = 0; rank < artistCount; rank++) {
+            totalWeight += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            cumulativeArtistWeights[rank] = totalWeight;
+        }
+    }
+
+    /**
+     * returns count pieces of art with distinct names starting with the given prefix.
+     */
+    List<Art> arts(String namePrefix, int count) {
+        List<Art> arts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            arts.add(new Art.ArtBuilder(namePrefix + i, ART_TYPES[random.nextInt(ART_TYPES.length)], artist(), today.minusDays(random.nextInt(DAYS_OF_HISTORY)))
+                    .price(price())
+                    .build());
+        }
+        return arts;
+    }
+
+    /**
+     * returns an artist name drawn from the artist distribution.
+     */
+    String artist() {
+        if (artistDistribution == ArtistDistribution.UNIFORM) {
+            return artistName(random.nextInt(artistCount));
+        }
+        double weight = random.nextDouble() * cumulativeArtistWeights[artistCount - 1];
+        int rank = Arrays.binarySearch(cumulativeArtistWeights, weight);
+        return artistName(rank >= 0 ? rank : -rank - 1);
+    }
+
+    /**
+     * returns a price drawn from the price distribution, or null for art with no asking price.
+     */
+    BigInteger price() {
+        switch (priceDistribution) {
+            case UNIFORM:
+                return BigInteger.valueOf((long) (random.nextDouble() * MAX_UNIFORM_PRICE));
+            case LONG_TAIL:
+                return BigInteger.valueOf((long) Math.exp(10 + 2.5 * random.nextGaussian()));
+            case MOSTLY_UNPRICED:
+                return random.nextInt(10) == 0 ? BigInteger.valueOf((long) (random.nextDouble() * MAX_UNIFORM_PRICE)) : null;
+            default:
+                throw new IllegalStateException("Unknown price distribution " + priceDistribution);
+        }
+    }
+
+    private static String artistName(int rank) {
+        return "Artist " + rank;
+    }
+}
@@ -0,0 +1,11 @@
+package benchmarks;
+
+/**
+ * How generated art is spread over artists.
+ */
+public enum ArtistDistribution {
+    // Every artist is equally likely.
+    UNIFORM,
+    // A few artists have most of the art, as in a real gallery.
+    ZIPF
+}
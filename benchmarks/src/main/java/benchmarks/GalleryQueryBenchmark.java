@@ -0,0 +1,62 @@
+package benchmarks;
+
+import dto.Art;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average time of each gallery query against a gallery that does not change.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g"})
+public class GalleryQueryBenchmark {
+
+    @State(Scope.Thread)
+    public static class QueryCursor {
+        private int next;
+
+        int next() {
+            return next++ & (GalleryState.QUERY_CYCLE - 1);
+        }
+    }
+
+    @Benchmark
+    public Set<Art> getAllArt(GalleryState state) {
+        return state.gallery.getAllArt();
+    }
+
+    @Benchmark
+    public List<String> getArtists(GalleryState state) {
+        return state.gallery.getArtists();
+    }
+
+    @Benchmark
+    public Set<Art> getArtByArtist(GalleryState state, QueryCursor cursor) {
+        return state.gallery.getArtByArtist(state.queryArtists[cursor.next()]);
+    }
+
+    @Benchmark
+    public Set<Art> getRecentArt(GalleryState state) {
+        return state.gallery.getRecentArt();
+    }
+
+    @Benchmark
+    public Set<Art> getArtByPrice(GalleryState state, QueryCursor cursor) {
+        int query = cursor.next();
+        return state.gallery.getArtByPrice(state.queryPriceMins[query], state.queryPriceMaxes[query]);
+    }
+}
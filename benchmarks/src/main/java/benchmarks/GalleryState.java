@@ -0,0 +1,86 @@
+package benchmarks;
+
+import dto.Art;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import service.ColumnarGalleryService;
+import service.GalleryService;
+import service.GalleryServiceImpl;
+import service.ShardedGalleryService;
+
+import java.math.BigInteger;
+import java.util.List;
+
+/**
+ * A gallery filled with generated art, shared by all threads of a benchmark, together with the artists and
+ * price ranges the queries cycle through.
+ */
+@State(Scope.Benchmark)
+public class GalleryState {
+    static final int QUERY_CYCLE = 1024;
+    private static final long SEED = 20200301L;
+    private static final int LOAD_BATCH_SIZE = 100_000;
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int gallerySize;
+
+    @Param({"UNIFORM", "ZIPF"})
+    public ArtistDistribution artistDistribution;
+
+    @Param({"UNIFORM", "LONG_TAIL", "MOSTLY_UNPRICED"})
+    public PriceDistribution priceDistribution;
+
+    @Param({"GalleryServiceImpl", "ColumnarGalleryService", "ShardedGalleryService"})
+    public String implementation;
+
+    GalleryService gallery;
+    List<Art> arts;
+    // Drawn from the same distributions as the gallery, so popular artists are queried more often.
+    final String[] queryArtists = new String[QUERY_CYCLE];
+    final BigInteger[] queryPriceMins = new BigInteger[QUERY_CYCLE];
+    final BigInteger[] queryPriceMaxes = new BigInteger[QUERY_CYCLE];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ArtGenerator generator = newGenerator(SEED);
+        arts = generator.arts("Piece ", gallerySize);
+        gallery = newGallery(implementation);
+        for (int from = 0; from < gallerySize; from += LOAD_BATCH_SIZE) {
+            gallery.addAllArt(arts.subList(from, Math.min(from + LOAD_BATCH_SIZE, gallerySize)));
+        }
+        for (int i = 0; i < QUERY_CYCLE; i++) {
+            queryArtists[i] = generator.artist();
+            BigInteger price = generator.price();
+            queryPriceMins[i] = price == null ? BigInteger.ZERO : price;
+            // About one percent of the uniform price range.
+            queryPriceMaxes[i] = queryPriceMins[i].add(BigInteger.valueOf(ArtGenerator.MAX_UNIFORM_PRICE / 100));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        GalleryServiceImpl.setInstanceNull();
+    }
+
+    ArtGenerator newGenerator(long seed) {
+        return new ArtGenerator(seed, Math.max(10, gallerySize / 100), artistDistribution, priceDistribution);
+    }
+
+    private static GalleryService newGallery(String implementation) {
+        switch (implementation) {
+            case "GalleryServiceImpl":
+                GalleryServiceImpl.setInstanceNull();
+                return GalleryServiceImpl.getInstance();
+            case "ColumnarGalleryService":
+                return new ColumnarGalleryService();
+            case "ShardedGalleryService":
+                return new ShardedGalleryService();
+            default:
+                throw new IllegalArgumentException("Unknown gallery implementation " + implementation);
+        }
+    }
+}
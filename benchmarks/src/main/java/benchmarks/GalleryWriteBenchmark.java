@@ -0,0 +1,66 @@
+package benchmarks;
+
+import dto.Art;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to add or delete a batch of BATCH_SIZE pieces of art. Before every iteration the gallery is put back to
+ * its generated art, so each batch starts from a gallery of the same size.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = GalleryWriteBenchmark.BATCH_SIZE)
+@Measurement(iterations = 10, batchSize = GalleryWriteBenchmark.BATCH_SIZE)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx16g"})
+public class GalleryWriteBenchmark {
+    static final int BATCH_SIZE = 1000;
+
+    @State(Scope.Thread)
+    public static class WriteState {
+        private List<Art> newArts;
+        private int added;
+        private int deleted;
+
+        @Setup(Level.Trial)
+        public void setUp(GalleryState state) {
+            newArts = state.newGenerator(~state.gallerySize).arts("New piece ", BATCH_SIZE);
+        }
+
+        @Setup(Level.Iteration)
+        public void restoreGallery(GalleryState state) {
+            for (int i = 0; i < added; i++) {
+                state.gallery.deleteArt(newArts.get(i));
+            }
+            for (int i = 0; i < deleted; i++) {
+                state.gallery.addArt(state.arts.get(i));
+            }
+            added = 0;
+            deleted = 0;
+        }
+    }
+
+    @Benchmark
+    public boolean addArt(GalleryState state, WriteState writeState) {
+        return state.gallery.addArt(writeState.newArts.get(writeState.added++));
+    }
+
+    // Galleries smaller than the batch are emptied, the rest of the batch then deletes nothing.
+    @Benchmark
+    public boolean deleteArt(GalleryState state, WriteState writeState) {
+        int index = writeState.deleted++;
+        return index < state.arts.size() && state.gallery.deleteArt(state.arts.get(index));
+    }
+}
@@ -0,0 +1,58 @@
+package benchmarks;
+
+import dto.ArtStats;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import service.ColumnarGalleryService;
+import service.GalleryService;
+import service.InstrumentedGalleryService;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Average time of a cheap query with and without an {@link InstrumentedGalleryService} around the gallery, so
+ * the difference is what recording a call costs. Run with -t to see it with threads recording at once.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(1)
+public class InstrumentedGalleryBenchmark {
+    private static final long SEED = 20200301L;
+
+    @State(Scope.Benchmark)
+    public static class GalleryHolder {
+        @Param({"false", "true"})
+        public boolean instrumented;
+
+        GalleryService gallery;
+        String artistName;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            ArtGenerator generator = new ArtGenerator(SEED, 10, ArtistDistribution.UNIFORM, PriceDistribution.UNIFORM);
+            ColumnarGalleryService columnarGallery = new ColumnarGalleryService();
+            columnarGallery.addAllArt(generator.arts("Piece ", 1000));
+            gallery = instrumented ? new InstrumentedGalleryService(columnarGallery) : columnarGallery;
+            artistName = generator.artist();
+        }
+    }
+
+    @Benchmark
+    public ArtStats getArtistStats(GalleryHolder holder) {
+        return holder.gallery.getArtistStats(holder.artistName);
+    }
+}
@@ -0,0 +1,13 @@
+package benchmarks;
+
+/**
+ * How asking prices of generated art are spread.
+ */
+public enum PriceDistribution {
+    // Prices spread evenly up to ArtGenerator.MAX_UNIFORM_PRICE pence.
+    UNIFORM,
+    // Mostly cheap pieces and a few very expensive ones.
+    LONG_TAIL,
+    // Nine pieces in ten have no asking price.
+    MOSTLY_UNPRICED
+}
@@ -0,0 +1,98 @@
+package benchmarks;
+
+import dto.Art;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import remote.GalleryServer;
+import remote.RemoteGalleryService;
+import service.ColumnarGalleryService;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of a gallery server on localhost with 64 clients, each on its own connection.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(64)
+public class RemoteGalleryBenchmark {
+    private static final long SEED = 20200301L;
+
+    @State(Scope.Benchmark)
+    public static class ServerState {
+        @Param({"10000", "100000"})
+        public int gallerySize;
+
+        GalleryServer server;
+        ArtGenerator generator;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            generator = new ArtGenerator(SEED, Math.max(10, gallerySize / 100), ArtistDistribution.ZIPF, PriceDistribution.UNIFORM);
+            ColumnarGalleryService gallery = new ColumnarGalleryService();
+            gallery.addAllArt(generator.arts("Piece ", gallerySize));
+            server = GalleryServer.start(gallery, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            server.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ClientState {
+        RemoteGalleryService client;
+        String[] queryArtists = new String[GalleryState.QUERY_CYCLE];
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ServerState serverState) throws IOException {
+            client = RemoteGalleryService.connect(serverState.server.getAddress());
+            synchronized (serverState) {
+                for (int i = 0; i < queryArtists.length; i++) {
+                    queryArtists[i] = serverState.generator.artist();
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            client.close();
+        }
+
+        String nextArtist() {
+            return queryArtists[next++ & (GalleryState.QUERY_CYCLE - 1)];
+        }
+    }
+
+    @Benchmark
+    public Set<Art> getArtByArtist(ClientState clientState) {
+        return clientState.client.getArtByArtist(clientState.nextArtist());
+    }
+
+    @Benchmark
+    public List<String> getArtists(ClientState clientState) {
+        return clientState.client.getArtists();
+    }
+}
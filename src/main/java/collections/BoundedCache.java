@@ -0,0 +1,211 @@
+package collections;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * A cache holding at most a fixed number of entries, evicting the least recently used one. A new entry only
+ * replaces it if the new key has been asked for at least as often recently (TinyLFU admission), so a burst of
+ * one-off keys cannot flush the popular ones.
+ * <p>
+ * Entries are invalidated by the writer after each change to the data behind them. To stop a value computed
+ * before a change from being cached after it was invalidated, readers take {@link #version()} before computing
+ * the value and pass it to {@link #put(Object, Object, long)}, which drops the value if an invalidation since
+ * matched its key. The last 64 invalidations are kept to check against; a value computed before all of them is
+ * dropped.
+ * <p>
+ * Gets read a concurrent map without locking. The keys they read are buffered and replayed into the recency
+ * order and the frequency sketch by whoever next takes the cache's lock; when the buffer is full, reads are not
+ * recorded. Puts and invalidations take the lock, none of the methods compute anything while holding it.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public final class BoundedCache<K, V> {
+    private static final int MAX_TRACKED_INVALIDATIONS = 64;
+    private static final int MAX_BUFFERED_READS = 1024;
+    private static final int DRAIN_THRESHOLD = 64;
+
+    private final int maximumSize;
+    private final ConcurrentHashMap<K, V> values = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<K> readKeys = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger readKeyCount = new AtomicInteger();
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final ReentrantLock lock = new ReentrantLock();
+    // Guarded by the lock from here on. The entries hold the same values, in access order.
+    private final LinkedHashMap<K, V> entries;
+    private final FrequencySketch sketch;
+    // The newest last, the last one numbered version.
+    private final ArrayDeque<Predicate<? super K>> invalidations = new ArrayDeque<>();
+    private volatile long version;
+    private long evictionCount;
+    private long rejectionCount;
+    private long invalidationCount;
+
+    public BoundedCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("A cache must hold at least one entry, not " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+        this.sketch = new FrequencySketch(maximumSize);
+    }
+
+    /**
+     * returns the cached value for the key, or null if there is none.
+     *
+     * @param key
+     * @return
+     */
+    public V get(K key) {
+        V value = values.get(key);
+        if (value == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        int bufferedReads = readKeyCount.incrementAndGet();
+        if (bufferedReads > MAX_BUFFERED_READS) {
+            readKeyCount.decrementAndGet();
+        } else {
+            readKeys.add(key);
+        }
+        if (bufferedReads >= DRAIN_THRESHOLD && lock.tryLock()) {
+            try {
+                drainReads();
+            } finally {
+                lock.unlock();
+            }
+        }
+        return value;
+    }
+
+    /**
+     * returns the version to pass to {@link #put(Object, Object, long)} for a value about to be computed.
+     *
+     * @return
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * caches the value unless an invalidation of its key happened after the given version or the key is less
+     * popular than the entry it would evict.
+     *
+     * @param key
+     * @param value
+     * @param version
+     * @return true if the value was cached
+     */
+    public boolean put(K key, V value, long version) {
+        lock.lock();
+        try {
+            drainReads();
+            if (isInvalidatedSince(key, version)) {
+                return false;
+            }
+            if (entries.containsKey(key) || entries.size() < maximumSize) {
+                store(key, value);
+                return true;
+            }
+            Iterator<Map.Entry<K, V>> leastRecentlyUsed = entries.entrySet().iterator();
+            K victim = leastRecentlyUsed.next().getKey();
+            if (sketch.frequency(key) < sketch.frequency(victim)) {
+                rejectionCount++;
+                return false;
+            }
+            leastRecentlyUsed.remove();
+            values.remove(victim);
+            evictionCount++;
+            store(key, value);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * drops every entry whose key matches, and stops values for those keys computed before this call from being
+     * cached.
+     *
+     * @param affected
+     */
+    public void invalidate(Predicate<? super K> affected) {
+        lock.lock();
+        try {
+            if (invalidations.size() == MAX_TRACKED_INVALIDATIONS) {
+                invalidations.removeFirst();
+            }
+            invalidations.addLast(affected);
+            version++;
+            Iterator<K> keys = entries.keySet().iterator();
+            while (keys.hasNext()) {
+                K key = keys.next();
+                if (affected.test(key)) {
+                    keys.remove();
+                    values.remove(key);
+                    invalidationCount++;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        invalidate(key -> true);
+    }
+
+    public CacheStats stats() {
+        lock.lock();
+        try {
+            drainReads();
+            return new CacheStats(hitCount.sum(), missCount.sum(), evictionCount, rejectionCount, invalidationCount, entries.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isInvalidatedSince(K key, long version) {
+        if (version < this.version - invalidations.size()) {
+            // Invalidations after the version are no longer tracked, any of them might have matched.
+            return true;
+        }
+        Iterator<Predicate<? super K>> newestFirst = invalidations.descendingIterator();
+        for (long number = this.version; number > version; number--) {
+            if (newestFirst.next().test(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void store(K key, V value) {
+        entries.put(key, value);
+        values.put(key, value);
+    }
+
+    // Bounded, so a reader that got the lock is not kept replaying other readers' keys.
+    private void drainReads() {
+        for (int i = 0; i < MAX_BUFFERED_READS; i++) {
+            K key = readKeys.poll();
+            if (key == null) {
+                return;
+            }
+            readKeyCount.decrementAndGet();
+            sketch.increment(key);
+            // Moves the key to the most recently used end if it is cached.
+            entries.get(key);
+        }
+    }
+}
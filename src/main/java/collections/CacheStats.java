@@ -0,0 +1,78 @@
+package collections;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+/**
+ * The numbers of a {@link BoundedCache} at one point in time.
+ */
+public final class CacheStats {
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long rejectionCount;
+    private final long invalidationCount;
+    private final int size;
+
+    CacheStats(long hitCount, long missCount, long evictionCount, long rejectionCount, long invalidationCount, int size) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.rejectionCount = rejectionCount;
+        this.invalidationCount = invalidationCount;
+        this.size = size;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * returns the share of lookups that were hits, or 0 if there have been none.
+     */
+    public double getHitRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * returns the share of lookups that were misses, or 0 if there have been none.
+     */
+    public double getMissRatio() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 0 : (double) missCount / lookups;
+    }
+
+    /**
+     * returns the number of entries dropped to make room for more popular ones.
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * returns the number of values not cached because they were less popular than the entry they would replace.
+     */
+    public long getRejectionCount() {
+        return rejectionCount;
+    }
+
+    /**
+     * returns the number of entries dropped because the data behind them changed.
+     */
+    public long getInvalidationCount() {
+        return invalidationCount;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this);
+    }
+}
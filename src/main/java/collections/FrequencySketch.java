@@ -0,0 +1,62 @@
+package collections;
+
+/**
+ * Count-min sketch of how often keys have been asked for recently, for TinyLFU admission. Four rows of counters
+ * saturating at 15. After ten increments per cache entry all counters are halved, so old popularity fades.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x9E3779B1, 0x85EBCA77, 0xC2B2AE3D, 0x27D4EB2F};
+
+    private final byte[][] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int increments;
+
+    FrequencySketch(int maximumSize) {
+        // Eight counters per entry and row keep collisions rare enough for one-off keys to stay near zero.
+        int width = Integer.highestOneBit(Math.max(maximumSize, 8) * 2 - 1) * 8;
+        this.counters = new byte[DEPTH][width];
+        this.mask = width - 1;
+        this.sampleSize = 10 * Math.max(maximumSize, 8);
+    }
+
+    void increment(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        boolean incremented = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int slot = slotOf(hash, row);
+            if (counters[row][slot] < MAX_COUNT) {
+                counters[row][slot]++;
+                incremented = true;
+            }
+        }
+        if (incremented && ++increments == sampleSize) {
+            halve();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = key == null ? 0 : key.hashCode();
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[row][slotOf(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private int slotOf(int hash, int row) {
+        int spread = hash * SEEDS[row];
+        return (spread ^ (spread >>> 16)) & mask;
+    }
+
+    private void halve() {
+        for (byte[] row : counters) {
+            for (int slot = 0; slot < row.length; slot++) {
+                row[slot] >>= 1;
+            }
+        }
+        increments /= 2;
+    }
+}
@@ -0,0 +1,209 @@
+package collections;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * A sorted multiset of longs, such as the creation days of a group of art, stored compactly. The distinct values
+ * and their counts are kept in primitive arrays in blocks of up to 256, found through a TreeMap on the first
+ * value of each block, so a value takes about 12 bytes. Adding or removing a value costs O(log n) and a copy
+ * within one block, and the least and greatest values are found in O(log n). Not thread safe.
+ */
+public final class LongMultiset {
+    private static final int BLOCK_SIZE = 256;
+
+    // Blocks by their first value.
+    private final TreeMap<Long, Block> blocks = new TreeMap<>();
+    private long size;
+
+    /**
+     * returns the number of values, counting repeats.
+     */
+    public long size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * returns how many times the value has been added and not removed.
+     */
+    public int count(long value) {
+        Map.Entry<Long, Block> entry = blocks.floorEntry(value);
+        if (entry == null) {
+            return 0;
+        }
+        int index = entry.getValue().indexOf(value);
+        return index < 0 ? 0 : entry.getValue().counts[index];
+    }
+
+    public void add(long value) {
+        size++;
+        Map.Entry<Long, Block> entry = blocks.floorEntry(value);
+        if (entry == null) {
+            entry = blocks.firstEntry();
+            if (entry == null) {
+                blocks.put(value, new Block(value));
+                return;
+            }
+        }
+        Block block = entry.getValue();
+        int index = block.indexOf(value);
+        if (index >= 0) {
+            block.counts[index]++;
+            return;
+        }
+        index = -index - 1;
+        if (block.length == BLOCK_SIZE) {
+            Block upper = block.splitOff();
+            blocks.put(upper.values[0], upper);
+            if (index > block.length) {
+                index -= block.length;
+                block = upper;
+            }
+        }
+        if (index == 0) {
+            // Only a value before every other lands at the front of a block, which then needs a new key.
+            blocks.remove(block.values[0]);
+            block.insert(0, value);
+            blocks.put(value, block);
+        } else {
+            block.insert(index, value);
+        }
+    }
+
+    /**
+     * removes one of the value, returning false if there is none.
+     */
+    public boolean remove(long value) {
+        Map.Entry<Long, Block> entry = blocks.floorEntry(value);
+        if (entry == null) {
+            return false;
+        }
+        Block block = entry.getValue();
+        int index = block.indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        size--;
+        if (--block.counts[index] > 0) {
+            return true;
+        }
+        block.delete(index);
+        if (index == 0) {
+            blocks.remove(entry.getKey());
+            if (block.length == 0) {
+                return true;
+            }
+            blocks.put(block.values[0], block);
+        }
+        if (block.length < BLOCK_SIZE / 4) {
+            mergeWithNeighbour(block);
+        }
+        return true;
+    }
+
+    /**
+     * returns the least value.
+     *
+     * @throws NoSuchElementException if there are none
+     */
+    public long first() {
+        if (blocks.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        return blocks.firstEntry().getValue().values[0];
+    }
+
+    /**
+     * returns the greatest value.
+     *
+     * @throws NoSuchElementException if there are none
+     */
+    public long last() {
+        if (blocks.isEmpty()) {
+            throw new NoSuchElementException();
+        }
+        Block block = blocks.lastEntry().getValue();
+        return block.values[block.length - 1];
+    }
+
+    // Keeps deletes from leaving many nearly empty blocks.
+    private void mergeWithNeighbour(Block block) {
+        Map.Entry<Long, Block> next = blocks.higherEntry(block.values[0]);
+        if (next != null && block.length + next.getValue().length <= BLOCK_SIZE) {
+            blocks.remove(next.getKey());
+            block.append(next.getValue());
+            return;
+        }
+        Map.Entry<Long, Block> previous = blocks.lowerEntry(block.values[0]);
+        if (previous != null && previous.getValue().length + block.length <= BLOCK_SIZE) {
+            blocks.remove(block.values[0]);
+            previous.getValue().append(block);
+        }
+    }
+
+    private static final class Block {
+        private long[] values;
+        private int[] counts;
+        private int length;
+
+        private Block(long value) {
+            this.values = new long[] {value};
+            this.counts = new int[] {1};
+            this.length = 1;
+        }
+
+        private Block(long[] values, int[] counts) {
+            this.values = values;
+            this.counts = counts;
+            this.length = values.length;
+        }
+
+        private int indexOf(long value) {
+            return Arrays.binarySearch(values, 0, length, value);
+        }
+
+        private void insert(int index, long value) {
+            ensureCapacity(length + 1);
+            System.arraycopy(values, index, values, index + 1, length - index);
+            System.arraycopy(counts, index, counts, index + 1, length - index);
+            values[index] = value;
+            counts[index] = 1;
+            length++;
+        }
+
+        private void delete(int index) {
+            System.arraycopy(values, index + 1, values, index, length - index - 1);
+            System.arraycopy(counts, index + 1, counts, index, length - index - 1);
+            length--;
+        }
+
+        // Moves the upper half of the values into a new block.
+        private Block splitOff() {
+            int half = length / 2;
+            Block upper = new Block(Arrays.copyOfRange(values, half, length), Arrays.copyOfRange(counts, half, length));
+            length = half;
+            return upper;
+        }
+
+        private void append(Block other) {
+            ensureCapacity(length + other.length);
+            System.arraycopy(other.values, 0, values, length, other.length);
+            System.arraycopy(other.counts, 0, counts, length, other.length);
+            length += other.length;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > values.length) {
+                int newCapacity = Math.min(BLOCK_SIZE, Math.max(capacity, values.length * 2));
+                values = Arrays.copyOf(values, newCapacity);
+                counts = Arrays.copyOf(counts, newCapacity);
+            }
+        }
+    }
+}
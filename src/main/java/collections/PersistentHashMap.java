@@ -0,0 +1,364 @@
+package collections;
+
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable hash map stored as a hash array mapped trie. plus and minus return a new map which shares every
+ * untouched node with this one, so an update costs O(log32 n) new nodes and old versions stay valid.
+ * Null keys and values are not supported.
+ */
+public final class PersistentHashMap<K, V> implements Iterable<Map.Entry<K, V>> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+    private static final PersistentHashMap<?, ?> EMPTY = new PersistentHashMap<>(null, 0);
+
+    private final Node root;
+    private final int size;
+
+    private PersistentHashMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentHashMap<K, V> empty() {
+        return (PersistentHashMap<K, V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        if (root == null) {
+            return null;
+        }
+        return (V) root.find(key, hash(key), 0);
+    }
+
+    /**
+     * returns a map with the given mapping, or this map if the key is already mapped to the same value instance.
+     */
+    public PersistentHashMap<K, V> plus(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("PersistentHashMap does not support null keys or values");
+        }
+        boolean[] added = new boolean[1];
+        Node newRoot = (root == null ? BitmapIndexedNode.EMPTY : root).put(key, value, hash(key), 0, added);
+        if (newRoot == root) {
+            return this;
+        }
+        return new PersistentHashMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    /**
+     * returns a map without the given key, or this map if the key is not mapped.
+     */
+    public PersistentHashMap<K, V> minus(Object key) {
+        if (root == null) {
+            return this;
+        }
+        Node newRoot = root.remove(key, hash(key), 0);
+        if (newRoot == root) {
+            return this;
+        }
+        return newRoot == null ? PersistentHashMap.<K, V>empty() : new PersistentHashMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new SlotIterator<Map.Entry<K, V>>(root) {
+            @Override
+            @SuppressWarnings("unchecked")
+            Map.Entry<K, V> element(Object key, Object value) {
+                return new AbstractMap.SimpleImmutableEntry<>((K) key, (V) value);
+            }
+        };
+    }
+
+    public Iterator<K> keyIterator() {
+        return new SlotIterator<K>(root) {
+            @Override
+            @SuppressWarnings("unchecked")
+            K element(Object key, Object value) {
+                return (K) key;
+            }
+        };
+    }
+
+    public Iterator<V> valueIterator() {
+        return new SlotIterator<V>(root) {
+            @Override
+            @SuppressWarnings("unchecked")
+            V element(Object key, Object value) {
+                return (V) value;
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int hash = key.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+
+    private static int bitPosition(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static Object[] copyAndSet(Object[] array, int index, Object value) {
+        Object[] copy = array.clone();
+        copy[index] = value;
+        return copy;
+    }
+
+    private static Node newSubNode(int shift, Object key1, Object value1, int key2Hash, Object key2, Object value2) {
+        int key1Hash = hash(key1);
+        if (key1Hash == key2Hash) {
+            return new CollisionNode(key1Hash, new Object[]{key1, value1, key2, value2});
+        }
+        boolean[] added = new boolean[1];
+        return BitmapIndexedNode.EMPTY
+                .put(key1, value1, key1Hash, shift, added)
+                .put(key2, value2, key2Hash, shift, added);
+    }
+
+    private abstract static class Node {
+        abstract Object find(Object key, int hash, int shift);
+
+        abstract Node put(Object key, Object value, int hash, int shift, boolean[] added);
+
+        // returns this if the key is absent and null if the node becomes empty.
+        abstract Node remove(Object key, int hash, int shift);
+
+        // Entries are stored as key, value pairs. A null key marks a value slot holding a sub node.
+        abstract Object[] slots();
+    }
+
+    private static final class BitmapIndexedNode extends Node {
+        private static final BitmapIndexedNode EMPTY = new BitmapIndexedNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] array;
+
+        private BitmapIndexedNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int index = index(bit);
+            Object storedKey = array[2 * index];
+            Object storedValue = array[2 * index + 1];
+            if (storedKey == null) {
+                return ((Node) storedValue).find(key, hash, shift + BITS);
+            }
+            return key.equals(storedKey) ? storedValue : null;
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, boolean[] added) {
+            int bit = bitPosition(hash, shift);
+            int index = index(bit);
+            if ((bitmap & bit) != 0) {
+                Object storedKey = array[2 * index];
+                Object storedValue = array[2 * index + 1];
+                if (storedKey == null) {
+                    Node subNode = ((Node) storedValue).put(key, value, hash, shift + BITS, added);
+                    return subNode == storedValue ? this : new BitmapIndexedNode(bitmap, copyAndSet(array, 2 * index + 1, subNode));
+                }
+                if (key.equals(storedKey)) {
+                    return value == storedValue ? this : new BitmapIndexedNode(bitmap, copyAndSet(array, 2 * index + 1, value));
+                }
+                added[0] = true;
+                Object[] newArray = copyAndSet(array, 2 * index, null);
+                newArray[2 * index + 1] = newSubNode(shift + BITS, storedKey, storedValue, hash, key, value);
+                return new BitmapIndexedNode(bitmap, newArray);
+            }
+            added[0] = true;
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            newArray[2 * index] = key;
+            newArray[2 * index + 1] = value;
+            System.arraycopy(array, 2 * index, newArray, 2 * index + 2, array.length - 2 * index);
+            return new BitmapIndexedNode(bitmap | bit, newArray);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int bit = bitPosition(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object storedKey = array[2 * index];
+            Object storedValue = array[2 * index + 1];
+            if (storedKey == null) {
+                Node subNode = ((Node) storedValue).remove(key, hash, shift + BITS);
+                if (subNode == storedValue) {
+                    return this;
+                }
+                if (subNode != null) {
+                    return new BitmapIndexedNode(bitmap, copyAndSet(array, 2 * index + 1, subNode));
+                }
+            } else if (!key.equals(storedKey)) {
+                return this;
+            }
+            if (bitmap == bit) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, 2 * index);
+            System.arraycopy(array, 2 * index + 2, newArray, 2 * index, newArray.length - 2 * index);
+            return new BitmapIndexedNode(bitmap ^ bit, newArray);
+        }
+
+        @Override
+        Object[] slots() {
+            return array;
+        }
+    }
+
+    // Holds keys whose full hash codes are equal.
+    private static final class CollisionNode extends Node {
+        private final int hash;
+        private final Object[] array;
+
+        private CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (key.equals(array[i])) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            return index < 0 ? null : array[index + 1];
+        }
+
+        @Override
+        Node put(Object key, Object value, int hash, int shift, boolean[] added) {
+            if (hash != this.hash) {
+                return new BitmapIndexedNode(bitPosition(this.hash, shift), new Object[]{null, this})
+                        .put(key, value, hash, shift, added);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                return array[index + 1] == value ? this : new CollisionNode(hash, copyAndSet(array, index + 1, value));
+            }
+            added[0] = true;
+            Object[] newArray = new Object[array.length + 2];
+            System.arraycopy(array, 0, newArray, 0, array.length);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, newArray.length - index);
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Object[] slots() {
+            return array;
+        }
+    }
+
+    private abstract static class SlotIterator<T> implements Iterator<T> {
+        private final Deque<Object[]> slotStack = new ArrayDeque<>();
+        private final Deque<Integer> positionStack = new ArrayDeque<>();
+        private Object[] slots;
+        private int position;
+        private Object nextKey;
+        private Object nextValue;
+
+        private SlotIterator(Node root) {
+            slots = root == null ? new Object[0] : root.slots();
+            advance();
+        }
+
+        abstract T element(Object key, Object value);
+
+        private void advance() {
+            nextKey = null;
+            while (nextKey == null) {
+                if (position >= slots.length) {
+                    if (slotStack.isEmpty()) {
+                        return;
+                    }
+                    slots = slotStack.pop();
+                    position = positionStack.pop();
+                    continue;
+                }
+                Object key = slots[position];
+                Object value = slots[position + 1];
+                position += 2;
+                if (key == null) {
+                    slotStack.push(slots);
+                    positionStack.push(position);
+                    slots = ((Node) value).slots();
+                    position = 0;
+                } else {
+                    nextKey = key;
+                    nextValue = value;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextKey != null;
+        }
+
+        @Override
+        public T next() {
+            if (nextKey == null) {
+                throw new NoSuchElementException();
+            }
+            T element = element(nextKey, nextValue);
+            advance();
+            return element;
+        }
+    }
+}
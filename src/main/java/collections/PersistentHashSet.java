@@ -0,0 +1,97 @@
+package collections;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * Immutable set backed by a {@link PersistentHashMap}. It can be handed out as a read only {@link java.util.Set}
+ * without copying, every mutator of the Set interface throws UnsupportedOperationException.
+ */
+public final class PersistentHashSet<E> extends AbstractSet<E> {
+    private static final PersistentHashSet<?> EMPTY = new PersistentHashSet<>(PersistentHashMap.empty());
+
+    private final PersistentHashMap<E, E> elements;
+
+    private PersistentHashSet(PersistentHashMap<E, E> elements) {
+        this.elements = elements;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    /**
+     * returns a set with the given element, or this set if an equal element is already present.
+     */
+    public PersistentHashSet<E> plus(E element) {
+        if (elements.containsKey(element)) {
+            return this;
+        }
+        return new PersistentHashSet<>(elements.plus(element, element));
+    }
+
+    /**
+     * returns a set without the given element, or this set if no equal element is present.
+     */
+    public PersistentHashSet<E> minus(Object element) {
+        PersistentHashMap<E, E> newElements = elements.minus(element);
+        if (newElements == elements) {
+            return this;
+        }
+        return newElements.isEmpty() ? PersistentHashSet.<E>empty() : new PersistentHashSet<>(newElements);
+    }
+
+    /**
+     * returns the stored element equal to the given one, or null if there is none.
+     */
+    public E find(Object element) {
+        return element == null ? null : elements.get(element);
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return find(element) != null;
+    }
+
+    @Override
+    public int size() {
+        return elements.size();
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return elements.keyIterator();
+    }
+
+    @Override
+    public boolean add(E element) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> elements) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean removeAll(Collection<?> elements) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean retainAll(Collection<?> elements) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+}
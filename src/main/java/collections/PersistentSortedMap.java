@@ -0,0 +1,367 @@
+package collections;
+
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Immutable sorted map stored as an AVL tree. plus and minus copy only the path from the root to the changed
+ * node, so an update costs O(log n) new nodes and old versions stay valid. Every node knows the size of its
+ * subtree which makes positional access O(log n) as well.
+ * Null keys and values are not supported.
+ */
+public final class PersistentSortedMap<K, V> implements Iterable<Map.Entry<K, V>> {
+    @SuppressWarnings("unchecked")
+    private static final Comparator<Object> NATURAL_ORDER = (key1, key2) -> ((Comparable<Object>) key1).compareTo(key2);
+    private static final PersistentSortedMap<?, ?> EMPTY = new PersistentSortedMap<>(NATURAL_ORDER, null);
+
+    private final Comparator<? super K> comparator;
+    private final Node<K, V> root;
+
+    private PersistentSortedMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    /**
+     * returns an empty map ordered by the natural order of its keys.
+     */
+    @SuppressWarnings("unchecked")
+    public static <K extends Comparable<? super K>, V> PersistentSortedMap<K, V> empty() {
+        return (PersistentSortedMap<K, V>) EMPTY;
+    }
+
+    public static <K, V> PersistentSortedMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentSortedMap<>(comparator, null);
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    public V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int comparison = comparator.compare(key, node.key);
+            if (comparison == 0) {
+                return node.value;
+            }
+            node = comparison < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * returns a map with the given mapping, or this map if the key is already mapped to the same value instance.
+     */
+    public PersistentSortedMap<K, V> plus(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("PersistentSortedMap does not support null keys or values");
+        }
+        Node<K, V> newRoot = put(root, key, value);
+        return newRoot == root ? this : new PersistentSortedMap<>(comparator, newRoot);
+    }
+
+    /**
+     * returns a map without the given key, or this map if the key is not mapped.
+     */
+    public PersistentSortedMap<K, V> minus(K key) {
+        Node<K, V> newRoot = remove(root, key);
+        return newRoot == root ? this : new PersistentSortedMap<>(comparator, newRoot);
+    }
+
+    /**
+     * returns the key at the given position in key order.
+     */
+    public K keyAt(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        Node<K, V> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (index == leftSize) {
+                return node.key;
+            }
+            if (index < leftSize) {
+                node = node.left;
+            } else {
+                index -= leftSize + 1;
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * returns the number of keys between from and to, both included, in O(log n). A null bound is open.
+     */
+    public int countKeysBetween(K from, K to) {
+        int count = (to == null ? size() : countKeysBefore(to, true)) - (from == null ? 0 : countKeysBefore(from, false));
+        return Math.max(count, 0);
+    }
+
+    // Returns the number of keys less than the given key, or not greater than it if inclusive.
+    private int countKeysBefore(K key, boolean inclusive) {
+        int count = 0;
+        Node<K, V> node = root;
+        while (node != null) {
+            int comparison = comparator.compare(node.key, key);
+            if (comparison < 0 || (inclusive && comparison == 0)) {
+                count += size(node.left) + 1;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * returns an immutable list view of the keys in order. It costs nothing to create and never changes.
+     */
+    public List<K> keyList() {
+        return new AbstractList<K>() {
+            @Override
+            public K get(int index) {
+                return keyAt(index);
+            }
+
+            @Override
+            public int size() {
+                return PersistentSortedMap.this.size();
+            }
+
+            @Override
+            public Iterator<K> iterator() {
+                return keyIterator();
+            }
+        };
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new RangeIterator<Map.Entry<K, V>>(null, false, null, false, false) {
+            @Override
+            Map.Entry<K, V> element(Node<K, V> node) {
+                return new AbstractMap.SimpleImmutableEntry<>(node.key, node.value);
+            }
+        };
+    }
+
+    public Iterator<K> keyIterator() {
+        return new RangeIterator<K>(null, false, null, false, false) {
+            @Override
+            K element(Node<K, V> node) {
+                return node.key;
+            }
+        };
+    }
+
+    /**
+     * returns the values of the keys between from and to in key order, or in reverse key order if descending.
+     * A null bound leaves that end of the range open.
+     */
+    public Iterator<V> valueIterator(K from, boolean fromInclusive, K to, boolean toInclusive, boolean descending) {
+        return new RangeIterator<V>(from, fromInclusive, to, toInclusive, descending) {
+            @Override
+            V element(Node<K, V> node) {
+                return node.value;
+            }
+        };
+    }
+
+    public Iterator<V> valueIterator(K from, boolean fromInclusive, K to, boolean toInclusive) {
+        return valueIterator(from, fromInclusive, to, toInclusive, false);
+    }
+
+    private Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int comparison = comparator.compare(key, node.key);
+        if (comparison == 0) {
+            return value == node.value ? node : new Node<>(node.key, value, node.left, node.right);
+        }
+        if (comparison < 0) {
+            Node<K, V> left = put(node.left, key, value);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        Node<K, V> right = put(node.right, key, value);
+        return right == node.right ? node : balance(node.key, node.value, node.left, right);
+    }
+
+    private Node<K, V> remove(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int comparison = comparator.compare(key, node.key);
+        if (comparison < 0) {
+            Node<K, V> left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (comparison > 0) {
+            Node<K, V> right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, removeFirst(node.right));
+    }
+
+    private Node<K, V> removeFirst(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int leftHeight = height(left);
+        int rightHeight = height(right);
+        if (leftHeight > rightHeight + 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            return new Node<>(left.right.key, left.right.value,
+                    new Node<>(left.key, left.value, left.left, left.right.left),
+                    new Node<>(key, value, left.right.right, right));
+        }
+        if (rightHeight > leftHeight + 1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            return new Node<>(right.left.key, right.left.value,
+                    new Node<>(key, value, left, right.left.left),
+                    new Node<>(right.key, right.value, right.left.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private final V value;
+        private final Node<K, V> left;
+        private final Node<K, V> right;
+        private final int height;
+        private final int size;
+
+        private Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+
+    // Walks the tree with an explicit stack of the nodes still to visit, seeded by seeking to the first bound.
+    private abstract class RangeIterator<T> implements Iterator<T> {
+        private final Deque<Node<K, V>> path = new ArrayDeque<>();
+        private final K end;
+        private final boolean endInclusive;
+        private final boolean descending;
+        private Node<K, V> nextNode;
+
+        private RangeIterator(K from, boolean fromInclusive, K to, boolean toInclusive, boolean descending) {
+            this.descending = descending;
+            this.end = descending ? from : to;
+            this.endInclusive = descending ? fromInclusive : toInclusive;
+            K start = descending ? to : from;
+            boolean startInclusive = descending ? toInclusive : fromInclusive;
+            Node<K, V> node = root;
+            while (node != null) {
+                if (start == null || isPastStart(node.key, start, startInclusive)) {
+                    path.push(node);
+                    node = descending ? node.right : node.left;
+                } else {
+                    node = descending ? node.left : node.right;
+                }
+            }
+            advance();
+        }
+
+        abstract T element(Node<K, V> node);
+
+        private boolean isPastStart(K key, K start, boolean startInclusive) {
+            int comparison = compareInIterationOrder(key, start);
+            return comparison > 0 || (startInclusive && comparison == 0);
+        }
+
+        private boolean isBeforeEnd(K key) {
+            if (end == null) {
+                return true;
+            }
+            int comparison = compareInIterationOrder(key, end);
+            return comparison < 0 || (endInclusive && comparison == 0);
+        }
+
+        private int compareInIterationOrder(K key1, K key2) {
+            int comparison = comparator.compare(key1, key2);
+            return descending ? -comparison : comparison;
+        }
+
+        private void advance() {
+            if (path.isEmpty()) {
+                nextNode = null;
+                return;
+            }
+            Node<K, V> node = path.pop();
+            Node<K, V> child = descending ? node.left : node.right;
+            while (child != null) {
+                path.push(child);
+                child = descending ? child.right : child.left;
+            }
+            nextNode = node;
+            if (!isBeforeEnd(node.key)) {
+                nextNode = null;
+                path.clear();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        public T next() {
+            if (nextNode == null) {
+                throw new NoSuchElementException();
+            }
+            T element = element(nextNode);
+            advance();
+            return element;
+        }
+    }
+}
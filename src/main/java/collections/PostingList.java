@@ -0,0 +1,397 @@
+package collections;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable sorted set of ids, such as the ids of the pieces of art a search term appears in, stored compactly.
+ * Ids are kept in blocks of up to 128: the first id of a block as an int and the gaps between the ids after it
+ * as varints, so close ids take a byte each. with and without rewrite one block and copy the block array, and
+ * old versions stay valid. A {@link Cursor} can skip whole blocks, so intersecting a short list with a long one
+ * costs about the length of the short one.
+ * Ids must be between 0 and {@code Integer.MAX_VALUE - 1}.
+ */
+public final class PostingList {
+    /**
+     * returned by a cursor that has no ids left.
+     */
+    public static final int END = Integer.MAX_VALUE;
+
+    private static final int BLOCK_SIZE = 128;
+    private static final PostingList EMPTY = new PostingList(new Block[0], 0);
+
+    private final Block[] blocks;
+    private final int size;
+
+    private PostingList(Block[] blocks, int size) {
+        this.blocks = blocks;
+        this.size = size;
+    }
+
+    public static PostingList empty() {
+        return EMPTY;
+    }
+
+    /**
+     * returns a list of the given ids, in any order and with any repeats.
+     */
+    public static PostingList of(int... ids) {
+        int[] sortedIds = ids.clone();
+        Arrays.sort(sortedIds);
+        int length = 0;
+        for (int id : sortedIds) {
+            checkId(id);
+            if (length == 0 || sortedIds[length - 1] != id) {
+                sortedIds[length++] = id;
+            }
+        }
+        return ofSorted(sortedIds, length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * returns the number of bytes the ids take encoded, not counting object headers.
+     */
+    public long encodedSize() {
+        long bytes = 0;
+        for (Block block : blocks) {
+            bytes += 2 * Integer.BYTES + block.gaps.length;
+        }
+        return bytes;
+    }
+
+    public boolean contains(int id) {
+        int index = blockIndexOf(id);
+        return index >= 0 && id <= blocks[index].last && Arrays.binarySearch(blocks[index].decode(), id) >= 0;
+    }
+
+    /**
+     * returns a list with the given id added, or this list if it already has it.
+     */
+    public PostingList with(int id) {
+        checkId(id);
+        if (blocks.length == 0) {
+            return new PostingList(new Block[] {Block.encode(new int[] {id}, 0, 1)}, 1);
+        }
+        int index = Math.max(blockIndexOf(id), 0);
+        Block block = blocks[index];
+        if (index == blocks.length - 1 && id > block.last) {
+            // Ids mostly arrive in order, so appending needs neither a decode nor a split.
+            if (block.count == BLOCK_SIZE) {
+                Block[] newBlocks = Arrays.copyOf(blocks, blocks.length + 1);
+                newBlocks[blocks.length] = Block.encode(new int[] {id}, 0, 1);
+                return new PostingList(newBlocks, size + 1);
+            }
+            return new PostingList(replace(index, block.append(id)), size + 1);
+        }
+        int[] ids = block.decode();
+        int position = Arrays.binarySearch(ids, id);
+        if (position >= 0) {
+            return this;
+        }
+        position = -position - 1;
+        int[] newIds = new int[ids.length + 1];
+        System.arraycopy(ids, 0, newIds, 0, position);
+        newIds[position] = id;
+        System.arraycopy(ids, position, newIds, position + 1, ids.length - position);
+        if (newIds.length <= BLOCK_SIZE) {
+            return new PostingList(replace(index, Block.encode(newIds, 0, newIds.length)), size + 1);
+        }
+        int half = newIds.length / 2;
+        Block[] newBlocks = new Block[blocks.length + 1];
+        System.arraycopy(blocks, 0, newBlocks, 0, index);
+        newBlocks[index] = Block.encode(newIds, 0, half);
+        newBlocks[index + 1] = Block.encode(newIds, half, newIds.length);
+        System.arraycopy(blocks, index + 1, newBlocks, index + 2, blocks.length - index - 1);
+        return new PostingList(newBlocks, size + 1);
+    }
+
+    /**
+     * returns a list without the given id, or this list if it does not have it.
+     */
+    public PostingList without(int id) {
+        int index = blockIndexOf(id);
+        if (index < 0 || id > blocks[index].last) {
+            return this;
+        }
+        int[] ids = blocks[index].decode();
+        int position = Arrays.binarySearch(ids, id);
+        if (position < 0) {
+            return this;
+        }
+        if (size == 1) {
+            return EMPTY;
+        }
+        if (ids.length == 1) {
+            Block[] newBlocks = new Block[blocks.length - 1];
+            System.arraycopy(blocks, 0, newBlocks, 0, index);
+            System.arraycopy(blocks, index + 1, newBlocks, index, blocks.length - index - 1);
+            return new PostingList(newBlocks, size - 1);
+        }
+        System.arraycopy(ids, position + 1, ids, position, ids.length - position - 1);
+        return new PostingList(replace(index, Block.encode(ids, 0, ids.length - 1)), size - 1);
+    }
+
+    /**
+     * returns the ids in ascending order.
+     */
+    public int[] toArray() {
+        int[] ids = new int[size];
+        int length = 0;
+        for (Block block : blocks) {
+            length = block.decodeInto(ids, length);
+        }
+        return ids;
+    }
+
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    /**
+     * returns the ids in every one of the given lists. The lists are walked shortest first, each of the others
+     * skipping ahead to the next id of the shortest.
+     */
+    public static PostingList intersection(List<PostingList> lists) {
+        if (lists.isEmpty()) {
+            return EMPTY;
+        }
+        PostingList[] sortedLists = lists.toArray(new PostingList[0]);
+        Arrays.sort(sortedLists, Comparator.comparingInt(PostingList::size));
+        if (sortedLists.length == 1 || sortedLists[0].isEmpty()) {
+            return sortedLists[0];
+        }
+        Cursor[] cursors = new Cursor[sortedLists.length];
+        for (int i = 0; i < cursors.length; i++) {
+            cursors[i] = sortedLists[i].cursor();
+        }
+        int[] ids = new int[sortedLists[0].size];
+        int length = 0;
+        int candidate = cursors[0].next();
+        while (candidate != END) {
+            int i = 1;
+            for (; i < cursors.length; i++) {
+                int id = cursors[i].advance(candidate);
+                if (id != candidate) {
+                    candidate = cursors[0].advance(id);
+                    break;
+                }
+            }
+            if (i == cursors.length) {
+                ids[length++] = candidate;
+                candidate = cursors[0].next();
+            }
+        }
+        return ofSorted(ids, length);
+    }
+
+    /**
+     * returns the ids in any of the given lists.
+     */
+    public static PostingList union(List<PostingList> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        int total = 0;
+        for (PostingList list : lists) {
+            total += list.size;
+        }
+        int[] ids = new int[total];
+        int length = 0;
+        for (PostingList list : lists) {
+            for (Block block : list.blocks) {
+                length = block.decodeInto(ids, length);
+            }
+        }
+        Arrays.sort(ids);
+        int distinct = 0;
+        for (int i = 0; i < length; i++) {
+            if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+                ids[distinct++] = ids[i];
+            }
+        }
+        return ofSorted(ids, distinct);
+    }
+
+    private static PostingList ofSorted(int[] sortedIds, int length) {
+        if (length == 0) {
+            return EMPTY;
+        }
+        Block[] blocks = new Block[(length + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = Block.encode(sortedIds, i * BLOCK_SIZE, Math.min(length, (i + 1) * BLOCK_SIZE));
+        }
+        return new PostingList(blocks, length);
+    }
+
+    private static void checkId(int id) {
+        if (id < 0 || id == END) {
+            throw new IllegalArgumentException("id should be between 0 and " + (END - 1) + ". Given id::" + id);
+        }
+    }
+
+    // Returns the last block starting at or before the id, or -1 if the id is before every block.
+    private int blockIndexOf(int id) {
+        int low = 0;
+        int high = blocks.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (blocks[middle].first <= id) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return high;
+    }
+
+    private Block[] replace(int index, Block block) {
+        Block[] newBlocks = blocks.clone();
+        newBlocks[index] = block;
+        return newBlocks;
+    }
+
+    /**
+     * Walks the ids of a list in ascending order. It starts before the first id.
+     */
+    public final class Cursor {
+        private final int[] blockIds = new int[BLOCK_SIZE];
+        private int blockIndex = -1;
+        private int blockCount;
+        private int position;
+        private int current = -1;
+
+        private Cursor() { }
+
+        /**
+         * returns the next id, or END.
+         */
+        public int next() {
+            if (current == END) {
+                return END;
+            }
+            if (position + 1 < blockCount) {
+                return current = blockIds[++position];
+            }
+            if (blockIndex + 1 == blocks.length) {
+                return current = END;
+            }
+            load(blockIndex + 1);
+            return current = blockIds[0];
+        }
+
+        /**
+         * moves to the first id at or after the target and returns it, or END. It stays put if already there.
+         */
+        public int advance(int target) {
+            if (current >= target) {
+                return current;
+            }
+            if (blockIndex < 0 || blocks[blockIndex].last < target) {
+                int index = firstBlockEndingAtOrAfter(target);
+                if (index == blocks.length) {
+                    blockIndex = blocks.length;
+                    return current = END;
+                }
+                load(index);
+            }
+            while (blockIds[position] < target) {
+                position++;
+            }
+            return current = blockIds[position];
+        }
+
+        private int firstBlockEndingAtOrAfter(int target) {
+            int low = blockIndex + 1;
+            int high = blocks.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (blocks[middle].last < target) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return low;
+        }
+
+        private void load(int index) {
+            blockIndex = index;
+            blockCount = blocks[index].decodeInto(blockIds, 0);
+            position = 0;
+        }
+    }
+
+    private static final class Block {
+        private final int first;
+        private final int last;
+        private final int count;
+        // The gap from each id to the one after it, as little endian base 128 varints.
+        private final byte[] gaps;
+
+        private Block(int first, int last, int count, byte[] gaps) {
+            this.first = first;
+            this.last = last;
+            this.count = count;
+            this.gaps = gaps;
+        }
+
+        private static Block encode(int[] ids, int from, int to) {
+            byte[] gaps = new byte[(to - from - 1) * 5];
+            int length = 0;
+            for (int i = from + 1; i < to; i++) {
+                length = writeVarint(gaps, length, ids[i] - ids[i - 1]);
+            }
+            return new Block(ids[from], ids[to - 1], to - from, Arrays.copyOf(gaps, length));
+        }
+
+        private Block append(int id) {
+            byte[] newGaps = Arrays.copyOf(gaps, gaps.length + 5);
+            int length = writeVarint(newGaps, gaps.length, id - last);
+            return new Block(first, id, count + 1, Arrays.copyOf(newGaps, length));
+        }
+
+        private int[] decode() {
+            int[] ids = new int[count];
+            decodeInto(ids, 0);
+            return ids;
+        }
+
+        // Writes the ids from the offset on and returns the offset after them.
+        private int decodeInto(int[] ids, int offset) {
+            int id = first;
+            ids[offset++] = id;
+            int index = 0;
+            while (index < gaps.length) {
+                int gap = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = gaps[index++];
+                    gap |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                id += gap;
+                ids[offset++] = id;
+            }
+            return offset;
+        }
+
+        private static int writeVarint(byte[] bytes, int offset, int value) {
+            while ((value & ~0x7F) != 0) {
+                bytes[offset++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[offset++] = (byte) value;
+            return offset;
+        }
+    }
+}
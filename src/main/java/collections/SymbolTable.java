@@ -0,0 +1,84 @@
+package collections;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Process wide dictionary giving every distinct string a small int id and one canonical instance.
+ * Ids are handed out in order from 0 and are never reused, symbols are never removed.
+ * Lookups never lock, only the first sight of a new string does.
+ * <p>
+ * The table only grows: it holds every distinct art and artist name seen by the process, whether or not any
+ * gallery still has art with it, and it is shared by every gallery. That is deliberate. Every {@link dto.Art}
+ * keeps the ids of its names and is equal to other art by them. Art lives on in callers and old snapshots no
+ * gallery can see, and column stores keep only the ids, so no gallery can tell when an id is unused, and
+ * freeing and reusing one would make unrelated art equal. The cost is one String and about 40 bytes a distinct
+ * name, so a long running process that keeps seeing new names, such as a server reloading changing catalogues,
+ * grows by that much per name.
+ */
+public final class SymbolTable {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final SymbolTable symbolTable = new SymbolTable();
+
+    private final ConcurrentMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] symbols = new String[INITIAL_CAPACITY];
+    private int size;
+
+    private SymbolTable() { }
+
+    public static SymbolTable getInstance() {
+        return symbolTable;
+    }
+
+    /**
+     * returns the id of the given string, giving it the next free id if it has not been seen before.
+     *
+     * @param symbol
+     * @return
+     */
+    public int idOf(String symbol) {
+        Integer id = ids.get(symbol);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(symbol);
+            if (id != null) {
+                return id;
+            }
+            if (size == symbols.length) {
+                symbols = Arrays.copyOf(symbols, size * 2);
+            }
+            symbols[size] = symbol;
+            // Publishing the id last means whoever can see it can also see the symbol stored for it.
+            ids.put(symbol, size);
+            return size++;
+        }
+    }
+
+    /**
+     * returns the id of the given string, or -1 if it has not been seen before.
+     *
+     * @param symbol
+     * @return
+     */
+    public int findId(String symbol) {
+        Integer id = ids.get(symbol);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * returns the canonical instance of the string with the given id.
+     *
+     * @param id
+     * @return
+     */
+    public String symbolOf(int id) {
+        return symbols[id];
+    }
+
+    public int size() {
+        return ids.size();
+    }
+}
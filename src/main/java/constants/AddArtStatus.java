@@ -0,0 +1,5 @@
+package constants;
+
+public enum AddArtStatus {
+    ADDED, ALREADY_IN_GALLERY, REJECTED;
+}
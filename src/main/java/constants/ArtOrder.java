@@ -0,0 +1,9 @@
+package constants;
+
+/**
+ * The orders top art queries rank art in. Art with no asking price is never ranked by price.
+ * Pieces with the same price or creation date are ranked by name, then artist name, then art type.
+ */
+public enum ArtOrder {
+    MOST_EXPENSIVE, CHEAPEST, NEWEST, OLDEST;
+}
@@ -0,0 +1,5 @@
+package constants;
+
+public enum CatalogueFormat {
+    CSV, NDJSON;
+}
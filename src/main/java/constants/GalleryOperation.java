@@ -0,0 +1,8 @@
+package constants;
+
+public enum GalleryOperation {
+    ADD_ART, ADD_ALL_ART, DELETE_ART, GET_ALL_ART, GET_ARTISTS, GET_ART_BY_ARTIST, GET_ART_BY_TYPE, GET_RECENT_ART,
+    GET_ART_CREATED_BETWEEN, GET_ART_BY_PRICE, STREAM_ART_BY_ARTIST, STREAM_RECENT_ART, STREAM_ART_CREATED_BETWEEN,
+    STREAM_ART_BY_PRICE, FIND_ART, STREAM_ART, EXPLAIN, FIND_TOP_ART, GET_ARTIST_STATS, GET_ALL_STATS,
+    FIND_ARTISTS, GET_ART_BY_ARTIST_PREFIX, SEARCH_ART_BY_NAME;
+}
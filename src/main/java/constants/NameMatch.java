@@ -0,0 +1,10 @@
+package constants;
+
+/**
+ * How searches of art names match the words searched for. Words are compared ignoring case and accents.
+ * ALL_TERMS matches names with every word, ANY_TERM names with at least one of them and PHRASE_PREFIX names
+ * with the words next to each other in the same order, the last word only needing to start a word of the name.
+ */
+public enum NameMatch {
+    ALL_TERMS, ANY_TERM, PHRASE_PREFIX;
+}
@@ -1,16 +1,14 @@
 package dto;
 
+import collections.SymbolTable;
 import constants.ArtType;
 import exceptions.ConstraintViolationException;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
 import javax.validation.constraints.NotNull;
 import java.math.BigInteger;
 import java.time.LocalDate;
@@ -20,6 +18,8 @@ import java.util.Set;
 /**
  * This Class stores information about an Art
  * creationDate :- If no date is provided then today's date is assigned
+ * Art name and artist name are interned in the shared {@link SymbolTable}, so equal names share one String and
+ * identity is compared on their int ids. The hash code is worked out once when the art is built.
  */
 public final class Art {
     @NotNull(message = "Art name must be provided")
@@ -36,12 +36,28 @@ public final class Art {
     @NotNull(message = "Please provide creation date or use right constructor")
     private LocalDate creationDate;
 
+    private final int nameId;
+    private final int artistId;
+    private final int hashCode;
+
     private Art(ArtBuilder artBuilder) {
-        this.name = artBuilder.name;
+        this.nameId = idOf(artBuilder.name);
+        this.artistId = idOf(artBuilder.artistName);
+        this.name = symbolOf(nameId);
         this.artType = artBuilder.artType;
-        this.artistName = artBuilder.artistName;
+        this.artistName = symbolOf(artistId);
         this.creationDate = artBuilder.creationDate;
         this.price = artBuilder.price;
+        this.hashCode = 31 * (31 * nameId + (artType == null ? -1 : artType.ordinal())) + artistId;
+    }
+
+    // Missing names get id -1 so validation can still report them.
+    private static int idOf(String symbol) {
+        return symbol == null ? -1 : SymbolTable.getInstance().idOf(symbol);
+    }
+
+    private static String symbolOf(int id) {
+        return id < 0 ? null : SymbolTable.getInstance().symbolOf(id);
     }
 
     public String getName() {
@@ -64,6 +80,20 @@ public final class Art {
         return creationDate;
     }
 
+    /**
+     * returns the id of the art name in the shared {@link SymbolTable}.
+     */
+    public int getNameId() {
+        return nameId;
+    }
+
+    /**
+     * returns the id of the artist name in the shared {@link SymbolTable}.
+     */
+    public int getArtistId() {
+        return artistId;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj == this) return true;
@@ -73,25 +103,20 @@ public final class Art {
 
         Art art = (Art) obj;
 
-        return new EqualsBuilder()
-                .append(name, art.name)
-                .append(artType, art.artType)
-                .append(artistName, art.artistName)
-                .isEquals();
+        return hashCode == art.hashCode
+                && nameId == art.nameId
+                && artType == art.artType
+                && artistId == art.artistId;
     }
 
     @Override
     public int hashCode() {
-        return new HashCodeBuilder(17, 37)
-                .append(name)
-                .append(artType)
-                .append(artistName)
-                .toHashCode();
+        return hashCode;
     }
 
     @Override
     public String toString() {
-        return ReflectionToStringBuilder.toString(this);
+        return ReflectionToStringBuilder.toStringExclude(this, "nameId", "artistId", "hashCode");
     }
 
     public static class ArtBuilder {
@@ -132,9 +157,10 @@ public final class Art {
         }
 
         private void validate(Art art) {
-            ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-            Validator validator = factory.getValidator();
-            Set<ConstraintViolation<Art>> validationResult = validator.validate(art);
+            if (hasAllRequiredFields(art)) {
+                return;
+            }
+            Set<ConstraintViolation<Art>> validationResult = ValidatorHolder.VALIDATOR.validate(art);
             if (validationResult.size() > 0) {
                 Set<String> violationMessages = new HashSet<>();
 
@@ -145,5 +171,19 @@ public final class Art {
                 throw new ConstraintViolationException("Validation failed:\n" + StringUtils.join(violationMessages, "\n"));
             }
         }
+
+        // Fast path for the @NotNull fields, must be kept in step with the constraints declared on Art.
+        // Only art failing it goes through the validator, which builds the violation messages.
+        private static boolean hasAllRequiredFields(Art art) {
+            return art.name != null
+                    && art.artType != null
+                    && art.artistName != null
+                    && art.creationDate != null;
+        }
+    }
+
+    // Building a ValidatorFactory is expensive, the validator it returns is thread safe and shared by all builds.
+    private static final class ValidatorHolder {
+        private static final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
     }
 }
@@ -0,0 +1,80 @@
+package dto;
+
+import exceptions.ConstraintViolationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Builds many pieces of art at once, validating them in parallel on a fork join pool.
+ * One invalid builder does not fail the batch, its result carries the validation message instead.
+ */
+public final class ArtBatchBuilder {
+    // Below this many builders a task validates them itself instead of splitting further.
+    private static final int SPLIT_THRESHOLD = 1024;
+
+    private final List<Art.ArtBuilder> artBuilders = new ArrayList<>();
+    private final ForkJoinPool pool;
+
+    public ArtBatchBuilder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public ArtBatchBuilder(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public ArtBatchBuilder add(Art.ArtBuilder artBuilder) {
+        artBuilders.add(artBuilder);
+        return this;
+    }
+
+    /**
+     * returns one result per builder, in the order the builders were added.
+     *
+     * @return
+     */
+    public List<ArtBuildResult> build() {
+        ArtBuildResult[] results = new ArtBuildResult[artBuilders.size()];
+        pool.invoke(new BuildTask(results, 0, results.length));
+        return Arrays.asList(results);
+    }
+
+    private final class BuildTask extends RecursiveAction {
+        private final ArtBuildResult[] results;
+        private final int from;
+        private final int to;
+
+        private BuildTask(ArtBuildResult[] results, int from, int to) {
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD) {
+                for (int i = from; i < to; i++) {
+                    results[i] = build(artBuilders.get(i));
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new BuildTask(results, from, middle), new BuildTask(results, middle, to));
+        }
+
+        private ArtBuildResult build(Art.ArtBuilder artBuilder) {
+            if (artBuilder == null) {
+                return ArtBuildResult.failed("Art builder must be provided");
+            }
+            try {
+                return ArtBuildResult.built(artBuilder.build());
+            } catch (ConstraintViolationException e) {
+                return ArtBuildResult.failed(e.getMessage());
+            }
+        }
+    }
+}
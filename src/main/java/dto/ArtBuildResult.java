@@ -0,0 +1,41 @@
+package dto;
+
+/**
+ * This Class stores the outcome of building one piece of art in a batch
+ * art :- the built art, null if validation failed
+ * errorMessage :- why validation failed, null if the art was built
+ */
+public final class ArtBuildResult {
+    private final Art art;
+    private final String errorMessage;
+
+    private ArtBuildResult(Art art, String errorMessage) {
+        this.art = art;
+        this.errorMessage = errorMessage;
+    }
+
+    static ArtBuildResult built(Art art) {
+        return new ArtBuildResult(art, null);
+    }
+
+    static ArtBuildResult failed(String errorMessage) {
+        return new ArtBuildResult(null, errorMessage);
+    }
+
+    public boolean isValid() {
+        return art != null;
+    }
+
+    public Art getArt() {
+        return art;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public String toString() {
+        return isValid() ? "Built " + art : "Failed " + errorMessage;
+    }
+}
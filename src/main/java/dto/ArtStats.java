@@ -0,0 +1,175 @@
+package dto;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Objects;
+
+/**
+ * This Class stores aggregate figures about a group of art, e.g. all the art of one artist:
+ * count :- number of pieces
+ * pricedCount :- number of pieces with an asking price, the only ones the price figures cover
+ * totalPrice, minPrice, maxPrice :- in pence, min and max null if no piece has a price
+ * creation date span :- the earliest and latest creation dates, null if there are no pieces
+ */
+public final class ArtStats {
+    private static final ArtStats EMPTY = new ArtStatsBuilder().build();
+
+    private final long count;
+    private final long pricedCount;
+    private final BigInteger totalPrice;
+    private final BigInteger minPrice;
+    private final BigInteger maxPrice;
+    private final LocalDate earliestCreationDate;
+    private final LocalDate latestCreationDate;
+
+    private ArtStats(ArtStatsBuilder statsBuilder) {
+        this.count = statsBuilder.count;
+        this.pricedCount = statsBuilder.pricedCount;
+        this.totalPrice = statsBuilder.totalPrice;
+        this.minPrice = statsBuilder.minPrice;
+        this.maxPrice = statsBuilder.maxPrice;
+        this.earliestCreationDate = statsBuilder.earliestCreationDate;
+        this.latestCreationDate = statsBuilder.latestCreationDate;
+    }
+
+    /**
+     * returns the figures of no art at all.
+     */
+    public static ArtStats empty() {
+        return EMPTY;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getPricedCount() {
+        return pricedCount;
+    }
+
+    public BigInteger getTotalPrice() {
+        return totalPrice;
+    }
+
+    public BigInteger getMinPrice() {
+        return minPrice;
+    }
+
+    public BigInteger getMaxPrice() {
+        return maxPrice;
+    }
+
+    /**
+     * returns the mean asking price in pence to two decimal places, or null if no piece has a price.
+     */
+    public BigDecimal getAveragePrice() {
+        if (pricedCount == 0) {
+            return null;
+        }
+        return new BigDecimal(totalPrice).divide(BigDecimal.valueOf(pricedCount), 2, RoundingMode.HALF_EVEN);
+    }
+
+    public LocalDate getEarliestCreationDate() {
+        return earliestCreationDate;
+    }
+
+    public LocalDate getLatestCreationDate() {
+        return latestCreationDate;
+    }
+
+    /**
+     * returns the figures of this group and the other one together, the groups having no art in common.
+     */
+    public ArtStats plus(ArtStats other) {
+        if (other.count == 0) {
+            return this;
+        }
+        if (count == 0) {
+            return other;
+        }
+        return new ArtStatsBuilder()
+                .count(count + other.count)
+                .prices(pricedCount + other.pricedCount, totalPrice.add(other.totalPrice), lesser(minPrice, other.minPrice), greater(maxPrice, other.maxPrice))
+                .creationDates(lesser(earliestCreationDate, other.earliestCreationDate), greater(latestCreationDate, other.latestCreationDate))
+                .build();
+    }
+
+    private static <T extends Comparable<? super T>> T lesser(T value, T other) {
+        if (value == null || other == null) {
+            return value == null ? other : value;
+        }
+        return value.compareTo(other) <= 0 ? value : other;
+    }
+
+    private static <T extends Comparable<? super T>> T greater(T value, T other) {
+        if (value == null || other == null) {
+            return value == null ? other : value;
+        }
+        return value.compareTo(other) >= 0 ? value : other;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof ArtStats)) {
+            return false;
+        }
+        ArtStats stats = (ArtStats) obj;
+        return count == stats.count
+                && pricedCount == stats.pricedCount
+                && totalPrice.equals(stats.totalPrice)
+                && Objects.equals(minPrice, stats.minPrice)
+                && Objects.equals(maxPrice, stats.maxPrice)
+                && Objects.equals(earliestCreationDate, stats.earliestCreationDate)
+                && Objects.equals(latestCreationDate, stats.latestCreationDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, pricedCount, totalPrice, minPrice, maxPrice, earliestCreationDate, latestCreationDate);
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this);
+    }
+
+    public static class ArtStatsBuilder {
+        private long count;
+        private long pricedCount;
+        private BigInteger totalPrice = BigInteger.ZERO;
+        private BigInteger minPrice;
+        private BigInteger maxPrice;
+        private LocalDate earliestCreationDate;
+        private LocalDate latestCreationDate;
+
+        public ArtStatsBuilder count(long count) {
+            this.count = count;
+            return this;
+        }
+
+        public ArtStatsBuilder prices(long pricedCount, BigInteger totalPrice, BigInteger minPrice, BigInteger maxPrice) {
+            this.pricedCount = pricedCount;
+            this.totalPrice = totalPrice;
+            this.minPrice = minPrice;
+            this.maxPrice = maxPrice;
+            return this;
+        }
+
+        public ArtStatsBuilder creationDates(LocalDate earliestCreationDate, LocalDate latestCreationDate) {
+            this.earliestCreationDate = earliestCreationDate;
+            this.latestCreationDate = latestCreationDate;
+            return this;
+        }
+
+        public ArtStats build() {
+            return new ArtStats(this);
+        }
+    }
+}
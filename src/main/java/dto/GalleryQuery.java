@@ -0,0 +1,132 @@
+package dto;
+
+import constants.ArtType;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * This Class stores a query over the gallery. Art must match every criterion given:
+ * artist :- exact artist name
+ * artTypes :- any of a set of art types
+ * price range :- both limits included and optional, art with no asking price never matches
+ * creation date range :- both dates included and optional
+ * A query with no criteria matches all art.
+ */
+public final class GalleryQuery {
+    private final String artistName;
+    private final Set<ArtType> artTypes;
+    private final boolean priceRange;
+    private final BigInteger priceLimitMin;
+    private final BigInteger priceLimitMax;
+    private final boolean creationDateRange;
+    private final LocalDate createdFrom;
+    private final LocalDate createdTo;
+
+    private GalleryQuery(GalleryQueryBuilder queryBuilder) {
+        this.artistName = queryBuilder.artistName;
+        this.artTypes = queryBuilder.artTypes == null ? null : Collections.unmodifiableSet(EnumSet.copyOf(queryBuilder.artTypes));
+        this.priceRange = queryBuilder.priceRange;
+        this.priceLimitMin = queryBuilder.priceLimitMin;
+        this.priceLimitMax = queryBuilder.priceLimitMax;
+        this.creationDateRange = queryBuilder.creationDateRange;
+        this.createdFrom = queryBuilder.createdFrom;
+        this.createdTo = queryBuilder.createdTo;
+    }
+
+    /**
+     * returns the artist name, or null if the query is not limited to one artist.
+     */
+    public String getArtistName() {
+        return artistName;
+    }
+
+    /**
+     * returns the art types art must have one of, or null if the query is not limited by art type.
+     */
+    public Set<ArtType> getArtTypes() {
+        return artTypes;
+    }
+
+    public boolean hasPriceRange() {
+        return priceRange;
+    }
+
+    public BigInteger getPriceLimitMin() {
+        return priceLimitMin;
+    }
+
+    public BigInteger getPriceLimitMax() {
+        return priceLimitMax;
+    }
+
+    public boolean hasCreationDateRange() {
+        return creationDateRange;
+    }
+
+    public LocalDate getCreatedFrom() {
+        return createdFrom;
+    }
+
+    public LocalDate getCreatedTo() {
+        return createdTo;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this);
+    }
+
+    public static class GalleryQueryBuilder {
+        private String artistName;
+        private Set<ArtType> artTypes;
+        private boolean priceRange;
+        private BigInteger priceLimitMin;
+        private BigInteger priceLimitMax;
+        private boolean creationDateRange;
+        private LocalDate createdFrom;
+        private LocalDate createdTo;
+
+        public GalleryQueryBuilder artist(String artistName) {
+            this.artistName = artistName;
+            return this;
+        }
+
+        /**
+         * limits the query to art of any of the given types. Nulls are ignored, with no types no art matches.
+         */
+        public GalleryQueryBuilder artTypes(ArtType... artTypes) {
+            this.artTypes = EnumSet.noneOf(ArtType.class);
+            if (artTypes != null) {
+                for (ArtType artType : artTypes) {
+                    if (artType != null) {
+                        this.artTypes.add(artType);
+                    }
+                }
+            }
+            return this;
+        }
+
+        public GalleryQueryBuilder priceBetween(BigInteger priceLimitMin, BigInteger priceLimitMax) {
+            this.priceRange = true;
+            this.priceLimitMin = priceLimitMin;
+            this.priceLimitMax = priceLimitMax;
+            return this;
+        }
+
+        public GalleryQueryBuilder createdBetween(LocalDate createdFrom, LocalDate createdTo) {
+            this.creationDateRange = true;
+            this.createdFrom = createdFrom;
+            this.createdTo = createdTo;
+            return this;
+        }
+
+        public GalleryQuery build() {
+            return new GalleryQuery(this);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package dto;
+
+import constants.ArtType;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * This Class stores the {@link ArtStats} of a whole gallery: for each artist with art in it, in alphabetical
+ * order, for each art type, with empty figures for types it has no art of, and for the gallery as a whole.
+ */
+public final class GalleryStats {
+    private final SortedMap<String, ArtStats> artistStats;
+    private final Map<ArtType, ArtStats> artTypeStats;
+    private final ArtStats totalStats;
+
+    /**
+     * @param artistStats  figures per artist name, artists with no art are left out
+     * @param artTypeStats figures per art type, types missing are taken to have no art
+     */
+    public GalleryStats(Map<String, ArtStats> artistStats, Map<ArtType, ArtStats> artTypeStats) {
+        this.artistStats = Collections.unmodifiableSortedMap(new TreeMap<>(artistStats));
+        Map<ArtType, ArtStats> allArtTypeStats = new EnumMap<>(ArtType.class);
+        ArtStats total = ArtStats.empty();
+        for (ArtType artType : ArtType.values()) {
+            ArtStats stats = artTypeStats.getOrDefault(artType, ArtStats.empty());
+            allArtTypeStats.put(artType, stats);
+            total = total.plus(stats);
+        }
+        this.artTypeStats = Collections.unmodifiableMap(allArtTypeStats);
+        this.totalStats = total;
+    }
+
+    public SortedMap<String, ArtStats> getArtistStats() {
+        return artistStats;
+    }
+
+    public Map<ArtType, ArtStats> getArtTypeStats() {
+        return artTypeStats;
+    }
+
+    public ArtStats getTotalStats() {
+        return totalStats;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this);
+    }
+}
@@ -0,0 +1,11 @@
+package exceptions;
+
+public class GalleryConnectionException extends RuntimeException {
+    public GalleryConnectionException(String exceptionMessage) {
+        super(exceptionMessage);
+    }
+
+    public GalleryConnectionException(String exceptionMessage, Throwable cause) {
+        super(exceptionMessage, cause);
+    }
+}
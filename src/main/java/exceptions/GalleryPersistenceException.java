@@ -0,0 +1,11 @@
+package exceptions;
+
+public class GalleryPersistenceException extends RuntimeException {
+    public GalleryPersistenceException(String exceptionMessage) {
+        super(exceptionMessage);
+    }
+
+    public GalleryPersistenceException(String exceptionMessage, Throwable cause) {
+        super(exceptionMessage, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package exceptions;
+
+public class InvalidDateRangeException extends RuntimeException {
+    public InvalidDateRangeException(String exceptionMessage) {
+        super(exceptionMessage);
+    }
+}
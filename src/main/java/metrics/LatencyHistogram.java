@@ -0,0 +1,119 @@
+package metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts latencies in nanoseconds in log linear buckets: each power of two range is split into 64 equal
+ * buckets, so a percentile is accurate to within about 1.6%. Values below 64ns have a bucket each.
+ * <p>
+ * Recording is lock free and allocates nothing, it is one compare and set plus another on the rare calls that
+ * set a new maximum. Threads that call at once would all update the same few buckets and fight over their
+ * cache line, so the counts are striped like a {@link java.util.concurrent.atomic.LongAdder}: each thread counts
+ * in the stripe its id hashes to, and a stripe is added whenever two threads are caught counting in the same
+ * one, up to one for each processor. A stripe takes about 29 KiB.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+    private static final int MAX_STRIPES = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+
+    // A power of two long, only ever replaced by a longer copy.
+    private volatile AtomicLongArray[] stripes = {new AtomicLongArray(BUCKET_COUNT)};
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * counts one latency, negative latencies are counted as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        int bucket = bucketOf(value);
+        AtomicLongArray[] stripes = this.stripes;
+        AtomicLongArray counts = stripes[stripeOf(Thread.currentThread().threadId(), stripes.length)];
+        long count = counts.get(bucket);
+        if (!counts.compareAndSet(bucket, count, count + 1)) {
+            counts.incrementAndGet(bucket);
+            addStripes(stripes);
+        }
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * returns a copy of the bucket counts. Calls recorded while it is taken may or may not be in it.
+     */
+    long[] copyCounts() {
+        long[] copy = new long[BUCKET_COUNT];
+        for (AtomicLongArray counts : stripes) {
+            for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+                copy[bucket] += counts.get(bucket);
+            }
+        }
+        return copy;
+    }
+
+    // Doubles the stripes unless another thread already has or there are enough.
+    private synchronized void addStripes(AtomicLongArray[] seen) {
+        if (stripes != seen || seen.length >= MAX_STRIPES) {
+            return;
+        }
+        AtomicLongArray[] more = Arrays.copyOf(seen, seen.length * 2);
+        for (int stripe = seen.length; stripe < more.length; stripe++) {
+            more[stripe] = new AtomicLongArray(BUCKET_COUNT);
+        }
+        stripes = more;
+    }
+
+    static int stripeOf(long threadId, int stripeCount) {
+        // Fibonacci hashing: the top bits of the product spread ids given out one after another evenly.
+        int hash = (int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32);
+        return (hash >>> Integer.numberOfLeadingZeros(stripeCount - 1)) & (stripeCount - 1);
+    }
+
+    /**
+     * returns the latency at the given percentile, between 0 and 100, of the given copy of the counts. It is
+     * the highest latency counted in the bucket the percentile falls in, capped at the maximum.
+     */
+    static long percentile(long[] bucketCounts, long totalCount, double percentile, long maxNanos) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * totalCount));
+        long seen = 0;
+        for (int bucket = 0; bucket < bucketCounts.length; bucket++) {
+            seen += bucketCounts[bucket];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(bucket), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int highestBit = 63 - Long.numberOfLeadingZeros(value);
+        int shift = highestBit - SUB_BUCKET_BITS;
+        // The top SUB_BUCKET_BITS + 1 bits of the value, from SUB_BUCKET_COUNT up to 2 * SUB_BUCKET_COUNT - 1.
+        long topBits = value >>> shift;
+        return (shift + 1) * SUB_BUCKET_COUNT + (int) (topBits - SUB_BUCKET_COUNT);
+    }
+
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKET_COUNT) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKET_COUNT - 1;
+        long topBits = SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT;
+        return ((topBits + 1) << shift) - 1;
+    }
+}
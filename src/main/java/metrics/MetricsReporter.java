@@ -0,0 +1,10 @@
+package metrics;
+
+import java.util.List;
+
+/**
+ * Receives the numbers of every gallery operation at a fixed rate, e.g. to send them to a monitoring system.
+ */
+public interface MetricsReporter {
+    void report(List<OperationSnapshot> snapshots);
+}
@@ -0,0 +1,82 @@
+package metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call count, error count and latency histogram of one gallery operation. Every call is recorded with its
+ * latency, calls which throw are counted as errors as well.
+ */
+public final class OperationMetrics implements OperationMetricsMBean {
+    private final String operation;
+    private final LongAdder errorCount = new LongAdder();
+    private volatile LatencyHistogram latencies = new LatencyHistogram();
+
+    public OperationMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    public void record(long nanos) {
+        latencies.record(nanos);
+    }
+
+    public void recordError() {
+        errorCount.increment();
+    }
+
+    /**
+     * returns the numbers so far. Calls recorded while it is taken may or may not be in it.
+     */
+    public OperationSnapshot snapshot() {
+        LatencyHistogram histogram = latencies;
+        long maxNanos = histogram.getMaxNanos();
+        long[] bucketCounts = histogram.copyCounts();
+        long count = 0;
+        for (long bucketCount : bucketCounts) {
+            count += bucketCount;
+        }
+        return new OperationSnapshot(operation, count, errorCount.sum(),
+                LatencyHistogram.percentile(bucketCounts, count, 50, maxNanos),
+                LatencyHistogram.percentile(bucketCounts, count, 99, maxNanos),
+                LatencyHistogram.percentile(bucketCounts, count, 99.9, maxNanos),
+                maxNanos);
+    }
+
+    @Override
+    public long getCount() {
+        return snapshot().getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return snapshot().getP50Nanos();
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return snapshot().getP99Nanos();
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return snapshot().getP999Nanos();
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return latencies.getMaxNanos();
+    }
+
+    /**
+     * starts counting again from nothing. Calls being recorded at the time may be lost.
+     */
+    @Override
+    public void reset() {
+        latencies = new LatencyHistogram();
+        errorCount.reset();
+    }
+}
@@ -0,0 +1,21 @@
+package metrics;
+
+/**
+ * The numbers of one gallery operation, as published over JMX. Latencies are in nanoseconds and cover all calls
+ * since the metrics were created or last reset.
+ */
+public interface OperationMetricsMBean {
+    long getCount();
+
+    long getErrorCount();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+
+    long getP999Nanos();
+
+    long getMaxNanos();
+
+    void reset();
+}
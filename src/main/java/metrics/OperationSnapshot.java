@@ -0,0 +1,59 @@
+package metrics;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+/**
+ * The numbers of one gallery operation at one point in time. Latencies are in nanoseconds.
+ */
+public final class OperationSnapshot {
+    private final String operation;
+    private final long count;
+    private final long errorCount;
+    private final long p50Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    OperationSnapshot(String operation, long count, long errorCount, long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {
+        this.operation = operation;
+        this.count = count;
+        this.errorCount = errorCount;
+        this.p50Nanos = p50Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this);
+    }
+}
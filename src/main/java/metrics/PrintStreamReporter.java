@@ -0,0 +1,27 @@
+package metrics;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Prints one line per gallery operation that has been called.
+ */
+public final class PrintStreamReporter implements MetricsReporter {
+    private final PrintStream out;
+
+    public PrintStreamReporter(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void report(List<OperationSnapshot> snapshots) {
+        for (OperationSnapshot snapshot : snapshots) {
+            if (snapshot.getCount() == 0) {
+                continue;
+            }
+            out.printf("%s count=%d errors=%d p50=%dns p99=%dns p999=%dns max=%dns%n", snapshot.getOperation(),
+                    snapshot.getCount(), snapshot.getErrorCount(), snapshot.getP50Nanos(), snapshot.getP99Nanos(),
+                    snapshot.getP999Nanos(), snapshot.getMaxNanos());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package remote;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A growing buffer of length prefixed frames. Everything between {@link #startFrame()} and {@link #endFrame()}
+ * becomes one frame, whose int length is filled in when it ends. Numbers are big endian.
+ */
+final class FrameOutput extends ByteArrayOutputStream {
+    private int frameStart = -1;
+
+    FrameOutput() {
+        super(256);
+    }
+
+    void startFrame() {
+        frameStart = count;
+        writeInt(0);
+    }
+
+    void endFrame() {
+        int length = count - frameStart - Integer.BYTES;
+        buf[frameStart] = (byte) (length >>> 24);
+        buf[frameStart + 1] = (byte) (length >>> 16);
+        buf[frameStart + 2] = (byte) (length >>> 8);
+        buf[frameStart + 3] = (byte) length;
+        frameStart = -1;
+    }
+
+    /**
+     * drops everything written after the given size.
+     */
+    void truncate(int size) {
+        count = size;
+    }
+
+    /**
+     * returns a buffer over the next given number of bytes, counted as written, for writing them in place.
+     */
+    ByteBuffer reserve(int bytes) {
+        if (count + bytes > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, count + bytes));
+        }
+        ByteBuffer reserved = ByteBuffer.wrap(buf, count, bytes);
+        count += bytes;
+        return reserved;
+    }
+
+    void writeByte(int value) {
+        write(value);
+    }
+
+    void writeInt(int value) {
+        write(value >>> 24);
+        write(value >>> 16);
+        write(value >>> 8);
+        write(value);
+    }
+
+    void writeLong(long value) {
+        writeInt((int) (value >>> 32));
+        writeInt((int) value);
+    }
+
+    /**
+     * returns the frames written so far, without copying them.
+     */
+    ByteBuffer toByteBuffer() {
+        return ByteBuffer.wrap(buf, 0, count);
+    }
+}
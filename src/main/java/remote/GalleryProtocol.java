@@ -0,0 +1,366 @@
+package remote;
+
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.GalleryOperation;
+import constants.NameMatch;
+import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.GalleryConnectionException;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+import store.ArtCodec;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * The binary protocol between {@link GalleryServer} and {@link RemoteGalleryService}.
+ * <p>
+ * Every message is a frame: an int length followed by that many bytes. A request is the request id, the
+ * {@link GalleryOperation} ordinal as a byte and the arguments. A response is the request id, a status byte and
+ * either the result or, on failure, an error code and message. A client may send any number of requests without
+ * waiting, the server answers each connection's requests in order.
+ * <p>
+ * Values: ints and longs are big endian, strings an int length (-1 for null) and UTF-8 bytes, art a presence
+ * byte and the current {@link ArtCodec} form, dates a presence byte and the epoch day, prices an int length (-1 for
+ * null) and the bytes of {@link BigInteger#toByteArray()}, art orders, name matches and types their ordinal byte (-1 for null),
+ * collections an int size (-1 for null) and the elements. Gallery stats are the artist count, each artist's name
+ * and figures, then the figures of every art type in ordinal order.
+ */
+final class GalleryProtocol {
+    static final int MAX_REQUEST_BYTES = 64 * 1024 * 1024;
+    static final byte STATUS_OK = 0;
+    static final byte STATUS_FAILED = 1;
+
+    // The ordinals of GalleryOperation are the opcodes, so new operations must be added at the end.
+    private static final GalleryOperation[] OPERATIONS = GalleryOperation.values();
+    private static final ArtType[] ART_TYPES = ArtType.values();
+    private static final ArtOrder[] ART_ORDERS = ArtOrder.values();
+    private static final NameMatch[] NAME_MATCHES = NameMatch.values();
+    private static final AddArtStatus[] ADD_ART_STATUSES = AddArtStatus.values();
+    private static final byte INVALID_PRICE_RANGE = 0;
+    private static final byte INVALID_DATE_RANGE = 1;
+    private static final byte SERVER_ERROR = 2;
+
+    private GalleryProtocol() { }
+
+    static GalleryOperation readOperation(ByteBuffer in) {
+        int opcode = in.get();
+        if (opcode < 0 || opcode >= OPERATIONS.length) {
+            throw new IllegalArgumentException("Unknown gallery operation " + opcode);
+        }
+        return OPERATIONS[opcode];
+    }
+
+    static void writeOperation(FrameOutput out, GalleryOperation operation) {
+        out.writeByte(operation.ordinal());
+    }
+
+    static void writeError(FrameOutput out, RuntimeException error) {
+        if (error instanceof InvalidPriceRangeException) {
+            out.writeByte(INVALID_PRICE_RANGE);
+        } else if (error instanceof InvalidDateRangeException) {
+            out.writeByte(INVALID_DATE_RANGE);
+        } else {
+            out.writeByte(SERVER_ERROR);
+        }
+        writeString(out, error.getMessage() == null ? error.getClass().getName() : error.getMessage());
+    }
+
+    /**
+     * returns the exception a failed response stands for, the range exceptions being rethrown as themselves.
+     */
+    static RuntimeException readError(ByteBuffer in) {
+        byte code = in.get();
+        String message = readString(in);
+        switch (code) {
+            case INVALID_PRICE_RANGE:
+                return new InvalidPriceRangeException(message);
+            case INVALID_DATE_RANGE:
+                return new InvalidDateRangeException(message);
+            default:
+                return new GalleryConnectionException("Gallery server failed: " + message);
+        }
+    }
+
+    static void writeBoolean(FrameOutput out, boolean value) {
+        out.writeByte(value ? 1 : 0);
+    }
+
+    static boolean readBoolean(ByteBuffer in) {
+        return in.get() != 0;
+    }
+
+    static void writeString(FrameOutput out, String value) {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    /**
+     * returns the number of bytes writeArt writes for the art.
+     */
+    static int artSize(Art art) {
+        return art == null ? 1 : 1 + ArtCodec.encodedSize(art);
+    }
+
+    static void writeArt(FrameOutput out, Art art) {
+        if (art == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        ArtCodec.encode(art, out.reserve(ArtCodec.encodedSize(art)));
+    }
+
+    static Art readArt(ByteBuffer in) {
+        return in.get() == 0 ? null : ArtCodec.decode(in);
+    }
+
+    static void writeArts(FrameOutput out, Collection<Art> arts) {
+        if (arts == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(arts.size());
+        for (Art art : arts) {
+            writeArt(out, art);
+        }
+    }
+
+    static List<Art> readArtList(ByteBuffer in) {
+        int size = in.getInt();
+        if (size < 0) {
+            return null;
+        }
+        List<Art> arts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            arts.add(readArt(in));
+        }
+        return arts;
+    }
+
+    static Set<Art> readArtSet(ByteBuffer in) {
+        int size = in.getInt();
+        Set<Art> arts = new HashSet<>(Math.max(16, (int) (size / 0.75f) + 1));
+        for (int i = 0; i < size; i++) {
+            arts.add(readArt(in));
+        }
+        return arts;
+    }
+
+    static void writeStrings(FrameOutput out, List<String> values) {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+    static List<String> readStrings(ByteBuffer in) {
+        int size = in.getInt();
+        List<String> values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    static void writeStatuses(FrameOutput out, List<AddArtStatus> statuses) {
+        out.writeInt(statuses.size());
+        for (AddArtStatus status : statuses) {
+            out.writeByte(status.ordinal());
+        }
+    }
+
+    static List<AddArtStatus> readStatuses(ByteBuffer in) {
+        int size = in.getInt();
+        List<AddArtStatus> statuses = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            statuses.add(ADD_ART_STATUSES[in.get()]);
+        }
+        return statuses;
+    }
+
+    static void writeDate(FrameOutput out, LocalDate date) {
+        if (date == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        out.writeLong(date.toEpochDay());
+    }
+
+    static LocalDate readDate(ByteBuffer in) {
+        return in.get() == 0 ? null : LocalDate.ofEpochDay(in.getLong());
+    }
+
+    static void writePrice(FrameOutput out, BigInteger price) {
+        if (price == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = price.toByteArray();
+        out.writeInt(bytes.length);
+        out.writeBytes(bytes);
+    }
+
+    static BigInteger readPrice(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new BigInteger(bytes);
+    }
+
+    static void writeArtTypes(FrameOutput out, ArtType[] artTypes) {
+        if (artTypes == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(artTypes.length);
+        for (ArtType artType : artTypes) {
+            out.writeByte(artType == null ? -1 : artType.ordinal());
+        }
+    }
+
+    static ArtType[] readArtTypes(ByteBuffer in) {
+        int size = in.getInt();
+        if (size < 0) {
+            return null;
+        }
+        ArtType[] artTypes = new ArtType[size];
+        for (int i = 0; i < size; i++) {
+            byte ordinal = in.get();
+            artTypes[i] = ordinal < 0 ? null : ART_TYPES[ordinal];
+        }
+        return artTypes;
+    }
+
+    static void writeArtOrder(FrameOutput out, ArtOrder order) {
+        out.writeByte(order == null ? -1 : order.ordinal());
+    }
+
+    static ArtOrder readArtOrder(ByteBuffer in) {
+        byte ordinal = in.get();
+        return ordinal < 0 ? null : ART_ORDERS[ordinal];
+    }
+
+    static void writeNameMatch(FrameOutput out, NameMatch match) {
+        out.writeByte(match == null ? -1 : match.ordinal());
+    }
+
+    static NameMatch readNameMatch(ByteBuffer in) {
+        byte ordinal = in.get();
+        return ordinal < 0 ? null : NAME_MATCHES[ordinal];
+    }
+
+    static void writeArtStats(FrameOutput out, ArtStats stats) {
+        out.writeLong(stats.getCount());
+        out.writeLong(stats.getPricedCount());
+        writePrice(out, stats.getTotalPrice());
+        writePrice(out, stats.getMinPrice());
+        writePrice(out, stats.getMaxPrice());
+        writeDate(out, stats.getEarliestCreationDate());
+        writeDate(out, stats.getLatestCreationDate());
+    }
+
+    static ArtStats readArtStats(ByteBuffer in) {
+        return new ArtStats.ArtStatsBuilder()
+                .count(in.getLong())
+                .prices(in.getLong(), readPrice(in), readPrice(in), readPrice(in))
+                .creationDates(readDate(in), readDate(in))
+                .build();
+    }
+
+    static void writeGalleryStats(FrameOutput out, GalleryStats stats) {
+        out.writeInt(stats.getArtistStats().size());
+        for (Map.Entry<String, ArtStats> artistStats : stats.getArtistStats().entrySet()) {
+            writeString(out, artistStats.getKey());
+            writeArtStats(out, artistStats.getValue());
+        }
+        for (ArtType artType : ART_TYPES) {
+            writeArtStats(out, stats.getArtTypeStats().get(artType));
+        }
+    }
+
+    static GalleryStats readGalleryStats(ByteBuffer in) {
+        int artistCount = in.getInt();
+        Map<String, ArtStats> artistStats = new TreeMap<>();
+        for (int i = 0; i < artistCount; i++) {
+            artistStats.put(readString(in), readArtStats(in));
+        }
+        Map<ArtType, ArtStats> artTypeStats = new EnumMap<>(ArtType.class);
+        for (ArtType artType : ART_TYPES) {
+            artTypeStats.put(artType, readArtStats(in));
+        }
+        return new GalleryStats(artistStats, artTypeStats);
+    }
+
+    static void writeQuery(FrameOutput out, GalleryQuery query) {
+        if (query == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        writeString(out, query.getArtistName());
+        writeArtTypes(out, query.getArtTypes() == null ? null : query.getArtTypes().toArray(new ArtType[0]));
+        writeBoolean(out, query.hasPriceRange());
+        if (query.hasPriceRange()) {
+            writePrice(out, query.getPriceLimitMin());
+            writePrice(out, query.getPriceLimitMax());
+        }
+        writeBoolean(out, query.hasCreationDateRange());
+        if (query.hasCreationDateRange()) {
+            writeDate(out, query.getCreatedFrom());
+            writeDate(out, query.getCreatedTo());
+        }
+    }
+
+    static GalleryQuery readQuery(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        GalleryQuery.GalleryQueryBuilder queryBuilder = new GalleryQuery.GalleryQueryBuilder().artist(readString(in));
+        ArtType[] artTypes = readArtTypes(in);
+        if (artTypes != null) {
+            queryBuilder.artTypes(artTypes);
+        }
+        if (readBoolean(in)) {
+            queryBuilder.priceBetween(readPrice(in), readPrice(in));
+        }
+        if (readBoolean(in)) {
+            queryBuilder.createdBetween(readDate(in), readDate(in));
+        }
+        return queryBuilder.build();
+    }
+}
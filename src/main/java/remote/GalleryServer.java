@@ -0,0 +1,512 @@
+package remote;
+
+import constants.GalleryOperation;
+import dto.Art;
+import dto.GalleryQuery;
+import service.GalleryService;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Serves a {@link GalleryService} to {@link RemoteGalleryService} clients over the {@link GalleryProtocol}.
+ * <p>
+ * One thread runs a selector over all connections with non-blocking sockets. Requests are read as they arrive,
+ * whether or not the answers to earlier ones have been sent, and run on virtual threads, one connection's
+ * requests in order. Answers are handed to the selector in chunks of about 64 KiB, so many small answers share
+ * a write and a big one does not hold back those before it. A connection is not read from while too many of its
+ * requests wait to run or too many of its answers wait for its client to read them, and its requests stop
+ * running while the answers wait, until they drain. When a connection cannot be accepted, for example when
+ * out of file descriptors, no more are accepted for 100 ms or until another connection closes.
+ */
+public final class GalleryServer implements Closeable {
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final int RESPONSE_CHUNK_BYTES = 64 * 1024;
+    private static final int MAX_QUEUED_REQUESTS = 1024;
+    private static final long MAX_QUEUED_REQUEST_BYTES = 16L * 1024 * 1024;
+    private static final long MAX_QUEUED_RESPONSE_BYTES = 16L * 1024 * 1024;
+    private static final long ACCEPT_RETRY_MILLIS = 100;
+
+    private final GalleryService gallery;
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final SelectionKey acceptKey;
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    // Connections with answers to send, handed from the workers to the selector thread.
+    private final Queue<Connection> connectionsToFlush = new ConcurrentLinkedQueue<>();
+    private final Thread selectorThread;
+    private volatile boolean running = true;
+    // Selector thread only. Set while accepting waits out a failed accept.
+    private boolean acceptPaused;
+    private long acceptRetryNanos;
+
+    private GalleryServer(GalleryService gallery, ServerSocketChannel serverChannel, Selector selector, SelectionKey acceptKey) {
+        this.gallery = gallery;
+        this.serverChannel = serverChannel;
+        this.selector = selector;
+        this.acceptKey = acceptKey;
+        this.selectorThread = new Thread(this::run, "gallery-server-selector");
+    }
+
+    /**
+     * starts serving the gallery on the given address. Use port 0 to pick a free port.
+     *
+     * @param gallery
+     * @param address
+     * @return
+     * @throws IOException
+     */
+    public static GalleryServer start(GalleryService gallery, InetSocketAddress address) throws IOException {
+        ServerSocketChannel serverChannel = ServerSocketChannel.open();
+        Selector selector = Selector.open();
+        SelectionKey acceptKey;
+        try {
+            serverChannel.bind(address, 1024);
+            serverChannel.configureBlocking(false);
+            acceptKey = serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        GalleryServer server = new GalleryServer(gallery, serverChannel, selector, acceptKey);
+        server.selectorThread.start();
+        return server;
+    }
+
+    public InetSocketAddress getAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * stops taking connections, drops the open ones and waits for requests already running to finish.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.close();
+    }
+
+    private void run() {
+        try {
+            while (running) {
+                if (acceptPaused) {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(acceptRetryNanos - System.nanoTime())));
+                    resumeAcceptingIfDue();
+                } else {
+                    selector.select();
+                }
+                Connection connection;
+                while ((connection = connectionsToFlush.poll()) != null) {
+                    connection.flush();
+                }
+                for (SelectionKey key : selector.selectedKeys()) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    connection = (Connection) key.attachment();
+                    if (key.isReadable()) {
+                        connection.read();
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        connection.flush();
+                    }
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            // The server is going down either way, close what is left below.
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                closeQuietly(key.channel());
+            }
+            closeQuietly(selector);
+            closeQuietly(serverChannel);
+        }
+    }
+
+    // A connection that cannot be taken on, for example when out of file descriptors, fails alone.
+    private void accept() {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                // The connection stays in the backlog, still ready, so selecting for it again at once would spin.
+                pauseAccepting();
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Connection(channel, key));
+            } catch (IOException e) {
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    private void pauseAccepting() {
+        acceptPaused = true;
+        acceptRetryNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ACCEPT_RETRY_MILLIS);
+        acceptKey.interestOps(0);
+    }
+
+    private void resumeAcceptingIfDue() {
+        if (System.nanoTime() - acceptRetryNanos >= 0) {
+            acceptPaused = false;
+            acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+        }
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing more can be done with it.
+        }
+    }
+
+    /**
+     * runs one request and writes its response frame.
+     */
+    private void respond(ByteBuffer request, FrameOutput out) {
+        int requestId = request.getInt();
+        out.startFrame();
+        out.writeInt(requestId);
+        int statusPosition = out.size();
+        out.writeByte(GalleryProtocol.STATUS_OK);
+        try {
+            run(GalleryProtocol.readOperation(request), request, out);
+        } catch (RuntimeException e) {
+            // Drop whatever part of the result was written and answer with the error instead.
+            out.truncate(statusPosition);
+            out.writeByte(GalleryProtocol.STATUS_FAILED);
+            GalleryProtocol.writeError(out, e);
+        }
+        out.endFrame();
+    }
+
+    private void run(GalleryOperation operation, ByteBuffer request, FrameOutput out) {
+        switch (operation) {
+            case ADD_ART:
+                GalleryProtocol.writeBoolean(out, gallery.addArt(GalleryProtocol.readArt(request)));
+                break;
+            case ADD_ALL_ART:
+                GalleryProtocol.writeStatuses(out, gallery.addAllArt(GalleryProtocol.readArtList(request)));
+                break;
+            case DELETE_ART:
+                GalleryProtocol.writeBoolean(out, gallery.deleteArt(GalleryProtocol.readArt(request)));
+                break;
+            case GET_ALL_ART:
+                GalleryProtocol.writeArts(out, gallery.getAllArt());
+                break;
+            case GET_ARTISTS:
+                GalleryProtocol.writeStrings(out, gallery.getArtists());
+                break;
+            case GET_ART_BY_ARTIST:
+                GalleryProtocol.writeArts(out, gallery.getArtByArtist(GalleryProtocol.readString(request)));
+                break;
+            case GET_ART_BY_TYPE:
+                GalleryProtocol.writeArts(out, gallery.getArtByType(GalleryProtocol.readArtTypes(request)));
+                break;
+            case GET_RECENT_ART:
+                GalleryProtocol.writeArts(out, gallery.getRecentArt());
+                break;
+            case GET_ART_CREATED_BETWEEN:
+                GalleryProtocol.writeArts(out, gallery.getArtCreatedBetween(GalleryProtocol.readDate(request), GalleryProtocol.readDate(request)));
+                break;
+            case GET_ART_BY_PRICE:
+                GalleryProtocol.writeArts(out, gallery.getArtByPrice(GalleryProtocol.readPrice(request), GalleryProtocol.readPrice(request)));
+                break;
+            case STREAM_ART_BY_ARTIST:
+                writeStream(out, gallery.streamArtByArtist(GalleryProtocol.readString(request)));
+                break;
+            case STREAM_RECENT_ART:
+                writeStream(out, gallery.streamRecentArt());
+                break;
+            case STREAM_ART_CREATED_BETWEEN:
+                writeStream(out, gallery.streamArtCreatedBetween(GalleryProtocol.readDate(request), GalleryProtocol.readDate(request)));
+                break;
+            case STREAM_ART_BY_PRICE:
+                writeStream(out, gallery.streamArtByPrice(GalleryProtocol.readPrice(request), GalleryProtocol.readPrice(request)));
+                break;
+            case FIND_ART:
+                GalleryProtocol.writeArts(out, gallery.findArt(GalleryProtocol.readQuery(request)));
+                break;
+            case STREAM_ART:
+                writeStream(out, gallery.streamArt(GalleryProtocol.readQuery(request)));
+                break;
+            case EXPLAIN:
+                GalleryProtocol.writeString(out, gallery.explain(GalleryProtocol.readQuery(request)));
+                break;
+            case FIND_ARTISTS:
+                GalleryProtocol.writeStrings(out, gallery.findArtists(GalleryProtocol.readString(request), request.getInt()));
+                break;
+            case GET_ART_BY_ARTIST_PREFIX:
+                GalleryProtocol.writeArts(out, gallery.getArtByArtistPrefix(GalleryProtocol.readString(request)));
+                break;
+            case SEARCH_ART_BY_NAME:
+                GalleryProtocol.writeArts(out, gallery.searchArtByName(GalleryProtocol.readString(request), GalleryProtocol.readNameMatch(request)));
+                break;
+            case GET_ARTIST_STATS:
+                GalleryProtocol.writeArtStats(out, gallery.getArtistStats(GalleryProtocol.readString(request)));
+                break;
+            case GET_ALL_STATS:
+                GalleryProtocol.writeGalleryStats(out, gallery.getAllStats());
+                break;
+            case FIND_TOP_ART:
+                GalleryProtocol.writeArts(out, gallery.findTopArt(GalleryProtocol.readQuery(request), GalleryProtocol.readArtOrder(request), request.getInt()));
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported gallery operation " + operation);
+        }
+    }
+
+    private static void writeStream(FrameOutput out, Stream<Art> arts) {
+        try (Stream<Art> stream = arts) {
+            GalleryProtocol.writeArts(out, stream.collect(Collectors.toList()));
+        }
+    }
+
+    /**
+     * One client connection. The read buffer belongs to the selector thread, everything else is guarded by the
+     * connection's lock. The read buffer only grows past 64 KiB to fit a bigger request.
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        private final ArrayDeque<ByteBuffer> requests = new ArrayDeque<>();
+        private final ArrayDeque<ByteBuffer> responses = new ArrayDeque<>();
+        private boolean processing;
+        private long queuedRequestBytes;
+        private long queuedResponseBytes;
+
+        private Connection(SocketChannel channel, SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        private void read() {
+            try {
+                if (channel.read(readBuffer) < 0) {
+                    close();
+                    return;
+                }
+                takeFrames();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        /**
+         * queues the whole request frames in the read buffer, stopping once the connection has as many requests
+         * waiting as it may. The rest stay in the buffer until the requests drain.
+         */
+        private void takeFrames() throws IOException {
+            int queuedRequests;
+            long queuedBytes;
+            synchronized (this) {
+                // The workers only take requests away, so these can only overstate what is waiting.
+                queuedRequests = requests.size();
+                queuedBytes = queuedRequestBytes;
+            }
+            List<ByteBuffer> frames = new ArrayList<>();
+            readBuffer.flip();
+            while (readBuffer.remaining() >= Integer.BYTES && queuedRequests + frames.size() < MAX_QUEUED_REQUESTS
+                    && queuedBytes < MAX_QUEUED_REQUEST_BYTES) {
+                int length = readBuffer.getInt(readBuffer.position());
+                if (length < Integer.BYTES + 1 || length > GalleryProtocol.MAX_REQUEST_BYTES) {
+                    throw new IOException("Bad request frame length " + length);
+                }
+                if (readBuffer.remaining() < Integer.BYTES + length) {
+                    break;
+                }
+                byte[] frame = new byte[length];
+                readBuffer.position(readBuffer.position() + Integer.BYTES);
+                readBuffer.get(frame);
+                frames.add(ByteBuffer.wrap(frame));
+                queuedBytes += length;
+            }
+            readBuffer.compact();
+            resizeReadBuffer();
+            if (frames.isEmpty()) {
+                return;
+            }
+            synchronized (this) {
+                for (ByteBuffer frame : frames) {
+                    requests.add(frame);
+                    queuedRequestBytes += frame.remaining();
+                }
+                startProcessing();
+                updateInterestOps();
+            }
+        }
+
+        // Grows the buffer to fit a request bigger than it, and shrinks it back once such a request has been taken.
+        private void resizeReadBuffer() {
+            int buffered = readBuffer.position();
+            int needed = buffered < Integer.BYTES ? 0 : Integer.BYTES + readBuffer.getInt(0);
+            int capacity;
+            if (needed > readBuffer.capacity()) {
+                capacity = needed;
+            } else if (readBuffer.capacity() > READ_BUFFER_BYTES && Math.max(buffered, needed) <= READ_BUFFER_BYTES) {
+                capacity = READ_BUFFER_BYTES;
+            } else {
+                return;
+            }
+            readBuffer.flip();
+            readBuffer = ByteBuffer.allocate(capacity).put(readBuffer);
+        }
+
+        // Whether the read buffer starts with a request that has been read in full.
+        private boolean hasWholeFrame() {
+            int buffered = readBuffer.position();
+            return buffered >= Integer.BYTES && buffered - Integer.BYTES >= readBuffer.getInt(0);
+        }
+
+        // Runs on a worker, answering requests in order until none are left or too many answers wait to be sent.
+        private void process() {
+            FrameOutput out = new FrameOutput();
+            boolean finished = false;
+            try {
+                while (true) {
+                    ByteBuffer request;
+                    synchronized (this) {
+                        if (out.size() >= RESPONSE_CHUNK_BYTES) {
+                            queueResponses(out);
+                            out = new FrameOutput();
+                        }
+                        request = key.isValid() && queuedResponseBytes < MAX_QUEUED_RESPONSE_BYTES ? requests.poll() : null;
+                        if (request == null) {
+                            // Queued before processing stops, so a worker started after this cannot answer ahead of it.
+                            queueResponses(out);
+                            processing = false;
+                            finished = true;
+                            return;
+                        }
+                        queuedRequestBytes -= request.remaining();
+                    }
+                    respond(request, out);
+                }
+            } finally {
+                if (!finished) {
+                    // An Error, such as running out of memory, left a request unanswered: drop the connection so
+                    // its client fails instead of waiting forever.
+                    synchronized (this) {
+                        processing = false;
+                        closeChannel();
+                    }
+                }
+            }
+        }
+
+        private void queueResponses(FrameOutput out) {
+            if (out.size() == 0) {
+                return;
+            }
+            ByteBuffer response = out.toByteBuffer();
+            responses.add(response);
+            queuedResponseBytes += response.remaining();
+            connectionsToFlush.add(this);
+            selector.wakeup();
+        }
+
+        private void startProcessing() {
+            if (!processing && !requests.isEmpty() && queuedResponseBytes < MAX_QUEUED_RESPONSE_BYTES) {
+                processing = true;
+                workers.execute(this::process);
+            }
+        }
+
+        // Runs on the selector thread.
+        private void updateInterestOps() {
+            if (!key.isValid()) {
+                // Closed by a worker that failed.
+                return;
+            }
+            int interestOps = responses.isEmpty() ? 0 : SelectionKey.OP_WRITE;
+            if (requests.size() < MAX_QUEUED_REQUESTS && queuedRequestBytes < MAX_QUEUED_REQUEST_BYTES
+                    && queuedResponseBytes < MAX_QUEUED_RESPONSE_BYTES) {
+                interestOps |= SelectionKey.OP_READ;
+            }
+            key.interestOps(interestOps);
+        }
+
+        // Runs on the selector thread.
+        private synchronized void flush() {
+            if (!key.isValid()) {
+                return;
+            }
+            try {
+                while (!responses.isEmpty()) {
+                    ByteBuffer response = responses.peek();
+                    int written = channel.write(response);
+                    queuedResponseBytes -= written;
+                    if (response.hasRemaining()) {
+                        break;
+                    }
+                    responses.poll();
+                }
+                startProcessing();
+                updateInterestOps();
+                if ((key.interestOps() & SelectionKey.OP_READ) != 0 && hasWholeFrame()) {
+                    // Requests left in the buffer when the queue filled up, which no read would pick up.
+                    takeFrames();
+                }
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        // Runs on the selector thread.
+        private synchronized void close() {
+            closeChannel();
+            if (acceptPaused) {
+                // The descriptor just freed may be enough for the next connection.
+                acceptPaused = false;
+                acceptKey.interestOps(SelectionKey.OP_ACCEPT);
+            }
+        }
+
+        private synchronized void closeChannel() {
+            key.cancel();
+            closeQuietly(channel);
+            requests.clear();
+            responses.clear();
+        }
+    }
+}
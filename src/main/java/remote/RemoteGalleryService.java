@@ -0,0 +1,341 @@
+package remote;
+
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.GalleryOperation;
+import constants.NameMatch;
+import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.GalleryConnectionException;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+import service.GalleryService;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * A {@link GalleryService} served by a {@link GalleryServer}, over one connection.
+ * <p>
+ * The connection is shared by all calling threads: each call sends its request straight away without waiting
+ * for the calls before it to be answered, and a reader thread hands each response to the call waiting for it.
+ * Range errors are thrown as on a local gallery, lost connections and other server failures as
+ * {@link GalleryConnectionException}. The stream methods return a stream over the whole result, which is read
+ * before they return.
+ * <p>
+ * A request may be at most {@link GalleryProtocol#MAX_REQUEST_BYTES} long, since the server drops the connection
+ * on a longer one. addAllArt sends a bigger batch as several requests, each added to the gallery on its own, and
+ * a call whose request is still too long fails with an IllegalArgumentException before anything is sent.
+ *
+ * @see service.GalleryService
+ */
+public class RemoteGalleryService implements GalleryService, Closeable {
+    // What is left of a request for its art once the request id, operation and art count are written.
+    private static final int MAX_ART_BATCH_BYTES = GalleryProtocol.MAX_REQUEST_BYTES - Integer.BYTES - 1 - Integer.BYTES;
+
+    private final SocketChannel channel;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final ConcurrentMap<Integer, CompletableFuture<ByteBuffer>> pendingResponses = new ConcurrentHashMap<>();
+    private final Thread reader;
+    private volatile boolean closed;
+
+    private RemoteGalleryService(SocketChannel channel) {
+        this.channel = channel;
+        this.reader = new Thread(this::readResponses, "gallery-client-reader");
+        reader.setDaemon(true);
+    }
+
+    public static RemoteGalleryService connect(InetSocketAddress address) throws IOException {
+        SocketChannel channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        RemoteGalleryService galleryService = new RemoteGalleryService(channel);
+        galleryService.reader.start();
+        return galleryService;
+    }
+
+    @Override
+    public boolean addArt(Art art) {
+        return GalleryProtocol.readBoolean(call(GalleryOperation.ADD_ART, out -> GalleryProtocol.writeArt(out, art)));
+    }
+
+    @Override
+    public List<AddArtStatus> addAllArt(Collection<Art> arts) {
+        if (arts == null || arts.isEmpty()) {
+            return addArtBatch(arts);
+        }
+        List<AddArtStatus> statuses = new ArrayList<>(arts.size());
+        List<Art> batch = new ArrayList<>();
+        long batchBytes = 0;
+        for (Art art : arts) {
+            int artBytes = GalleryProtocol.artSize(art);
+            if (!batch.isEmpty() && batchBytes + artBytes > MAX_ART_BATCH_BYTES) {
+                statuses.addAll(addArtBatch(batch));
+                batch.clear();
+                batchBytes = 0;
+            }
+            batch.add(art);
+            batchBytes += artBytes;
+        }
+        statuses.addAll(addArtBatch(batch));
+        return statuses;
+    }
+
+    private List<AddArtStatus> addArtBatch(Collection<Art> arts) {
+        return GalleryProtocol.readStatuses(call(GalleryOperation.ADD_ALL_ART, out -> GalleryProtocol.writeArts(out, arts)));
+    }
+
+    @Override
+    public boolean deleteArt(Art art) {
+        return GalleryProtocol.readBoolean(call(GalleryOperation.DELETE_ART, out -> GalleryProtocol.writeArt(out, art)));
+    }
+
+    @Override
+    public Set<Art> getAllArt() {
+        return GalleryProtocol.readArtSet(call(GalleryOperation.GET_ALL_ART, out -> { }));
+    }
+
+    @Override
+    public List<String> getArtists() {
+        return GalleryProtocol.readStrings(call(GalleryOperation.GET_ARTISTS, out -> { }));
+    }
+
+    @Override
+    public ArtStats getArtistStats(String artistName) {
+        return GalleryProtocol.readArtStats(call(GalleryOperation.GET_ARTIST_STATS, out -> GalleryProtocol.writeString(out, artistName)));
+    }
+
+    @Override
+    public GalleryStats getAllStats() {
+        return GalleryProtocol.readGalleryStats(call(GalleryOperation.GET_ALL_STATS, out -> { }));
+    }
+
+    @Override
+    public Set<Art> getArtByArtist(String artistName) {
+        return GalleryProtocol.readArtSet(call(GalleryOperation.GET_ART_BY_ARTIST, out -> GalleryProtocol.writeString(out, artistName)));
+    }
+
+    @Override
+    public List<String> findArtists(String prefix, int limit) {
+        return Collections.unmodifiableList(GalleryProtocol.readStrings(call(GalleryOperation.FIND_ARTISTS, out -> {
+            GalleryProtocol.writeString(out, prefix);
+            out.writeInt(limit);
+        })));
+    }
+
+    @Override
+    public Set<Art> getArtByArtistPrefix(String prefix) {
+        return GalleryProtocol.readArtSet(call(GalleryOperation.GET_ART_BY_ARTIST_PREFIX, out -> GalleryProtocol.writeString(out, prefix)));
+    }
+
+    @Override
+    public Set<Art> searchArtByName(String text, NameMatch match) {
+        return GalleryProtocol.readArtSet(call(GalleryOperation.SEARCH_ART_BY_NAME, out -> {
+            GalleryProtocol.writeString(out, text);
+            GalleryProtocol.writeNameMatch(out, match);
+        }));
+    }
+
+    @Override
+    public Set<Art> getRecentArt() {
+        return GalleryProtocol.readArtSet(call(GalleryOperation.GET_RECENT_ART, out -> { }));
+    }
+
+    @Override
+    public Set<Art> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        return GalleryProtocol.readArtSet(call(GalleryOperation.GET_ART_CREATED_BETWEEN, out -> {
+            GalleryProtocol.writeDate(out, createdFrom);
+            GalleryProtocol.writeDate(out, createdTo);
+        }));
+    }
+
+    @Override
+    public Set<Art> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        return GalleryProtocol.readArtSet(call(GalleryOperation.GET_ART_BY_PRICE, out -> {
+            GalleryProtocol.writePrice(out, priceLimitMin);
+            GalleryProtocol.writePrice(out, priceLimitMax);
+        }));
+    }
+
+    @Override
+    public Set<Art> getArtByType(ArtType... artTypes) {
+        return GalleryProtocol.readArtSet(call(GalleryOperation.GET_ART_BY_TYPE, out -> GalleryProtocol.writeArtTypes(out, artTypes)));
+    }
+
+    @Override
+    public Stream<Art> streamArtByArtist(String artistName) {
+        return GalleryProtocol.readArtList(call(GalleryOperation.STREAM_ART_BY_ARTIST, out -> GalleryProtocol.writeString(out, artistName))).stream();
+    }
+
+    @Override
+    public Stream<Art> streamRecentArt() {
+        return GalleryProtocol.readArtList(call(GalleryOperation.STREAM_RECENT_ART, out -> { })).stream();
+    }
+
+    @Override
+    public Stream<Art> streamArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        return GalleryProtocol.readArtList(call(GalleryOperation.STREAM_ART_CREATED_BETWEEN, out -> {
+            GalleryProtocol.writeDate(out, createdFrom);
+            GalleryProtocol.writeDate(out, createdTo);
+        })).stream();
+    }
+
+    @Override
+    public Stream<Art> streamArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        return GalleryProtocol.readArtList(call(GalleryOperation.STREAM_ART_BY_PRICE, out -> {
+            GalleryProtocol.writePrice(out, priceLimitMin);
+            GalleryProtocol.writePrice(out, priceLimitMax);
+        })).stream();
+    }
+
+    @Override
+    public Set<Art> findArt(GalleryQuery query) {
+        return GalleryProtocol.readArtSet(call(GalleryOperation.FIND_ART, out -> GalleryProtocol.writeQuery(out, query)));
+    }
+
+    @Override
+    public Stream<Art> streamArt(GalleryQuery query) {
+        return GalleryProtocol.readArtList(call(GalleryOperation.STREAM_ART, out -> GalleryProtocol.writeQuery(out, query))).stream();
+    }
+
+    @Override
+    public String explain(GalleryQuery query) {
+        return GalleryProtocol.readString(call(GalleryOperation.EXPLAIN, out -> GalleryProtocol.writeQuery(out, query)));
+    }
+
+    @Override
+    public List<Art> findTopArt(GalleryQuery query, ArtOrder order, int count) {
+        return Collections.unmodifiableList(GalleryProtocol.readArtList(call(GalleryOperation.FIND_TOP_ART, out -> {
+            GalleryProtocol.writeQuery(out, query);
+            GalleryProtocol.writeArtOrder(out, order);
+            out.writeInt(count);
+        })));
+    }
+
+    /**
+     * closes the connection, failing calls still waiting for an answer.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        channel.close();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * sends a request and returns the result part of its response.
+     */
+    private ByteBuffer call(GalleryOperation operation, Consumer<FrameOutput> arguments) {
+        int requestId = nextRequestId.getAndIncrement();
+        FrameOutput out = new FrameOutput();
+        out.startFrame();
+        out.writeInt(requestId);
+        GalleryProtocol.writeOperation(out, operation);
+        arguments.accept(out);
+        out.endFrame();
+        int requestBytes = out.size() - Integer.BYTES;
+        if (requestBytes > GalleryProtocol.MAX_REQUEST_BYTES) {
+            throw new IllegalArgumentException("Gallery request of " + requestBytes + " bytes is longer than the "
+                    + GalleryProtocol.MAX_REQUEST_BYTES + " bytes the server takes");
+        }
+
+        CompletableFuture<ByteBuffer> pendingResponse = new CompletableFuture<>();
+        pendingResponses.put(requestId, pendingResponse);
+        // Checked after registering, so either this call or the reader shutting down fails the response.
+        if (closed) {
+            pendingResponses.remove(requestId);
+            throw new GalleryConnectionException("Gallery connection is closed");
+        }
+        writeLock.lock();
+        try {
+            ByteBuffer request = out.toByteBuffer();
+            while (request.hasRemaining()) {
+                channel.write(request);
+            }
+        } catch (IOException e) {
+            pendingResponses.remove(requestId);
+            throw new GalleryConnectionException("Could not send gallery request", e);
+        } finally {
+            writeLock.unlock();
+        }
+
+        ByteBuffer response;
+        try {
+            response = pendingResponse.get();
+        } catch (InterruptedException e) {
+            pendingResponses.remove(requestId);
+            Thread.currentThread().interrupt();
+            throw new GalleryConnectionException("Interrupted waiting for the gallery server", e);
+        } catch (ExecutionException e) {
+            throw new GalleryConnectionException("Gallery connection failed", e.getCause());
+        }
+        if (response.get() == GalleryProtocol.STATUS_FAILED) {
+            throw GalleryProtocol.readError(response);
+        }
+        return response;
+    }
+
+    private void readResponses() {
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES);
+        IOException failure = null;
+        try {
+            while (true) {
+                header.clear();
+                readFully(header);
+                ByteBuffer response = ByteBuffer.allocate(header.getInt(0));
+                readFully(response);
+                response.flip();
+                CompletableFuture<ByteBuffer> pendingResponse = pendingResponses.remove(response.getInt());
+                if (pendingResponse != null) {
+                    pendingResponse.complete(response);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            closed = true;
+            GalleryConnectionException connectionLost = new GalleryConnectionException("Gallery connection lost", failure);
+            for (Integer requestId : pendingResponses.keySet()) {
+                CompletableFuture<ByteBuffer> pendingResponse = pendingResponses.remove(requestId);
+                if (pendingResponse != null) {
+                    pendingResponse.completeExceptionally(connectionLost);
+                }
+            }
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("Gallery server closed the connection");
+            }
+        }
+    }
+}
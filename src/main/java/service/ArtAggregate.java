@@ -0,0 +1,81 @@
+package service;
+
+import collections.PersistentSortedMap;
+import dto.Art;
+import dto.ArtStats;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+
+/**
+ * The running {@link ArtStats} of a group of art in a {@link GallerySnapshot}. Immutable, like the snapshot.
+ * Prices and creation days are kept as sorted counts so the min and max survive deletes, adding or removing
+ * a piece costs O(log n).
+ */
+final class ArtAggregate {
+    static final ArtAggregate EMPTY = new ArtAggregate(0, 0, BigInteger.ZERO,
+            PersistentSortedMap.<BigInteger, Integer>empty(), PersistentSortedMap.<Long, Integer>empty());
+
+    private final int count;
+    private final int pricedCount;
+    private final BigInteger totalPrice;
+    private final PersistentSortedMap<BigInteger, Integer> priceCounts;
+    private final PersistentSortedMap<Long, Integer> creationDayCounts;
+
+    private ArtAggregate(int count, int pricedCount, BigInteger totalPrice,
+                         PersistentSortedMap<BigInteger, Integer> priceCounts, PersistentSortedMap<Long, Integer> creationDayCounts) {
+        this.count = count;
+        this.pricedCount = pricedCount;
+        this.totalPrice = totalPrice;
+        this.priceCounts = priceCounts;
+        this.creationDayCounts = creationDayCounts;
+    }
+
+    int count() {
+        return count;
+    }
+
+    ArtAggregate plus(Art art) {
+        BigInteger price = art.getPrice();
+        return new ArtAggregate(count + 1,
+                price == null ? pricedCount : pricedCount + 1,
+                price == null ? totalPrice : totalPrice.add(price),
+                price == null ? priceCounts : increment(priceCounts, price),
+                increment(creationDayCounts, art.getCreationDate().toEpochDay()));
+    }
+
+    /**
+     * returns the aggregate without the given piece, which must be the stored one so its price and date match.
+     */
+    ArtAggregate minus(Art art) {
+        BigInteger price = art.getPrice();
+        return new ArtAggregate(count - 1,
+                price == null ? pricedCount : pricedCount - 1,
+                price == null ? totalPrice : totalPrice.subtract(price),
+                price == null ? priceCounts : decrement(priceCounts, price),
+                decrement(creationDayCounts, art.getCreationDate().toEpochDay()));
+    }
+
+    ArtStats toStats() {
+        if (count == 0) {
+            return ArtStats.empty();
+        }
+        ArtStats.ArtStatsBuilder statsBuilder = new ArtStats.ArtStatsBuilder()
+                .count(count)
+                .creationDates(LocalDate.ofEpochDay(creationDayCounts.keyAt(0)), LocalDate.ofEpochDay(creationDayCounts.keyAt(creationDayCounts.size() - 1)));
+        if (pricedCount > 0) {
+            statsBuilder.prices(pricedCount, totalPrice, priceCounts.keyAt(0), priceCounts.keyAt(priceCounts.size() - 1));
+        }
+        return statsBuilder.build();
+    }
+
+    private static <K> PersistentSortedMap<K, Integer> increment(PersistentSortedMap<K, Integer> counts, K key) {
+        Integer keyCount = counts.get(key);
+        return counts.plus(key, keyCount == null ? 1 : keyCount + 1);
+    }
+
+    private static <K> PersistentSortedMap<K, Integer> decrement(PersistentSortedMap<K, Integer> counts, K key) {
+        int keyCount = counts.get(key);
+        return keyCount == 1 ? counts.minus(key) : counts.plus(key, keyCount - 1);
+    }
+}
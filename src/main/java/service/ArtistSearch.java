@@ -0,0 +1,65 @@
+package service;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The artist name normalisation shared by the artist search indexes of every {@link GalleryService}.
+ * Names are decomposed, stripped of accents and case folded, so "Dürer", "DURER" and "durer" are one name to
+ * search for. Indexes are sorted by {@link #indexKey}, the normalised name followed by the name itself, so
+ * the artists matching a prefix are one contiguous range of keys and artists whose names normalise the same
+ * are still told apart.
+ */
+final class ArtistSearch {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final char KEY_SEPARATOR = '\u0000';
+
+    private ArtistSearch() { }
+
+    static String normalise(String name) {
+        String decomposed = Normalizer.normalize(name, Normalizer.Form.NFKD);
+        return COMBINING_MARKS.matcher(decomposed).replaceAll("").toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    static String indexKey(String artistName) {
+        return normalise(artistName) + KEY_SEPARATOR + artistName;
+    }
+
+    /**
+     * returns the first index key an artist whose name starts with the prefix can have, or null for no bound.
+     */
+    static String firstKey(String prefix) {
+        String normalisedPrefix = normalise(prefix);
+        return normalisedPrefix.isEmpty() ? null : normalisedPrefix;
+    }
+
+    /**
+     * returns the first index key after those of the artists whose names start with the prefix, or null for no
+     * bound.
+     */
+    static String keyAfter(String prefix) {
+        return keyAfterAll(normalise(prefix));
+    }
+
+    /**
+     * returns the first string after all of those starting with the given one, or null for no bound.
+     */
+    static String keyAfterAll(String start) {
+        // Trailing highest chars have no key above them, so they are dropped and the last char left incremented.
+        int end = start.length();
+        while (end > 0 && start.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        if (end == 0) {
+            return null;
+        }
+        return start.substring(0, end - 1) + (char) (start.charAt(end - 1) + 1);
+    }
+
+    static void checkLimit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit should not be negative. Given limit::" + limit);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package service;
+
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.NameMatch;
+import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+
+/**
+ * This class runs the calls of any {@link GalleryService} off the caller's thread. Each call is a task on its own
+ * virtual thread, so thousands of queries can be in flight without thousands of platform threads.
+ * <p>
+ * Single results come back as a {@link CompletableFuture}, which fails with the exception the call threw, for
+ * example {@link exceptions.InvalidPriceRangeException}. Streamed results come back as a {@link Flow.Publisher}
+ * that reads the gallery's lazy stream only as fast as the subscriber asks for pieces; each subscriber runs its
+ * own query.
+ *
+ * @see service.GalleryService
+ */
+public class AsyncGalleryService implements AutoCloseable {
+    private final GalleryService gallery;
+    private final ExecutorService executor;
+    private final StreamPublisher.Subscriptions subscriptions = new StreamPublisher.Subscriptions();
+
+    public AsyncGalleryService(GalleryService gallery) {
+        this(gallery, Executors.newVirtualThreadPerTaskExecutor());
+    }
+
+    /**
+     * @param gallery
+     * @param executor runs every call, closed with this service
+     */
+    public AsyncGalleryService(GalleryService gallery, ExecutorService executor) {
+        this.gallery = gallery;
+        this.executor = executor;
+    }
+
+    public CompletableFuture<Boolean> addArt(Art art) {
+        return CompletableFuture.supplyAsync(() -> gallery.addArt(art), executor);
+    }
+
+    public CompletableFuture<List<AddArtStatus>> addAllArt(Collection<Art> arts) {
+        return CompletableFuture.supplyAsync(() -> gallery.addAllArt(arts), executor);
+    }
+
+    public CompletableFuture<Boolean> deleteArt(Art art) {
+        return CompletableFuture.supplyAsync(() -> gallery.deleteArt(art), executor);
+    }
+
+    public CompletableFuture<Set<Art>> getAllArt() {
+        return CompletableFuture.supplyAsync(gallery::getAllArt, executor);
+    }
+
+    public CompletableFuture<List<String>> getArtists() {
+        return CompletableFuture.supplyAsync(gallery::getArtists, executor);
+    }
+
+    public CompletableFuture<ArtStats> getArtistStats(String artistName) {
+        return CompletableFuture.supplyAsync(() -> gallery.getArtistStats(artistName), executor);
+    }
+
+    public CompletableFuture<GalleryStats> getAllStats() {
+        return CompletableFuture.supplyAsync(gallery::getAllStats, executor);
+    }
+
+    public CompletableFuture<Set<Art>> getArtByArtist(String artistName) {
+        return CompletableFuture.supplyAsync(() -> gallery.getArtByArtist(artistName), executor);
+    }
+
+    public CompletableFuture<List<String>> findArtists(String prefix, int limit) {
+        return CompletableFuture.supplyAsync(() -> gallery.findArtists(prefix, limit), executor);
+    }
+
+    public CompletableFuture<Set<Art>> getArtByArtistPrefix(String prefix) {
+        return CompletableFuture.supplyAsync(() -> gallery.getArtByArtistPrefix(prefix), executor);
+    }
+
+    public CompletableFuture<Set<Art>> searchArtByName(String text, NameMatch match) {
+        return CompletableFuture.supplyAsync(() -> gallery.searchArtByName(text, match), executor);
+    }
+
+    public CompletableFuture<Set<Art>> getRecentArt() {
+        return CompletableFuture.supplyAsync(gallery::getRecentArt, executor);
+    }
+
+    public CompletableFuture<Set<Art>> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) {
+        return CompletableFuture.supplyAsync(() -> gallery.getArtCreatedBetween(createdFrom, createdTo), executor);
+    }
+
+    public CompletableFuture<Set<Art>> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) {
+        return CompletableFuture.supplyAsync(() -> gallery.getArtByPrice(priceLimitMin, priceLimitMax), executor);
+    }
+
+    public CompletableFuture<Set<Art>> getArtByType(ArtType... artTypes) {
+        return CompletableFuture.supplyAsync(() -> gallery.getArtByType(artTypes), executor);
+    }
+
+    public CompletableFuture<Set<Art>> findArt(GalleryQuery query) {
+        return CompletableFuture.supplyAsync(() -> gallery.findArt(query), executor);
+    }
+
+    public CompletableFuture<List<Art>> findTopArt(GalleryQuery query, ArtOrder order, int count) {
+        return CompletableFuture.supplyAsync(() -> gallery.findTopArt(query, order, count), executor);
+    }
+
+    public CompletableFuture<String> explain(GalleryQuery query) {
+        return CompletableFuture.supplyAsync(() -> gallery.explain(query), executor);
+    }
+
+    public Flow.Publisher<Art> publishArtByArtist(String artistName) {
+        return new StreamPublisher<>(() -> gallery.streamArtByArtist(artistName), executor, subscriptions);
+    }
+
+    public Flow.Publisher<Art> publishRecentArt() {
+        return new StreamPublisher<>(gallery::streamRecentArt, executor, subscriptions);
+    }
+
+    public Flow.Publisher<Art> publishArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) {
+        return new StreamPublisher<>(() -> gallery.streamArtCreatedBetween(createdFrom, createdTo), executor, subscriptions);
+    }
+
+    public Flow.Publisher<Art> publishArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) {
+        return new StreamPublisher<>(() -> gallery.streamArtByPrice(priceLimitMin, priceLimitMax), executor, subscriptions);
+    }
+
+    public Flow.Publisher<Art> publishArt(GalleryQuery query) {
+        return new StreamPublisher<>(() -> gallery.streamArt(query), executor, subscriptions);
+    }
+
+    /**
+     * stops taking calls and waits for the ones in flight to finish. Open subscriptions are ended with an
+     * IllegalStateException rather than waited for, since their subscribers may never ask for more.
+     */
+    @Override
+    public void close() {
+        subscriptions.closeAll();
+        executor.close();
+    }
+}
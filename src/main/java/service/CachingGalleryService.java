@@ -0,0 +1,308 @@
+package service;
+
+import collections.BoundedCache;
+import collections.CacheStats;
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.GalleryOperation;
+import constants.NameMatch;
+import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * This class wraps any {@link GalleryService} and caches the results of the queries that are repeated most:
+ * {@link #getArtists()}, {@link #getArtByArtist(String)}, {@link #getArtCreatedBetween(LocalDate, LocalDate)}
+ * and {@link #getArtByPrice(BigInteger, BigInteger)}. Cached results are unmodifiable.
+ * <p>
+ * Changes must go through this class. Adding art only invalidates the cached artists, that artist's art and the
+ * date and price ranges the new piece falls in. Deleting art also invalidates every date and price range,
+ * because the piece in the gallery may have another date or price than the one passed in. Every other method
+ * goes straight to the wrapped gallery.
+ *
+ * @see service.GalleryService
+ * @see collections.BoundedCache
+ */
+public class CachingGalleryService implements GalleryService {
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    private final GalleryService gallery;
+    private final BoundedCache<QueryKey, Object> cache;
+
+    public CachingGalleryService(GalleryService gallery) {
+        this(gallery, DEFAULT_MAXIMUM_SIZE);
+    }
+
+    public CachingGalleryService(GalleryService gallery, int maximumSize) {
+        this.gallery = gallery;
+        this.cache = new BoundedCache<>(maximumSize);
+    }
+
+    @Override
+    public boolean addArt(Art art) {
+        boolean added = gallery.addArt(art);
+        if (added) {
+            cache.invalidate(key -> key.isAffectedByAdding(art));
+        }
+        return added;
+    }
+
+    @Override
+    public List<AddArtStatus> addAllArt(Collection<Art> arts) {
+        List<AddArtStatus> statuses = gallery.addAllArt(arts);
+        if (statuses.isEmpty()) {
+            return statuses;
+        }
+        List<Art> addedArts = new ArrayList<>();
+        int i = 0;
+        for (Art art : arts) {
+            if (statuses.get(i++) == AddArtStatus.ADDED) {
+                addedArts.add(art);
+            }
+        }
+        if (!addedArts.isEmpty()) {
+            cache.invalidate(key -> addedArts.stream().anyMatch(key::isAffectedByAdding));
+        }
+        return statuses;
+    }
+
+    @Override
+    public boolean deleteArt(Art art) {
+        boolean deleted = gallery.deleteArt(art);
+        if (deleted) {
+            cache.invalidate(key -> key.isAffectedByDeleting(art));
+        }
+        return deleted;
+    }
+
+    @Override
+    public Set<Art> getAllArt() {
+        return gallery.getAllArt();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<String> getArtists() {
+        QueryKey key = new QueryKey(GalleryOperation.GET_ARTISTS, null, null, null);
+        List<String> artists = (List<String>) cache.get(key);
+        if (artists == null) {
+            long version = cache.version();
+            artists = Collections.unmodifiableList(gallery.getArtists());
+            cache.put(key, artists, version);
+        }
+        return artists;
+    }
+
+    @Override
+    public ArtStats getArtistStats(String artistName) {
+        return gallery.getArtistStats(artistName);
+    }
+
+    @Override
+    public GalleryStats getAllStats() {
+        return gallery.getAllStats();
+    }
+
+    @Override
+    public Set<Art> getArtByArtist(String artistName) {
+        QueryKey key = new QueryKey(GalleryOperation.GET_ART_BY_ARTIST, artistName, null, null);
+        Set<Art> arts = cachedArts(key);
+        if (arts == null) {
+            long version = cache.version();
+            arts = Collections.unmodifiableSet(gallery.getArtByArtist(artistName));
+            cache.put(key, arts, version);
+        }
+        return arts;
+    }
+
+    @Override
+    public List<String> findArtists(String prefix, int limit) {
+        return gallery.findArtists(prefix, limit);
+    }
+
+    @Override
+    public Set<Art> getArtByArtistPrefix(String prefix) {
+        return gallery.getArtByArtistPrefix(prefix);
+    }
+
+    @Override
+    public Set<Art> searchArtByName(String text, NameMatch match) {
+        return gallery.searchArtByName(text, match);
+    }
+
+    @Override
+    public Set<Art> getRecentArt() {
+        return gallery.getRecentArt();
+    }
+
+    @Override
+    public Set<Art> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        QueryKey key = new QueryKey(GalleryOperation.GET_ART_CREATED_BETWEEN, null, createdFrom, createdTo);
+        Set<Art> arts = cachedArts(key);
+        if (arts == null) {
+            long version = cache.version();
+            arts = Collections.unmodifiableSet(gallery.getArtCreatedBetween(createdFrom, createdTo));
+            cache.put(key, arts, version);
+        }
+        return arts;
+    }
+
+    @Override
+    public Set<Art> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        QueryKey key = new QueryKey(GalleryOperation.GET_ART_BY_PRICE, null, priceLimitMin, priceLimitMax);
+        Set<Art> arts = cachedArts(key);
+        if (arts == null) {
+            long version = cache.version();
+            arts = Collections.unmodifiableSet(gallery.getArtByPrice(priceLimitMin, priceLimitMax));
+            cache.put(key, arts, version);
+        }
+        return arts;
+    }
+
+    @Override
+    public Set<Art> getArtByType(ArtType... artTypes) {
+        return gallery.getArtByType(artTypes);
+    }
+
+    @Override
+    public Stream<Art> streamArtByArtist(String artistName) {
+        return gallery.streamArtByArtist(artistName);
+    }
+
+    @Override
+    public Stream<Art> streamRecentArt() {
+        return gallery.streamRecentArt();
+    }
+
+    @Override
+    public Stream<Art> streamArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        return gallery.streamArtCreatedBetween(createdFrom, createdTo);
+    }
+
+    @Override
+    public Stream<Art> streamArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        return gallery.streamArtByPrice(priceLimitMin, priceLimitMax);
+    }
+
+    @Override
+    public Set<Art> findArt(GalleryQuery query) {
+        return gallery.findArt(query);
+    }
+
+    @Override
+    public Stream<Art> streamArt(GalleryQuery query) {
+        return gallery.streamArt(query);
+    }
+
+    @Override
+    public String explain(GalleryQuery query) {
+        return gallery.explain(query);
+    }
+
+    @Override
+    public List<Art> findTopArt(GalleryQuery query, ArtOrder order, int count) {
+        return gallery.findTopArt(query, order, count);
+    }
+
+    /**
+     * returns the hit, miss, eviction and invalidation counts of the cache so far.
+     *
+     * @return
+     */
+    public CacheStats getCacheStats() {
+        return cache.stats();
+    }
+
+    /**
+     * drops every cached result, for when the wrapped gallery was changed without going through this class.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<Art> cachedArts(QueryKey key) {
+        return (Set<Art>) cache.get(key);
+    }
+
+    /**
+     * One cached query and its parameters. Ranges are compared inclusively with null meaning open, as the
+     * queries do.
+     */
+    private static final class QueryKey {
+        private final GalleryOperation operation;
+        private final String artistName;
+        private final Comparable<?> from;
+        private final Comparable<?> to;
+        private final int hashCode;
+
+        private QueryKey(GalleryOperation operation, String artistName, Comparable<?> from, Comparable<?> to) {
+            this.operation = operation;
+            this.artistName = artistName;
+            this.from = from;
+            this.to = to;
+            this.hashCode = Objects.hash(operation, artistName, from, to);
+        }
+
+        private boolean isAffectedByAdding(Art art) {
+            switch (operation) {
+                case GET_ARTISTS:
+                    return true;
+                case GET_ART_BY_ARTIST:
+                    return Objects.equals(artistName, art.getArtistName());
+                case GET_ART_CREATED_BETWEEN:
+                    return inRange(art.getCreationDate());
+                case GET_ART_BY_PRICE:
+                    return inRange(art.getPrice());
+                default:
+                    throw new IllegalStateException("Unknown cached operation " + operation);
+            }
+        }
+
+        private boolean isAffectedByDeleting(Art art) {
+            return operation != GalleryOperation.GET_ART_BY_ARTIST || isAffectedByAdding(art);
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T extends Comparable<T>> boolean inRange(T value) {
+            return value != null
+                    && (from == null || value.compareTo((T) from) >= 0)
+                    && (to == null || value.compareTo((T) to) <= 0);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            if (!(obj instanceof QueryKey)) {
+                return false;
+            }
+
+            QueryKey queryKey = (QueryKey) obj;
+
+            return hashCode == queryKey.hashCode
+                    && operation == queryKey.operation
+                    && Objects.equals(artistName, queryKey.artistName)
+                    && Objects.equals(from, queryKey.from)
+                    && Objects.equals(to, queryKey.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
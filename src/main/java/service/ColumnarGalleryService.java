@@ -0,0 +1,729 @@
+package service;
+
+import collections.PostingList;
+import collections.SymbolTable;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.NameMatch;
+import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+import store.ColumnarArtStore;
+
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntPredicate;
+import java.util.function.IntToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * This class implements interface on top of a {@link ColumnarArtStore}, keeping the gallery off the Java heap.
+ * Suited to galleries of tens of millions of pieces: queries scan the columns they need and only create
+ * {@link Art} objects for the art they return.
+ * <p>
+ * Queries share a read lock and writes take the write lock. Streams scan rows in row order and take the read
+ * lock a batch at a time, so they may see writes made while they are consumed, like a concurrent map's
+ * iterators.
+ *
+ * @see service.GalleryService
+ */
+public class ColumnarGalleryService implements GalleryService {
+    private static final BigInteger LONG_MIN = BigInteger.valueOf(Long.MIN_VALUE);
+    private static final BigInteger LONG_MAX = BigInteger.valueOf(Long.MAX_VALUE);
+    private static final int STREAM_BATCH_SIZE = 256;
+    private static final int ART_TYPE_COUNT = ArtType.values().length;
+
+    private final ColumnarArtStore store = new ColumnarArtStore();
+    private final Lock readLock;
+    private final Lock writeLock;
+    private final Clock clock;
+    // The figures of each artist's art by artist id, only for the artists with art, so it grows with the artists in
+    // this gallery rather than with every symbol.
+    private final Map<Integer, RunningArtStats> artistStats = new HashMap<>();
+    private final RunningArtStats[] artTypeStats = new RunningArtStats[ART_TYPE_COUNT];
+    // The ids of the artists with art, by ArtistSearch index key.
+    private final TreeMap<String, Integer> artistSearchIndex = new TreeMap<>();
+    // The rows of the art, by NameSearch term of their names.
+    private final TreeMap<String, PostingList> nameTermIndex = new TreeMap<>();
+    // Rebuilt on the first getArtists call after an artist is added or removed.
+    private volatile List<String> artistNames = ImmutableList.of();
+
+    public ColumnarGalleryService() {
+        this(Clock.systemDefaultZone());
+    }
+
+    // Visible for tests which need a fixed "today".
+    ColumnarGalleryService(Clock clock) {
+        ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        this.readLock = lock.readLock();
+        this.writeLock = lock.writeLock();
+        this.clock = clock;
+        for (int artType = 0; artType < ART_TYPE_COUNT; artType++) {
+            artTypeStats[artType] = new RunningArtStats();
+        }
+    }
+
+    @Override
+    public boolean addArt(Art art) {
+        if (art == null) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            return insert(art);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<AddArtStatus> addAllArt(Collection<Art> arts) {
+        if (arts == null) {
+            return Collections.emptyList();
+        }
+        List<AddArtStatus> statuses = new ArrayList<>(arts.size());
+        writeLock.lock();
+        try {
+            for (Art art : arts) {
+                if (art == null) {
+                    statuses.add(AddArtStatus.REJECTED);
+                } else {
+                    statuses.add(insert(art) ? AddArtStatus.ADDED : AddArtStatus.ALREADY_IN_GALLERY);
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return statuses;
+    }
+
+    @Override
+    public boolean deleteArt(Art art) {
+        if (art == null) {
+            return false;
+        }
+        writeLock.lock();
+        try {
+            int row = store.find(art);
+            if (row == ColumnarArtStore.NO_ROW) {
+                return false;
+            }
+            int artistId = store.artistId(row);
+            BigInteger price = store.price(row);
+            long creationDay = store.creationDay(row);
+            RunningArtStats stats = artistStats.get(artistId);
+            stats.remove(price, creationDay);
+            artTypeStats[store.artType(row).ordinal()].remove(price, creationDay);
+            store.delete(art);
+            for (String term : NameSearch.indexTerms(art.getName())) {
+                PostingList rows = nameTermIndex.get(term).without(row);
+                if (rows.isEmpty()) {
+                    nameTermIndex.remove(term);
+                } else {
+                    nameTermIndex.put(term, rows);
+                }
+            }
+            if (stats.count() == 0) {
+                artistStats.remove(artistId);
+                artistNames = null;
+                artistSearchIndex.remove(ArtistSearch.indexKey(SymbolTable.getInstance().symbolOf(artistId)));
+            }
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<Art> getAllArt() {
+        List<Art> arts = new ArrayList<>();
+        readLock.lock();
+        try {
+            store.forEachLiveRow(row -> arts.add(store.materialise(row)));
+        } finally {
+            readLock.unlock();
+        }
+        return ImmutableSet.copyOf(arts);
+    }
+
+    @Override
+    public List<String> getArtists() {
+        List<String> names = artistNames;
+        if (names != null) {
+            return names;
+        }
+        SymbolTable symbols = SymbolTable.getInstance();
+        List<String> sortedNames = new ArrayList<>();
+        readLock.lock();
+        try {
+            for (int artistId : artistStats.keySet()) {
+                sortedNames.add(symbols.symbolOf(artistId));
+            }
+            Collections.sort(sortedNames);
+            names = ImmutableList.copyOf(sortedNames);
+            artistNames = names;
+        } finally {
+            readLock.unlock();
+        }
+        return names;
+    }
+
+    @Override
+    public ArtStats getArtistStats(String artistName) {
+        int artistId = artistName == null ? -1 : SymbolTable.getInstance().findId(artistName);
+        if (artistId < 0) {
+            return ArtStats.empty();
+        }
+        readLock.lock();
+        try {
+            return statsOf(artistStats.get(artistId));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public GalleryStats getAllStats() {
+        readLock.lock();
+        try {
+            return allStats();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public Set<Art> getArtByArtist(String artistName) {
+        IntPredicate rowFilter = artistRowFilter(artistName);
+        return rowFilter == null ? new HashSet<>() : collectRows(store::liveWord, rowFilter);
+    }
+
+    @Override
+    public List<String> findArtists(String prefix, int limit) {
+        ArtistSearch.checkLimit(limit);
+        if (prefix == null) {
+            return Collections.emptyList();
+        }
+        SymbolTable symbols = SymbolTable.getInstance();
+        List<String> names = new ArrayList<>(Math.min(limit, 64));
+        readLock.lock();
+        try {
+            for (int artistId : artistsMatching(prefix).values()) {
+                if (names.size() == limit) {
+                    break;
+                }
+                names.add(symbols.symbolOf(artistId));
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return Collections.unmodifiableList(names);
+    }
+
+    /**
+     * returns the art of the artists matching the prefix, found from the artist search index. Like every query
+     * of this gallery it then reads the artist id column of every row, so it is not proportional to the art
+     * returned.
+     */
+    @Override
+    public Set<Art> getArtByArtistPrefix(String prefix) {
+        if (prefix == null) {
+            return new HashSet<>();
+        }
+        BitSet artistIds = new BitSet();
+        readLock.lock();
+        try {
+            for (int artistId : artistsMatching(prefix).values()) {
+                artistIds.set(artistId);
+            }
+        } finally {
+            readLock.unlock();
+        }
+        if (artistIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        return collectRows(store::liveWord, row -> artistIds.get(store.artistId(row)));
+    }
+
+    /**
+     * returns the art whose names match the text. The rows come from the posting lists of the name term index,
+     * so only the rows returned are read.
+     */
+    @Override
+    public Set<Art> searchArtByName(String text, NameMatch match) {
+        SymbolTable symbols = SymbolTable.getInstance();
+        Set<Art> matchingArts = new HashSet<>();
+        readLock.lock();
+        try {
+            int[] rows = NameSearch.matchingIds(text, match, nameTermIndex::get, prefix -> termsStartingWith(prefix).values().iterator(),
+                    row -> symbols.symbolOf(store.nameId(row)));
+            for (int row : rows) {
+                matchingArts.add(store.materialise(row));
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return matchingArts;
+    }
+
+    @Override
+    public Set<Art> getRecentArt() {
+        return collectRows(store::liveWord, recentRowFilter());
+    }
+
+    @Override
+    public Set<Art> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        return collectRows(store::liveWord, createdBetweenRowFilter(createdFrom, createdTo));
+    }
+
+    // Min and max prices are included. If neither limit is given all art with an asking price is returned.
+    @Override
+    public Set<Art> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        return collectRows(store::pricedWord, priceRowFilter(priceLimitMin, priceLimitMax));
+    }
+
+    @Override
+    public Set<Art> getArtByType(ArtType... artTypes) {
+        return findArt(new GalleryQuery.GalleryQueryBuilder().artTypes(artTypes).build());
+    }
+
+    @Override
+    public Stream<Art> streamArtByArtist(String artistName) {
+        IntPredicate rowFilter = artistRowFilter(artistName);
+        return rowFilter == null ? Stream.empty() : streamRows(store::liveWord, rowFilter);
+    }
+
+    @Override
+    public Stream<Art> streamRecentArt() {
+        return streamRows(store::liveWord, recentRowFilter());
+    }
+
+    @Override
+    public Stream<Art> streamArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        return streamRows(store::liveWord, createdBetweenRowFilter(createdFrom, createdTo));
+    }
+
+    @Override
+    public Stream<Art> streamArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        return streamRows(store::pricedWord, priceRowFilter(priceLimitMin, priceLimitMax));
+    }
+
+    @Override
+    public Set<Art> findArt(GalleryQuery query) {
+        return streamArt(query).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    @Override
+    public Stream<Art> streamArt(GalleryQuery query) {
+        return plan(query).stream();
+    }
+
+    @Override
+    public String explain(GalleryQuery query) {
+        return plan(query).explain();
+    }
+
+    /**
+     * returns the top ranked art matching the query. Candidate rows are ranked on their columns in a heap of
+     * count rows, and only the rows that make the top are built into {@link Art}.
+     */
+    @Override
+    public List<Art> findTopArt(GalleryQuery query, ArtOrder order, int count) {
+        TopArt.checkArguments(order, count);
+        if (query == null || count == 0) {
+            return Collections.emptyList();
+        }
+        QueryPlan.checkRanges(query);
+        RowScan rowScan = rowScan(query);
+        if (rowScan == null) {
+            return Collections.emptyList();
+        }
+        IntToLongFunction candidateRows = rowScan.candidateRows;
+        if (TopArt.isByPrice(order) && !query.hasPriceRange()) {
+            candidateRows = word -> rowScan.candidateRows.applyAsLong(word) & store.pricedWord(word);
+        }
+        List<Art> topArts = new ArrayList<>();
+        readLock.lock();
+        try {
+            RowHeap rowHeap = new RowHeap(Math.min(count, store.size()), rowRank(order));
+            store.forEachRow(candidateRows, row -> {
+                if (rowScan.rowFilter.test(row)) {
+                    rowHeap.offer(row);
+                }
+            });
+            for (int row : rowHeap.rowsInRankOrder()) {
+                topArts.add(store.materialise(row));
+            }
+        } finally {
+            readLock.unlock();
+        }
+        return Collections.unmodifiableList(topArts);
+    }
+
+    private QueryPlan plan(GalleryQuery query) {
+        if (query == null) {
+            return QueryPlan.noQuery();
+        }
+        QueryPlan.checkRanges(query);
+        Set<QueryPlan.Criterion> criteria = QueryPlan.criteriaOf(query);
+        RowScan rowScan = rowScan(query);
+        if (rowScan == null) {
+            return QueryPlan.choose(query, Collections.singletonList(
+                    new QueryPlan.AccessPath("nothing, unknown artist", 0, criteria, Stream::empty)));
+        }
+        return QueryPlan.choose(query, Collections.singletonList(
+                new QueryPlan.AccessPath(rowScan.name, store.size(), criteria, () -> streamRows(rowScan.candidateRows, rowScan.rowFilter))));
+    }
+
+    // The art type and price criteria pick candidate rows from the bitmaps a word at a time, the others are
+    // checked on the columns of each candidate. Returns null if the query's artist has never had art.
+    private RowScan rowScan(GalleryQuery query) {
+        IntPredicate rowFilter = row -> true;
+        if (query.getArtistName() != null) {
+            IntPredicate artistRowFilter = artistRowFilter(query.getArtistName());
+            if (artistRowFilter == null) {
+                return null;
+            }
+            rowFilter = artistRowFilter;
+        }
+        if (query.hasCreationDateRange()) {
+            rowFilter = rowFilter.and(createdBetweenRowFilter(query.getCreatedFrom(), query.getCreatedTo()));
+        }
+        if (query.hasPriceRange()) {
+            rowFilter = rowFilter.and(priceRowFilter(query.getPriceLimitMin(), query.getPriceLimitMax()));
+        }
+        IntToLongFunction candidateRows = query.hasPriceRange() ? store::pricedWord : store::liveWord;
+        String name = query.hasPriceRange() ? "priced rows bitmap" : "column scan";
+        if (query.getArtTypes() != null) {
+            IntToLongFunction typeRows = rowsOfTypes(query.getArtTypes());
+            candidateRows = query.hasPriceRange() ? word -> typeRows.applyAsLong(word) & store.pricedWord(word) : typeRows;
+            name = query.hasPriceRange() ? "art type and priced rows bitmaps" : "art type bitmaps";
+        }
+        return new RowScan(name, candidateRows, rowFilter);
+    }
+
+    // Compares two rows on their columns, negative if the first ranks higher, with the same ties as TopArt.
+    private IntBinaryOperator rowRank(ArtOrder order) {
+        IntBinaryOperator byKey;
+        switch (order) {
+            case MOST_EXPENSIVE:
+                byKey = (row, otherRow) -> comparePrices(otherRow, row);
+                break;
+            case CHEAPEST:
+                byKey = this::comparePrices;
+                break;
+            case NEWEST:
+                byKey = (row, otherRow) -> Long.compare(store.creationDay(otherRow), store.creationDay(row));
+                break;
+            case OLDEST:
+                byKey = (row, otherRow) -> Long.compare(store.creationDay(row), store.creationDay(otherRow));
+                break;
+            default:
+                throw new IllegalStateException("Unknown art order " + order);
+        }
+        SymbolTable symbols = SymbolTable.getInstance();
+        return (row, otherRow) -> {
+            int comparison = byKey.applyAsInt(row, otherRow);
+            if (comparison == 0 && store.nameId(row) != store.nameId(otherRow)) {
+                comparison = symbols.symbolOf(store.nameId(row)).compareTo(symbols.symbolOf(store.nameId(otherRow)));
+            }
+            if (comparison == 0 && store.artistId(row) != store.artistId(otherRow)) {
+                comparison = symbols.symbolOf(store.artistId(row)).compareTo(symbols.symbolOf(store.artistId(otherRow)));
+            }
+            return comparison != 0 ? comparison : store.artType(row).compareTo(store.artType(otherRow));
+        };
+    }
+
+    private int comparePrices(int row, int otherRow) {
+        if (store.hasHugePrice(row) || store.hasHugePrice(otherRow)) {
+            return store.price(row).compareTo(store.price(otherRow));
+        }
+        return Long.compare(store.pricePence(row), store.pricePence(otherRow));
+    }
+
+    // Needs the read lock while the view is used.
+    private SortedMap<String, Integer> artistsMatching(String prefix) {
+        String firstKey = ArtistSearch.firstKey(prefix);
+        String keyAfter = ArtistSearch.keyAfter(prefix);
+        if (firstKey == null) {
+            return artistSearchIndex;
+        }
+        return keyAfter == null ? artistSearchIndex.tailMap(firstKey) : artistSearchIndex.subMap(firstKey, keyAfter);
+    }
+
+    // Needs the read lock while the view is used.
+    private SortedMap<String, PostingList> termsStartingWith(String prefix) {
+        String termAfter = ArtistSearch.keyAfterAll(prefix);
+        return termAfter == null ? nameTermIndex.tailMap(prefix) : nameTermIndex.subMap(prefix, termAfter);
+    }
+
+    // Returns the union of the bitmaps of the given art types.
+    private IntToLongFunction rowsOfTypes(Set<ArtType> artTypes) {
+        if (artTypes.size() == ART_TYPE_COUNT) {
+            return store::liveWord;
+        }
+        ArtType[] types = artTypes.toArray(new ArtType[artTypes.size()]);
+        return word -> {
+            long bits = 0;
+            for (ArtType type : types) {
+                bits |= store.typeWord(type, word);
+            }
+            return bits;
+        };
+    }
+
+    // Returns null if the artist has never had art in any gallery.
+    private IntPredicate artistRowFilter(String artistName) {
+        if (artistName == null) {
+            return null;
+        }
+        int artistId = SymbolTable.getInstance().findId(artistName);
+        if (artistId < 0) {
+            return null;
+        }
+        return row -> store.artistId(row) == artistId;
+    }
+
+    private IntPredicate recentRowFilter() {
+        long firstRecentDay = RangeChecks.firstRecentDay(LocalDate.now(clock));
+        return row -> store.creationDay(row) >= firstRecentDay;
+    }
+
+    private IntPredicate createdBetweenRowFilter(LocalDate createdFrom, LocalDate createdTo) {
+        RangeChecks.checkDateFilterRange(createdFrom, createdTo);
+        long fromDay = createdFrom == null ? Long.MIN_VALUE : createdFrom.toEpochDay();
+        long toDay = createdTo == null ? Long.MAX_VALUE : createdTo.toEpochDay();
+        return row -> {
+            long creationDay = store.creationDay(row);
+            return creationDay >= fromDay && creationDay <= toDay;
+        };
+    }
+
+    private IntPredicate priceRowFilter(BigInteger priceLimitMin, BigInteger priceLimitMax) {
+        RangeChecks.checkPriceFilterRange(priceLimitMin, priceLimitMax);
+        boolean longPricesCanMatch = (priceLimitMin == null || priceLimitMin.compareTo(LONG_MAX) <= 0)
+                && (priceLimitMax == null || priceLimitMax.compareTo(LONG_MIN) >= 0);
+        long minPence = priceLimitMin == null ? Long.MIN_VALUE : LONG_MIN.max(priceLimitMin).longValue();
+        long maxPence = priceLimitMax == null ? Long.MAX_VALUE : LONG_MAX.min(priceLimitMax).longValue();
+        return row -> {
+            if (!store.hasPrice(row)) {
+                return false;
+            }
+            if (store.hasHugePrice(row)) {
+                BigInteger price = store.price(row);
+                return (priceLimitMin == null || price.compareTo(priceLimitMin) >= 0)
+                        && (priceLimitMax == null || price.compareTo(priceLimitMax) <= 0);
+            }
+            long pence = store.pricePence(row);
+            return longPricesCanMatch && pence >= minPence && pence <= maxPence;
+        };
+    }
+
+    private boolean insert(Art art) {
+        int row = store.insert(art);
+        if (row == ColumnarArtStore.NO_ROW) {
+            return false;
+        }
+        for (String term : NameSearch.indexTerms(art.getName())) {
+            PostingList rows = nameTermIndex.get(term);
+            nameTermIndex.put(term, (rows == null ? PostingList.empty() : rows).with(row));
+        }
+        int artistId = art.getArtistId();
+        long creationDay = art.getCreationDate().toEpochDay();
+        artTypeStats[art.getArtType().ordinal()].add(art.getPrice(), creationDay);
+        RunningArtStats stats = artistStats.computeIfAbsent(artistId, id -> new RunningArtStats());
+        stats.add(art.getPrice(), creationDay);
+        if (stats.count() == 1) {
+            artistNames = null;
+            artistSearchIndex.put(ArtistSearch.indexKey(art.getArtistName()), artistId);
+        }
+        return true;
+    }
+
+    private static ArtStats statsOf(RunningArtStats stats) {
+        return stats == null ? ArtStats.empty() : stats.toStats();
+    }
+
+    private GalleryStats allStats() {
+        SymbolTable symbols = SymbolTable.getInstance();
+        Map<String, ArtStats> allArtistStats = new TreeMap<>();
+        for (Map.Entry<Integer, RunningArtStats> stats : artistStats.entrySet()) {
+            allArtistStats.put(symbols.symbolOf(stats.getKey()), stats.getValue().toStats());
+        }
+        Map<ArtType, ArtStats> allArtTypeStats = new EnumMap<>(ArtType.class);
+        for (ArtType artType : ArtType.values()) {
+            allArtTypeStats.put(artType, artTypeStats[artType.ordinal()].toStats());
+        }
+        return new GalleryStats(allArtistStats, allArtTypeStats);
+    }
+
+    private Set<Art> collectRows(IntToLongFunction candidateRows, IntPredicate rowFilter) {
+        Set<Art> arts = new HashSet<>();
+        readLock.lock();
+        try {
+            store.forEachRow(candidateRows, row -> {
+                if (rowFilter.test(row)) {
+                    arts.add(store.materialise(row));
+                }
+            });
+        } finally {
+            readLock.unlock();
+        }
+        return arts;
+    }
+
+    // Scans candidate rows in order, taking the read lock once per batch of matches rather than for the whole
+    // stream.
+    private Stream<Art> streamRows(IntToLongFunction candidateRows, IntPredicate rowFilter) {
+        Iterator<Art> arts = new Iterator<Art>() {
+            private final List<Art> batch = new ArrayList<>(STREAM_BATCH_SIZE);
+            private int batchIndex;
+            private int nextWord;
+
+            @Override
+            public boolean hasNext() {
+                if (batchIndex < batch.size()) {
+                    return true;
+                }
+                batch.clear();
+                batchIndex = 0;
+                readLock.lock();
+                try {
+                    int wordLimit = store.wordLimit();
+                    while (nextWord < wordLimit && batch.size() < STREAM_BATCH_SIZE) {
+                        int word = nextWord++;
+                        long bits = candidateRows.applyAsLong(word);
+                        while (bits != 0) {
+                            int row = (word << 6) + Long.numberOfTrailingZeros(bits);
+                            if (rowFilter.test(row)) {
+                                batch.add(store.materialise(row));
+                            }
+                            bits &= bits - 1;
+                        }
+                    }
+                } finally {
+                    readLock.unlock();
+                }
+                return !batch.isEmpty();
+            }
+
+            @Override
+            public Art next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return batch.get(batchIndex++);
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(arts, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    private static final class RowScan {
+        private final String name;
+        private final IntToLongFunction candidateRows;
+        private final IntPredicate rowFilter;
+
+        private RowScan(String name, IntToLongFunction candidateRows, IntPredicate rowFilter) {
+            this.name = name;
+            this.candidateRows = candidateRows;
+            this.rowFilter = rowFilter;
+        }
+    }
+
+    /**
+     * Keeps the highest ranked rows offered to it, up to its capacity. The root is the lowest ranked row kept.
+     */
+    private static final class RowHeap {
+        private final int[] rows;
+        private final IntBinaryOperator rank;
+        private int size;
+
+        private RowHeap(int capacity, IntBinaryOperator rank) {
+            this.rows = new int[capacity];
+            this.rank = rank;
+        }
+
+        private void offer(int row) {
+            if (size < rows.length) {
+                rows[size] = row;
+                siftUp(size++);
+            } else if (size > 0 && rank.applyAsInt(row, rows[0]) < 0) {
+                rows[0] = row;
+                siftDown(0);
+            }
+        }
+
+        // Empties the heap, lowest ranked row first, filling the result from the back.
+        private int[] rowsInRankOrder() {
+            int[] rankedRows = new int[size];
+            while (size > 0) {
+                rankedRows[size - 1] = rows[0];
+                rows[0] = rows[--size];
+                siftDown(0);
+            }
+            return rankedRows;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (rank.applyAsInt(rows[index], rows[parent]) <= 0) {
+                    return;
+                }
+                swap(index, parent);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int child = 2 * index + 1;
+                if (child >= size) {
+                    return;
+                }
+                if (child + 1 < size && rank.applyAsInt(rows[child + 1], rows[child]) > 0) {
+                    child++;
+                }
+                if (rank.applyAsInt(rows[child], rows[index]) <= 0) {
+                    return;
+                }
+                swap(index, child);
+                index = child;
+            }
+        }
+
+        private void swap(int index, int otherIndex) {
+            int row = rows[index];
+            rows[index] = rows[otherIndex];
+            rows[otherIndex] = row;
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package service;
+
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.NameMatch;
+import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.GalleryPersistenceException;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+import store.GalleryLog;
+import store.SnapshotFile;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * This class makes any {@link GalleryService} survive restarts by keeping its changes in a directory.
+ * <p>
+ * Every change is appended to a write ahead log before it is applied, and a write returns only once its log
+ * record is on disk. Concurrent writers share their fsyncs. A bulk add is applied first and only the pieces it
+ * added are logged. If a change fails to apply its record is cut off the log again. If the log cannot be forced
+ * to disk, the change stays in the gallery without being durable, so every later write fails too and the
+ * directory must be opened again to get back to what is on disk. When the log grows past a threshold it is compacted
+ * in the background: the gallery is written out as a snapshot and the log segments it covers are deleted.
+ * Opening the directory again loads the snapshot and replays the log after it, dropping a record torn by a
+ * crash. Queries go straight to the wrapped gallery.
+ *
+ * @see service.GalleryService
+ */
+public class DurableGalleryService implements GalleryService, Closeable {
+    public static final long DEFAULT_COMPACT_AFTER_LOG_BYTES = 64L * 1024 * 1024;
+
+    private static final String SNAPSHOT_FILE_NAME = "gallery.snapshot";
+    private static final Pattern SEGMENT_FILE_NAME = Pattern.compile("gallery-(\\d{20})\\.log");
+    private static final int SNAPSHOT_BATCH_SIZE = 1 << 16;
+
+    private final Path directory;
+    private final GalleryService gallery;
+    private final long compactAfterLogBytes;
+    // Orders log appends with the changes they record.
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Object compactionLock = new Object();
+    private final AtomicBoolean compactionScheduled = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "gallery-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile GalleryLog log;
+    private long generation;
+    // Set when forcing the log to disk failed.
+    private volatile IOException syncFailure;
+
+    private DurableGalleryService(Path directory, GalleryService gallery, long compactAfterLogBytes) {
+        this.directory = directory;
+        this.gallery = gallery;
+        this.compactAfterLogBytes = compactAfterLogBytes;
+    }
+
+    /**
+     * returns the given gallery, restored from and kept in the given directory.
+     *
+     * @param directory
+     * @param gallery an empty gallery
+     * @return
+     */
+    public static DurableGalleryService open(Path directory, GalleryService gallery) {
+        return open(directory, gallery, DEFAULT_COMPACT_AFTER_LOG_BYTES);
+    }
+
+    /**
+     * returns the given gallery, restored from and kept in the given directory, compacting the log once it
+     * grows past the given number of bytes.
+     *
+     * @param directory
+     * @param gallery an empty gallery
+     * @param compactAfterLogBytes
+     * @return
+     */
+    public static DurableGalleryService open(Path directory, GalleryService gallery, long compactAfterLogBytes) {
+        DurableGalleryService durableGallery = new DurableGalleryService(directory, gallery, compactAfterLogBytes);
+        try {
+            durableGallery.recover();
+        } catch (IOException e) {
+            throw new GalleryPersistenceException("Could not restore the gallery from " + directory, e);
+        }
+        return durableGallery;
+    }
+
+    @Override
+    public boolean addArt(Art art) {
+        if (art == null) {
+            return false;
+        }
+        GalleryLog currentLog;
+        long durablePosition;
+        writeLock.lock();
+        try {
+            checkWritable();
+            currentLog = log;
+            long recordStart = currentLog.size();
+            durablePosition = append(GalleryLog.ADD, art);
+            boolean added;
+            try {
+                added = gallery.addArt(art);
+            } catch (RuntimeException | Error e) {
+                discardFrom(recordStart);
+                throw e;
+            }
+            if (!added) {
+                // The art is already in the gallery, so the record would only grow the log.
+                discardFrom(recordStart);
+                return false;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(currentLog, durablePosition);
+        return true;
+    }
+
+    @Override
+    public List<AddArtStatus> addAllArt(Collection<Art> arts) {
+        if (arts == null) {
+            return gallery.addAllArt(null);
+        }
+        GalleryLog currentLog;
+        long durablePosition;
+        List<AddArtStatus> statuses;
+        writeLock.lock();
+        try {
+            checkWritable();
+            currentLog = log;
+            statuses = gallery.addAllArt(arts);
+            List<Art> addedArts = new ArrayList<>();
+            int i = 0;
+            for (Art art : arts) {
+                if (statuses.get(i++) == AddArtStatus.ADDED) {
+                    addedArts.add(art);
+                }
+            }
+            if (addedArts.isEmpty()) {
+                return statuses;
+            }
+            try {
+                durablePosition = appendAll(addedArts);
+            } catch (RuntimeException e) {
+                // Nobody has been told of the adds yet, so they can still be taken back.
+                for (Art art : addedArts) {
+                    gallery.deleteArt(art);
+                }
+                throw e;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(currentLog, durablePosition);
+        return statuses;
+    }
+
+    @Override
+    public boolean deleteArt(Art art) {
+        if (art == null) {
+            return false;
+        }
+        GalleryLog currentLog;
+        long durablePosition;
+        writeLock.lock();
+        try {
+            checkWritable();
+            currentLog = log;
+            long recordStart = currentLog.size();
+            durablePosition = append(GalleryLog.DELETE, art);
+            boolean deleted;
+            try {
+                deleted = gallery.deleteArt(art);
+            } catch (RuntimeException | Error e) {
+                discardFrom(recordStart);
+                throw e;
+            }
+            if (!deleted) {
+                discardFrom(recordStart);
+                return false;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        awaitDurable(currentLog, durablePosition);
+        return true;
+    }
+
+    @Override
+    public Set<Art> getAllArt() {
+        return gallery.getAllArt();
+    }
+
+    @Override
+    public List<String> getArtists() {
+        return gallery.getArtists();
+    }
+
+    @Override
+    public ArtStats getArtistStats(String artistName) {
+        return gallery.getArtistStats(artistName);
+    }
+
+    @Override
+    public GalleryStats getAllStats() {
+        return gallery.getAllStats();
+    }
+
+    @Override
+    public Set<Art> getArtByArtist(String artistName) {
+        return gallery.getArtByArtist(artistName);
+    }
+
+    @Override
+    public List<String> findArtists(String prefix, int limit) {
+        return gallery.findArtists(prefix, limit);
+    }
+
+    @Override
+    public Set<Art> getArtByArtistPrefix(String prefix) {
+        return gallery.getArtByArtistPrefix(prefix);
+    }
+
+    @Override
+    public Set<Art> searchArtByName(String text, NameMatch match) {
+        return gallery.searchArtByName(text, match);
+    }
+
+    @Override
+    public Set<Art> getRecentArt() {
+        return gallery.getRecentArt();
+    }
+
+    @Override
+    public Set<Art> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        return gallery.getArtCreatedBetween(createdFrom, createdTo);
+    }
+
+    @Override
+    public Set<Art> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        return gallery.getArtByPrice(priceLimitMin, priceLimitMax);
+    }
+
+    @Override
+    public Set<Art> getArtByType(ArtType... artTypes) {
+        return gallery.getArtByType(artTypes);
+    }
+
+    @Override
+    public Stream<Art> streamArtByArtist(String artistName) {
+        return gallery.streamArtByArtist(artistName);
+    }
+
+    @Override
+    public Stream<Art> streamRecentArt() {
+        return gallery.streamRecentArt();
+    }
+
+    @Override
+    public Stream<Art> streamArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        return gallery.streamArtCreatedBetween(createdFrom, createdTo);
+    }
+
+    @Override
+    public Stream<Art> streamArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        return gallery.streamArtByPrice(priceLimitMin, priceLimitMax);
+    }
+
+    @Override
+    public Set<Art> findArt(GalleryQuery query) {
+        return gallery.findArt(query);
+    }
+
+    @Override
+    public Stream<Art> streamArt(GalleryQuery query) {
+        return gallery.streamArt(query);
+    }
+
+    @Override
+    public String explain(GalleryQuery query) {
+        return gallery.explain(query);
+    }
+
+    @Override
+    public List<Art> findTopArt(GalleryQuery query, ArtOrder order, int count) {
+        return gallery.findTopArt(query, order, count);
+    }
+
+    /**
+     * writes the whole gallery as a snapshot and deletes the log it replaces. Writes carry on while the
+     * snapshot is written, into a new log segment.
+     */
+    public void compact() {
+        synchronized (compactionLock) {
+            Set<Art> arts;
+            long snapshotGeneration;
+            GalleryLog oldLog;
+            writeLock.lock();
+            try {
+                arts = gallery.getAllArt();
+                snapshotGeneration = generation + 1;
+                oldLog = log;
+                // Recovery expects only the newest segment to end in a torn record, so the old one is made
+                // durable before a newer one exists.
+                oldLog.awaitDurable(oldLog.size());
+                log = GalleryLog.open(segmentPath(snapshotGeneration), 0);
+                generation = snapshotGeneration;
+            } catch (IOException e) {
+                throw new GalleryPersistenceException("Could not start a new gallery log segment", e);
+            } finally {
+                writeLock.unlock();
+            }
+            try {
+                oldLog.close();
+                SnapshotFile.write(directory.resolve(SNAPSHOT_FILE_NAME), snapshotGeneration, arts);
+                for (Path segment : segmentsFrom(0)) {
+                    if (segmentGeneration(segment) < snapshotGeneration) {
+                        Files.delete(segment);
+                    }
+                }
+            } catch (IOException e) {
+                throw new GalleryPersistenceException("Could not write a gallery snapshot to " + directory, e);
+            }
+        }
+    }
+
+    /**
+     * waits for any compaction in progress, then closes the log. The gallery cannot be changed afterwards.
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writeLock.lock();
+        try {
+            log.close();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        Files.createDirectories(directory);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE_NAME);
+        long snapshotGeneration = 0;
+        if (Files.exists(snapshot)) {
+            snapshotGeneration = SnapshotFile.read(snapshot, SNAPSHOT_BATCH_SIZE, gallery::addAllArt);
+        }
+        generation = snapshotGeneration;
+        long validLength = 0;
+        List<Path> segments = segmentsFrom(snapshotGeneration);
+        for (int i = 0; i < segments.size(); i++) {
+            Path segment = segments.get(i);
+            validLength = GalleryLog.replay(segment, this::applyRecord);
+            // Older segments are synced before the next is started, but directories written before that was done
+            // can have a torn record at the end of any segment. It was never acknowledged, so it is cut off.
+            if (i < segments.size() - 1 && validLength < Files.size(segment)) {
+                GalleryLog.open(segment, validLength).close();
+            }
+            generation = segmentGeneration(segment);
+        }
+        log = GalleryLog.open(segmentPath(generation), validLength);
+    }
+
+    private void applyRecord(byte operation, Art art) {
+        if (operation == GalleryLog.ADD) {
+            gallery.addArt(art);
+        } else if (operation == GalleryLog.DELETE) {
+            gallery.deleteArt(art);
+        } else {
+            throw new GalleryPersistenceException("Unknown gallery log operation " + operation);
+        }
+    }
+
+    private long append(byte operation, Art art) {
+        try {
+            return log.append(operation, art);
+        } catch (IOException e) {
+            throw new GalleryPersistenceException("Could not write to the gallery log", e);
+        }
+    }
+
+    private long appendAll(List<Art> arts) {
+        try {
+            return log.appendAll(GalleryLog.ADD, arts);
+        } catch (IOException e) {
+            throw new GalleryPersistenceException("Could not write to the gallery log", e);
+        }
+    }
+
+    private void checkWritable() {
+        IOException failure = syncFailure;
+        if (failure != null) {
+            throw new GalleryPersistenceException("The gallery log could not be forced to disk, open " + directory + " again", failure);
+        }
+    }
+
+    private void discardFrom(long position) {
+        try {
+            log.discardFrom(position);
+        } catch (IOException e) {
+            throw new GalleryPersistenceException("Could not write to the gallery log", e);
+        }
+    }
+
+    private void awaitDurable(GalleryLog currentLog, long durablePosition) {
+        try {
+            currentLog.awaitDurable(durablePosition);
+        } catch (IOException e) {
+            syncFailure = e;
+            throw new GalleryPersistenceException("Could not force the gallery log to disk", e);
+        }
+        scheduleCompactionIfDue(currentLog);
+    }
+
+    private void scheduleCompactionIfDue(GalleryLog currentLog) {
+        if (currentLog.size() > compactAfterLogBytes && compactionScheduled.compareAndSet(false, true)) {
+            try {
+                compactor.execute(() -> {
+                    try {
+                        compact();
+                    } finally {
+                        // A failed compaction is tried again after the next write.
+                        compactionScheduled.set(false);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Closing, the log is left for the next open to replay.
+                compactionScheduled.set(false);
+            }
+        }
+    }
+
+    private List<Path> segmentsFrom(long firstGeneration) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> SEGMENT_FILE_NAME.matcher(file.getFileName().toString()).matches())
+                    .filter(segment -> segmentGeneration(segment) >= firstGeneration)
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private Path segmentPath(long segmentGeneration) {
+        return directory.resolve(String.format("gallery-%020d.log", segmentGeneration));
+    }
+
+    private static long segmentGeneration(Path segment) {
+        Matcher matcher = SEGMENT_FILE_NAME.matcher(segment.getFileName().toString());
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Not a gallery log segment: " + segment);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+}
@@ -1,10 +1,20 @@
 package service;
 
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.NameMatch;
 import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
 
 import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface GalleryService {
     /**
@@ -16,6 +26,17 @@ public interface GalleryService {
 
     boolean addArt(Art art);
 
+    /**
+     * add many pieces of art to the gallery in one go. Returns one status per piece, in iteration order.
+     * A null piece is rejected without failing the others, a piece already in the gallery or earlier in the
+     * batch is not added again.
+     *
+     * @param arts
+     * @return
+     */
+
+    List<AddArtStatus> addAllArt(Collection<Art> arts);
+
     /**
      * remove a piece of art from the gallery
      *
@@ -39,6 +60,23 @@ public interface GalleryService {
      */
     List<String> getArtists();
 
+    /**
+     * returns the count, asking price and creation date figures of the art by a specific artist, empty figures
+     * if the artist has no art in the gallery. The figures are kept up to date as art is added and deleted,
+     * so no art is read.
+     *
+     * @param artistName
+     * @return
+     */
+    ArtStats getArtistStats(String artistName);
+
+    /**
+     * returns the figures of every artist with art in the gallery, of every art type and of the whole gallery.
+     *
+     * @return
+     */
+    GalleryStats getAllStats();
+
     /**
      * returns all art by a specific artist.
      *
@@ -47,6 +85,47 @@ public interface GalleryService {
      */
     Set<Art> getArtByArtist(String artistName);
 
+    /**
+     * returns the names of up to limit artists with art in the gallery whose names start with the prefix,
+     * ignoring case and accents, in alphabetical order of their names without case and accents. Answered from
+     * a sorted index of the names, in time proportional to the prefix and the names returned. An empty prefix
+     * matches every artist, a null one none.
+     *
+     * @param prefix
+     * @param limit
+     * @return
+     */
+    List<String> findArtists(String prefix, int limit);
+
+    /**
+     * returns all art by the artists whose names start with the prefix, ignoring case and accents.
+     *
+     * @param prefix
+     * @return
+     */
+    Set<Art> getArtByArtistPrefix(String prefix);
+
+    /**
+     * returns all art whose names match the words of the text as given by match, ignoring case and accents.
+     * Answered from an inverted index of the words of every name, so art whose names do not have the words is
+     * never read. Text with no words matches no art.
+     *
+     * @param text
+     * @param match
+     * @return
+     */
+    Set<Art> searchArtByName(String text, NameMatch match);
+
+    /**
+     * returns all art whose names have every word of the text, ignoring case and accents.
+     *
+     * @param text
+     * @return
+     */
+    default Set<Art> searchArtByName(String text) {
+        return searchArtByName(text, NameMatch.ALL_TERMS);
+    }
+
     /**
      * returns all art with creation date in the past year.
      *
@@ -55,6 +134,16 @@ public interface GalleryService {
 
     Set<Art> getRecentArt();
 
+    /**
+     * returns all art created between two dates, both dates included. Both dates should be optional.
+     *
+     * @param createdFrom
+     * @param createdTo
+     * @return
+     */
+
+    Set<Art> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo);
+
     /**
      * returns all art between an upper and lower price limit. Both limits should be optional. Ignore art with no asking price.
      *
@@ -64,4 +153,127 @@ public interface GalleryService {
      */
 
     Set<Art> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax);
+
+    /**
+     * returns all art of any of the given types. Nulls are ignored, with no types no art is returned.
+     *
+     * @param artTypes
+     * @return
+     */
+
+    Set<Art> getArtByType(ArtType... artTypes);
+
+    /**
+     * returns all art by a specific artist as a lazy stream. Art is only read from the gallery as the stream
+     * is consumed, so taking a page of it with skip and limit costs about the size of the page.
+     *
+     * @param artistName
+     * @return
+     */
+
+    Stream<Art> streamArtByArtist(String artistName);
+
+    /**
+     * returns all art with creation date in the past year as a lazy stream.
+     *
+     * @return
+     */
+
+    Stream<Art> streamRecentArt();
+
+    /**
+     * returns all art created between two dates as a lazy stream, both dates included. Both dates are optional.
+     *
+     * @param createdFrom
+     * @param createdTo
+     * @return
+     */
+
+    Stream<Art> streamArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo);
+
+    /**
+     * returns all art between an upper and lower price limit as a lazy stream. Both limits are optional.
+     * Art with no asking price is ignored.
+     *
+     * @param priceLimitMin
+     * @param priceLimitMax
+     * @return
+     */
+
+    Stream<Art> streamArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax);
+
+    /**
+     * returns all art matching every criterion of the query. The query is driven from whichever index is
+     * expected to read the fewest pieces, the other criteria are checked against what that index returns.
+     *
+     * @param query
+     * @return
+     */
+
+    Set<Art> findArt(GalleryQuery query);
+
+    /**
+     * returns all art matching every criterion of the query as a lazy stream.
+     *
+     * @param query
+     * @return
+     */
+
+    Stream<Art> streamArt(GalleryQuery query);
+
+    /**
+     * returns how the query would be run: the index it is driven from, the filters applied after it and the
+     * indexes not chosen, each with the number of pieces it was estimated to read.
+     *
+     * @param query
+     * @return
+     */
+
+    String explain(GalleryQuery query);
+
+    /**
+     * returns up to count pieces of art matching the query, highest ranked in the given order first. Art is read
+     * from an index already in that order where the gallery has one, otherwise kept in a heap of count pieces,
+     * the gallery is never sorted in full. Art with no asking price is never ranked by price.
+     *
+     * @param query
+     * @param order
+     * @param count
+     * @return
+     */
+
+    List<Art> findTopArt(GalleryQuery query, ArtOrder order, int count);
+
+    /**
+     * returns up to count of the most expensive pieces of art, most expensive first.
+     *
+     * @param count
+     * @return
+     */
+
+    default List<Art> getTopArtByPrice(int count) {
+        return findTopArt(new GalleryQuery.GalleryQueryBuilder().build(), ArtOrder.MOST_EXPENSIVE, count);
+    }
+
+    /**
+     * returns up to count of the cheapest pieces of art with an asking price, cheapest first.
+     *
+     * @param count
+     * @return
+     */
+
+    default List<Art> getCheapestArt(int count) {
+        return findTopArt(new GalleryQuery.GalleryQueryBuilder().build(), ArtOrder.CHEAPEST, count);
+    }
+
+    /**
+     * returns up to count of the most recently created pieces of art, newest first.
+     *
+     * @param count
+     * @return
+     */
+
+    default List<Art> getNewestArt(int count) {
+        return findTopArt(new GalleryQuery.GalleryQueryBuilder().build(), ArtOrder.NEWEST, count);
+    }
 }
@@ -1,29 +1,52 @@
 package service;
 
-import com.google.common.collect.ImmutableSet;
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.NameMatch;
 import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.InvalidDateRangeException;
 import exceptions.InvalidPriceRangeException;
 
 import java.math.BigInteger;
+import java.time.Clock;
 import java.time.LocalDate;
-import java.time.temporal.ChronoUnit;
-import java.util.LinkedHashSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
 
 /**
  * This class implements interface
+ * <p>
+ * The gallery is held as an immutable {@link GallerySnapshot}. Writers take turns behind a lock, each building
+ * the next version from the current one and publishing it, so a large batch never has to start again because a
+ * single add got in first. Readers only read the current version, so they never block and never see a write half
+ * done. Streams read the version current when they were created, in index order, so pages taken with skip and
+ * limit line up.
  *
  * @see service.GalleryService
  */
 public class GalleryServiceImpl implements GalleryService {
-    private Set<Art> arts = new LinkedHashSet<>();
-    private int DAYS_365 = 365;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private volatile GallerySnapshot currentSnapshot;
     private volatile static GalleryServiceImpl galleryService;
 
-    private GalleryServiceImpl() { }
+    private GalleryServiceImpl() {
+        this(Clock.systemDefaultZone());
+    }
+
+    // Visible for tests which need a fixed "today".
+    GalleryServiceImpl(Clock clock) {
+        this.currentSnapshot = GallerySnapshot.empty(clock);
+    }
 
     public static GalleryServiceImpl getInstance() {
         if (galleryService == null) {
@@ -40,12 +63,45 @@ public class GalleryServiceImpl implements GalleryService {
         galleryService = null;
     }
 
+    /**
+     * returns the current version of the gallery. Use it to run several queries against the same art.
+     *
+     * @return
+     */
+    public GallerySnapshot snapshot() {
+        return currentSnapshot;
+    }
+
     @Override
     public boolean addArt(Art art) {
         if (art == null) {
             return false;
         }
-        return arts.add(art);
+        writeLock.lock();
+        try {
+            GallerySnapshot snapshot = currentSnapshot;
+            currentSnapshot = snapshot.withArt(art);
+            return currentSnapshot != snapshot;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // The whole batch is published as one new version, so readers see either none or all of it.
+    @Override
+    public List<AddArtStatus> addAllArt(Collection<Art> arts) {
+        if (arts == null) {
+            return Collections.emptyList();
+        }
+        List<Art> artsToAdd = new ArrayList<>(arts);
+        AddArtStatus[] statuses = new AddArtStatus[artsToAdd.size()];
+        writeLock.lock();
+        try {
+            currentSnapshot = currentSnapshot.withAllArt(artsToAdd, statuses);
+        } finally {
+            writeLock.unlock();
+        }
+        return Arrays.asList(statuses);
     }
 
     @Override
@@ -53,71 +109,114 @@ public class GalleryServiceImpl implements GalleryService {
         if (art == null) {
             return false;
         }
-        return arts.remove(art);
+        writeLock.lock();
+        try {
+            GallerySnapshot snapshot = currentSnapshot;
+            currentSnapshot = snapshot.withoutArt(art);
+            return currentSnapshot != snapshot;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public Set<Art> getAllArt() {
-        return ImmutableSet.copyOf(arts);
+        return snapshot().getAllArt();
     }
 
     @Override
     public List<String> getArtists() {
-        List<String> artistNames = arts.stream()
-                .map(art -> art.getArtistName())
-                .sorted((artist1, artist2) -> artist1.compareTo(artist2))
-                .distinct()
-                .collect(Collectors.toList());
-        return artistNames;
+        return snapshot().getArtists();
+    }
+
+    @Override
+    public ArtStats getArtistStats(String artistName) {
+        return snapshot().getArtistStats(artistName);
+    }
+
+    @Override
+    public GalleryStats getAllStats() {
+        return snapshot().getAllStats();
     }
 
     @Override
     public Set<Art> getArtByArtist(String artistName) {
-        Set<Art> artsByArtist = arts.stream()
-                .filter(art -> art.getArtistName()
-                        .equals(artistName))
-                .collect(Collectors.toSet());
-        return artsByArtist;
+        return snapshot().getArtByArtist(artistName);
+    }
+
+    @Override
+    public List<String> findArtists(String prefix, int limit) {
+        return snapshot().findArtists(prefix, limit);
+    }
+
+    @Override
+    public Set<Art> getArtByArtistPrefix(String prefix) {
+        return snapshot().getArtByArtistPrefix(prefix);
+    }
+
+    @Override
+    public Set<Art> searchArtByName(String text, NameMatch match) {
+        return snapshot().searchArtByName(text, match);
     }
 
     @Override
     public Set<Art> getRecentArt() {
-        LocalDate currentDate = LocalDate.now();
-        Set<Art> artsCreatedTillLastYear = arts.stream().filter(art -> ChronoUnit.DAYS.between(art.getCreationDate(), currentDate) < DAYS_365).collect(Collectors.toSet());
-        return artsCreatedTillLastYear;
+        return snapshot().getRecentArt();
+    }
+
+    @Override
+    public Set<Art> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        return snapshot().getArtCreatedBetween(createdFrom, createdTo);
     }
 
-    // Assumption min and max prices are not to be included.
     @Override
     public Set<Art> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
-        Predicate<Art> greaterThanOrEqualMinPrice = art -> art.getPrice().compareTo(priceLimitMin) > 0 || art.getPrice().compareTo(priceLimitMin) == 0;
+        return snapshot().getArtByPrice(priceLimitMin, priceLimitMax);
+    }
 
-        Predicate<Art> lessThanOrEqualMaxPrice = art -> art.getPrice().compareTo(priceLimitMax) < 0 || art.getPrice().compareTo(priceLimitMax) == 0;
 
-        Predicate<Art> betweenMinAndMaxPrice = art -> greaterThanOrEqualMinPrice.and(lessThanOrEqualMaxPrice).test(art);
+    @Override
+    public Set<Art> getArtByType(ArtType... artTypes) {
+        return snapshot().getArtByType(artTypes);
+    }
 
-        if (priceLimitMin != null && priceLimitMax == null) {
-            return filterArtByPrice(greaterThanOrEqualMinPrice);
-        }
+    @Override
+    public Stream<Art> streamArtByArtist(String artistName) {
+        return snapshot().streamArtByArtist(artistName);
+    }
 
-        if (priceLimitMin == null && priceLimitMax != null) {
-            return filterArtByPrice(lessThanOrEqualMaxPrice);
-        }
+    @Override
+    public Stream<Art> streamRecentArt() {
+        return snapshot().streamRecentArt();
+    }
 
-        checkPriceFilterRange(priceLimitMin, priceLimitMax);
+    @Override
+    public Stream<Art> streamArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        return snapshot().streamArtCreatedBetween(createdFrom, createdTo);
+    }
 
-        return filterArtByPrice(betweenMinAndMaxPrice);
+    @Override
+    public Stream<Art> streamArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        return snapshot().streamArtByPrice(priceLimitMin, priceLimitMax);
     }
 
-    private void checkPriceFilterRange(BigInteger priceLimitMin, BigInteger priceLimitMax) {
-        if (priceLimitMin.compareTo(priceLimitMax) > 0) {
-            throw new InvalidPriceRangeException("priceLimitMax should be higher than priceLimitMin!. Given priceLimitMin::" + priceLimitMin + " priceLimitMax::" + priceLimitMax);
-        }
+    @Override
+    public Set<Art> findArt(GalleryQuery query) {
+        return snapshot().findArt(query);
     }
 
-    private Set<Art> filterArtByPrice(Predicate<Art> priceFilter) {
-        Set<Art> artsFilteredByPrice = arts.stream().filter(art -> art.getPrice() != null).filter(priceFilter).collect(Collectors.toSet());
-        return artsFilteredByPrice;
+    @Override
+    public Stream<Art> streamArt(GalleryQuery query) {
+        return snapshot().streamArt(query);
+    }
+
+    @Override
+    public String explain(GalleryQuery query) {
+        return snapshot().explain(query);
     }
 
+    @Override
+    public List<Art> findTopArt(GalleryQuery query, ArtOrder order, int count) {
+        return snapshot().findTopArt(query, order, count);
+    }
 }
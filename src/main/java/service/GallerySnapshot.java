@@ -0,0 +1,653 @@
+package service;
+
+import collections.PersistentHashMap;
+import collections.PersistentHashSet;
+import collections.PersistentSortedMap;
+import collections.PostingList;
+import collections.SymbolTable;
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.NameMatch;
+import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * An immutable, point in time version of the gallery and all of its indexes.
+ * Taking a snapshot costs nothing and every query against it sees exactly the same art however the gallery
+ * changes afterwards. Versions share all unchanged structure with each other, so adding or deleting a piece
+ * of art creates a new version in O(log n).
+ *
+ * @see GalleryServiceImpl#snapshot()
+ */
+public final class GallerySnapshot {
+    private final long version;
+    private final Clock clock;
+    private final PersistentHashSet<Art> arts;
+    private final PersistentHashMap<String, PersistentHashSet<Art>> artsByArtist;
+    // The names of the artists with art, by ArtistSearch index key.
+    private final PersistentSortedMap<String, String> artistSearchIndex;
+    // The art with each name, by the name's symbol id.
+    private final PersistentHashMap<Integer, PersistentHashSet<Art>> artsByName;
+    // The symbol ids of the names of the art, by NameSearch term. A new name copies the block array of the
+    // posting list of each of its terms, about n / 128 references for the commonest terms.
+    private final PersistentSortedMap<String, PostingList> nameTermIndex;
+    // The figures of each artist's art, in alphabetical order.
+    private final PersistentSortedMap<String, ArtAggregate> artistAggregates;
+    // Art with no asking price is never indexed by price.
+    private final PersistentSortedMap<BigInteger, PersistentHashSet<Art>> artsByPrice;
+    private final PersistentSortedMap<Long, PersistentHashSet<Art>> artsByCreationDay;
+    private final PersistentHashMap<ArtType, PersistentHashSet<Art>> artsByType;
+    private final PersistentHashMap<ArtType, ArtAggregate> artTypeAggregates;
+
+    private GallerySnapshot(long version,
+                            Clock clock,
+                            PersistentHashSet<Art> arts,
+                            PersistentHashMap<String, PersistentHashSet<Art>> artsByArtist,
+                            PersistentSortedMap<String, String> artistSearchIndex,
+                            PersistentHashMap<Integer, PersistentHashSet<Art>> artsByName,
+                            PersistentSortedMap<String, PostingList> nameTermIndex,
+                            PersistentSortedMap<String, ArtAggregate> artistAggregates,
+                            PersistentSortedMap<BigInteger, PersistentHashSet<Art>> artsByPrice,
+                            PersistentSortedMap<Long, PersistentHashSet<Art>> artsByCreationDay,
+                            PersistentHashMap<ArtType, PersistentHashSet<Art>> artsByType,
+                            PersistentHashMap<ArtType, ArtAggregate> artTypeAggregates) {
+        this.version = version;
+        this.clock = clock;
+        this.arts = arts;
+        this.artsByArtist = artsByArtist;
+        this.artistSearchIndex = artistSearchIndex;
+        this.artsByName = artsByName;
+        this.nameTermIndex = nameTermIndex;
+        this.artistAggregates = artistAggregates;
+        this.artsByPrice = artsByPrice;
+        this.artsByCreationDay = artsByCreationDay;
+        this.artsByType = artsByType;
+        this.artTypeAggregates = artTypeAggregates;
+    }
+
+    static GallerySnapshot empty(Clock clock) {
+        return new GallerySnapshot(0, clock, PersistentHashSet.<Art>empty(), PersistentHashMap.<String, PersistentHashSet<Art>>empty(),
+                PersistentSortedMap.<String, String>empty(), PersistentHashMap.<Integer, PersistentHashSet<Art>>empty(),
+                PersistentSortedMap.<String, PostingList>empty(), PersistentSortedMap.<String, ArtAggregate>empty(),
+                PersistentSortedMap.<BigInteger, PersistentHashSet<Art>>empty(), PersistentSortedMap.<Long, PersistentHashSet<Art>>empty(),
+                PersistentHashMap.<ArtType, PersistentHashSet<Art>>empty(), PersistentHashMap.<ArtType, ArtAggregate>empty());
+    }
+
+    /**
+     * returns a version with the given art added, or this version if the gallery already has it.
+     */
+    GallerySnapshot withArt(Art art) {
+        Changes changes = new Changes(this);
+        return changes.add(art) ? changes.toSnapshot() : this;
+    }
+
+    /**
+     * returns a version with all of the given art added, filling in what happened to each piece. The indexes are
+     * changed for the whole batch before the one new version is made.
+     */
+    GallerySnapshot withAllArt(List<Art> artsToAdd, AddArtStatus[] statuses) {
+        Changes changes = new Changes(this);
+        for (int i = 0; i < statuses.length; i++) {
+            Art art = artsToAdd.get(i);
+            if (art == null) {
+                statuses[i] = AddArtStatus.REJECTED;
+            } else {
+                statuses[i] = changes.add(art) ? AddArtStatus.ADDED : AddArtStatus.ALREADY_IN_GALLERY;
+            }
+        }
+        return changes.changeCount == 0 ? this : changes.toSnapshot();
+    }
+
+    /**
+     * returns a version with the given art deleted, or this version if the gallery does not have it.
+     */
+    GallerySnapshot withoutArt(Art art) {
+        Changes changes = new Changes(this);
+        return changes.remove(art) ? changes.toSnapshot() : this;
+    }
+
+    /**
+     * returns the number of changes made to the gallery before this version was taken.
+     *
+     * @return
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * returns all art in this version, without copying it.
+     *
+     * @return
+     */
+    public Set<Art> getAllArt() {
+        return arts;
+    }
+
+    /**
+     * returns the names of all of the artists in this version in alphabetical order, without copying them.
+     *
+     * @return
+     */
+    public List<String> getArtists() {
+        return artistAggregates.keyList();
+    }
+
+    /**
+     * returns the names of up to limit artists in this version whose names start with the prefix, ignoring
+     * case and accents.
+     *
+     * @param prefix
+     * @param limit
+     * @return
+     */
+    public List<String> findArtists(String prefix, int limit) {
+        ArtistSearch.checkLimit(limit);
+        if (prefix == null) {
+            return Collections.emptyList();
+        }
+        List<String> artistNames = new ArrayList<>(Math.min(limit, 64));
+        Iterator<String> matchingNames = artistSearchIndex.valueIterator(ArtistSearch.firstKey(prefix), true, ArtistSearch.keyAfter(prefix), false);
+        while (artistNames.size() < limit && matchingNames.hasNext()) {
+            artistNames.add(matchingNames.next());
+        }
+        return Collections.unmodifiableList(artistNames);
+    }
+
+    /**
+     * returns all art in this version by the artists whose names start with the prefix, ignoring case and accents.
+     *
+     * @param prefix
+     * @return
+     */
+    public Set<Art> getArtByArtistPrefix(String prefix) {
+        if (prefix == null) {
+            return PersistentHashSet.empty();
+        }
+        Set<Art> artistArts = new HashSet<>();
+        Iterator<String> matchingNames = artistSearchIndex.valueIterator(ArtistSearch.firstKey(prefix), true, ArtistSearch.keyAfter(prefix), false);
+        while (matchingNames.hasNext()) {
+            artistArts.addAll(artsByArtist.get(matchingNames.next()));
+        }
+        return Collections.unmodifiableSet(artistArts);
+    }
+
+    /**
+     * returns all art in this version whose names match the words of the text, ignoring case and accents. The
+     * names are found from the name term index and each name's art from the art by name index.
+     *
+     * @param text
+     * @param match
+     * @return
+     */
+    public Set<Art> searchArtByName(String text, NameMatch match) {
+        int[] nameIds = NameSearch.matchingIds(text, match, nameTermIndex::get,
+                prefix -> nameTermIndex.valueIterator(prefix, true, ArtistSearch.keyAfterAll(prefix), false),
+                SymbolTable.getInstance()::symbolOf);
+        Set<Art> matchingArts = new HashSet<>();
+        for (int nameId : nameIds) {
+            matchingArts.addAll(artsByName.get(nameId));
+        }
+        return Collections.unmodifiableSet(matchingArts);
+    }
+
+    /**
+     * returns the figures of the art in this version by a specific artist, empty if the artist has none.
+     *
+     * @param artistName
+     * @return
+     */
+    public ArtStats getArtistStats(String artistName) {
+        if (artistName == null) {
+            return ArtStats.empty();
+        }
+        return aggregateOrEmpty(artistAggregates.get(artistName)).toStats();
+    }
+
+    /**
+     * returns the figures of every artist and art type in this version, in O(artists).
+     *
+     * @return
+     */
+    public GalleryStats getAllStats() {
+        Map<String, ArtStats> artistStats = new TreeMap<>();
+        for (Map.Entry<String, ArtAggregate> artistAggregate : artistAggregates) {
+            artistStats.put(artistAggregate.getKey(), artistAggregate.getValue().toStats());
+        }
+        Map<ArtType, ArtStats> artTypeStats = new EnumMap<>(ArtType.class);
+        for (ArtType artType : ArtType.values()) {
+            artTypeStats.put(artType, aggregateOrEmpty(artTypeAggregates.get(artType)).toStats());
+        }
+        return new GalleryStats(artistStats, artTypeStats);
+    }
+
+    /**
+     * returns all art in this version by a specific artist, without copying it.
+     *
+     * @param artistName
+     * @return
+     */
+    public Set<Art> getArtByArtist(String artistName) {
+        if (artistName == null) {
+            return PersistentHashSet.empty();
+        }
+        return bucketOrEmpty(artsByArtist.get(artistName));
+    }
+
+    /**
+     * returns all art in this version with creation date in the 365 days up to and including today.
+     * Art dated in the future is included as well.
+     *
+     * @return
+     */
+    public Set<Art> getRecentArt() {
+        long firstRecentDay = RangeChecks.firstRecentDay(LocalDate.now(clock));
+        return collectArts(artsByCreationDay.valueIterator(firstRecentDay, true, null, false));
+    }
+
+    /**
+     * returns all art in this version created between two dates, both dates included. Both dates are optional.
+     *
+     * @param createdFrom
+     * @param createdTo
+     * @return
+     */
+    public Set<Art> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        RangeChecks.checkDateFilterRange(createdFrom, createdTo);
+        Long fromDay = createdFrom == null ? null : createdFrom.toEpochDay();
+        Long toDay = createdTo == null ? null : createdTo.toEpochDay();
+        return collectArts(artsByCreationDay.valueIterator(fromDay, true, toDay, true));
+    }
+
+    /**
+     * returns all art in this version between an upper and lower price limit, both limits included.
+     * Both limits are optional. Art with no asking price is ignored.
+     *
+     * @param priceLimitMin
+     * @param priceLimitMax
+     * @return
+     */
+    public Set<Art> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        RangeChecks.checkPriceFilterRange(priceLimitMin, priceLimitMax);
+        return collectArts(artsByPrice.valueIterator(priceLimitMin, true, priceLimitMax, true));
+    }
+
+    /**
+     * returns all art in this version of any of the given types. Nulls are ignored.
+     *
+     * @param artTypes
+     * @return
+     */
+    public Set<Art> getArtByType(ArtType... artTypes) {
+        return findArt(new GalleryQuery.GalleryQueryBuilder().artTypes(artTypes).build());
+    }
+
+    /**
+     * returns all art in this version by a specific artist as a lazy stream.
+     *
+     * @param artistName
+     * @return
+     */
+    public Stream<Art> streamArtByArtist(String artistName) {
+        return getArtByArtist(artistName).stream();
+    }
+
+    /**
+     * returns all art in this version with creation date in the 365 days up to and including today as a lazy
+     * stream, oldest first.
+     *
+     * @return
+     */
+    public Stream<Art> streamRecentArt() {
+        long firstRecentDay = RangeChecks.firstRecentDay(LocalDate.now(clock));
+        return streamArts(artsByCreationDay.valueIterator(firstRecentDay, true, null, false));
+    }
+
+    /**
+     * returns all art in this version created between two dates as a lazy stream, oldest first.
+     *
+     * @param createdFrom
+     * @param createdTo
+     * @return
+     */
+    public Stream<Art> streamArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        RangeChecks.checkDateFilterRange(createdFrom, createdTo);
+        Long fromDay = createdFrom == null ? null : createdFrom.toEpochDay();
+        Long toDay = createdTo == null ? null : createdTo.toEpochDay();
+        return streamArts(artsByCreationDay.valueIterator(fromDay, true, toDay, true));
+    }
+
+    /**
+     * returns all art in this version between an upper and lower price limit as a lazy stream, cheapest first.
+     *
+     * @param priceLimitMin
+     * @param priceLimitMax
+     * @return
+     */
+    public Stream<Art> streamArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        RangeChecks.checkPriceFilterRange(priceLimitMin, priceLimitMax);
+        return streamArts(artsByPrice.valueIterator(priceLimitMin, true, priceLimitMax, true));
+    }
+
+    /**
+     * returns all art in this version matching every criterion of the query.
+     *
+     * @param query
+     * @return
+     */
+    public Set<Art> findArt(GalleryQuery query) {
+        return streamArt(query).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    /**
+     * returns all art in this version matching every criterion of the query as a lazy stream.
+     *
+     * @param query
+     * @return
+     */
+    public Stream<Art> streamArt(GalleryQuery query) {
+        return plan(query).stream();
+    }
+
+    /**
+     * returns how the query would be run against this version.
+     *
+     * @param query
+     * @return
+     */
+    public String explain(GalleryQuery query) {
+        return plan(query).explain();
+    }
+
+    /**
+     * returns up to count pieces of art in this version matching the query, highest ranked first. The price and
+     * creation date indexes are walked from the top ranked end when the query is expected to match enough of the
+     * art for that to stop early, otherwise the query's matches are kept in a heap of count pieces.
+     *
+     * @param query
+     * @param order
+     * @param count
+     * @return
+     */
+    public List<Art> findTopArt(GalleryQuery query, ArtOrder order, int count) {
+        TopArt.checkArguments(order, count);
+        if (query == null || count == 0) {
+            return Collections.emptyList();
+        }
+        QueryPlan plan = plan(query);
+        // Walking the index in rank order reads about count * n / matches pieces before it has count matches.
+        double matches = Math.max(1, plan.estimatedRows());
+        if ((double) count * arts.size() > matches * matches) {
+            return TopArt.select(plan.stream(), order, count);
+        }
+        List<Art> topArts = rankedPlan(query, order).stream().limit(count).collect(Collectors.toList());
+        return Collections.unmodifiableList(topArts);
+    }
+
+    // Reads the art from the index of the order, best ranked first, with the query's range on that index applied.
+    private QueryPlan rankedPlan(GalleryQuery query, ArtOrder order) {
+        Comparator<Art> rank = TopArt.rank(order);
+        boolean descending = order == ArtOrder.MOST_EXPENSIVE || order == ArtOrder.NEWEST;
+        if (TopArt.isByPrice(order)) {
+            BigInteger priceLimitMin = query.hasPriceRange() ? query.getPriceLimitMin() : null;
+            BigInteger priceLimitMax = query.hasPriceRange() ? query.getPriceLimitMax() : null;
+            return QueryPlan.choose(query, Collections.singletonList(new QueryPlan.AccessPath("price index in order",
+                    estimateRows(artsByPrice, priceLimitMin, priceLimitMax), EnumSet.of(QueryPlan.Criterion.PRICE),
+                    () -> streamRanked(artsByPrice.valueIterator(priceLimitMin, true, priceLimitMax, true, descending), rank))));
+        }
+        Long fromDay = query.hasCreationDateRange() && query.getCreatedFrom() != null ? query.getCreatedFrom().toEpochDay() : null;
+        Long toDay = query.hasCreationDateRange() && query.getCreatedTo() != null ? query.getCreatedTo().toEpochDay() : null;
+        return QueryPlan.choose(query, Collections.singletonList(new QueryPlan.AccessPath("creation date index in order",
+                estimateRows(artsByCreationDay, fromDay, toDay), EnumSet.of(QueryPlan.Criterion.CREATION_DATE),
+                () -> streamRanked(artsByCreationDay.valueIterator(fromDay, true, toDay, true, descending), rank))));
+    }
+
+    // Estimates are exact for the artist and art type indexes and assume evenly sized buckets for the sorted ones.
+    private QueryPlan plan(GalleryQuery query) {
+        if (query == null) {
+            return QueryPlan.noQuery();
+        }
+        QueryPlan.checkRanges(query);
+        List<QueryPlan.AccessPath> accessPaths = new ArrayList<>();
+        if (query.getArtistName() != null) {
+            PersistentHashSet<Art> artistArts = bucketOrEmpty(artsByArtist.get(query.getArtistName()));
+            accessPaths.add(new QueryPlan.AccessPath("artist index", artistArts.size(),
+                    EnumSet.of(QueryPlan.Criterion.ARTIST), artistArts::stream));
+        }
+        if (query.getArtTypes() != null) {
+            List<PersistentHashSet<Art>> typeBuckets = new ArrayList<>();
+            long typeArtCount = 0;
+            for (ArtType artType : query.getArtTypes()) {
+                PersistentHashSet<Art> typeArts = bucketOrEmpty(artsByType.get(artType));
+                typeBuckets.add(typeArts);
+                typeArtCount += typeArts.size();
+            }
+            accessPaths.add(new QueryPlan.AccessPath("art type index", typeArtCount,
+                    EnumSet.of(QueryPlan.Criterion.ART_TYPE), () -> streamArts(typeBuckets.iterator())));
+        }
+        if (query.hasPriceRange()) {
+            BigInteger priceLimitMin = query.getPriceLimitMin();
+            BigInteger priceLimitMax = query.getPriceLimitMax();
+            accessPaths.add(new QueryPlan.AccessPath("price index", estimateRows(artsByPrice, priceLimitMin, priceLimitMax),
+                    EnumSet.of(QueryPlan.Criterion.PRICE), () -> streamArts(artsByPrice.valueIterator(priceLimitMin, true, priceLimitMax, true))));
+        }
+        if (query.hasCreationDateRange()) {
+            Long fromDay = query.getCreatedFrom() == null ? null : query.getCreatedFrom().toEpochDay();
+            Long toDay = query.getCreatedTo() == null ? null : query.getCreatedTo().toEpochDay();
+            accessPaths.add(new QueryPlan.AccessPath("creation date index", estimateRows(artsByCreationDay, fromDay, toDay),
+                    EnumSet.of(QueryPlan.Criterion.CREATION_DATE), () -> streamArts(artsByCreationDay.valueIterator(fromDay, true, toDay, true))));
+        }
+        accessPaths.add(new QueryPlan.AccessPath("full scan", arts.size(), EnumSet.noneOf(QueryPlan.Criterion.class), arts::stream));
+        return QueryPlan.choose(query, accessPaths);
+    }
+
+    private <K> long estimateRows(PersistentSortedMap<K, PersistentHashSet<Art>> index, K from, K to) {
+        if (index.isEmpty()) {
+            return 0;
+        }
+        return (long) Math.ceil((double) index.countKeysBetween(from, to) * arts.size() / index.size());
+    }
+
+    // Walks the index buckets one at a time, so a short page never touches the buckets after it.
+    private static Stream<Art> streamArts(Iterator<PersistentHashSet<Art>> indexBuckets) {
+        Iterator<Art> arts = new Iterator<Art>() {
+            private Iterator<Art> indexBucket = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!indexBucket.hasNext() && indexBuckets.hasNext()) {
+                    indexBucket = indexBuckets.next().iterator();
+                }
+                return indexBucket.hasNext();
+            }
+
+            @Override
+            public Art next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return indexBucket.next();
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(arts, Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL), false);
+    }
+
+    // Art sharing an index key is ranked by the tie breaks of the order, so buckets of more than one are sorted.
+    private static Stream<Art> streamRanked(Iterator<PersistentHashSet<Art>> indexBuckets, Comparator<Art> rank) {
+        Stream<PersistentHashSet<Art>> buckets = StreamSupport.stream(Spliterators.spliteratorUnknownSize(indexBuckets, Spliterator.ORDERED | Spliterator.NONNULL), false);
+        return buckets.flatMap(indexBucket -> indexBucket.size() == 1 ? indexBucket.stream() : indexBucket.stream().sorted(rank));
+    }
+
+    private static Set<Art> collectArts(Iterator<PersistentHashSet<Art>> indexBuckets) {
+        Set<Art> collectedArts = new HashSet<>();
+        while (indexBuckets.hasNext()) {
+            collectedArts.addAll(indexBuckets.next());
+        }
+        return collectedArts;
+    }
+
+    private static PersistentHashSet<Art> bucketOrEmpty(PersistentHashSet<Art> indexBucket) {
+        return indexBucket == null ? PersistentHashSet.<Art>empty() : indexBucket;
+    }
+
+    private static ArtAggregate aggregateOrEmpty(ArtAggregate aggregate) {
+        return aggregate == null ? ArtAggregate.EMPTY : aggregate;
+    }
+
+    // Names are indexed once however many pieces have them, by their symbol id.
+    private static PersistentSortedMap<String, PostingList> addToNameTermIndex(PersistentSortedMap<String, PostingList> index, Art art) {
+        for (String term : NameSearch.indexTerms(art.getName())) {
+            PostingList nameIds = index.get(term);
+            index = index.plus(term, (nameIds == null ? PostingList.empty() : nameIds).with(art.getNameId()));
+        }
+        return index;
+    }
+
+    private static PersistentSortedMap<String, PostingList> removeFromNameTermIndex(PersistentSortedMap<String, PostingList> index, Art art) {
+        for (String term : NameSearch.indexTerms(art.getName())) {
+            PostingList nameIds = index.get(term).without(art.getNameId());
+            index = nameIds.isEmpty() ? index.minus(term) : index.plus(term, nameIds);
+        }
+        return index;
+    }
+
+    private static <K> PersistentSortedMap<K, PersistentHashSet<Art>> addToIndex(PersistentSortedMap<K, PersistentHashSet<Art>> index, K key, Art art) {
+        return index.plus(key, bucketOrEmpty(index.get(key)).plus(art));
+    }
+
+    private static <K> PersistentSortedMap<K, PersistentHashSet<Art>> removeFromIndex(PersistentSortedMap<K, PersistentHashSet<Art>> index, K key, Art art) {
+        PersistentHashSet<Art> indexBucket = index.get(key).minus(art);
+        return indexBucket.isEmpty() ? index.minus(key) : index.plus(key, indexBucket);
+    }
+
+    /**
+     * The indexes of the next version while they are being changed. Every change replaces the fields with new
+     * persistent versions, leaving the snapshot it started from untouched.
+     */
+    private static final class Changes {
+        private final GallerySnapshot base;
+        private int changeCount;
+        private PersistentHashSet<Art> arts;
+        private PersistentHashMap<String, PersistentHashSet<Art>> artsByArtist;
+        private PersistentSortedMap<String, String> artistSearchIndex;
+        private PersistentHashMap<Integer, PersistentHashSet<Art>> artsByName;
+        private PersistentSortedMap<String, PostingList> nameTermIndex;
+        private PersistentSortedMap<String, ArtAggregate> artistAggregates;
+        private PersistentSortedMap<BigInteger, PersistentHashSet<Art>> artsByPrice;
+        private PersistentSortedMap<Long, PersistentHashSet<Art>> artsByCreationDay;
+        private PersistentHashMap<ArtType, PersistentHashSet<Art>> artsByType;
+        private PersistentHashMap<ArtType, ArtAggregate> artTypeAggregates;
+
+        private Changes(GallerySnapshot base) {
+            this.base = base;
+            this.arts = base.arts;
+            this.artsByArtist = base.artsByArtist;
+            this.artistSearchIndex = base.artistSearchIndex;
+            this.artsByName = base.artsByName;
+            this.nameTermIndex = base.nameTermIndex;
+            this.artistAggregates = base.artistAggregates;
+            this.artsByPrice = base.artsByPrice;
+            this.artsByCreationDay = base.artsByCreationDay;
+            this.artsByType = base.artsByType;
+            this.artTypeAggregates = base.artTypeAggregates;
+        }
+
+        private boolean add(Art art) {
+            if (arts.contains(art)) {
+                return false;
+            }
+            String artistName = art.getArtistName();
+            ArtAggregate artistAggregate = artistAggregates.get(artistName);
+            if (artistAggregate == null) {
+                artistSearchIndex = artistSearchIndex.plus(ArtistSearch.indexKey(artistName), artistName);
+            }
+            PersistentHashSet<Art> nameArts = artsByName.get(art.getNameId());
+            if (nameArts == null) {
+                nameTermIndex = addToNameTermIndex(nameTermIndex, art);
+            }
+            if (art.getPrice() != null) {
+                artsByPrice = addToIndex(artsByPrice, art.getPrice(), art);
+            }
+            arts = arts.plus(art);
+            artsByArtist = artsByArtist.plus(artistName, bucketOrEmpty(artsByArtist.get(artistName)).plus(art));
+            artsByName = artsByName.plus(art.getNameId(), bucketOrEmpty(nameArts).plus(art));
+            artistAggregates = artistAggregates.plus(artistName, aggregateOrEmpty(artistAggregate).plus(art));
+            artsByCreationDay = addToIndex(artsByCreationDay, art.getCreationDate().toEpochDay(), art);
+            artsByType = artsByType.plus(art.getArtType(), bucketOrEmpty(artsByType.get(art.getArtType())).plus(art));
+            artTypeAggregates = artTypeAggregates.plus(art.getArtType(), aggregateOrEmpty(artTypeAggregates.get(art.getArtType())).plus(art));
+            changeCount++;
+            return true;
+        }
+
+        private boolean remove(Art art) {
+            // The stored instance may differ from the given one in price or creation date.
+            Art storedArt = arts.find(art);
+            if (storedArt == null) {
+                return false;
+            }
+            String artistName = storedArt.getArtistName();
+            PersistentHashSet<Art> artistArts = artsByArtist.get(artistName).minus(storedArt);
+            if (artistArts.isEmpty()) {
+                artsByArtist = artsByArtist.minus(artistName);
+                artistSearchIndex = artistSearchIndex.minus(ArtistSearch.indexKey(artistName));
+            } else {
+                artsByArtist = artsByArtist.plus(artistName, artistArts);
+            }
+            PersistentHashSet<Art> nameArts = artsByName.get(storedArt.getNameId()).minus(storedArt);
+            if (nameArts.isEmpty()) {
+                artsByName = artsByName.minus(storedArt.getNameId());
+                nameTermIndex = removeFromNameTermIndex(nameTermIndex, storedArt);
+            } else {
+                artsByName = artsByName.plus(storedArt.getNameId(), nameArts);
+            }
+            ArtAggregate artistAggregate = artistAggregates.get(artistName).minus(storedArt);
+            artistAggregates = artistAggregate.count() == 0 ? artistAggregates.minus(artistName) : artistAggregates.plus(artistName, artistAggregate);
+            if (storedArt.getPrice() != null) {
+                artsByPrice = removeFromIndex(artsByPrice, storedArt.getPrice(), storedArt);
+            }
+            artsByCreationDay = removeFromIndex(artsByCreationDay, storedArt.getCreationDate().toEpochDay(), storedArt);
+            PersistentHashSet<Art> typeArts = artsByType.get(storedArt.getArtType()).minus(storedArt);
+            if (typeArts.isEmpty()) {
+                artsByType = artsByType.minus(storedArt.getArtType());
+                artTypeAggregates = artTypeAggregates.minus(storedArt.getArtType());
+            } else {
+                artsByType = artsByType.plus(storedArt.getArtType(), typeArts);
+                artTypeAggregates = artTypeAggregates.plus(storedArt.getArtType(), artTypeAggregates.get(storedArt.getArtType()).minus(storedArt));
+            }
+            arts = arts.minus(storedArt);
+            changeCount++;
+            return true;
+        }
+
+        private GallerySnapshot toSnapshot() {
+            return new GallerySnapshot(base.version + changeCount, base.clock, arts, artsByArtist, artistSearchIndex, artsByName,
+                    nameTermIndex, artistAggregates, artsByPrice, artsByCreationDay, artsByType, artTypeAggregates);
+        }
+    }
+}
@@ -0,0 +1,433 @@
+package service;
+
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.GalleryOperation;
+import constants.NameMatch;
+import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+import metrics.MetricsReporter;
+import metrics.OperationMetrics;
+import metrics.OperationSnapshot;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * This class wraps any {@link GalleryService} and records, for every method, how often it is called, how often
+ * it throws and a histogram of how long it takes. Recording allocates nothing and costs two reads of
+ * {@link System#nanoTime()} and a compare and set on a counter striped by thread. Methods returning a stream
+ * are timed until the stream is returned, not while it is consumed.
+ * <p>
+ * The numbers can be read with {@link #snapshot()}, published as one MBean per method with
+ * {@link #registerMBeans(String)} and sent to a {@link MetricsReporter} at a fixed rate.
+ *
+ * @see service.GalleryService
+ */
+public class InstrumentedGalleryService implements GalleryService {
+    private static final GalleryOperation[] OPERATIONS = GalleryOperation.values();
+
+    private final GalleryService gallery;
+    private final OperationMetrics[] operationMetrics = new OperationMetrics[OPERATIONS.length];
+    private final List<ObjectName> registeredMBeans = new ArrayList<>();
+
+    public InstrumentedGalleryService(GalleryService gallery) {
+        this.gallery = gallery;
+        for (GalleryOperation operation : OPERATIONS) {
+            operationMetrics[operation.ordinal()] = new OperationMetrics(operation.name());
+        }
+    }
+
+    @Override
+    public boolean addArt(Art art) {
+        long start = System.nanoTime();
+        try {
+            return gallery.addArt(art);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.ADD_ART);
+            throw e;
+        } finally {
+            record(GalleryOperation.ADD_ART, start);
+        }
+    }
+
+    @Override
+    public List<AddArtStatus> addAllArt(Collection<Art> arts) {
+        long start = System.nanoTime();
+        try {
+            return gallery.addAllArt(arts);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.ADD_ALL_ART);
+            throw e;
+        } finally {
+            record(GalleryOperation.ADD_ALL_ART, start);
+        }
+    }
+
+    @Override
+    public boolean deleteArt(Art art) {
+        long start = System.nanoTime();
+        try {
+            return gallery.deleteArt(art);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.DELETE_ART);
+            throw e;
+        } finally {
+            record(GalleryOperation.DELETE_ART, start);
+        }
+    }
+
+    @Override
+    public Set<Art> getAllArt() {
+        long start = System.nanoTime();
+        try {
+            return gallery.getAllArt();
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_ALL_ART);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_ALL_ART, start);
+        }
+    }
+
+    @Override
+    public List<String> getArtists() {
+        long start = System.nanoTime();
+        try {
+            return gallery.getArtists();
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_ARTISTS);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_ARTISTS, start);
+        }
+    }
+
+    @Override
+    public ArtStats getArtistStats(String artistName) {
+        long start = System.nanoTime();
+        try {
+            return gallery.getArtistStats(artistName);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_ARTIST_STATS);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_ARTIST_STATS, start);
+        }
+    }
+
+    @Override
+    public GalleryStats getAllStats() {
+        long start = System.nanoTime();
+        try {
+            return gallery.getAllStats();
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_ALL_STATS);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_ALL_STATS, start);
+        }
+    }
+
+    @Override
+    public Set<Art> getArtByArtist(String artistName) {
+        long start = System.nanoTime();
+        try {
+            return gallery.getArtByArtist(artistName);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_ART_BY_ARTIST);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_ART_BY_ARTIST, start);
+        }
+    }
+
+    @Override
+    public Set<Art> getArtByType(ArtType... artTypes) {
+        long start = System.nanoTime();
+        try {
+            return gallery.getArtByType(artTypes);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_ART_BY_TYPE);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_ART_BY_TYPE, start);
+        }
+    }
+
+    @Override
+    public List<String> findArtists(String prefix, int limit) {
+        long start = System.nanoTime();
+        try {
+            return gallery.findArtists(prefix, limit);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.FIND_ARTISTS);
+            throw e;
+        } finally {
+            record(GalleryOperation.FIND_ARTISTS, start);
+        }
+    }
+
+    @Override
+    public Set<Art> getArtByArtistPrefix(String prefix) {
+        long start = System.nanoTime();
+        try {
+            return gallery.getArtByArtistPrefix(prefix);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_ART_BY_ARTIST_PREFIX);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_ART_BY_ARTIST_PREFIX, start);
+        }
+    }
+
+    @Override
+    public Set<Art> searchArtByName(String text, NameMatch match) {
+        long start = System.nanoTime();
+        try {
+            return gallery.searchArtByName(text, match);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.SEARCH_ART_BY_NAME);
+            throw e;
+        } finally {
+            record(GalleryOperation.SEARCH_ART_BY_NAME, start);
+        }
+    }
+
+    @Override
+    public Set<Art> getRecentArt() {
+        long start = System.nanoTime();
+        try {
+            return gallery.getRecentArt();
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_RECENT_ART);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_RECENT_ART, start);
+        }
+    }
+
+    @Override
+    public Set<Art> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        long start = System.nanoTime();
+        try {
+            return gallery.getArtCreatedBetween(createdFrom, createdTo);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_ART_CREATED_BETWEEN);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_ART_CREATED_BETWEEN, start);
+        }
+    }
+
+    @Override
+    public Set<Art> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        long start = System.nanoTime();
+        try {
+            return gallery.getArtByPrice(priceLimitMin, priceLimitMax);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.GET_ART_BY_PRICE);
+            throw e;
+        } finally {
+            record(GalleryOperation.GET_ART_BY_PRICE, start);
+        }
+    }
+
+    @Override
+    public Stream<Art> streamArtByArtist(String artistName) {
+        long start = System.nanoTime();
+        try {
+            return gallery.streamArtByArtist(artistName);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.STREAM_ART_BY_ARTIST);
+            throw e;
+        } finally {
+            record(GalleryOperation.STREAM_ART_BY_ARTIST, start);
+        }
+    }
+
+    @Override
+    public Stream<Art> streamRecentArt() {
+        long start = System.nanoTime();
+        try {
+            return gallery.streamRecentArt();
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.STREAM_RECENT_ART);
+            throw e;
+        } finally {
+            record(GalleryOperation.STREAM_RECENT_ART, start);
+        }
+    }
+
+    @Override
+    public Stream<Art> streamArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        long start = System.nanoTime();
+        try {
+            return gallery.streamArtCreatedBetween(createdFrom, createdTo);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.STREAM_ART_CREATED_BETWEEN);
+            throw e;
+        } finally {
+            record(GalleryOperation.STREAM_ART_CREATED_BETWEEN, start);
+        }
+    }
+
+    @Override
+    public Stream<Art> streamArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        long start = System.nanoTime();
+        try {
+            return gallery.streamArtByPrice(priceLimitMin, priceLimitMax);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.STREAM_ART_BY_PRICE);
+            throw e;
+        } finally {
+            record(GalleryOperation.STREAM_ART_BY_PRICE, start);
+        }
+    }
+
+    @Override
+    public Set<Art> findArt(GalleryQuery query) {
+        long start = System.nanoTime();
+        try {
+            return gallery.findArt(query);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.FIND_ART);
+            throw e;
+        } finally {
+            record(GalleryOperation.FIND_ART, start);
+        }
+    }
+
+    @Override
+    public Stream<Art> streamArt(GalleryQuery query) {
+        long start = System.nanoTime();
+        try {
+            return gallery.streamArt(query);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.STREAM_ART);
+            throw e;
+        } finally {
+            record(GalleryOperation.STREAM_ART, start);
+        }
+    }
+
+    @Override
+    public String explain(GalleryQuery query) {
+        long start = System.nanoTime();
+        try {
+            return gallery.explain(query);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.EXPLAIN);
+            throw e;
+        } finally {
+            record(GalleryOperation.EXPLAIN, start);
+        }
+    }
+
+    @Override
+    public List<Art> findTopArt(GalleryQuery query, ArtOrder order, int count) {
+        long start = System.nanoTime();
+        try {
+            return gallery.findTopArt(query, order, count);
+        } catch (RuntimeException e) {
+            recordError(GalleryOperation.FIND_TOP_ART);
+            throw e;
+        } finally {
+            record(GalleryOperation.FIND_TOP_ART, start);
+        }
+    }
+
+    public OperationMetrics getMetrics(GalleryOperation operation) {
+        return operationMetrics[operation.ordinal()];
+    }
+
+    /**
+     * returns the numbers of every operation so far, in {@link GalleryOperation} order.
+     *
+     * @return
+     */
+    public List<OperationSnapshot> snapshot() {
+        List<OperationSnapshot> snapshots = new ArrayList<>(OPERATIONS.length);
+        for (OperationMetrics metrics : operationMetrics) {
+            snapshots.add(metrics.snapshot());
+        }
+        return snapshots;
+    }
+
+    /**
+     * publishes the metrics of every operation on the platform MBean server, as
+     * gallery:type=GalleryService,name=galleryName,operation=OPERATION.
+     *
+     * @param galleryName
+     */
+    public synchronized void registerMBeans(String galleryName) {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (GalleryOperation operation : OPERATIONS) {
+                ObjectName objectName = new ObjectName("gallery:type=GalleryService,name=" + ObjectName.quote(galleryName) + ",operation=" + operation.name());
+                mBeanServer.registerMBean(getMetrics(operation), objectName);
+                registeredMBeans.add(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register the gallery MBeans for " + galleryName, e);
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ObjectName objectName : registeredMBeans) {
+                mBeanServer.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister the gallery MBeans", e);
+        } finally {
+            registeredMBeans.clear();
+        }
+    }
+
+    /**
+     * sends the numbers of every operation to the reporter once per period, on a daemon thread, until the
+     * returned Closeable is closed.
+     *
+     * @param reporter
+     * @param period
+     * @param unit
+     * @return
+     */
+    public Closeable startReporting(MetricsReporter reporter, long period, TimeUnit unit) {
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "gallery-metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(() -> reporter.report(snapshot()), period, period, unit);
+        return scheduler::shutdown;
+    }
+
+    private void record(GalleryOperation operation, long start) {
+        operationMetrics[operation.ordinal()].record(System.nanoTime() - start);
+    }
+
+    private void recordError(GalleryOperation operation) {
+        operationMetrics[operation.ordinal()].recordError();
+    }
+}
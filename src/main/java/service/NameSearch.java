@@ -0,0 +1,133 @@
+package service;
+
+import collections.PostingList;
+import constants.NameMatch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.regex.Pattern;
+
+/**
+ * The tokenising and query evaluation shared by the art name indexes of every {@link GalleryService}.
+ * Names are split into terms at anything that is not a letter or a digit, and terms are normalised like artist
+ * names by {@link ArtistSearch#normalise}. Indexes map each term to the {@link PostingList} of the ids it
+ * appears in, and keep the terms sorted so the terms starting with a prefix are one range of them.
+ */
+final class NameSearch {
+    private static final Pattern TERM_SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int[] NO_IDS = new int[0];
+
+    private NameSearch() { }
+
+    /**
+     * returns the terms of a name in the order they appear.
+     */
+    static List<String> terms(String name) {
+        String[] parts = TERM_SEPARATORS.split(ArtistSearch.normalise(name));
+        List<String> terms = new ArrayList<>(parts.length);
+        for (String part : parts) {
+            if (!part.isEmpty()) {
+                terms.add(part);
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * returns the terms a name is indexed under, each once.
+     */
+    static Set<String> indexTerms(String name) {
+        return new LinkedHashSet<>(terms(name));
+    }
+
+    /**
+     * returns the ids whose names match the text, in ascending order. Text with no terms matches nothing.
+     *
+     * @param termPostings the posting list of a term, null if no name has it
+     * @param prefixPostings the posting lists of every term starting with a prefix
+     * @param nameOf the name of an id, read to check phrases
+     */
+    static int[] matchingIds(String text, NameMatch match,
+                             Function<String, PostingList> termPostings,
+                             Function<String, Iterator<PostingList>> prefixPostings,
+                             IntFunction<String> nameOf) {
+        if (match == null) {
+            throw new IllegalArgumentException("A name match must be given");
+        }
+        if (text == null) {
+            return NO_IDS;
+        }
+        List<String> terms = terms(text);
+        if (terms.isEmpty()) {
+            return NO_IDS;
+        }
+        if (match == NameMatch.PHRASE_PREFIX) {
+            return phraseMatches(terms, termPostings, prefixPostings, nameOf);
+        }
+        List<PostingList> postingLists = new ArrayList<>(terms.size());
+        for (String term : new LinkedHashSet<>(terms)) {
+            PostingList postings = termPostings.apply(term);
+            if (postings != null) {
+                postingLists.add(postings);
+            } else if (match == NameMatch.ALL_TERMS) {
+                return NO_IDS;
+            }
+        }
+        if (postingLists.isEmpty()) {
+            return NO_IDS;
+        }
+        return (match == NameMatch.ALL_TERMS ? PostingList.intersection(postingLists) : PostingList.union(postingLists)).toArray();
+    }
+
+    // Candidates have every term and a term starting with the last one; only their names tell the order.
+    private static int[] phraseMatches(List<String> terms,
+                                       Function<String, PostingList> termPostings,
+                                       Function<String, Iterator<PostingList>> prefixPostings,
+                                       IntFunction<String> nameOf) {
+        List<PostingList> postingLists = new ArrayList<>(terms.size());
+        for (String term : new LinkedHashSet<>(terms.subList(0, terms.size() - 1))) {
+            PostingList postings = termPostings.apply(term);
+            if (postings == null) {
+                return NO_IDS;
+            }
+            postingLists.add(postings);
+        }
+        List<PostingList> prefixPostingLists = new ArrayList<>();
+        prefixPostings.apply(terms.get(terms.size() - 1)).forEachRemaining(prefixPostingLists::add);
+        if (prefixPostingLists.isEmpty()) {
+            return NO_IDS;
+        }
+        postingLists.add(PostingList.union(prefixPostingLists));
+        int[] candidates = PostingList.intersection(postingLists).toArray();
+        if (terms.size() == 1) {
+            return candidates;
+        }
+        int length = 0;
+        for (int id : candidates) {
+            if (containsPhrase(terms(nameOf.apply(id)), terms)) {
+                candidates[length++] = id;
+            }
+        }
+        return Arrays.copyOf(candidates, length);
+    }
+
+    private static boolean containsPhrase(List<String> nameTerms, List<String> phrase) {
+        int last = phrase.size() - 1;
+        for (int start = 0; start + last < nameTerms.size(); start++) {
+            int i = 0;
+            while (i < last && nameTerms.get(start + i).equals(phrase.get(i))) {
+                i++;
+            }
+            if (i == last && nameTerms.get(start + last).startsWith(phrase.get(last))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
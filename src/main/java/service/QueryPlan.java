@@ -0,0 +1,216 @@
+package service;
+
+import collections.SymbolTable;
+import constants.ArtType;
+import dto.Art;
+import dto.GalleryQuery;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * How a {@link GalleryQuery} is run: the access path it is driven from and the filters applied to the art that
+ * path returns. Each gallery offers the access paths it has with an estimate of how many pieces each would
+ * read, and the plan drives from the cheapest one.
+ */
+final class QueryPlan {
+    // In the order residual filters are applied, cheapest comparison first.
+    enum Criterion {
+        ARTIST, ART_TYPE, CREATION_DATE, PRICE
+    }
+
+    /**
+     * One way of reading the art for a query.
+     */
+    static final class AccessPath {
+        private final String name;
+        private final long estimatedRows;
+        private final Set<Criterion> coveredCriteria;
+        private final Supplier<Stream<Art>> scan;
+
+        /**
+         * @param name            shown by explain
+         * @param estimatedRows   number of pieces the scan is expected to read
+         * @param coveredCriteria criteria every piece the scan returns is known to match
+         * @param scan            reads the art lazily
+         */
+        AccessPath(String name, long estimatedRows, Set<Criterion> coveredCriteria, Supplier<Stream<Art>> scan) {
+            this.name = name;
+            this.estimatedRows = estimatedRows;
+            this.coveredCriteria = coveredCriteria;
+            this.scan = scan;
+        }
+    }
+
+    private final GalleryQuery query;
+    private final AccessPath accessPath;
+    private final List<AccessPath> rejectedAccessPaths;
+    private final List<Criterion> residualCriteria;
+
+    private QueryPlan(GalleryQuery query, AccessPath accessPath, List<AccessPath> rejectedAccessPaths) {
+        this.query = query;
+        this.accessPath = accessPath;
+        this.rejectedAccessPaths = rejectedAccessPaths;
+        this.residualCriteria = new ArrayList<>();
+        for (Criterion criterion : criteriaOf(query)) {
+            if (!accessPath.coveredCriteria.contains(criterion)) {
+                residualCriteria.add(criterion);
+            }
+        }
+    }
+
+    /**
+     * returns the plan driven from the access path expected to read the fewest pieces. On a tie the earlier
+     * access path wins, so galleries list their full scan last.
+     */
+    static QueryPlan choose(GalleryQuery query, List<AccessPath> accessPaths) {
+        AccessPath cheapest = accessPaths.get(0);
+        for (AccessPath accessPath : accessPaths) {
+            if (accessPath.estimatedRows < cheapest.estimatedRows) {
+                cheapest = accessPath;
+            }
+        }
+        List<AccessPath> rejectedAccessPaths = new ArrayList<>(accessPaths);
+        rejectedAccessPaths.remove(cheapest);
+        return new QueryPlan(query, cheapest, rejectedAccessPaths);
+    }
+
+    /**
+     * returns the plan for a missing query, which matches no art.
+     */
+    static QueryPlan noQuery() {
+        AccessPath nothing = new AccessPath("nothing, no query given", 0, EnumSet.allOf(Criterion.class), Stream::empty);
+        return new QueryPlan(new GalleryQuery.GalleryQueryBuilder().build(), nothing, Collections.<AccessPath>emptyList());
+    }
+
+    /**
+     * throws if the query's price or date range is the wrong way round.
+     */
+    static void checkRanges(GalleryQuery query) {
+        if (query.hasPriceRange()) {
+            RangeChecks.checkPriceFilterRange(query.getPriceLimitMin(), query.getPriceLimitMax());
+        }
+        if (query.hasCreationDateRange()) {
+            RangeChecks.checkDateFilterRange(query.getCreatedFrom(), query.getCreatedTo());
+        }
+    }
+
+    static Set<Criterion> criteriaOf(GalleryQuery query) {
+        Set<Criterion> criteria = EnumSet.noneOf(Criterion.class);
+        if (query.getArtistName() != null) {
+            criteria.add(Criterion.ARTIST);
+        }
+        if (query.getArtTypes() != null) {
+            criteria.add(Criterion.ART_TYPE);
+        }
+        if (query.hasCreationDateRange()) {
+            criteria.add(Criterion.CREATION_DATE);
+        }
+        if (query.hasPriceRange()) {
+            criteria.add(Criterion.PRICE);
+        }
+        return criteria;
+    }
+
+    /**
+     * returns the number of pieces the chosen access path is expected to read.
+     */
+    long estimatedRows() {
+        return accessPath.estimatedRows;
+    }
+
+    /**
+     * returns the art matching the query, lazily.
+     */
+    Stream<Art> stream() {
+        Stream<Art> arts = accessPath.scan.get();
+        for (Criterion criterion : residualCriteria) {
+            arts = arts.filter(filterFor(criterion));
+        }
+        return arts;
+    }
+
+    /**
+     * returns one line for the access path used, one for each residual filter in the order applied and one for
+     * each access path that was not chosen.
+     */
+    String explain() {
+        StringBuilder explanation = new StringBuilder("Scan: ").append(accessPath.name);
+        for (Criterion criterion : criteriaOf(query)) {
+            if (accessPath.coveredCriteria.contains(criterion)) {
+                explanation.append(", ").append(describe(criterion));
+            }
+        }
+        explanation.append(" (estimated ").append(accessPath.estimatedRows).append(" pieces)");
+        for (Criterion criterion : residualCriteria) {
+            explanation.append("\nFilter: ").append(describe(criterion));
+        }
+        for (AccessPath rejectedAccessPath : rejectedAccessPaths) {
+            explanation.append("\nNot chosen: ").append(rejectedAccessPath.name)
+                    .append(" (estimated ").append(rejectedAccessPath.estimatedRows).append(" pieces)");
+        }
+        return explanation.toString();
+    }
+
+    private Predicate<Art> filterFor(Criterion criterion) {
+        switch (criterion) {
+            case ARTIST:
+                // Unknown artists get id -1, which no art has.
+                int artistId = SymbolTable.getInstance().findId(query.getArtistName());
+                return art -> art.getArtistId() == artistId;
+            case ART_TYPE:
+                Set<ArtType> artTypes = query.getArtTypes();
+                return art -> artTypes.contains(art.getArtType());
+            case CREATION_DATE:
+                LocalDate createdFrom = query.getCreatedFrom();
+                LocalDate createdTo = query.getCreatedTo();
+                return art -> (createdFrom == null || !art.getCreationDate().isBefore(createdFrom))
+                        && (createdTo == null || !art.getCreationDate().isAfter(createdTo));
+            case PRICE:
+                BigInteger priceLimitMin = query.getPriceLimitMin();
+                BigInteger priceLimitMax = query.getPriceLimitMax();
+                return art -> art.getPrice() != null
+                        && (priceLimitMin == null || art.getPrice().compareTo(priceLimitMin) >= 0)
+                        && (priceLimitMax == null || art.getPrice().compareTo(priceLimitMax) <= 0);
+            default:
+                throw new IllegalStateException("Unknown criterion " + criterion);
+        }
+    }
+
+    private String describe(Criterion criterion) {
+        switch (criterion) {
+            case ARTIST:
+                return "artist = " + query.getArtistName();
+            case ART_TYPE:
+                Set<ArtType> artTypes = query.getArtTypes();
+                return artTypes.size() == 1 ? "art type = " + artTypes.iterator().next() : "art type in " + artTypes;
+            case CREATION_DATE:
+                return describeRange("created", query.getCreatedFrom(), query.getCreatedTo(), "any creation date");
+            case PRICE:
+                return describeRange("price", query.getPriceLimitMin(), query.getPriceLimitMax(), "has a price");
+            default:
+                throw new IllegalStateException("Unknown criterion " + criterion);
+        }
+    }
+
+    private static String describeRange(String field, Object from, Object to, String unbounded) {
+        if (from == null && to == null) {
+            return unbounded;
+        }
+        if (from == null) {
+            return field + " <= " + to;
+        }
+        if (to == null) {
+            return field + " >= " + from;
+        }
+        return from + " <= " + field + " <= " + to;
+    }
+}
@@ -0,0 +1,35 @@
+package service;
+
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+
+/**
+ * Validation of the optional limits taken by the range queries of every {@link GalleryService}.
+ */
+final class RangeChecks {
+    static final int DAYS_365 = 365;
+
+    private RangeChecks() { }
+
+    static void checkPriceFilterRange(BigInteger priceLimitMin, BigInteger priceLimitMax) {
+        if (priceLimitMin != null && priceLimitMax != null && priceLimitMin.compareTo(priceLimitMax) > 0) {
+            throw new InvalidPriceRangeException("priceLimitMax should be higher than priceLimitMin!. Given priceLimitMin::" + priceLimitMin + " priceLimitMax::" + priceLimitMax);
+        }
+    }
+
+    static void checkDateFilterRange(LocalDate createdFrom, LocalDate createdTo) {
+        if (createdFrom != null && createdTo != null && createdFrom.isAfter(createdTo)) {
+            throw new InvalidDateRangeException("createdTo should not be before createdFrom!. Given createdFrom::" + createdFrom + " createdTo::" + createdTo);
+        }
+    }
+
+    /**
+     * returns the epoch day of the first day counted as recent: the past year is the 365 days up to and including today.
+     */
+    static long firstRecentDay(LocalDate today) {
+        return today.toEpochDay() - DAYS_365 + 1;
+    }
+}
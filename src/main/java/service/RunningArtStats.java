@@ -0,0 +1,113 @@
+package service;
+
+import collections.LongMultiset;
+import dto.ArtStats;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.TreeMap;
+
+/**
+ * The running {@link ArtStats} of a group of art in a {@link ColumnarGalleryService}, updated in place as art is
+ * added and deleted. Prices and creation days are kept as sorted counts, like {@link ArtAggregate} does, so the
+ * min and max survive deletes; they are {@link LongMultiset}s, about 12 bytes for each distinct price and day of
+ * the group, which keeps the heap small next to the off-heap columns. Adding or removing a piece costs
+ * O(log n). Not thread safe.
+ */
+final class RunningArtStats {
+    private static final int LONG_BITS = 63;
+
+    private int count;
+    private int pricedCount;
+    // Prices that fit in a long are summed as a long, moving the sum to the BigInteger before it overflows.
+    private long pennySum;
+    private BigInteger hugeSum = BigInteger.ZERO;
+    private final LongMultiset pennyPrices = new LongMultiset();
+    // Prices too big for a long, rare enough to keep boxed.
+    private final TreeMap<BigInteger, Integer> hugePrices = new TreeMap<>();
+    private final LongMultiset creationDays = new LongMultiset();
+
+    int count() {
+        return count;
+    }
+
+    void add(BigInteger price, long creationDay) {
+        count++;
+        if (price != null) {
+            pricedCount++;
+            addToSum(price);
+            if (price.bitLength() < Long.SIZE) {
+                pennyPrices.add(price.longValue());
+            } else {
+                hugePrices.merge(price, 1, Integer::sum);
+            }
+        }
+        creationDays.add(creationDay);
+    }
+
+    /**
+     * takes away a piece of the group, which must have the price and creation day it was added with.
+     */
+    void remove(BigInteger price, long creationDay) {
+        count--;
+        if (price != null) {
+            pricedCount--;
+            addToSum(price.negate());
+            if (price.bitLength() < Long.SIZE) {
+                pennyPrices.remove(price.longValue());
+            } else {
+                hugePrices.computeIfPresent(price, (hugePrice, priceCount) -> priceCount == 1 ? null : priceCount - 1);
+            }
+        }
+        creationDays.remove(creationDay);
+        if (count == 0) {
+            pennySum = 0;
+            hugeSum = BigInteger.ZERO;
+        }
+    }
+
+    ArtStats toStats() {
+        if (count == 0) {
+            return ArtStats.empty();
+        }
+        ArtStats.ArtStatsBuilder statsBuilder = new ArtStats.ArtStatsBuilder()
+                .count(count)
+                .creationDates(LocalDate.ofEpochDay(creationDays.first()), LocalDate.ofEpochDay(creationDays.last()));
+        if (pricedCount > 0) {
+            statsBuilder.prices(pricedCount, hugeSum.add(BigInteger.valueOf(pennySum)), minPrice(), maxPrice());
+        }
+        return statsBuilder.build();
+    }
+
+    private BigInteger minPrice() {
+        BigInteger minPennyPrice = pennyPrices.isEmpty() ? null : BigInteger.valueOf(pennyPrices.first());
+        if (hugePrices.isEmpty()) {
+            return minPennyPrice;
+        }
+        BigInteger minHugePrice = hugePrices.firstKey();
+        return minPennyPrice == null || minHugePrice.compareTo(minPennyPrice) < 0 ? minHugePrice : minPennyPrice;
+    }
+
+    private BigInteger maxPrice() {
+        BigInteger maxPennyPrice = pennyPrices.isEmpty() ? null : BigInteger.valueOf(pennyPrices.last());
+        if (hugePrices.isEmpty()) {
+            return maxPennyPrice;
+        }
+        BigInteger maxHugePrice = hugePrices.lastKey();
+        return maxPennyPrice == null || maxHugePrice.compareTo(maxPennyPrice) > 0 ? maxHugePrice : maxPennyPrice;
+    }
+
+    private void addToSum(BigInteger price) {
+        if (price.bitLength() < LONG_BITS) {
+            long pence = price.longValue();
+            long sum = pennySum + pence;
+            // Only overflows if both have the same sign and the sum a different one.
+            if (((pennySum ^ sum) & (pence ^ sum)) >= 0) {
+                pennySum = sum;
+                return;
+            }
+        }
+        hugeSum = hugeSum.add(BigInteger.valueOf(pennySum)).add(price);
+        pennySum = 0;
+    }
+}
@@ -0,0 +1,442 @@
+package service;
+
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.NameMatch;
+import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * This class splits the gallery into shards by artist, each shard being a gallery of its own, so every piece by
+ * one artist lives in the same shard.
+ * <p>
+ * Changes and queries about a single artist go to that artist's shard only. Other queries fan out to every shard
+ * in parallel on a {@link ForkJoinPool} and the results are merged: sets are returned as a view over the shards'
+ * results, which never overlap, and {@link #getArtists()} merges the shards' sorted artists. Streams read the
+ * shards one after another.
+ *
+ * @see service.GalleryService
+ */
+public class ShardedGalleryService implements GalleryService {
+    private final GalleryService[] shards;
+    private final ForkJoinPool pool;
+
+    /**
+     * creates a gallery of one in memory shard per available processor.
+     */
+    public ShardedGalleryService() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedGalleryService(int shardCount) {
+        this(shardCount, () -> new GalleryServiceImpl(Clock.systemDefaultZone()));
+    }
+
+    /**
+     * @param shardCount
+     * @param newShard   creates each shard, every call must return a new empty gallery
+     */
+    public ShardedGalleryService(int shardCount, Supplier<GalleryService> newShard) {
+        this(shardCount, newShard, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param shardCount
+     * @param newShard   creates each shard, every call must return a new empty gallery
+     * @param pool       runs the queries that fan out to every shard
+     */
+    public ShardedGalleryService(int shardCount, Supplier<GalleryService> newShard, ForkJoinPool pool) {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("A sharded gallery needs at least one shard, not " + shardCount);
+        }
+        this.shards = new GalleryService[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = newShard.get();
+        }
+        this.pool = pool;
+    }
+
+    @Override
+    public boolean addArt(Art art) {
+        return shardOf(art).addArt(art);
+    }
+
+    // Each shard adds its part of the batch in parallel, so the batch is atomic per shard only.
+    @Override
+    public List<AddArtStatus> addAllArt(Collection<Art> arts) {
+        if (arts == null) {
+            return Collections.emptyList();
+        }
+        List<List<Art>> artsByShard = new ArrayList<>(shards.length);
+        List<List<Integer>> positionsByShard = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            artsByShard.add(new ArrayList<>());
+            positionsByShard.add(new ArrayList<>());
+        }
+        int position = 0;
+        for (Art art : arts) {
+            int shard = art == null ? 0 : shardIndexOf(art.getArtistName());
+            artsByShard.get(shard).add(art);
+            positionsByShard.get(shard).add(position++);
+        }
+        List<List<AddArtStatus>> statusesByShard = fanOutByIndex(shard -> {
+            List<Art> shardArts = artsByShard.get(shard);
+            return shardArts.isEmpty() ? Collections.<AddArtStatus>emptyList() : shards[shard].addAllArt(shardArts);
+        });
+        AddArtStatus[] statuses = new AddArtStatus[position];
+        for (int shard = 0; shard < shards.length; shard++) {
+            List<Integer> positions = positionsByShard.get(shard);
+            List<AddArtStatus> shardStatuses = statusesByShard.get(shard);
+            for (int i = 0; i < positions.size(); i++) {
+                statuses[positions.get(i)] = shardStatuses.get(i);
+            }
+        }
+        return Arrays.asList(statuses);
+    }
+
+    @Override
+    public boolean deleteArt(Art art) {
+        return shardOf(art).deleteArt(art);
+    }
+
+    @Override
+    public Set<Art> getAllArt() {
+        return new ShardedArtSet(fanOut(GalleryService::getAllArt));
+    }
+
+    /**
+     * returns the names of all artists in alphabetical order, merged from the shards' sorted lists.
+     *
+     * @return
+     */
+    @Override
+    public List<String> getArtists() {
+        List<List<String>> artistsByShard = fanOut(GalleryService::getArtists);
+        int artistCount = 0;
+        // Each queue entry is the position of the next artist of one shard, ordered by that artist.
+        PriorityQueue<int[]> heads = new PriorityQueue<>(shards.length,
+                (left, right) -> artistsByShard.get(left[0]).get(left[1]).compareTo(artistsByShard.get(right[0]).get(right[1])));
+        for (int shard = 0; shard < shards.length; shard++) {
+            artistCount += artistsByShard.get(shard).size();
+            if (!artistsByShard.get(shard).isEmpty()) {
+                heads.add(new int[]{shard, 0});
+            }
+        }
+        List<String> artists = new ArrayList<>(artistCount);
+        while (!heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<String> shardArtists = artistsByShard.get(head[0]);
+            artists.add(shardArtists.get(head[1]));
+            if (++head[1] < shardArtists.size()) {
+                heads.add(head);
+            }
+        }
+        return artists;
+    }
+
+    @Override
+    public ArtStats getArtistStats(String artistName) {
+        return shards[shardIndexOf(artistName)].getArtistStats(artistName);
+    }
+
+    /**
+     * returns the figures of every shard together. Each artist is on one shard, the art type figures are added up.
+     *
+     * @return
+     */
+    @Override
+    public GalleryStats getAllStats() {
+        Map<String, ArtStats> artistStats = new TreeMap<>();
+        Map<ArtType, ArtStats> artTypeStats = new EnumMap<>(ArtType.class);
+        for (GalleryStats shardStats : fanOut(GalleryService::getAllStats)) {
+            artistStats.putAll(shardStats.getArtistStats());
+            shardStats.getArtTypeStats().forEach((artType, stats) -> artTypeStats.merge(artType, stats, ArtStats::plus));
+        }
+        return new GalleryStats(artistStats, artTypeStats);
+    }
+
+    @Override
+    public Set<Art> getArtByArtist(String artistName) {
+        return shards[shardIndexOf(artistName)].getArtByArtist(artistName);
+    }
+
+    /**
+     * returns the first limit names of the merged matches of every shard.
+     *
+     * @param prefix
+     * @param limit
+     * @return
+     */
+    @Override
+    public List<String> findArtists(String prefix, int limit) {
+        ArtistSearch.checkLimit(limit);
+        List<String> artistNames = new ArrayList<>();
+        for (List<String> shardArtistNames : fanOut(shard -> shard.findArtists(prefix, limit))) {
+            artistNames.addAll(shardArtistNames);
+        }
+        artistNames.sort(Comparator.comparing(ArtistSearch::indexKey));
+        return Collections.unmodifiableList(artistNames.subList(0, Math.min(limit, artistNames.size())));
+    }
+
+    @Override
+    public Set<Art> getArtByArtistPrefix(String prefix) {
+        return new ShardedArtSet(fanOut(shard -> shard.getArtByArtistPrefix(prefix)));
+    }
+
+    @Override
+    public Set<Art> searchArtByName(String text, NameMatch match) {
+        return new ShardedArtSet(fanOut(shard -> shard.searchArtByName(text, match)));
+    }
+
+    @Override
+    public Set<Art> getRecentArt() {
+        return new ShardedArtSet(fanOut(GalleryService::getRecentArt));
+    }
+
+    @Override
+    public Set<Art> getArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        RangeChecks.checkDateFilterRange(createdFrom, createdTo);
+        return new ShardedArtSet(fanOut(shard -> shard.getArtCreatedBetween(createdFrom, createdTo)));
+    }
+
+    @Override
+    public Set<Art> getArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        RangeChecks.checkPriceFilterRange(priceLimitMin, priceLimitMax);
+        return new ShardedArtSet(fanOut(shard -> shard.getArtByPrice(priceLimitMin, priceLimitMax)));
+    }
+
+    @Override
+    public Set<Art> getArtByType(ArtType... artTypes) {
+        return new ShardedArtSet(fanOut(shard -> shard.getArtByType(artTypes)));
+    }
+
+    @Override
+    public Stream<Art> streamArtByArtist(String artistName) {
+        return shards[shardIndexOf(artistName)].streamArtByArtist(artistName);
+    }
+
+    @Override
+    public Stream<Art> streamRecentArt() {
+        return Stream.of(shards).flatMap(GalleryService::streamRecentArt);
+    }
+
+    @Override
+    public Stream<Art> streamArtCreatedBetween(LocalDate createdFrom, LocalDate createdTo) throws InvalidDateRangeException {
+        RangeChecks.checkDateFilterRange(createdFrom, createdTo);
+        return Stream.of(shards).flatMap(shard -> shard.streamArtCreatedBetween(createdFrom, createdTo));
+    }
+
+    @Override
+    public Stream<Art> streamArtByPrice(BigInteger priceLimitMin, BigInteger priceLimitMax) throws InvalidPriceRangeException {
+        RangeChecks.checkPriceFilterRange(priceLimitMin, priceLimitMax);
+        return Stream.of(shards).flatMap(shard -> shard.streamArtByPrice(priceLimitMin, priceLimitMax));
+    }
+
+    @Override
+    public Set<Art> findArt(GalleryQuery query) {
+        if (query != null && query.getArtistName() != null) {
+            return shards[shardIndexOf(query.getArtistName())].findArt(query);
+        }
+        if (query != null) {
+            QueryPlan.checkRanges(query);
+        }
+        return new ShardedArtSet(fanOut(shard -> shard.findArt(query)));
+    }
+
+    @Override
+    public Stream<Art> streamArt(GalleryQuery query) {
+        if (query != null && query.getArtistName() != null) {
+            return shards[shardIndexOf(query.getArtistName())].streamArt(query);
+        }
+        if (query != null) {
+            QueryPlan.checkRanges(query);
+        }
+        return Stream.of(shards).flatMap(shard -> shard.streamArt(query));
+    }
+
+    /**
+     * returns which shards the query reads, followed by the plan of each of them.
+     *
+     * @param query
+     * @return
+     */
+    @Override
+    public String explain(GalleryQuery query) {
+        if (query != null && query.getArtistName() != null) {
+            int shard = shardIndexOf(query.getArtistName());
+            return "Shard " + shard + " of " + shards.length + ", artist = " + query.getArtistName() + "\n"
+                    + shards[shard].explain(query);
+        }
+        StringBuilder explanation = new StringBuilder("Fan out to all ").append(shards.length).append(" shards");
+        for (int shard = 0; shard < shards.length; shard++) {
+            explanation.append("\nShard ").append(shard).append(":\n").append(shards[shard].explain(query));
+        }
+        return explanation.toString();
+    }
+
+    /**
+     * returns the top ranked art of the query's artist's shard, or merges the top count pieces of every shard.
+     *
+     * @param query
+     * @param order
+     * @param count
+     * @return
+     */
+    @Override
+    public List<Art> findTopArt(GalleryQuery query, ArtOrder order, int count) {
+        TopArt.checkArguments(order, count);
+        if (query != null && query.getArtistName() != null) {
+            return shards[shardIndexOf(query.getArtistName())].findTopArt(query, order, count);
+        }
+        if (query != null) {
+            QueryPlan.checkRanges(query);
+        }
+        List<List<Art>> topArtsByShard = fanOut(shard -> shard.findTopArt(query, order, count));
+        return TopArt.select(topArtsByShard.stream().flatMap(List::stream), order, count);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    private GalleryService shardOf(Art art) {
+        return shards[art == null ? 0 : shardIndexOf(art.getArtistName())];
+    }
+
+    private int shardIndexOf(String artistName) {
+        if (artistName == null) {
+            return 0;
+        }
+        int hash = artistName.hashCode();
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    private <T> List<T> fanOut(Function<GalleryService, T> query) {
+        return fanOutByIndex(shard -> query.apply(shards[shard]));
+    }
+
+    /**
+     * returns the query's result for every shard index, in shard order, running the shards in parallel.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> List<T> fanOutByIndex(IntFunction<T> query) {
+        Object[] results = new Object[shards.length];
+        if (shards.length == 1) {
+            results[0] = query.apply(0);
+        } else {
+            pool.invoke(new FanOut<>(query, results, 0, shards.length));
+        }
+        return (List<T>) Arrays.asList(results);
+    }
+
+    /**
+     * Runs a query on a range of shards, splitting the range in half until it is one shard.
+     */
+    private final class FanOut<T> extends RecursiveAction {
+        private final IntFunction<T> query;
+        private final Object[] results;
+        private final int from;
+        private final int to;
+
+        private FanOut(IntFunction<T> query, Object[] results, int from, int to) {
+            this.query = query;
+            this.results = results;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                results[from] = query.apply(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new FanOut<>(query, results, from, middle), new FanOut<>(query, results, middle, to));
+        }
+    }
+
+    /**
+     * An unmodifiable view of the union of the shards' results. The shards never hold the same piece, so the
+     * size is the sum of theirs and a piece can only be in the result of its artist's shard.
+     */
+    private final class ShardedArtSet extends AbstractSet<Art> {
+        private final List<Set<Art>> shardArts;
+        private final int size;
+
+        private ShardedArtSet(List<Set<Art>> shardArts) {
+            this.shardArts = shardArts;
+            int size = 0;
+            for (Set<Art> arts : shardArts) {
+                size += arts.size();
+            }
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object obj) {
+            if (!(obj instanceof Art)) {
+                return false;
+            }
+            return shardArts.get(shardIndexOf(((Art) obj).getArtistName())).contains(obj);
+        }
+
+        @Override
+        public Iterator<Art> iterator() {
+            return new Iterator<Art>() {
+                private int shard;
+                private Iterator<Art> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext() {
+                    while (!current.hasNext() && shard < shardArts.size()) {
+                        current = shardArts.get(shard++).iterator();
+                    }
+                    return current.hasNext();
+                }
+
+                @Override
+                public Art next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return current.next();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package service;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Publishes a lazy stream to each subscriber, reading only as far ahead as the subscriber has asked for.
+ * <p>
+ * Every subscription gets its own task on the executor which opens the stream, then waits for demand before
+ * each element. That task is meant to be a virtual thread, where waiting is cheap, so a slow subscriber holds
+ * no platform thread. The stream is closed when it ends, fails or the subscription is cancelled. Publishers
+ * sharing an executor share a {@link Subscriptions}, which ends every open subscription with an error when the
+ * executor is about to close, so none is left waiting for demand that never comes.
+ *
+ * @param <T>
+ */
+final class StreamPublisher<T> implements Flow.Publisher<T> {
+    private final Supplier<Stream<T>> source;
+    private final Executor executor;
+    private final Subscriptions subscriptions;
+
+    StreamPublisher(Supplier<Stream<T>> source, Executor executor, Subscriptions subscriptions) {
+        this.source = source;
+        this.executor = executor;
+        this.subscriptions = subscriptions;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        StreamSubscription subscription = new StreamSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscriptions.open.add(subscription);
+        // Checked after registering, so either this or closeAll ends a subscription made while closing.
+        if (subscriptions.closed) {
+            subscription.abort();
+        }
+        try {
+            executor.execute(subscription::run);
+        } catch (RejectedExecutionException e) {
+            subscriptions.open.remove(subscription);
+            subscriber.onError(e);
+        }
+    }
+
+    /**
+     * The open subscriptions of the publishers on one executor.
+     */
+    static final class Subscriptions {
+        private final Set<StreamPublisher<?>.StreamSubscription> open = ConcurrentHashMap.newKeySet();
+        private volatile boolean closed;
+
+        /**
+         * ends every open subscription, and any made from now on, with an IllegalStateException.
+         */
+        void closeAll() {
+            closed = true;
+            for (StreamPublisher<?>.StreamSubscription subscription : open) {
+                subscription.abort();
+            }
+        }
+    }
+
+    private final class StreamSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super T> subscriber;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition demandChanged = lock.newCondition();
+        private long demand;
+        private boolean cancelled;
+        private IllegalArgumentException badRequest;
+        private boolean aborted;
+
+        private StreamSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (n <= 0) {
+                    // Rule 3.9 of reactive streams: the error is signalled rather than thrown.
+                    badRequest = new IllegalArgumentException("Requested " + n + " pieces, requests must be positive");
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                demandChanged.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                demandChanged.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // Ends the subscription from another thread, the error being signalled by the task.
+        private void abort() {
+            lock.lock();
+            try {
+                aborted = true;
+                demandChanged.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void run() {
+            try {
+                publish();
+            } finally {
+                subscriptions.open.remove(this);
+            }
+        }
+
+        private void publish() {
+            try (Stream<T> stream = source.get()) {
+                Iterator<T> elements = stream.iterator();
+                while (elements.hasNext()) {
+                    if (!awaitDemand()) {
+                        return;
+                    }
+                    subscriber.onNext(elements.next());
+                }
+                if (!isCancelled()) {
+                    subscriber.onComplete();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                subscriber.onError(e);
+            } catch (RuntimeException e) {
+                if (!isCancelled()) {
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        /**
+         * waits for the subscriber to ask for another element and takes it from the demand.
+         *
+         * @return false if the subscription is over
+         */
+        private boolean awaitDemand() throws InterruptedException {
+            RuntimeException error;
+            lock.lock();
+            try {
+                while (demand == 0 && !cancelled && badRequest == null && !aborted) {
+                    demandChanged.await();
+                }
+                if (cancelled) {
+                    return false;
+                }
+                error = aborted ? new IllegalStateException("The publisher's executor was closed") : badRequest;
+                if (error == null) {
+                    demand--;
+                    return true;
+                }
+                cancelled = true;
+            } finally {
+                lock.unlock();
+            }
+            subscriber.onError(error);
+            return false;
+        }
+
+        private boolean isCancelled() {
+            lock.lock();
+            try {
+                return cancelled;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package service;
+
+import constants.ArtOrder;
+import dto.Art;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Stream;
+
+/**
+ * The ranking shared by the top art queries of every {@link GalleryService}, and a bounded heap for galleries
+ * that cannot read art in rank order.
+ */
+final class TopArt {
+    private static final Comparator<Art> TIES = Comparator.comparing(Art::getName)
+            .thenComparing(Art::getArtistName)
+            .thenComparing(Art::getArtType);
+    private static final Comparator<Art> MOST_EXPENSIVE = Comparator.comparing(Art::getPrice, Comparator.reverseOrder()).thenComparing(TIES);
+    private static final Comparator<Art> CHEAPEST = Comparator.comparing(Art::getPrice).thenComparing(TIES);
+    private static final Comparator<Art> NEWEST = Comparator.comparing(Art::getCreationDate, Comparator.reverseOrder()).thenComparing(TIES);
+    private static final Comparator<Art> OLDEST = Comparator.comparing(Art::getCreationDate).thenComparing(TIES);
+
+    private TopArt() { }
+
+    /**
+     * returns the comparator putting the highest ranked art first. Price orders must only be given priced art.
+     */
+    static Comparator<Art> rank(ArtOrder order) {
+        switch (order) {
+            case MOST_EXPENSIVE:
+                return MOST_EXPENSIVE;
+            case CHEAPEST:
+                return CHEAPEST;
+            case NEWEST:
+                return NEWEST;
+            case OLDEST:
+                return OLDEST;
+            default:
+                throw new IllegalStateException("Unknown art order " + order);
+        }
+    }
+
+    static boolean isByPrice(ArtOrder order) {
+        return order == ArtOrder.MOST_EXPENSIVE || order == ArtOrder.CHEAPEST;
+    }
+
+    /**
+     * throws if the arguments of a top art query are not usable.
+     */
+    static void checkArguments(ArtOrder order, int count) {
+        if (order == null) {
+            throw new IllegalArgumentException("An art order must be given");
+        }
+        if (count < 0) {
+            throw new IllegalArgumentException("count should not be negative. Given count::" + count);
+        }
+    }
+
+    /**
+     * returns the highest ranked pieces of the given art, best first, keeping at most count of them in a heap
+     * so the cost is O(n log count) rather than a full sort.
+     */
+    static List<Art> select(Stream<Art> arts, ArtOrder order, int count) {
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        Comparator<Art> rank = rank(order);
+        boolean byPrice = isByPrice(order);
+        // The root is the lowest ranked piece kept, the first to go when a better one turns up.
+        PriorityQueue<Art> kept = new PriorityQueue<>(Math.min(count, 1024) + 1, rank.reversed());
+        arts.forEach(art -> {
+            if (byPrice && art.getPrice() == null) {
+                return;
+            }
+            if (kept.size() < count) {
+                kept.add(art);
+            } else if (rank.compare(art, kept.peek()) < 0) {
+                kept.poll();
+                kept.add(art);
+            }
+        });
+        List<Art> topArts = new ArrayList<>(kept);
+        topArts.sort(rank);
+        return Collections.unmodifiableList(topArts);
+    }
+}
@@ -0,0 +1,285 @@
+package store;
+
+import constants.ArtType;
+import dto.Art;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary form of an {@link Art}, used by the log and snapshot files and the gallery server. Art is read from and
+ * written to a {@link ByteBuffer} in place, heap, direct or memory mapped, without copying through byte arrays.
+ * <p>
+ * Version 2, the one written: name, art type ordinal byte, artist name, creation epoch day and price. Strings
+ * are a varint UTF-8 length and the bytes, the epoch day a zigzag varint. The price is one varint: 0 for no
+ * price, 1 followed by a varint length and the bytes of {@link BigInteger#toByteArray()} for prices of more
+ * than 62 bits, otherwise the zigzag of the price plus 2.
+ * <p>
+ * Version 1, still read from old files: strings an int length and the bytes, the epoch day a long and the price
+ * a presence byte, an int length and the {@link BigInteger#toByteArray()} bytes.
+ * <p>
+ * A batch is the version byte, a varint count and the records.
+ */
+public final class ArtCodec {
+    public static final int VERSION_1 = 1;
+    public static final int VERSION_2 = 2;
+    public static final int CURRENT_VERSION = VERSION_2;
+
+    private static final ArtType[] ART_TYPES = ArtType.values();
+    private static final int NO_PRICE = 0;
+    private static final int BIG_PRICE = 1;
+    private static final int SMALL_PRICE_OFFSET = 2;
+    private static final int MAX_SMALL_PRICE_BITS = 62;
+
+    private ArtCodec() { }
+
+    /**
+     * returns the number of bytes {@link #encode(Art, ByteBuffer)} writes for the art.
+     */
+    public static int encodedSize(Art art) {
+        int nameLength = utf8Length(art.getName());
+        int artistNameLength = utf8Length(art.getArtistName());
+        return varIntSize(nameLength) + nameLength
+                + 1
+                + varIntSize(artistNameLength) + artistNameLength
+                + varLongSize(zigZag(art.getCreationDate().toEpochDay()))
+                + priceSize(art.getPrice());
+    }
+
+    /**
+     * writes the art at the buffer's position in the current version, advancing it.
+     */
+    public static void encode(Art art, ByteBuffer out) {
+        writeString(art.getName(), out);
+        out.put((byte) art.getArtType().ordinal());
+        writeString(art.getArtistName(), out);
+        writeVarLong(zigZag(art.getCreationDate().toEpochDay()), out);
+        writePrice(art.getPrice(), out);
+    }
+
+    /**
+     * reads one piece of art in the current version from the buffer's position, advancing it.
+     */
+    public static Art decode(ByteBuffer in) {
+        return decode(in, CURRENT_VERSION);
+    }
+
+    /**
+     * reads one piece of art written in the given version from the buffer's position, advancing it.
+     */
+    public static Art decode(ByteBuffer in, int version) {
+        switch (version) {
+            case VERSION_1:
+                return decodeVersion1(in);
+            case VERSION_2:
+                String name = readString(in, readVarInt(in));
+                ArtType artType = ART_TYPES[in.get()];
+                String artistName = readString(in, readVarInt(in));
+                LocalDate creationDate = LocalDate.ofEpochDay(unZigZag(readVarLong(in)));
+                return new Art.ArtBuilder(name, artType, artistName, creationDate).price(readPrice(in)).build();
+            default:
+                throw new IllegalArgumentException("Unknown art codec version " + version);
+        }
+    }
+
+    /**
+     * returns the number of bytes {@link #encodeAll(Collection, ByteBuffer)} writes for the art.
+     */
+    public static int encodedSize(Collection<Art> arts) {
+        int size = 1 + varIntSize(arts.size());
+        for (Art art : arts) {
+            size += encodedSize(art);
+        }
+        return size;
+    }
+
+    /**
+     * writes the art as one batch at the buffer's position, advancing it.
+     */
+    public static void encodeAll(Collection<Art> arts, ByteBuffer out) {
+        out.put((byte) CURRENT_VERSION);
+        writeVarInt(arts.size(), out);
+        for (Art art : arts) {
+            encode(art, out);
+        }
+    }
+
+    /**
+     * reads a batch written by {@link #encodeAll(Collection, ByteBuffer)} in any version.
+     */
+    public static List<Art> decodeAll(ByteBuffer in) {
+        int version = in.get();
+        int count = readVarInt(in);
+        List<Art> arts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            arts.add(decode(in, version));
+        }
+        return arts;
+    }
+
+    private static Art decodeVersion1(ByteBuffer in) {
+        String name = readString(in, in.getInt());
+        ArtType artType = ART_TYPES[in.get()];
+        String artistName = readString(in, in.getInt());
+        LocalDate creationDate = LocalDate.ofEpochDay(in.getLong());
+        BigInteger price = null;
+        if (in.get() != 0) {
+            price = readBigInteger(in, in.getInt());
+        }
+        return new Art.ArtBuilder(name, artType, artistName, creationDate).price(price).build();
+    }
+
+    private static int priceSize(BigInteger price) {
+        if (price == null) {
+            return 1;
+        }
+        if (price.bitLength() <= MAX_SMALL_PRICE_BITS) {
+            return varLongSize(zigZag(price.longValue()) + SMALL_PRICE_OFFSET);
+        }
+        int length = (price.bitLength() >>> 3) + 1;
+        return 1 + varIntSize(length) + length;
+    }
+
+    private static void writePrice(BigInteger price, ByteBuffer out) {
+        if (price == null) {
+            out.put((byte) NO_PRICE);
+        } else if (price.bitLength() <= MAX_SMALL_PRICE_BITS) {
+            writeVarLong(zigZag(price.longValue()) + SMALL_PRICE_OFFSET, out);
+        } else {
+            byte[] bytes = price.toByteArray();
+            out.put((byte) BIG_PRICE);
+            writeVarInt(bytes.length, out);
+            out.put(bytes);
+        }
+    }
+
+    private static BigInteger readPrice(ByteBuffer in) {
+        long price = readVarLong(in);
+        if (price == NO_PRICE) {
+            return null;
+        }
+        if (price == BIG_PRICE) {
+            return readBigInteger(in, readVarInt(in));
+        }
+        return BigInteger.valueOf(unZigZag(price - SMALL_PRICE_OFFSET));
+    }
+
+    private static BigInteger readBigInteger(ByteBuffer in, int length) {
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new BigInteger(bytes);
+    }
+
+    // Unpaired surrogates are written as '?', as String.getBytes does.
+    private static int utf8Length(String value) {
+        int length = value.length();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (isSurrogatePair(value, i)) {
+                length += 2;
+                i++;
+            } else if (c >= 0x800 && !Character.isSurrogate(c)) {
+                length += 2;
+            } else if (c >= 0x80 && c < 0x800) {
+                length++;
+            }
+        }
+        return length;
+    }
+
+    private static boolean isSurrogatePair(String value, int i) {
+        return Character.isHighSurrogate(value.charAt(i)) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1));
+    }
+
+    private static void writeString(String value, ByteBuffer out) {
+        writeVarInt(utf8Length(value), out);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                out.put((byte) c);
+            } else if (c < 0x800) {
+                out.put((byte) (0xC0 | c >>> 6));
+                out.put((byte) (0x80 | c & 0x3F));
+            } else if (isSurrogatePair(value, i)) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                out.put((byte) (0xF0 | codePoint >>> 18));
+                out.put((byte) (0x80 | codePoint >>> 12 & 0x3F));
+                out.put((byte) (0x80 | codePoint >>> 6 & 0x3F));
+                out.put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                out.put((byte) '?');
+            } else {
+                out.put((byte) (0xE0 | c >>> 12));
+                out.put((byte) (0x80 | c >>> 6 & 0x3F));
+                out.put((byte) (0x80 | c & 0x3F));
+            }
+        }
+    }
+
+    private static String readString(ByteBuffer in, int length) {
+        String value;
+        if (in.hasArray()) {
+            value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        } else {
+            ByteBuffer bytes = in.slice();
+            bytes.limit(length);
+            value = StandardCharsets.UTF_8.decode(bytes).toString();
+        }
+        in.position(in.position() + length);
+        return value;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int varIntSize(int value) {
+        return varLongSize(value & 0xFFFFFFFFL);
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void writeVarInt(int value, ByteBuffer out) {
+        writeVarLong(value & 0xFFFFFFFFL, out);
+    }
+
+    private static void writeVarLong(long value, ByteBuffer out) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in art record");
+    }
+}
@@ -0,0 +1,70 @@
+package store;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The outcome of loading one catalogue file. Every row read is counted once as added, duplicate or rejected.
+ */
+public final class CatalogueLoadReport {
+    private final long rowCount;
+    private final long addedCount;
+    private final long duplicateCount;
+    private final long rejectedCount;
+    private final long elapsedNanos;
+    private final List<String> rejections;
+
+    CatalogueLoadReport(long rowCount, long addedCount, long duplicateCount, long rejectedCount, long elapsedNanos, List<String> rejections) {
+        this.rowCount = rowCount;
+        this.addedCount = addedCount;
+        this.duplicateCount = duplicateCount;
+        this.rejectedCount = rejectedCount;
+        this.elapsedNanos = elapsedNanos;
+        this.rejections = rejections;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public long getAddedCount() {
+        return addedCount;
+    }
+
+    /**
+     * returns the number of rows whose art was already in the gallery.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * returns the number of rows that could not be parsed or did not make valid art.
+     */
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getRowsPerSecond() {
+        return elapsedNanos == 0 ? 0 : rowCount * (double) TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+    }
+
+    /**
+     * returns why rows were rejected, with the byte offset of each row in the file, for up to the first 100
+     * rejected rows found.
+     */
+    public List<String> getRejections() {
+        return rejections;
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this);
+    }
+}
@@ -0,0 +1,648 @@
+package store;
+
+import constants.AddArtStatus;
+import constants.ArtType;
+import constants.CatalogueFormat;
+import dto.Art;
+import exceptions.ConstraintViolationException;
+import service.GalleryService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Loads a catalogue file into a gallery.
+ * <p>
+ * The file is memory mapped in chunks that end at line ends and the chunks are parsed in parallel on a fork join
+ * pool, each adding its art to the gallery in batches. Every line is one piece of art with a name, art type,
+ * artist name, optional creation date (yyyy-MM-dd, today if missing) and optional price in pence:
+ * CSV :- name,artType,artistName,creationDate,price with an optional header line starting with "name,".
+ * Fields may be quoted with double quotes, a quote inside them doubled, but may not span lines.
+ * NDJSON :- one flat JSON object per line with the keys name, artType, artistName, creationDate and price, the
+ * price a number or a string of digits. Other keys are ignored.
+ * <p>
+ * Art types, dates and prices are parsed straight from the mapped bytes, and artist names, which repeat, are
+ * looked up in a per chunk cache before a new String is made. Rows that cannot be parsed or do not make valid
+ * art are counted and skipped.
+ */
+public final class CatalogueLoader {
+    public static final int DEFAULT_BATCH_SIZE = 10_000;
+
+    private static final long MIN_CHUNK_BYTES = 1L << 20;
+    private static final long MAX_CHUNK_BYTES = 64L << 20;
+    private static final int MAX_REJECTIONS = 100;
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final ArtType[] ART_TYPES = ArtType.values();
+    private static final byte[] UTF8_BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    // Field slots, in CSV column order.
+    private static final int NAME = 0;
+    private static final int ART_TYPE = 1;
+    private static final int ARTIST_NAME = 2;
+    private static final int CREATION_DATE = 3;
+    private static final int PRICE = 4;
+    private static final int FIELD_COUNT = 5;
+    private static final byte[][] JSON_KEYS = {
+            ascii("name"), ascii("artType"), ascii("artistName"), ascii("creationDate"), ascii("price")
+    };
+
+    private final GalleryService gallery;
+    private final int batchSize;
+    private final ForkJoinPool pool;
+    private final long minChunkBytes;
+
+    public CatalogueLoader(GalleryService gallery) {
+        this(gallery, DEFAULT_BATCH_SIZE, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param gallery   receives the art, from several threads at once
+     * @param batchSize number of pieces added to the gallery per call
+     * @param pool      parses the chunks
+     */
+    public CatalogueLoader(GalleryService gallery, int batchSize, ForkJoinPool pool) {
+        this(gallery, batchSize, pool, MIN_CHUNK_BYTES);
+    }
+
+    CatalogueLoader(GalleryService gallery, int batchSize, ForkJoinPool pool, long minChunkBytes) {
+        this.gallery = gallery;
+        this.batchSize = batchSize;
+        this.pool = pool;
+        this.minChunkBytes = minChunkBytes;
+    }
+
+    /**
+     * loads the file, taking the format from its extension: .csv, or .ndjson, .jsonl for NDJSON.
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public CatalogueLoadReport load(Path file) throws IOException {
+        String fileName = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (fileName.endsWith(".csv")) {
+            return load(file, CatalogueFormat.CSV);
+        }
+        if (fileName.endsWith(".ndjson") || fileName.endsWith(".jsonl")) {
+            return load(file, CatalogueFormat.NDJSON);
+        }
+        throw new IllegalArgumentException("Cannot tell the catalogue format of " + file + ", name it .csv or .ndjson");
+    }
+
+    public CatalogueLoadReport load(Path file, CatalogueFormat format) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LoadRun run = new LoadRun(channel, format, split(channel));
+            pool.invoke(new ChunkTask(run, 0, run.chunkStarts.size() - 1));
+            if (run.failure.get() != null) {
+                throw run.failure.get();
+            }
+            List<String> rejections;
+            synchronized (run.rejections) {
+                rejections = Collections.unmodifiableList(new ArrayList<>(run.rejections));
+            }
+            return new CatalogueLoadReport(run.rowCount.sum(), run.addedCount.sum(), run.duplicateCount.sum(),
+                    run.rejectedCount.sum(), System.nanoTime() - start, rejections);
+        }
+    }
+
+    /**
+     * returns the start offsets of the chunks, followed by the file size. Each chunk ends just after a line end.
+     */
+    private List<Long> split(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long chunkBytes = Math.max(minChunkBytes, Math.min(MAX_CHUNK_BYTES, size / (pool.getParallelism() * 4L)));
+        List<Long> chunkStarts = new ArrayList<>();
+        ByteBuffer scan = ByteBuffer.allocate(8192);
+        long start = 0;
+        while (start < size) {
+            chunkStarts.add(start);
+            long end = start + chunkBytes;
+            while (end < size) {
+                scan.clear();
+                int read = channel.read(scan, end - 1);
+                int newline = -1;
+                for (int i = 0; i < read && newline < 0; i++) {
+                    if (scan.get(i) == '\n') {
+                        newline = i;
+                    }
+                }
+                if (newline >= 0) {
+                    end += newline;
+                    break;
+                }
+                end += read;
+            }
+            start = Math.min(end, size);
+        }
+        chunkStarts.add(size);
+        return chunkStarts;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * The state shared by the chunks of one load.
+     */
+    private final class LoadRun {
+        private final FileChannel channel;
+        private final CatalogueFormat format;
+        private final List<Long> chunkStarts;
+        private final LongAdder rowCount = new LongAdder();
+        private final LongAdder addedCount = new LongAdder();
+        private final LongAdder duplicateCount = new LongAdder();
+        private final LongAdder rejectedCount = new LongAdder();
+        private final List<String> rejections = new ArrayList<>();
+        private final AtomicReference<IOException> failure = new AtomicReference<>();
+
+        private LoadRun(FileChannel channel, CatalogueFormat format, List<Long> chunkStarts) {
+            this.channel = channel;
+            this.format = format;
+            this.chunkStarts = chunkStarts;
+        }
+
+        private void reject(long offset, String reason) {
+            rejectedCount.increment();
+            synchronized (rejections) {
+                if (rejections.size() < MAX_REJECTIONS) {
+                    rejections.add("Row at byte " + offset + ": " + reason);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads a range of chunks, splitting the range in half until it is one chunk.
+     */
+    private final class ChunkTask extends RecursiveAction {
+        private final LoadRun run;
+        private final int from;
+        private final int to;
+
+        private ChunkTask(LoadRun run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ChunkTask(run, from, middle), new ChunkTask(run, middle, to));
+                return;
+            }
+            if (from == to) {
+                return;
+            }
+            long start = run.chunkStarts.get(from);
+            long end = run.chunkStarts.get(from + 1);
+            try {
+                MappedByteBuffer chunk = run.channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+                new ChunkParser(run, chunk, start).parse();
+            } catch (IOException e) {
+                run.failure.compareAndSet(null, e);
+            }
+        }
+    }
+
+    /**
+     * Parses one mapped chunk line by line. Not thread safe, each chunk gets its own.
+     */
+    private final class ChunkParser {
+        private final LoadRun run;
+        private final ByteBuffer chunk;
+        private final long chunkOffset;
+        private final int[] fieldStarts = new int[FIELD_COUNT];
+        private final int[] fieldEnds = new int[FIELD_COUNT];
+        private final boolean[] fieldPresent = new boolean[FIELD_COUNT];
+        private final boolean[] fieldEscaped = new boolean[FIELD_COUNT];
+        private final ArtistNameCache artistNames = new ArtistNameCache();
+        private byte[] scratch = new byte[256];
+        private List<Art> batch;
+
+        private ChunkParser(LoadRun run, ByteBuffer chunk, long chunkOffset) {
+            this.run = run;
+            this.chunk = chunk;
+            this.chunkOffset = chunkOffset;
+            this.batch = new ArrayList<>(batchSize);
+        }
+
+        private void parse() {
+            int limit = chunk.limit();
+            int lineStart = 0;
+            if (chunkOffset == 0 && startsWith(0, limit, UTF8_BOM)) {
+                lineStart = UTF8_BOM.length;
+            }
+            boolean firstLine = chunkOffset == 0;
+            while (lineStart < limit) {
+                int lineEnd = lineStart;
+                while (lineEnd < limit && chunk.get(lineEnd) != '\n') {
+                    lineEnd++;
+                }
+                int nextLine = lineEnd + 1;
+                if (lineEnd > lineStart && chunk.get(lineEnd - 1) == '\r') {
+                    lineEnd--;
+                }
+                boolean header = firstLine && run.format == CatalogueFormat.CSV && startsWithIgnoringCase(lineStart, lineEnd, "name,");
+                firstLine = false;
+                if (lineEnd > lineStart && !header) {
+                    parseRow(lineStart, lineEnd);
+                }
+                lineStart = nextLine;
+            }
+            flush();
+        }
+
+        private void parseRow(int from, int to) {
+            run.rowCount.increment();
+            Arrays.fill(fieldPresent, false);
+            String error = run.format == CatalogueFormat.CSV ? splitCsv(from, to) : splitJson(from, to);
+            Art art = null;
+            if (error == null) {
+                try {
+                    art = toArt();
+                } catch (IllegalArgumentException | DateTimeException | ConstraintViolationException e) {
+                    error = e.getMessage();
+                }
+            }
+            if (error != null) {
+                run.reject(chunkOffset + from, error);
+                return;
+            }
+            batch.add(art);
+            if (batch.size() == batchSize) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            for (AddArtStatus status : gallery.addAllArt(batch)) {
+                if (status == AddArtStatus.ADDED) {
+                    run.addedCount.increment();
+                } else if (status == AddArtStatus.ALREADY_IN_GALLERY) {
+                    run.duplicateCount.increment();
+                } else {
+                    run.rejectedCount.increment();
+                }
+            }
+            batch = new ArrayList<>(batchSize);
+        }
+
+        private Art toArt() {
+            String name = isBlank(NAME) ? null : string(NAME);
+            ArtType artType = isBlank(ART_TYPE) ? null : artType();
+            String artistName = null;
+            if (!isBlank(ARTIST_NAME)) {
+                artistName = fieldEscaped[ARTIST_NAME] ? string(ARTIST_NAME) : artistNames.get(fieldStarts[ARTIST_NAME], fieldEnds[ARTIST_NAME]);
+            }
+            Art.ArtBuilder artBuilder = isBlank(CREATION_DATE)
+                    ? new Art.ArtBuilder(name, artType, artistName)
+                    : new Art.ArtBuilder(name, artType, artistName, date());
+            if (!isBlank(PRICE)) {
+                artBuilder.price(price());
+            }
+            return artBuilder.build();
+        }
+
+        private boolean isBlank(int field) {
+            return !fieldPresent[field] || fieldStarts[field] == fieldEnds[field];
+        }
+
+        // Splits a CSV line into the field slots, returning why it could not or null.
+        private String splitCsv(int from, int to) {
+            int field = 0;
+            int position = from;
+            while (true) {
+                if (field == FIELD_COUNT) {
+                    return "Too many fields, expected name,artType,artistName,creationDate,price";
+                }
+                fieldEscaped[field] = false;
+                if (position < to && chunk.get(position) == '"') {
+                    int start = ++position;
+                    while (true) {
+                        if (position >= to) {
+                            return "Unterminated quoted field";
+                        }
+                        if (chunk.get(position) == '"') {
+                            if (position + 1 < to && chunk.get(position + 1) == '"') {
+                                fieldEscaped[field] = true;
+                                position += 2;
+                                continue;
+                            }
+                            break;
+                        }
+                        position++;
+                    }
+                    setField(field, start, position);
+                    position++;
+                    if (position < to && chunk.get(position) != ',') {
+                        return "Unexpected text after quoted field";
+                    }
+                } else {
+                    int start = position;
+                    while (position < to && chunk.get(position) != ',') {
+                        position++;
+                    }
+                    setField(field, start, position);
+                }
+                field++;
+                if (position >= to) {
+                    break;
+                }
+                position++;
+            }
+            if (field < CREATION_DATE) {
+                return "Too few fields, expected name,artType,artistName,creationDate,price";
+            }
+            return null;
+        }
+
+        // Splits a flat JSON object into the field slots, returning why it could not or null.
+        private String splitJson(int from, int to) {
+            int position = skipWhitespace(from, to);
+            if (position >= to || chunk.get(position) != '{') {
+                return "Expected a JSON object";
+            }
+            position = skipWhitespace(position + 1, to);
+            if (position < to && chunk.get(position) == '}') {
+                return null;
+            }
+            while (true) {
+                if (position >= to || chunk.get(position) != '"') {
+                    return "Expected a JSON key";
+                }
+                int keyStart = position + 1;
+                position = skipJsonString(keyStart, to);
+                if (position < 0) {
+                    return "Unterminated JSON string";
+                }
+                int field = fieldOfKey(keyStart, position);
+                position = skipWhitespace(position + 1, to);
+                if (position >= to || chunk.get(position) != ':') {
+                    return "Expected ':' after a JSON key";
+                }
+                position = skipWhitespace(position + 1, to);
+                if (position >= to) {
+                    return "Expected a JSON value";
+                }
+                if (chunk.get(position) == '"') {
+                    int valueStart = position + 1;
+                    position = skipJsonString(valueStart, to);
+                    if (position < 0) {
+                        return "Unterminated JSON string";
+                    }
+                    if (field >= 0) {
+                        setField(field, valueStart, position);
+                        fieldEscaped[field] = contains(valueStart, position, (byte) '\\');
+                    }
+                    position++;
+                } else {
+                    int valueStart = position;
+                    while (position < to && chunk.get(position) != ',' && chunk.get(position) != '}' && !isWhitespace(chunk.get(position))) {
+                        position++;
+                    }
+                    boolean isNull = position - valueStart == 4 && startsWith(valueStart, position, ascii("null"));
+                    if (field >= 0 && !isNull) {
+                        setField(field, valueStart, position);
+                        fieldEscaped[field] = false;
+                    }
+                }
+                position = skipWhitespace(position, to);
+                if (position < to && chunk.get(position) == ',') {
+                    position = skipWhitespace(position + 1, to);
+                } else if (position < to && chunk.get(position) == '}') {
+                    return null;
+                } else {
+                    return "Expected ',' or '}' in JSON object";
+                }
+            }
+        }
+
+        // Returns the position of the closing quote, or -1.
+        private int skipJsonString(int position, int to) {
+            while (position < to) {
+                byte b = chunk.get(position);
+                if (b == '"') {
+                    return position;
+                }
+                position += b == '\\' ? 2 : 1;
+            }
+            return -1;
+        }
+
+        private int fieldOfKey(int from, int to) {
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                if (to - from == JSON_KEYS[field].length && startsWith(from, to, JSON_KEYS[field])) {
+                    return field;
+                }
+            }
+            return -1;
+        }
+
+        private void setField(int field, int start, int end) {
+            fieldStarts[field] = start;
+            fieldEnds[field] = end;
+            fieldPresent[field] = true;
+        }
+
+        private String string(int field) {
+            int length = fieldEnds[field] - fieldStarts[field];
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, scratch.length * 2)];
+            }
+            chunk.get(fieldStarts[field], scratch, 0, length);
+            String value = new String(scratch, 0, length, StandardCharsets.UTF_8);
+            if (!fieldEscaped[field]) {
+                return value;
+            }
+            return run.format == CatalogueFormat.CSV ? value.replace("\"\"", "\"") : unescapeJson(value);
+        }
+
+        private ArtType artType() {
+            int from = fieldStarts[ART_TYPE];
+            int to = fieldEnds[ART_TYPE];
+            for (ArtType artType : ART_TYPES) {
+                if (startsWithIgnoringCase(from, to, artType.name()) && to - from == artType.name().length()) {
+                    return artType;
+                }
+            }
+            throw new IllegalArgumentException("Unknown art type " + string(ART_TYPE));
+        }
+
+        private LocalDate date() {
+            int from = fieldStarts[CREATION_DATE];
+            int to = fieldEnds[CREATION_DATE];
+            if (to - from != 10 || chunk.get(from + 4) != '-' || chunk.get(from + 7) != '-') {
+                throw new IllegalArgumentException("Creation date " + string(CREATION_DATE) + " is not yyyy-MM-dd");
+            }
+            return LocalDate.of(digits(from, from + 4), digits(from + 5, from + 7), digits(from + 8, from + 10));
+        }
+
+        private BigInteger price() {
+            int from = fieldStarts[PRICE];
+            int to = fieldEnds[PRICE];
+            if (to - from > MAX_LONG_DIGITS) {
+                digitsValue(from, to);
+                return new BigInteger(string(PRICE));
+            }
+            return BigInteger.valueOf(digitsValue(from, to));
+        }
+
+        // Parses decimal digits, exact for up to 18 of them.
+        private long digitsValue(int from, int to) {
+            long value = 0;
+            for (int position = from; position < to; position++) {
+                byte b = chunk.get(position);
+                if (b < '0' || b > '9') {
+                    throw new IllegalArgumentException("Expected digits but found " + new String(new byte[]{b}, StandardCharsets.ISO_8859_1));
+                }
+                value = value * 10 + (b - '0');
+            }
+            return value;
+        }
+
+        private int digits(int from, int to) {
+            return (int) digitsValue(from, to);
+        }
+
+        private int skipWhitespace(int position, int to) {
+            while (position < to && isWhitespace(chunk.get(position))) {
+                position++;
+            }
+            return position;
+        }
+
+        private boolean contains(int from, int to, byte wanted) {
+            for (int position = from; position < to; position++) {
+                if (chunk.get(position) == wanted) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean startsWith(int from, int to, byte[] prefix) {
+            if (to - from < prefix.length) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length; i++) {
+                if (chunk.get(from + i) != prefix[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean startsWithIgnoringCase(int from, int to, String prefix) {
+            if (to - from < prefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (Character.toUpperCase((char) chunk.get(from + i)) != Character.toUpperCase(prefix.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Artist names seen in this chunk, looked up by their bytes so a repeated name costs no allocation.
+         * Open addressing with a short probe, names that do not fit are simply not cached.
+         */
+        private final class ArtistNameCache {
+            private static final int CAPACITY = 4096;
+            private static final int MAX_PROBES = 8;
+
+            private final byte[][] keys = new byte[CAPACITY][];
+            private final String[] values = new String[CAPACITY];
+
+            private String get(int from, int to) {
+                int hash = 1;
+                for (int position = from; position < to; position++) {
+                    hash = 31 * hash + chunk.get(position);
+                }
+                int slot = (hash ^ (hash >>> 16)) & (CAPACITY - 1);
+                for (int probe = 0; probe < MAX_PROBES; probe++, slot = (slot + 1) & (CAPACITY - 1)) {
+                    byte[] key = keys[slot];
+                    if (key == null) {
+                        byte[] bytes = new byte[to - from];
+                        chunk.get(from, bytes);
+                        keys[slot] = bytes;
+                        values[slot] = new String(bytes, StandardCharsets.UTF_8);
+                        return values[slot];
+                    }
+                    if (key.length == to - from && startsWith(from, to, key)) {
+                        return values[slot];
+                    }
+                }
+                return string(ARTIST_NAME);
+            }
+        }
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    private static String unescapeJson(String value) {
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                unescaped.append(c);
+                continue;
+            }
+            char escape = value.charAt(++i);
+            switch (escape) {
+                case 'b':
+                    unescaped.append('\b');
+                    break;
+                case 'f':
+                    unescaped.append('\f');
+                    break;
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                case 't':
+                    unescaped.append('\t');
+                    break;
+                case 'u':
+                    if (i + 4 >= value.length()) {
+                        throw new IllegalArgumentException("Bad JSON escape in " + value);
+                    }
+                    unescaped.append((char) Integer.parseInt(value.substring(i + 1, i + 5), 16));
+                    i += 4;
+                    break;
+                default:
+                    unescaped.append(escape);
+            }
+        }
+        return unescaped.toString();
+    }
+}
@@ -0,0 +1,317 @@
+package store;
+
+import collections.SymbolTable;
+import constants.ArtType;
+import dto.Art;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Stores art as columns outside the Java heap, one row per piece of art:
+ * price in pence with a bitmap of the rows that have a price, creation date as a long epoch day, art name and
+ * artist name as their {@link SymbolTable} ids and the art type as a one byte ordinal. That is 25 bytes and a
+ * few bits a row, and scans read only the columns they need. There is also a bitmap of the live rows of each
+ * art type, which queries combine with the live and priced bitmaps 64 rows at a time. {@link Art} objects
+ * are only created by {@link #materialise(int)}.
+ * <p>
+ * Rows are found by an off heap open addressing hash table on name, art type and artist. Rows of deleted art
+ * are reused. Prices too large for a long are kept on the heap, they are expected to be very rare.
+ * <p>
+ * This class is not thread safe.
+ */
+public final class ColumnarArtStore {
+    public static final int NO_ROW = -1;
+
+    private static final ArtType[] ART_TYPES = ArtType.values();
+    private static final int EMPTY_SLOT = 0;
+    private static final int DELETED_SLOT = -1;
+
+    private final SymbolTable symbols = SymbolTable.getInstance();
+    private final OffHeapColumn pricePence = new OffHeapColumn(Long.BYTES);
+    private final OffHeapColumn creationDay = new OffHeapColumn(Long.BYTES);
+    private final OffHeapColumn nameId = new OffHeapColumn(Integer.BYTES);
+    private final OffHeapColumn artistId = new OffHeapColumn(Integer.BYTES);
+    private final OffHeapColumn artType = new OffHeapColumn(Byte.BYTES);
+    private final OffHeapBitmap live = new OffHeapBitmap();
+    private final OffHeapBitmap priced = new OffHeapBitmap();
+    // The live rows of each art type.
+    private final Map<ArtType, OffHeapBitmap> typeRows = new EnumMap<>(ArtType.class);
+    private final Map<Integer, BigInteger> hugePrices = new HashMap<>();
+
+    // Slots hold row + 1 so that a zeroed buffer is an empty table.
+    private OffHeapColumn slots;
+    private int slotMask;
+    private int usedSlots;
+
+    private int[] freeRows = new int[16];
+    private int freeRowCount;
+    private int rowLimit;
+    private int size;
+
+    public ColumnarArtStore() {
+        for (ArtType type : ART_TYPES) {
+            typeRows.put(type, new OffHeapBitmap());
+        }
+        newTable(OffHeapColumn.ROWS_PER_CHUNK);
+    }
+
+    /**
+     * returns the number of pieces of art stored.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * returns one more than the highest row ever used, every live row is below it.
+     */
+    public int rowLimit() {
+        return rowLimit;
+    }
+
+    public boolean isLive(int row) {
+        return live.get(row);
+    }
+
+    /**
+     * returns the number of 64 row words covering every live row.
+     */
+    public int wordLimit() {
+        return (rowLimit + 63) >>> 6;
+    }
+
+    /**
+     * returns the live bits of rows 64 * word to 64 * word + 63, lowest row in the lowest bit.
+     */
+    public long liveWord(int word) {
+        return live.word(word);
+    }
+
+    /**
+     * returns the bits of the rows with a price among rows 64 * word to 64 * word + 63.
+     */
+    public long pricedWord(int word) {
+        return priced.word(word);
+    }
+
+    /**
+     * returns the bits of the live rows of the given art type among rows 64 * word to 64 * word + 63.
+     */
+    public long typeWord(ArtType type, int word) {
+        return typeRows.get(type).word(word);
+    }
+
+    /**
+     * calls the consumer with every live row in ascending order, skipping 64 empty rows at a time.
+     */
+    public void forEachLiveRow(IntConsumer rowConsumer) {
+        forEachRow(live::word, rowConsumer);
+    }
+
+    /**
+     * calls the consumer with every row set in the given words in ascending order. The words can combine the
+     * bitmaps of this store, e.g. the priced rows of two art types.
+     */
+    public void forEachRow(IntToLongFunction rowWords, IntConsumer rowConsumer) {
+        int words = wordLimit();
+        for (int word = 0; word < words; word++) {
+            long bits = rowWords.applyAsLong(word);
+            while (bits != 0) {
+                rowConsumer.accept((word << 6) + Long.numberOfTrailingZeros(bits));
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * returns the row of the stored art equal to the given one, or NO_ROW.
+     */
+    public int find(Art art) {
+        int slot = findSlot(art.getNameId(), (byte) art.getArtType().ordinal(), art.getArtistId());
+        int rowPlusOne = slots.getInt(slot);
+        return rowPlusOne > 0 ? rowPlusOne - 1 : NO_ROW;
+    }
+
+    /**
+     * stores the given art and returns its row, or returns NO_ROW if equal art is already stored.
+     */
+    public int insert(Art art) {
+        byte type = (byte) art.getArtType().ordinal();
+        int slot = findSlot(art.getNameId(), type, art.getArtistId());
+        if (slots.getInt(slot) > 0) {
+            return NO_ROW;
+        }
+        int row = freeRowCount > 0 ? freeRows[--freeRowCount] : newRow();
+        nameId.putInt(row, art.getNameId());
+        artistId.putInt(row, art.getArtistId());
+        artType.putByte(row, type);
+        creationDay.putLong(row, art.getCreationDate().toEpochDay());
+        setPrice(row, art.getPrice());
+        live.set(row, true);
+        typeRows.get(art.getArtType()).set(row, true);
+
+        if (slots.getInt(slot) == EMPTY_SLOT) {
+            usedSlots++;
+        }
+        slots.putInt(slot, row + 1);
+        size++;
+        if (usedSlots * 2 > slotMask + 1) {
+            newTable(size * 4 > slotMask + 1 ? (slotMask + 1) * 2 : slotMask + 1);
+        }
+        return row;
+    }
+
+    /**
+     * removes the stored art equal to the given one and returns the row it had, or returns NO_ROW.
+     */
+    public int delete(Art art) {
+        int slot = findSlot(art.getNameId(), (byte) art.getArtType().ordinal(), art.getArtistId());
+        int rowPlusOne = slots.getInt(slot);
+        if (rowPlusOne <= 0) {
+            return NO_ROW;
+        }
+        int row = rowPlusOne - 1;
+        slots.putInt(slot, DELETED_SLOT);
+        live.set(row, false);
+        typeRows.get(artType(row)).set(row, false);
+        priced.set(row, false);
+        hugePrices.remove(row);
+        if (freeRowCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeRowCount * 2);
+        }
+        freeRows[freeRowCount++] = row;
+        size--;
+        return row;
+    }
+
+    public int artistId(int row) {
+        return artistId.getInt(row);
+    }
+
+    public int nameId(int row) {
+        return nameId.getInt(row);
+    }
+
+    public ArtType artType(int row) {
+        return ART_TYPES[artType.getByte(row)];
+    }
+
+    public long creationDay(int row) {
+        return creationDay.getLong(row);
+    }
+
+    public boolean hasPrice(int row) {
+        return priced.get(row);
+    }
+
+    /**
+     * returns true if the row's price does not fit in a long, use {@link #price(int)} to read it.
+     */
+    public boolean hasHugePrice(int row) {
+        return !hugePrices.isEmpty() && hugePrices.containsKey(row);
+    }
+
+    /**
+     * returns the row's price in pence. Only meaningful for rows with a price that is not huge.
+     */
+    public long pricePence(int row) {
+        return pricePence.getLong(row);
+    }
+
+    public BigInteger price(int row) {
+        if (!priced.get(row)) {
+            return null;
+        }
+        BigInteger hugePrice = hugePrices.get(row);
+        return hugePrice != null ? hugePrice : BigInteger.valueOf(pricePence.getLong(row));
+    }
+
+    /**
+     * builds a new {@link Art} equal to the one stored in the given row.
+     */
+    public Art materialise(int row) {
+        return new Art.ArtBuilder(symbols.symbolOf(nameId(row)), artType(row), symbols.symbolOf(artistId(row)), LocalDate.ofEpochDay(creationDay(row)))
+                .price(price(row))
+                .build();
+    }
+
+    private void setPrice(int row, BigInteger price) {
+        priced.set(row, price != null);
+        if (price == null) {
+            return;
+        }
+        if (price.bitLength() < Long.SIZE) {
+            pricePence.putLong(row, price.longValue());
+        } else {
+            hugePrices.put(row, price);
+        }
+    }
+
+    private int newRow() {
+        int row = rowLimit++;
+        if (row == pricePence.capacity()) {
+            int rows = rowLimit + OffHeapColumn.ROWS_PER_CHUNK - 1;
+            pricePence.ensureCapacity(rows);
+            creationDay.ensureCapacity(rows);
+            nameId.ensureCapacity(rows);
+            artistId.ensureCapacity(rows);
+            artType.ensureCapacity(rows);
+            live.ensureCapacity(rows);
+            priced.ensureCapacity(rows);
+            for (OffHeapBitmap rowsOfType : typeRows.values()) {
+                rowsOfType.ensureCapacity(rows);
+            }
+        }
+        return row;
+    }
+
+    // Returns the slot holding the matching row, or else the first free slot on its probe sequence.
+    private int findSlot(int artNameId, byte type, int artArtistId) {
+        int slot = hash(artNameId, type, artArtistId) & slotMask;
+        int firstDeletedSlot = -1;
+        while (true) {
+            int rowPlusOne = slots.getInt(slot);
+            if (rowPlusOne == EMPTY_SLOT) {
+                return firstDeletedSlot >= 0 ? firstDeletedSlot : slot;
+            }
+            if (rowPlusOne == DELETED_SLOT) {
+                if (firstDeletedSlot < 0) {
+                    firstDeletedSlot = slot;
+                }
+            } else {
+                int row = rowPlusOne - 1;
+                if (nameId.getInt(row) == artNameId && artistId.getInt(row) == artArtistId && artType.getByte(row) == type) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    // Also used to clear out deleted slots, which is why it may rebuild at the same size.
+    private void newTable(int slotCount) {
+        slots = new OffHeapColumn(Integer.BYTES);
+        slots.ensureCapacity(slotCount);
+        slotMask = slotCount - 1;
+        usedSlots = 0;
+        forEachLiveRow(row -> {
+            int slot = findSlot(nameId.getInt(row), artType.getByte(row), artistId.getInt(row));
+            slots.putInt(slot, row + 1);
+            usedSlots++;
+        });
+    }
+
+    private static int hash(int artNameId, byte type, int artArtistId) {
+        int hash = artNameId * 0x9E3779B1 + type * 0x85EBCA77 + artArtistId * 0xC2B2AE3D;
+        hash ^= hash >>> 15;
+        hash *= 0x2C1B3C6D;
+        return hash ^ (hash >>> 12);
+    }
+}
@@ -0,0 +1,235 @@
+package store;
+
+import dto.Art;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * One append only segment of the gallery's write ahead log.
+ * <p>
+ * Each record is an int payload length, the CRC32 of the payload and the payload: one byte holding the
+ * operation in its low four bits and the {@link ArtCodec} version in its high four, followed by the art. Records
+ * written before the codec was versioned have 0 there and are read as version 1. A crash can leave a torn record at the end of the segment, replay
+ * stops at the first record that is incomplete or fails its checksum and cuts the segment back to there.
+ * <p>
+ * Appends only reach the operating system. {@link #awaitDurable(long)} makes them durable with group commit:
+ * one caller runs fsync for everything appended so far while the others wait, so many concurrent writers
+ * share a single fsync.
+ */
+public final class GalleryLog implements Closeable {
+    public static final byte ADD = 1;
+    public static final byte DELETE = 2;
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final FileChannel channel;
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+    private volatile long appendedPosition;
+    private long durablePosition;
+    private boolean syncing;
+
+    private GalleryLog(FileChannel channel, long position) {
+        this.channel = channel;
+        this.appendedPosition = position;
+        this.durablePosition = position;
+    }
+
+    /**
+     * opens the segment for appending after its last complete record, creating it if it does not exist.
+     */
+    public static GalleryLog open(Path segment, long validLength) throws IOException {
+        FileChannel channel = FileChannel.open(segment, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            channel.truncate(validLength);
+            channel.force(false);
+        }
+        channel.position(validLength);
+        return new GalleryLog(channel, validLength);
+    }
+
+    /**
+     * applies every complete record of the segment, in order, and returns the length of the valid part of it.
+     */
+    public static long replay(Path segment, LogRecordConsumer recordConsumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+            MappedByteBuffer records = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            CRC32 crc = new CRC32();
+            while (records.remaining() >= HEADER_BYTES) {
+                int recordStart = records.position();
+                int payloadLength = records.getInt();
+                int checksum = records.getInt();
+                if (payloadLength <= 0 || payloadLength > records.remaining()) {
+                    return recordStart;
+                }
+                ByteBuffer payload = records.slice();
+                payload.limit(payloadLength);
+                crc.reset();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    return recordStart;
+                }
+                byte operationAndVersion = payload.get();
+                int codecVersion = operationAndVersion >>> 4;
+                recordConsumer.accept((byte) (operationAndVersion & 0x0F),
+                        ArtCodec.decode(payload, codecVersion == 0 ? ArtCodec.VERSION_1 : codecVersion));
+                records.position(recordStart + HEADER_BYTES + payloadLength);
+            }
+            return records.position();
+        }
+    }
+
+    /**
+     * appends a record and returns the log position which must be durable for the record to be.
+     */
+    public synchronized long append(byte operation, Art art) throws IOException {
+        int artSize = ArtCodec.encodedSize(art);
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + 1 + artSize);
+        encode(operation, art, artSize, record);
+        return write(record.flip());
+    }
+
+    /**
+     * appends one record per piece of art, in iteration order, and returns the log position which must be
+     * durable for all of them to be.
+     */
+    public synchronized long appendAll(byte operation, Collection<Art> arts) throws IOException {
+        int[] artSizes = new int[arts.size()];
+        int length = 0;
+        int i = 0;
+        for (Art art : arts) {
+            artSizes[i] = ArtCodec.encodedSize(art);
+            length += HEADER_BYTES + 1 + artSizes[i++];
+        }
+        ByteBuffer batch = ByteBuffer.allocate(length);
+        i = 0;
+        for (Art art : arts) {
+            encode(operation, art, artSizes[i++], batch);
+        }
+        return write(batch.flip());
+    }
+
+    private static void encode(byte operation, Art art, int artSize, ByteBuffer out) {
+        int recordStart = out.position();
+        out.putInt(1 + artSize).putInt(0).put((byte) (ArtCodec.CURRENT_VERSION << 4 | operation));
+        ArtCodec.encode(art, out);
+        ByteBuffer payload = out.duplicate();
+        payload.position(recordStart + HEADER_BYTES).limit(out.position());
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        out.putInt(recordStart + Integer.BYTES, (int) crc.getValue());
+    }
+
+    private long write(ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        try {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } catch (IOException e) {
+            // Cut off anything partly written, records appended after it would otherwise be lost on replay.
+            try {
+                channel.truncate(appendedPosition);
+                channel.position(appendedPosition);
+            } catch (IOException truncateFailure) {
+                e.addSuppressed(truncateFailure);
+            }
+            throw e;
+        }
+        appendedPosition += length;
+        return appendedPosition;
+    }
+
+    /**
+     * removes the records appended from the given position on. Nobody may be waiting for them to be durable.
+     */
+    public synchronized void discardFrom(long position) throws IOException {
+        syncLock.lock();
+        try {
+            // A sync in flight would count the removed records as durable when it finished.
+            while (syncing) {
+                synced.awaitUninterruptibly();
+            }
+            channel.truncate(position);
+            channel.position(position);
+            appendedPosition = position;
+            durablePosition = Math.min(durablePosition, position);
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    /**
+     * returns once everything up to the given log position has been forced to disk.
+     */
+    public void awaitDurable(long position) throws IOException {
+        syncLock.lock();
+        try {
+            while (durablePosition < position) {
+                if (syncing) {
+                    synced.await();
+                    continue;
+                }
+                syncing = true;
+                long syncPosition = appendedPosition;
+                IOException syncFailure = null;
+                syncLock.unlock();
+                try {
+                    channel.force(false);
+                } catch (IOException e) {
+                    syncFailure = e;
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    if (syncFailure == null) {
+                        durablePosition = Math.max(durablePosition, syncPosition);
+                    }
+                    synced.signalAll();
+                }
+                if (syncFailure != null) {
+                    throw syncFailure;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the gallery log to reach disk");
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    public long size() {
+        return appendedPosition;
+    }
+
+    /**
+     * makes everything appended durable, then closes the segment.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            awaitDurable(appendedPosition);
+        } finally {
+            channel.close();
+        }
+    }
+
+    public interface LogRecordConsumer {
+        void accept(byte operation, Art art);
+    }
+}
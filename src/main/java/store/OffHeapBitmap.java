@@ -0,0 +1,29 @@
+package store;
+
+/**
+ * One bit per row, stored off heap as 64 bit words.
+ */
+final class OffHeapBitmap {
+    private final OffHeapColumn words = new OffHeapColumn(Long.BYTES);
+
+    void ensureCapacity(int rows) {
+        words.ensureCapacity((rows + 63) >>> 6);
+    }
+
+    boolean get(int row) {
+        return (words.getLong(row >>> 6) & (1L << row)) != 0;
+    }
+
+    void set(int row, boolean value) {
+        int word = row >>> 6;
+        long bits = words.getLong(word);
+        words.putLong(word, value ? bits | (1L << row) : bits & ~(1L << row));
+    }
+
+    /**
+     * returns the 64 bits of rows 64 * word to 64 * word + 63, lowest row in the lowest bit.
+     */
+    long word(int word) {
+        return words.getLong(word);
+    }
+}
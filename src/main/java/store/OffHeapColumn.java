@@ -0,0 +1,63 @@
+package store;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A fixed width column of values stored outside the Java heap.
+ * Rows live in direct buffers of {@link #ROWS_PER_CHUNK} rows each, so the column grows a chunk at a time
+ * without copying and is not limited to the 2GB of a single buffer.
+ */
+final class OffHeapColumn {
+    static final int ROWS_PER_CHUNK_SHIFT = 16;
+    static final int ROWS_PER_CHUNK = 1 << ROWS_PER_CHUNK_SHIFT;
+    private static final int ROW_MASK = ROWS_PER_CHUNK - 1;
+
+    private final int width;
+    private ByteBuffer[] chunks = new ByteBuffer[0];
+
+    OffHeapColumn(int width) {
+        this.width = width;
+    }
+
+    void ensureCapacity(int rows) {
+        int chunksNeeded = (rows + ROW_MASK) >>> ROWS_PER_CHUNK_SHIFT;
+        if (chunksNeeded <= chunks.length) {
+            return;
+        }
+        ByteBuffer[] newChunks = Arrays.copyOf(chunks, chunksNeeded);
+        for (int chunk = chunks.length; chunk < chunksNeeded; chunk++) {
+            newChunks[chunk] = ByteBuffer.allocateDirect(ROWS_PER_CHUNK * width).order(ByteOrder.nativeOrder());
+        }
+        chunks = newChunks;
+    }
+
+    int capacity() {
+        return chunks.length << ROWS_PER_CHUNK_SHIFT;
+    }
+
+    long getLong(int row) {
+        return chunks[row >>> ROWS_PER_CHUNK_SHIFT].getLong((row & ROW_MASK) * width);
+    }
+
+    void putLong(int row, long value) {
+        chunks[row >>> ROWS_PER_CHUNK_SHIFT].putLong((row & ROW_MASK) * width, value);
+    }
+
+    int getInt(int row) {
+        return chunks[row >>> ROWS_PER_CHUNK_SHIFT].getInt((row & ROW_MASK) * width);
+    }
+
+    void putInt(int row, int value) {
+        chunks[row >>> ROWS_PER_CHUNK_SHIFT].putInt((row & ROW_MASK) * width, value);
+    }
+
+    byte getByte(int row) {
+        return chunks[row >>> ROWS_PER_CHUNK_SHIFT].get((row & ROW_MASK) * width);
+    }
+
+    void putByte(int row, byte value) {
+        chunks[row >>> ROWS_PER_CHUNK_SHIFT].put((row & ROW_MASK) * width, value);
+    }
+}
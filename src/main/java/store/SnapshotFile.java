@@ -0,0 +1,152 @@
+package store;
+
+import dto.Art;
+import exceptions.GalleryPersistenceException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * A binary snapshot of the whole gallery, the compacted form of the write ahead log.
+ * <p>
+ * Layout: magic, format version, the log generation the snapshot was taken at, the number of pieces, then one
+ * record per piece (an int length and the art in {@link ArtCodec} form) and finally the CRC32 of the records.
+ * The format version is the version of the codec the records are in, version 1 snapshots are still read.
+ * Snapshots are written to a temporary file and moved into place, so a crash leaves either the old or the new
+ * one. They are read through memory mapped windows of the file.
+ */
+public final class SnapshotFile {
+    private static final int MAGIC = 0x47414C53;
+    private static final int FORMAT_VERSION = ArtCodec.CURRENT_VERSION;
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES;
+    private static final long MAP_WINDOW_BYTES = 256L * 1024 * 1024;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+
+    private SnapshotFile() { }
+
+    /**
+     * writes the given art as the snapshot at the given path, replacing any snapshot already there.
+     */
+    public static void write(Path snapshot, long generation, Collection<Art> arts) throws IOException {
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+            buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation).putInt(arts.size());
+            CRC32 crc = new CRC32();
+            for (Art art : arts) {
+                int recordLength = ArtCodec.encodedSize(art);
+                if (buffer.remaining() < Integer.BYTES + recordLength) {
+                    drain(channel, buffer);
+                    if (buffer.capacity() < Integer.BYTES + recordLength) {
+                        buffer = ByteBuffer.allocate(Integer.BYTES + recordLength);
+                    }
+                }
+                int recordStart = buffer.position();
+                buffer.putInt(recordLength);
+                ArtCodec.encode(art, buffer);
+                ByteBuffer record = buffer.duplicate();
+                record.position(recordStart).limit(buffer.position());
+                crc.update(record);
+            }
+            if (buffer.remaining() < Integer.BYTES) {
+                drain(channel, buffer);
+            }
+            buffer.putInt((int) crc.getValue());
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * reads the snapshot at the given path, handing its art to the consumer in batches of up to batchSize,
+     * and returns the log generation it was taken at. The checksum is checked before any art is handed over, so
+     * a corrupt snapshot loads nothing.
+     */
+    public static long read(Path snapshot, int batchSize, Consumer<List<Art>> batchConsumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + Integer.BYTES) {
+                throw new GalleryPersistenceException("Not a gallery snapshot: " + snapshot);
+            }
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, MAP_WINDOW_BYTES));
+            if (window.getInt() != MAGIC) {
+                throw new GalleryPersistenceException("Not a gallery snapshot: " + snapshot);
+            }
+            int formatVersion = window.getInt();
+            if (formatVersion != ArtCodec.VERSION_1 && formatVersion != ArtCodec.VERSION_2) {
+                throw new GalleryPersistenceException("Unsupported gallery snapshot version " + formatVersion + ": " + snapshot);
+            }
+            long generation = window.getLong();
+            int count = window.getInt();
+            long recordsEnd = size - Integer.BYTES;
+            checkChecksum(channel, snapshot, recordsEnd);
+
+            long windowStart = 0;
+            List<Art> batch = new ArrayList<>(Math.max(0, Math.min(count, batchSize)));
+            for (int i = 0; i < count; i++) {
+                long recordStart = windowStart + window.position();
+                if (recordsEnd - recordStart < Integer.BYTES) {
+                    throw new GalleryPersistenceException("Gallery snapshot ends before its last record: " + snapshot);
+                }
+                if (window.remaining() < Integer.BYTES) {
+                    windowStart = recordStart;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, MAP_WINDOW_BYTES));
+                }
+                int recordLength = window.getInt(window.position());
+                if (recordLength < 0 || recordLength > recordsEnd - recordStart - Integer.BYTES) {
+                    throw new GalleryPersistenceException("Gallery snapshot has a record of bad length " + recordLength + ": " + snapshot);
+                }
+                if (window.remaining() < Integer.BYTES + recordLength) {
+                    // The record runs past this window, map a new one starting at the record.
+                    windowStart = recordStart;
+                    window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - windowStart, MAP_WINDOW_BYTES));
+                }
+                window.position(window.position() + Integer.BYTES);
+                ByteBuffer record = window.slice();
+                record.limit(recordLength);
+                window.position(window.position() + recordLength);
+                batch.add(ArtCodec.decode(record, formatVersion));
+                if (batch.size() == batchSize) {
+                    batchConsumer.accept(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            if (!batch.isEmpty()) {
+                batchConsumer.accept(batch);
+            }
+            return generation;
+        }
+    }
+
+    // Runs the CRC32 over the records a window at a time and compares it with the one stored after them.
+    private static void checkChecksum(FileChannel channel, Path snapshot, long recordsEnd) throws IOException {
+        CRC32 crc = new CRC32();
+        for (long start = HEADER_BYTES; start < recordsEnd; start += MAP_WINDOW_BYTES) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(recordsEnd - start, MAP_WINDOW_BYTES)));
+        }
+        int storedChecksum = channel.map(FileChannel.MapMode.READ_ONLY, recordsEnd, Integer.BYTES).getInt();
+        if (storedChecksum != (int) crc.getValue()) {
+            throw new GalleryPersistenceException("Gallery snapshot failed its checksum: " + snapshot);
+        }
+    }
+}
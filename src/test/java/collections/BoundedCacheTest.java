@@ -0,0 +1,154 @@
+package collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class BoundedCacheTest {
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test_get_CountsHitsAndMisses() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+
+        assertNull(cache.get("a"));
+        assertTrue(cache.put("a", "A", cache.version()));
+        assertEquals("A", cache.get("a"));
+        assertEquals("A", cache.get("a"));
+
+        CacheStats stats = cache.stats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(1, stats.getMissCount());
+        assertEquals(2.0 / 3, stats.getHitRatio(), 1e-9);
+        assertEquals(1.0 / 3, stats.getMissRatio(), 1e-9);
+    }
+
+    @Test
+    public void test_put_KeepsPopularEntriesDuringScan() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(10);
+        for (int key = 0; key < 10; key++) {
+            for (int i = 0; i < 5; i++) {
+                cache.get(key);
+            }
+            cache.put(key, key, cache.version());
+        }
+
+        for (int key = 100; key < 1100; key++) {
+            // The popular entries are still being asked for while one-off keys stream past.
+            cache.get(key % 10);
+            if (cache.get(key) == null) {
+                cache.put(key, key, cache.version());
+            }
+        }
+
+        for (int key = 0; key < 10; key++) {
+            assertEquals(Integer.valueOf(key), cache.get(key));
+        }
+        assertEquals(10, cache.stats().getSize());
+        assertTrue(cache.stats().getRejectionCount() > 0);
+    }
+
+    @Test
+    public void test_put_EvictsLeastRecentlyUsed() {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(2);
+        cache.put(1, 1, cache.version());
+        cache.put(2, 2, cache.version());
+        cache.get(1);
+
+        cache.get(3);
+        assertTrue(cache.put(3, 3, cache.version()));
+
+        assertEquals(Integer.valueOf(1), cache.get(1));
+        assertNull(cache.get(2));
+        assertEquals(1, cache.stats().getEvictionCount());
+    }
+
+    @Test
+    public void test_put_DropsValueComputedBeforeInvalidation() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        long version = cache.version();
+
+        cache.invalidate(key -> key.equals("a"));
+
+        assertFalse(cache.put("a", "stale", version));
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void test_put_KeepsValueWhenInvalidationMatchedOtherKeys() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        long version = cache.version();
+
+        cache.invalidate(key -> key.equals("b"));
+
+        assertTrue(cache.put("a", "A", version));
+        assertEquals("A", cache.get("a"));
+    }
+
+    @Test
+    public void test_put_DropsValueComputedBeforeUntrackedInvalidations() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        long version = cache.version();
+
+        for (int i = 0; i < 100; i++) {
+            cache.invalidate(key -> key.equals("b"));
+        }
+
+        assertFalse(cache.put("a", "A", version));
+        assertTrue(cache.put("a", "A", cache.version()));
+    }
+
+    @Test
+    public void test_invalidate_OnlyDropsMatchingKeys() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10);
+        cache.put("a", "A", cache.version());
+        cache.put("b", "B", cache.version());
+
+        cache.invalidate(key -> key.equals("a"));
+
+        assertNull(cache.get("a"));
+        assertEquals("B", cache.get("b"));
+        assertEquals(1, cache.stats().getInvalidationCount());
+    }
+
+    @Test
+    public void test_get_CountsConcurrentReads() throws Exception {
+        BoundedCache<Integer, Integer> cache = new BoundedCache<>(100);
+        for (int key = 0; key < 100; key++) {
+            cache.put(key, key, cache.version());
+        }
+        int threadCount = 8;
+        int readsPerThread = 20000;
+        ExecutorService readers = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> results = new ArrayList<>();
+        for (int i = 0; i < threadCount; i++) {
+            results.add(readers.submit(() -> {
+                for (int read = 0; read < readsPerThread; read++) {
+                    assertEquals(Integer.valueOf(read % 100), cache.get(read % 100));
+                }
+            }));
+        }
+
+        for (Future<?> result : results) {
+            result.get();
+        }
+        readers.shutdown();
+        assertEquals((long) threadCount * readsPerThread, cache.stats().getHitCount());
+        assertEquals(100, cache.stats().getSize());
+    }
+
+    @Test
+    public void test_constructor_RejectsEmptyCache() {
+        thrown.expect(IllegalArgumentException.class);
+        new BoundedCache<String, String>(0);
+    }
+}
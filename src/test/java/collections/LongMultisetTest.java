@@ -0,0 +1,82 @@
+package collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class LongMultisetTest {
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test_addAndRemove_MatchTreeMap() {
+        Random random = new Random(11);
+        LongMultiset multiset = new LongMultiset();
+        TreeMap<Long, Integer> expected = new TreeMap<>();
+        long expectedSize = 0;
+
+        for (int i = 0; i < 200000; i++) {
+            // Shrinks in the last quarter, so blocks empty out and merge.
+            long value = random.nextInt(20000) - 10000L;
+            if (random.nextInt(4) < (i < 150000 ? 1 : 3)) {
+                Integer count = expected.get(value);
+                assertEquals(count != null, multiset.remove(value));
+                if (count != null) {
+                    expectedSize--;
+                    if (count == 1) {
+                        expected.remove(value);
+                    } else {
+                        expected.put(value, count - 1);
+                    }
+                }
+            } else {
+                multiset.add(value);
+                expected.merge(value, 1, Integer::sum);
+                expectedSize++;
+            }
+            if (i % 1000 == 0 && !expected.isEmpty()) {
+                assertEquals((long) expected.firstKey(), multiset.first());
+                assertEquals((long) expected.lastKey(), multiset.last());
+            }
+        }
+
+        assertEquals(expectedSize, multiset.size());
+        for (long value = -10001; value <= 10000; value++) {
+            assertEquals(expected.getOrDefault(value, 0).intValue(), multiset.count(value));
+        }
+    }
+
+    @Test
+    public void test_first_KeepsRepeatsUntilAllRemoved() {
+        LongMultiset multiset = new LongMultiset();
+        multiset.add(5);
+        multiset.add(Long.MIN_VALUE);
+        multiset.add(Long.MIN_VALUE);
+        multiset.add(Long.MAX_VALUE);
+
+        assertTrue(multiset.remove(Long.MIN_VALUE));
+        assertEquals(Long.MIN_VALUE, multiset.first());
+        assertTrue(multiset.remove(Long.MIN_VALUE));
+        assertEquals(5, multiset.first());
+        assertEquals(Long.MAX_VALUE, multiset.last());
+        assertFalse(multiset.remove(Long.MIN_VALUE));
+        assertEquals(2, multiset.size());
+    }
+
+    @Test
+    public void test_first_Empty() {
+        LongMultiset multiset = new LongMultiset();
+        multiset.add(1);
+        multiset.remove(1);
+
+        assertTrue(multiset.isEmpty());
+        thrown.expect(NoSuchElementException.class);
+        multiset.first();
+    }
+}
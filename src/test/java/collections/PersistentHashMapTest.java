@@ -0,0 +1,124 @@
+package collections;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PersistentHashMapTest {
+
+    @Test
+    public void test_plusAndMinus_MatchHashMap() {
+        Random random = new Random(42);
+        PersistentHashMap<Integer, String> map = PersistentHashMap.empty();
+        Map<Integer, String> expected = new HashMap<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            } else {
+                map = map.plus(key, "value " + i);
+                expected.put(key, "value " + i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (int key = 0; key < 5000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        Map<Integer, String> iterated = new HashMap<>();
+        for (Map.Entry<Integer, String> entry : map) {
+            iterated.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void test_collidingHashCodes() {
+        PersistentHashMap<CollidingKey, Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.plus(new CollidingKey(i), i);
+        }
+        map = map.plus(new CollidingKey(-1, 7), -1);
+
+        assertEquals(11, map.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(Integer.valueOf(i), map.get(new CollidingKey(i)));
+        }
+        assertEquals(Integer.valueOf(-1), map.get(new CollidingKey(-1, 7)));
+
+        for (int i = 0; i < 10; i++) {
+            map = map.minus(new CollidingKey(i));
+        }
+        assertEquals(1, map.size());
+        assertNull(map.get(new CollidingKey(3)));
+        Iterator<CollidingKey> keys = map.keyIterator();
+        assertEquals(new CollidingKey(-1, 7), keys.next());
+        assertFalse(keys.hasNext());
+    }
+
+    @Test
+    public void test_oldVersionsAreUnchanged() {
+        PersistentHashMap<String, Integer> empty = PersistentHashMap.empty();
+        PersistentHashMap<String, Integer> one = empty.plus("one", 1);
+        PersistentHashMap<String, Integer> two = one.plus("two", 2);
+        PersistentHashMap<String, Integer> oneRemoved = two.minus("one");
+
+        assertEquals(0, empty.size());
+        assertEquals(1, one.size());
+        assertNull(one.get("two"));
+        assertEquals(Integer.valueOf(1), two.get("one"));
+        assertNull(oneRemoved.get("one"));
+        assertSame(two, two.minus("three"));
+        assertSame(one, one.plus("one", one.get("one")));
+    }
+
+    @Test
+    public void test_persistentHashSet_IsReadOnly() {
+        PersistentHashSet<String> set = PersistentHashSet.<String>empty().plus("Mona Lisa").plus("Water Lilies");
+        Set<String> expected = new HashSet<>();
+        expected.add("Mona Lisa");
+        expected.add("Water Lilies");
+
+        assertEquals(expected, set);
+        assertEquals("Mona Lisa", set.find(new String("Mona Lisa")));
+        try {
+            set.remove("Mona Lisa");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException expectedException) {
+            assertEquals(2, set.size());
+        }
+    }
+
+    private static final class CollidingKey {
+        private final int id;
+        private final int hash;
+
+        private CollidingKey(int id) {
+            this(id, 42);
+        }
+
+        private CollidingKey(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CollidingKey && ((CollidingKey) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package collections;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.Assert.*;
+
+public class PersistentSortedMapTest {
+
+    @Test
+    public void test_plusAndMinus_MatchTreeMap() {
+        Random random = new Random(42);
+        PersistentSortedMap<Integer, Integer> map = PersistentSortedMap.empty();
+        NavigableMap<Integer, Integer> expected = new TreeMap<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(3000);
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            } else {
+                map = map.plus(key, i);
+                expected.put(key, i);
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.keySet()), map.keyList());
+        int index = 0;
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+            assertEquals(entry.getKey(), map.keyAt(index++));
+        }
+
+        for (int check = 0; check < 500; check++) {
+            int from = random.nextInt(3200) - 100;
+            int to = from + random.nextInt(500);
+            boolean fromInclusive = random.nextBoolean();
+            boolean toInclusive = random.nextBoolean();
+            assertEquals(new ArrayList<>(expected.subMap(from, fromInclusive, to, toInclusive).values()),
+                    toList(map.valueIterator(from, fromInclusive, to, toInclusive)));
+            assertEquals(new ArrayList<>(expected.subMap(from, fromInclusive, to, toInclusive).descendingMap().values()),
+                    toList(map.valueIterator(from, fromInclusive, to, toInclusive, true)));
+            assertEquals(new ArrayList<>(expected.tailMap(from, fromInclusive).values()),
+                    toList(map.valueIterator(from, fromInclusive, null, false)));
+            assertEquals(new ArrayList<>(expected.headMap(to, toInclusive).descendingMap().values()),
+                    toList(map.valueIterator(null, false, to, toInclusive, true)));
+            assertEquals(expected.subMap(from, true, to, true).size(), map.countKeysBetween(from, to));
+            assertEquals(expected.tailMap(from, true).size(), map.countKeysBetween(from, null));
+        }
+    }
+
+    @Test
+    public void test_oldVersionsAreUnchanged() {
+        PersistentSortedMap<String, Integer> one = PersistentSortedMap.<String, Integer>empty().plus("b", 2);
+        PersistentSortedMap<String, Integer> two = one.plus("a", 1);
+        PersistentSortedMap<String, Integer> bRemoved = two.minus("b");
+
+        assertEquals(1, one.keyList().size());
+        assertEquals("b", one.keyList().get(0));
+        assertEquals("a", two.keyList().get(0));
+        assertEquals("b", two.keyList().get(1));
+        assertEquals(1, bRemoved.size());
+        assertNull(bRemoved.get("b"));
+        assertSame(two, two.minus("c"));
+    }
+
+    private static <T> List<T> toList(Iterator<T> iterator) {
+        List<T> list = new ArrayList<>();
+        while (iterator.hasNext()) {
+            list.add(iterator.next());
+        }
+        return list;
+    }
+}
@@ -0,0 +1,126 @@
+package collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.*;
+
+public class PostingListTest {
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void test_withAndWithout_MatchTreeSet() {
+        Random random = new Random(42);
+        PostingList list = PostingList.empty();
+        NavigableSet<Integer> expected = new TreeSet<>();
+
+        for (int i = 0; i < 20000; i++) {
+            int id = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                list = list.without(id);
+                expected.remove(id);
+            } else {
+                list = list.with(id);
+                expected.add(id);
+            }
+        }
+
+        assertEquals(expected.size(), list.size());
+        assertArrayEquals(toArray(expected), list.toArray());
+        for (int id = -1; id < 5100; id++) {
+            assertEquals(expected.contains(id), list.contains(id));
+        }
+    }
+
+    @Test
+    public void test_with_OldVersionsUnchanged() {
+        PostingList list = PostingList.of(3, 1, 2, 2);
+        PostingList added = list.with(0).with(200);
+        PostingList removed = added.without(2);
+
+        assertArrayEquals(new int[] {1, 2, 3}, list.toArray());
+        assertArrayEquals(new int[] {0, 1, 2, 3, 200}, added.toArray());
+        assertArrayEquals(new int[] {0, 1, 3, 200}, removed.toArray());
+        assertSame(list, list.with(2));
+        assertSame(list, list.without(7));
+    }
+
+    @Test
+    public void test_encodedSize_AboutAByteAnId() {
+        PostingList list = PostingList.empty();
+        for (int id = 0; id < 100_000; id++) {
+            list = list.with(id * 3);
+        }
+
+        assertEquals(100_000, list.size());
+        assertTrue(list.encodedSize() < 110_000);
+    }
+
+    @Test
+    public void test_cursor_AdvanceSkipsAhead() {
+        PostingList list = PostingList.of(2, 4, 1000, 1001, 70000);
+        PostingList.Cursor cursor = list.cursor();
+
+        assertEquals(4, cursor.advance(3));
+        assertEquals(4, cursor.advance(4));
+        assertEquals(1000, cursor.next());
+        assertEquals(70000, cursor.advance(1002));
+        assertEquals(PostingList.END, cursor.next());
+        assertEquals(PostingList.END, cursor.advance(80000));
+        assertEquals(PostingList.END, PostingList.empty().cursor().next());
+    }
+
+    @Test
+    public void test_intersectionAndUnion_MatchTreeSet() {
+        Random random = new Random(7);
+        for (int check = 0; check < 50; check++) {
+            int[] small = randomIds(random, 1 + random.nextInt(50), 20000);
+            int[] large = randomIds(random, 1 + random.nextInt(5000), 20000);
+            int[] medium = randomIds(random, 1 + random.nextInt(500), 20000);
+            NavigableSet<Integer> expectedIntersection = toSet(small);
+            expectedIntersection.retainAll(toSet(large));
+            expectedIntersection.retainAll(toSet(medium));
+            NavigableSet<Integer> expectedUnion = toSet(small);
+            expectedUnion.addAll(toSet(large));
+            expectedUnion.addAll(toSet(medium));
+
+            assertArrayEquals(toArray(expectedIntersection),
+                    PostingList.intersection(Arrays.asList(PostingList.of(large), PostingList.of(small), PostingList.of(medium))).toArray());
+            assertArrayEquals(toArray(expectedUnion),
+                    PostingList.union(Arrays.asList(PostingList.of(large), PostingList.of(small), PostingList.of(medium))).toArray());
+        }
+    }
+
+    @Test
+    public void test_with_NegativeId() {
+        thrown.expect(IllegalArgumentException.class);
+        PostingList.empty().with(-1);
+    }
+
+    private static int[] randomIds(Random random, int count, int bound) {
+        int[] ids = new int[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = random.nextInt(bound);
+        }
+        return ids;
+    }
+
+    private static NavigableSet<Integer> toSet(int[] ids) {
+        NavigableSet<Integer> set = new TreeSet<>();
+        for (int id : ids) {
+            set.add(id);
+        }
+        return set;
+    }
+
+    private static int[] toArray(NavigableSet<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
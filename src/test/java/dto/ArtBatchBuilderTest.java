@@ -0,0 +1,54 @@
+package dto;
+
+import constants.ArtType;
+import dto.Art.ArtBuilder;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.containsString;
+import static org.junit.Assert.*;
+
+public class ArtBatchBuilderTest {
+
+    @Test
+    public void testBuildBatchWithInvalidRows() {
+        List<ArtBuildResult> results = new ArtBatchBuilder()
+                .add(new ArtBuilder("Mona lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 2, 23)).price(new BigInteger("123400")))
+                .add(new ArtBuilder(null, ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 2, 23)))
+                .add(null)
+                .add(new ArtBuilder("Water Lilies", ArtType.PAINTING, "Claude Monet", LocalDate.of(1906, 5, 12)))
+                .build();
+
+        assertEquals(4, results.size());
+        assertTrue(results.get(0).isValid());
+        assertEquals("Mona lisa", results.get(0).getArt().getName());
+        assertFalse(results.get(1).isValid());
+        assertNull(results.get(1).getArt());
+        assertThat(results.get(1).getErrorMessage(), containsString("Art name must be provided"));
+        assertFalse(results.get(2).isValid());
+        assertTrue(results.get(3).isValid());
+        assertEquals("Water Lilies", results.get(3).getArt().getName());
+    }
+
+    @Test
+    public void testBuildLargeBatchKeepsOrder() {
+        ArtBatchBuilder batchBuilder = new ArtBatchBuilder();
+        for (int i = 0; i < 10000; i++) {
+            batchBuilder.add(new ArtBuilder(i % 100 == 0 ? null : "Art " + i, ArtType.VASE, "Artist " + i, LocalDate.of(1900, 1, 1)));
+        }
+
+        List<ArtBuildResult> results = batchBuilder.build();
+
+        assertEquals(10000, results.size());
+        for (int i = 0; i < 10000; i++) {
+            if (i % 100 == 0) {
+                assertFalse(results.get(i).isValid());
+            } else {
+                assertEquals("Art " + i, results.get(i).getArt().getName());
+            }
+        }
+    }
+}
@@ -134,4 +134,28 @@ public class ArtTest {
         assertNotNull(artTwo);
         assertFalse(artOne.equals(artTwo));
     }
+
+    @Test
+    public void testCreateArtInternsNames() {
+        Art artOne = new ArtBuilder(new String("Mona lisa"), ArtType.PAINTING, new String("Leonard Di Vinci"), LocalDate.of(YEAR_1600, MONTH_02, DAY_23)).build();
+        Art artTwo = new ArtBuilder(new String("Mona lisa"), ArtType.PAINTING, new String("Leonard Di Vinci"), LocalDate.now()).build();
+        Art artThree = new ArtBuilder("La Belle Ferronniere", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.now()).build();
+
+        assertSame(artOne.getName(), artTwo.getName());
+        assertSame(artOne.getArtistName(), artThree.getArtistName());
+        assertEquals(artOne.getNameId(), artTwo.getNameId());
+        assertEquals(artOne.getArtistId(), artThree.getArtistId());
+        assertNotEquals(artOne.getNameId(), artThree.getNameId());
+        assertEquals(artOne, artTwo);
+        assertEquals(artOne.hashCode(), artTwo.hashCode());
+        assertNotEquals(artOne, artThree);
+    }
+
+    @Test
+    public void testCreateArtEqualsMethodDifferentArtType() {
+        Art artOne = new ArtBuilder("Mona lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(YEAR_1600, MONTH_02, DAY_23)).build();
+        Art artTwo = new ArtBuilder("Mona lisa", ArtType.TAPESTRY, "Leonard Di Vinci", LocalDate.of(YEAR_1600, MONTH_02, DAY_23)).build();
+
+        assertFalse(artOne.equals(artTwo));
+    }
 }
@@ -0,0 +1,91 @@
+package metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void test_bucketOf_BucketsAreContiguous() {
+        for (int bucket = 1; bucket < LatencyHistogram.bucketOf(Long.MAX_VALUE); bucket++) {
+            long lowestValue = LatencyHistogram.highestValueOf(bucket - 1) + 1;
+            assertEquals(bucket, LatencyHistogram.bucketOf(lowestValue));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.highestValueOf(bucket)));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.bucketOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void test_percentile_WithinOnePointSixPercent() {
+        OperationMetrics metrics = new OperationMetrics("test");
+        for (long micros = 1; micros <= 10_000; micros++) {
+            metrics.record(micros * 1000);
+        }
+
+        OperationSnapshot snapshot = metrics.snapshot();
+
+        assertEquals(10_000, snapshot.getCount());
+        assertEquals(5_000_000, snapshot.getP50Nanos(), 5_000_000 * 0.016);
+        assertEquals(9_900_000, snapshot.getP99Nanos(), 9_900_000 * 0.016);
+        assertEquals(9_990_000, snapshot.getP999Nanos(), 9_990_000 * 0.016);
+        assertEquals(10_000_000, snapshot.getMaxNanos());
+    }
+
+    @Test
+    public void test_record_ManyThreadsCountEveryCall() throws Exception {
+        OperationMetrics metrics = new OperationMetrics("test");
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(new Thread(() -> {
+                for (int call = 0; call < 100_000; call++) {
+                    metrics.record(100);
+                }
+            }));
+        }
+
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(800_000, metrics.snapshot().getCount());
+        assertEquals(100, metrics.snapshot().getP99Nanos());
+    }
+
+    @Test
+    public void test_stripeOf_SpreadsConsecutiveThreadIds() {
+        Set<Integer> stripes = new HashSet<>();
+        for (long threadId = 1; threadId <= 8; threadId++) {
+            stripes.add(LatencyHistogram.stripeOf(threadId, 8));
+        }
+
+        assertEquals(8, stripes.size());
+    }
+
+    @Test
+    public void test_percentile_NoCallsIsZero() {
+        OperationSnapshot snapshot = new OperationMetrics("test").snapshot();
+
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP99Nanos());
+    }
+
+    @Test
+    public void test_reset_ClearsCountsAndErrors() {
+        OperationMetrics metrics = new OperationMetrics("test");
+        metrics.record(100);
+        metrics.recordError();
+
+        metrics.reset();
+
+        assertEquals(0, metrics.getCount());
+        assertEquals(0, metrics.getErrorCount());
+        assertEquals(0, metrics.getMaxNanos());
+    }
+}
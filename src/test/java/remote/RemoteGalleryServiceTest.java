@@ -0,0 +1,243 @@
+package remote;
+
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.NameMatch;
+import dto.Art;
+import dto.GalleryQuery;
+import exceptions.GalleryConnectionException;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import service.ColumnarGalleryService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class RemoteGalleryServiceTest {
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+    private GalleryServer server;
+    private RemoteGalleryService galleryService;
+
+    @Before
+    public void setUp() throws IOException {
+        server = GalleryServer.start(new ColumnarGalleryService(), new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        galleryService = RemoteGalleryService.connect(server.getAddress());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        galleryService.close();
+        server.close();
+    }
+
+    @Test
+    public void test_addAllArt_RoundTrips() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+
+        assertEquals(Arrays.asList(AddArtStatus.ADDED, AddArtStatus.ADDED, AddArtStatus.REJECTED),
+                galleryService.addAllArt(Arrays.asList(monaLisa, theThinker, null)));
+        assertFalse(galleryService.addArt(monaLisa));
+
+        assertEquals(Arrays.asList("Auguste Rodin", "Leonard Di Vinci"), galleryService.getArtists());
+        Art storedArt = galleryService.getArtByArtist("Leonard Di Vinci").iterator().next();
+        assertEquals(monaLisa, storedArt);
+        assertEquals(monaLisa.getPrice(), storedArt.getPrice());
+        assertEquals(monaLisa.getCreationDate(), storedArt.getCreationDate());
+        assertEquals(Collections.singleton(theThinker), galleryService.getArtByType(ArtType.SCLUPTURE, null));
+        assertEquals(1, galleryService.streamArtByPrice(null, null).count());
+        assertTrue(galleryService.deleteArt(theThinker));
+        assertEquals(Collections.singleton(monaLisa), galleryService.getAllArt());
+    }
+
+    @Test
+    public void test_addAllArt_SplitsBatchesOverTheRequestLimit() {
+        List<Art> arts = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            arts.add(new Art.ArtBuilder(i + "x".repeat(16 * 1024 * 1024), ArtType.PAINTING, "Artist", LocalDate.of(2000, 1, 1)).build());
+        }
+        arts.add(arts.get(0));
+
+        List<AddArtStatus> statuses = galleryService.addAllArt(arts);
+
+        assertEquals(Collections.nCopies(5, AddArtStatus.ADDED), statuses.subList(0, 5));
+        assertEquals(AddArtStatus.ALREADY_IN_GALLERY, statuses.get(5));
+        assertEquals(5, galleryService.getArtByArtist("Artist").size());
+    }
+
+    @Test
+    public void test_addArt_RejectsRequestOverTheLimitWithoutSending() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art hugeArt = new Art.ArtBuilder("x".repeat(GalleryProtocol.MAX_REQUEST_BYTES), ArtType.PAINTING, "Artist", LocalDate.of(2000, 1, 1)).build();
+
+        try {
+            galleryService.addArt(hugeArt);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expectedException) {
+            // The connection is still usable.
+        }
+        assertTrue(galleryService.addArt(monaLisa));
+        assertEquals(Collections.singleton(monaLisa), galleryService.getAllArt());
+    }
+
+    @Test
+    public void test_findArt_SendsQuery() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+
+        galleryService.addAllArt(Arrays.asList(monaLisa, theThinker));
+        GalleryQuery query = new GalleryQuery.GalleryQueryBuilder()
+                .artTypes(ArtType.PAINTING)
+                .createdBetween(null, LocalDate.of(1700, 1, 1))
+                .priceBetween(BigInteger.ONE, null)
+                .build();
+
+        assertEquals(Collections.singleton(monaLisa), galleryService.findArt(query));
+        assertEquals(Collections.singletonList(monaLisa), galleryService.streamArt(query).collect(Collectors.toList()));
+        assertTrue(galleryService.explain(query).startsWith("Scan: "));
+        assertEquals(Collections.singletonList(monaLisa), galleryService.findTopArt(query, ArtOrder.CHEAPEST, 5));
+        assertEquals(Arrays.asList(theThinker, monaLisa), galleryService.getNewestArt(5));
+        assertEquals(monaLisa.getPrice(), galleryService.getArtistStats("Leonard Di Vinci").getTotalPrice());
+        assertEquals(2, galleryService.getAllStats().getTotalStats().getCount());
+        assertEquals(Collections.singletonList("Leonard Di Vinci"), galleryService.findArtists("leo", 5));
+        assertEquals(Collections.singleton(theThinker), galleryService.getArtByArtistPrefix("AUG"));
+        assertEquals(Collections.singleton(theThinker), galleryService.searchArtByName("the thin", NameMatch.PHRASE_PREFIX));
+        assertEquals(1, galleryService.getAllStats().getArtTypeStats().get(ArtType.SCLUPTURE).getCount());
+    }
+
+    @Test
+    public void test_getArtByPrice_ThrowsRangeError() {
+        thrown.expect(InvalidPriceRangeException.class);
+        galleryService.getArtByPrice(BigInteger.TEN, BigInteger.ONE);
+    }
+
+    @Test
+    public void test_getArtCreatedBetween_ThrowsRangeError() {
+        thrown.expect(InvalidDateRangeException.class);
+        galleryService.getArtCreatedBetween(LocalDate.of(2000, 1, 2), LocalDate.of(2000, 1, 1));
+    }
+
+    @Test
+    public void test_getAllArt_FailsAfterServerCloses() throws IOException {
+        server.close();
+
+        thrown.expect(GalleryConnectionException.class);
+        galleryService.getAllArt();
+    }
+
+    @Test
+    public void test_addArt_RequestBiggerThanTheReadBuffer() {
+        Art bigArt = new Art.ArtBuilder("x".repeat(1024 * 1024), ArtType.PAINTING, "Artist", LocalDate.of(2000, 1, 1)).build();
+
+        assertTrue(galleryService.addArt(bigArt));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Collections.singletonList("Artist"), galleryService.getArtists());
+        }
+        assertEquals(Collections.singleton(bigArt), galleryService.getArtByArtist("Artist"));
+    }
+
+    @Test
+    public void test_getArtists_FailsWhenServerHitsAnError() throws IOException {
+        GalleryServer failingServer = GalleryServer.start(new ColumnarGalleryService() {
+            @Override
+            public List<String> getArtists() {
+                throw new StackOverflowError();
+            }
+        }, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        try (RemoteGalleryService failingService = RemoteGalleryService.connect(failingServer.getAddress())) {
+            thrown.expect(GalleryConnectionException.class);
+            failingService.getArtists();
+        } finally {
+            failingServer.close();
+        }
+    }
+
+    @Test
+    public void test_getArtByArtist_ManyConnectionsPipelining() throws Exception {
+        List<Art> arts = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            arts.add(new Art.ArtBuilder("Painting " + i, ArtType.PAINTING, "Artist " + (i % 50), LocalDate.of(2000, 1, 1).plusDays(i))
+                    .price(BigInteger.valueOf(i))
+                    .build());
+        }
+        galleryService.addAllArt(arts);
+        int connectionCount = 64;
+        int threadsPerConnection = 4;
+        int callsPerThread = 250;
+        List<RemoteGalleryService> connections = new ArrayList<>();
+        for (int i = 0; i < connectionCount; i++) {
+            connections.add(RemoteGalleryService.connect(server.getAddress()));
+        }
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < connectionCount * threadsPerConnection; i++) {
+            RemoteGalleryService connection = connections.get(i % connectionCount);
+            int caller = i;
+            results.add(callers.submit(() -> {
+                int answered = 0;
+                for (int call = 0; call < callsPerThread; call++) {
+                    String artistName = "Artist " + ((caller + call) % 50);
+                    if (connection.getArtByArtist(artistName).size() == 20) {
+                        answered++;
+                    }
+                }
+                return answered;
+            }));
+        }
+
+        for (Future<Integer> result : results) {
+            assertEquals(callsPerThread, (int) result.get());
+        }
+        callers.close();
+        for (RemoteGalleryService connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Test
+    public void test_getAllArt_ManyCallsOnOneConnectionPassTheQueueLimits() throws Exception {
+        List<Art> arts = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            arts.add(new Art.ArtBuilder("Painting " + i, ArtType.PAINTING, "Artist " + (i % 50), LocalDate.of(2000, 1, 1).plusDays(i)).build());
+        }
+        galleryService.addAllArt(arts);
+        // More requests than a connection may have waiting, whose answers add up to more than may wait to be sent.
+        int callCount = 3000;
+        ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor();
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < callCount; i++) {
+            results.add(callers.submit(() -> galleryService.getAllArt().size()));
+        }
+
+        for (Future<Integer> result : results) {
+            assertEquals(500, (int) result.get());
+        }
+        callers.close();
+    }
+}
@@ -0,0 +1,206 @@
+package service;
+
+import constants.ArtType;
+import dto.Art;
+import exceptions.InvalidPriceRangeException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class AsyncGalleryServiceTest {
+    private GalleryServiceImpl gallery;
+    private AsyncGalleryService galleryService;
+
+    @Before
+    public void setUp() {
+        gallery = new GalleryServiceImpl(Clock.systemDefaultZone());
+        galleryService = new AsyncGalleryService(gallery);
+    }
+
+    @After
+    public void tearDown() {
+        galleryService.close();
+    }
+
+    @Test
+    public void test_addArt_CompletesWithResult() throws Exception {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        assertTrue(galleryService.addArt(monaLisa).get(10, TimeUnit.SECONDS));
+
+        assertEquals(Collections.singleton(monaLisa), galleryService.getArtByArtist("Leonard Di Vinci").get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test_getArtByPrice_CompletesExceptionally() throws Exception {
+        try {
+            galleryService.getArtByPrice(BigInteger.TEN, BigInteger.ONE).get(10, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof InvalidPriceRangeException);
+        }
+    }
+
+    @Test
+    public void test_getArtists_ThousandsInFlight() throws Exception {
+        int calls = 10_000;
+        CountDownLatch allStarted = new CountDownLatch(calls);
+        CountDownLatch release = new CountDownLatch(1);
+        AsyncGalleryService blockingService = new AsyncGalleryService(new GalleryServiceImpl(Clock.systemDefaultZone()) {
+            @Override
+            public List<String> getArtists() {
+                allStarted.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getArtists();
+            }
+        });
+        List<CompletableFuture<List<String>>> futures = new ArrayList<>();
+        for (int i = 0; i < calls; i++) {
+            futures.add(blockingService.getArtists());
+        }
+
+        assertTrue(allStarted.await(30, TimeUnit.SECONDS));
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(30, TimeUnit.SECONDS);
+        blockingService.close();
+    }
+
+    @Test
+    public void test_publishArtByPrice_OnlyReadsWhatIsRequested() throws Exception {
+        for (int i = 0; i < 100; i++) {
+            gallery.addArt(new Art.ArtBuilder("Painting " + i, ArtType.PAINTING, "Artist", LocalDate.of(2000, 1, 1))
+                    .price(BigInteger.valueOf(i))
+                    .build());
+        }
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        galleryService.publishArtByPrice(null, null).subscribe(subscriber);
+        subscriber.subscription.request(3);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(subscriber.signals.poll(10, TimeUnit.SECONDS) instanceof Art);
+        }
+        assertNull(subscriber.signals.poll(200, TimeUnit.MILLISECONDS));
+
+        subscriber.subscription.request(Long.MAX_VALUE);
+        for (int i = 0; i < 97; i++) {
+            assertTrue(subscriber.signals.poll(10, TimeUnit.SECONDS) instanceof Art);
+        }
+        assertEquals("complete", subscriber.signals.poll(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void test_publishArtByPrice_SignalsInvalidRange() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        galleryService.publishArtByPrice(BigInteger.TEN, BigInteger.ONE).subscribe(subscriber);
+
+        assertTrue(subscriber.signals.poll(10, TimeUnit.SECONDS) instanceof InvalidPriceRangeException);
+    }
+
+    @Test
+    public void test_publishArtByArtist_SignalsBadRequest() throws Exception {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        gallery.addArt(monaLisa);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        galleryService.publishArtByArtist("Leonard Di Vinci").subscribe(subscriber);
+        subscriber.subscription.request(0);
+
+        assertTrue(subscriber.signals.poll(10, TimeUnit.SECONDS) instanceof IllegalArgumentException);
+    }
+
+    @Test
+    public void test_publishArtByArtist_StopsWhenCancelled() throws Exception {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        gallery.addArt(monaLisa);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+
+        galleryService.publishArtByArtist("Leonard Di Vinci").subscribe(subscriber);
+        subscriber.subscription.cancel();
+        subscriber.subscription.request(1);
+
+        assertNull(subscriber.signals.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void test_close_EndsSubscriptionWithNoDemand() throws Exception {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        gallery.addArt(monaLisa);
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        galleryService.publishArtByArtist("Leonard Di Vinci").subscribe(subscriber);
+
+        CompletableFuture.runAsync(galleryService::close).get(10, TimeUnit.SECONDS);
+
+        assertTrue(subscriber.signals.poll(10, TimeUnit.SECONDS) instanceof IllegalStateException);
+        assertNull(subscriber.signals.poll(200, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void test_close_EndsLaterSubscriptions() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        galleryService.close();
+
+        galleryService.publishArtByArtist("Leonard Di Vinci").subscribe(subscriber);
+
+        assertTrue(subscriber.signals.poll(10, TimeUnit.SECONDS) instanceof Exception);
+    }
+
+    /**
+     * Queues every signal: the pieces, the error, or "complete".
+     */
+    private static final class RecordingSubscriber implements Flow.Subscriber<Art> {
+        private final LinkedBlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+        private volatile Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(Art art) {
+            signals.add(art);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            signals.add(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            signals.add("complete");
+        }
+    }
+}
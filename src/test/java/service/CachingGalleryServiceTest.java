@@ -0,0 +1,110 @@
+package service;
+
+import constants.ArtType;
+import dto.Art;
+import exceptions.InvalidPriceRangeException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class CachingGalleryServiceTest {
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+    private CachingGalleryService galleryService;
+
+    @Before
+    public void setUp() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+
+        galleryService = new CachingGalleryService(new GalleryServiceImpl(Clock.systemDefaultZone()));
+        galleryService.addAllArt(Arrays.asList(monaLisa, theThinker));
+    }
+
+    @Test
+    public void test_getArtByArtist_RepeatIsAHit() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        Set<Art> first = galleryService.getArtByArtist("Leonard Di Vinci");
+        Set<Art> second = galleryService.getArtByArtist("Leonard Di Vinci");
+
+        assertSame(first, second);
+        assertEquals(Collections.singleton(monaLisa), second);
+        assertEquals(1, galleryService.getCacheStats().getHitCount());
+        assertEquals(1, galleryService.getCacheStats().getMissCount());
+    }
+
+    @Test
+    public void test_addArt_OnlyInvalidatesAffectedQueries() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art sunflowers = new Art.ArtBuilder("Sunflowers", ArtType.PAINTING, "Vincent van Gogh", LocalDate.of(1888, 8, 1))
+                .price(new BigInteger("39921750000"))
+                .build();
+
+        galleryService.getArtByArtist("Leonard Di Vinci");
+        galleryService.getArtByArtist("Vincent van Gogh");
+        galleryService.getArtByPrice(BigInteger.ONE, new BigInteger("20000"));
+        galleryService.getArtByPrice(new BigInteger("1000000"), null);
+        galleryService.getArtists();
+
+        galleryService.addArt(sunflowers);
+
+        assertEquals(2, galleryService.getCacheStats().getSize());
+        assertEquals(Collections.singleton(sunflowers), galleryService.getArtByArtist("Vincent van Gogh"));
+        assertEquals(Collections.singleton(sunflowers), galleryService.getArtByPrice(new BigInteger("1000000"), null));
+        assertEquals(Arrays.asList("Auguste Rodin", "Leonard Di Vinci", "Vincent van Gogh"), galleryService.getArtists());
+        assertEquals(Collections.singleton(monaLisa), galleryService.getArtByArtist("Leonard Di Vinci"));
+        assertEquals(1, galleryService.getCacheStats().getHitCount());
+    }
+
+    @Test
+    public void test_deleteArt_InvalidatesRangesAndArtist() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+
+        galleryService.getArtCreatedBetween(LocalDate.of(1900, 1, 1), null);
+        galleryService.getArtByArtist("Auguste Rodin");
+        galleryService.getArtByArtist("Leonard Di Vinci");
+
+        galleryService.deleteArt(theThinker);
+
+        assertTrue(galleryService.getArtCreatedBetween(LocalDate.of(1900, 1, 1), null).isEmpty());
+        assertTrue(galleryService.getArtByArtist("Auguste Rodin").isEmpty());
+        assertEquals(Collections.singleton(monaLisa), galleryService.getArtByArtist("Leonard Di Vinci"));
+        assertEquals(1, galleryService.getCacheStats().getHitCount());
+    }
+
+    @Test
+    public void test_getArtByPrice_InvalidRangeIsNotCached() {
+        thrown.expect(InvalidPriceRangeException.class);
+        try {
+            galleryService.getArtByPrice(BigInteger.TEN, BigInteger.ONE);
+        } finally {
+            assertEquals(0, galleryService.getCacheStats().getSize());
+        }
+    }
+
+    @Test
+    public void test_getArtists_ResultIsUnmodifiable() {
+        thrown.expect(UnsupportedOperationException.class);
+        galleryService.getArtists().add("Banksy");
+    }
+}
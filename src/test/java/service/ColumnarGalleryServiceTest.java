@@ -0,0 +1,288 @@
+package service;
+
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import dto.Art;
+import dto.GalleryQuery;
+import exceptions.InvalidDateRangeException;
+import exceptions.InvalidPriceRangeException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ColumnarGalleryServiceTest {
+    private static final LocalDate TODAY = LocalDate.of(2020, 03, 01);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+    private ColumnarGalleryService galleryService;
+
+    @Before
+    public void setUp() {
+        galleryService = new ColumnarGalleryService(Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+    }
+
+    @Test
+    public void test_addArt_AndDeleteArt() {
+        Art artOne = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23)).build();
+        Art artOneOtherDate = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1923, 02, 12)).build();
+
+        assertFalse(galleryService.addArt(null));
+        assertTrue(galleryService.addArt(artOne));
+        assertFalse(galleryService.addArt(artOneOtherDate));
+        assertEquals(1, galleryService.getAllArt().size());
+        assertTrue(galleryService.deleteArt(artOneOtherDate));
+        assertFalse(galleryService.deleteArt(artOne));
+        assertTrue(galleryService.getAllArt().isEmpty());
+    }
+
+    @Test
+    public void test_getAllArt_MaterialisesEqualArt() {
+        Art artOne = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        galleryService.addArt(artOne);
+
+        Art storedArt = galleryService.getAllArt().iterator().next();
+        assertEquals(artOne, storedArt);
+        assertEquals(artOne.getCreationDate(), storedArt.getCreationDate());
+        assertEquals(artOne.getPrice(), storedArt.getPrice());
+        assertSame(artOne.getName(), storedArt.getName());
+    }
+
+    @Test
+    public void test_addArt_CreationDatesBeyondIntDays() {
+        Art oldest = new Art.ArtBuilder("Origin", ArtType.VASE, "Nobody", LocalDate.MIN).build();
+        Art newest = new Art.ArtBuilder("End", ArtType.VASE, "Nobody", LocalDate.MAX).build();
+
+        assertTrue(galleryService.addArt(oldest));
+        assertTrue(galleryService.addArt(newest));
+
+        assertEquals(Collections.singleton(oldest), galleryService.getArtCreatedBetween(null, LocalDate.of(0, 1, 1)));
+        assertEquals(LocalDate.MAX, galleryService.getArtCreatedBetween(LocalDate.of(3000, 1, 1), null).iterator().next().getCreationDate());
+        assertEquals(Arrays.asList(newest, oldest), galleryService.getNewestArt(2));
+    }
+
+    @Test
+    public void test_getArtists_AndGetArtByArtist() {
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "cde", LocalDate.of(1600, 02, 23)).build();
+        Art artTwo = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Abc", LocalDate.of(1600, 02, 23)).build();
+        Art artThree = new Art.ArtBuilder("Duplicates of life", ArtType.SCLUPTURE, "Abc", LocalDate.of(1600, 02, 23)).build();
+        galleryService.addAllArt(Arrays.asList(artOne, artTwo, artThree));
+
+        assertEquals(Arrays.asList("Abc", "cde"), galleryService.getArtists());
+        Set<Art> arts = galleryService.getArtByArtist("Abc");
+        assertEquals(2, arts.size());
+        assertTrue(arts.contains(artTwo));
+        assertTrue(arts.contains(artThree));
+        assertTrue(galleryService.getArtByArtist("Never Seen Before").isEmpty());
+
+        galleryService.deleteArt(artOne);
+        assertEquals(Arrays.asList("Abc"), galleryService.getArtists());
+    }
+
+    @Test
+    public void test_addAllArt() {
+        Art artOne = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23)).build();
+
+        List<AddArtStatus> statuses = galleryService.addAllArt(Arrays.asList(artOne, null, artOne));
+
+        assertEquals(Arrays.asList(AddArtStatus.ADDED, AddArtStatus.REJECTED, AddArtStatus.ALREADY_IN_GALLERY), statuses);
+    }
+
+    @Test
+    public void test_getRecentArt_AndGetArtCreatedBetween() {
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", TODAY.minusDays(365)).build();
+        Art artTwo = new Art.ArtBuilder("Bust of Nefertitin Version 2", ArtType.SCLUPTURE, "Thutmose", TODAY.minusDays(364)).build();
+        Art artThree = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1503, 10, 01)).build();
+        galleryService.addAllArt(Arrays.asList(artOne, artTwo, artThree));
+
+        Set<Art> recentArt = galleryService.getRecentArt();
+        assertEquals(1, recentArt.size());
+        assertTrue(recentArt.contains(artTwo));
+
+        Set<Art> arts = galleryService.getArtCreatedBetween(null, TODAY.minusDays(365));
+        assertEquals(2, arts.size());
+        assertTrue(arts.contains(artOne));
+        assertTrue(arts.contains(artThree));
+    }
+
+    @Test
+    public void test_getArtByPrice() {
+        BigInteger hugePrice = new BigInteger("123456789012345678901234567890");
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("10000"))
+                .build();
+        Art artTwo = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(hugePrice)
+                .build();
+        Art artThree = new Art.ArtBuilder("Faux Bust of Nefertiti", ArtType.SCLUPTURE, "Elton John", LocalDate.of(1600, 02, 23))
+                .build();
+        galleryService.addAllArt(Arrays.asList(artOne, artTwo, artThree));
+
+        assertEquals(2, galleryService.getArtByPrice(null, null).size());
+        Set<Art> arts = galleryService.getArtByPrice(new BigInteger("10000"), new BigInteger("10000"));
+        assertEquals(1, arts.size());
+        assertTrue(arts.contains(artOne));
+        arts = galleryService.getArtByPrice(hugePrice, null);
+        assertEquals(1, arts.size());
+        assertEquals(hugePrice, arts.iterator().next().getPrice());
+        assertTrue(galleryService.getArtByPrice(hugePrice.add(BigInteger.ONE), null).isEmpty());
+    }
+
+    @Test
+    public void test_getArtByPrice_InvalidLimit() {
+        thrown.expect(InvalidPriceRangeException.class);
+        galleryService.getArtByPrice(new BigInteger("20000"), new BigInteger("10000"));
+    }
+
+    @Test
+    public void test_getArtCreatedBetween_InvalidRange() {
+        thrown.expect(InvalidDateRangeException.class);
+        galleryService.getArtCreatedBetween(LocalDate.of(1600, 02, 23), LocalDate.of(1500, 02, 23));
+    }
+
+    @Test
+    public void test_manyRows_SpanChunksAndReuseDeletedRows() {
+        List<Art> arts = new ArrayList<>();
+        for (int i = 0; i < 100000; i++) {
+            arts.add(new Art.ArtBuilder("Columnar piece " + i, ArtType.VASE, "Potter " + (i % 10), LocalDate.of(1900, 01, 01).plusDays(i % 1000))
+                    .price(BigInteger.valueOf(i))
+                    .build());
+        }
+        galleryService.addAllArt(arts);
+        for (int i = 0; i < 100000; i += 2) {
+            assertTrue(galleryService.deleteArt(arts.get(i)));
+        }
+        for (int i = 0; i < 100000; i += 4) {
+            assertTrue(galleryService.addArt(arts.get(i)));
+        }
+
+        assertEquals(75000, galleryService.getAllArt().size());
+        assertEquals(10, galleryService.getArtists().size());
+        assertEquals(37500, galleryService.getArtByPrice(BigInteger.valueOf(50000), null).size());
+        assertEquals(5000, galleryService.getArtByArtist("Potter 4").size());
+    }
+
+    @Test
+    public void test_streamArtByPrice_ReadsOnlyWhatIsConsumed() {
+        List<Art> arts = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            arts.add(new Art.ArtBuilder("Streamed piece " + i, ArtType.VASE, "Potter " + (i % 10), LocalDate.of(1900, 01, 01))
+                    .price(BigInteger.valueOf(i))
+                    .build());
+        }
+        galleryService.addAllArt(arts);
+
+        List<Art> firstPage = galleryService.streamArtByPrice(BigInteger.valueOf(5000), null).limit(10).collect(Collectors.toList());
+        List<Art> secondPage = galleryService.streamArtByPrice(BigInteger.valueOf(5000), null).skip(10).limit(10).collect(Collectors.toList());
+
+        assertEquals(10, firstPage.size());
+        assertEquals(10, secondPage.size());
+        assertFalse(firstPage.stream().anyMatch(secondPage::contains));
+        assertEquals(5000, galleryService.streamArtByPrice(BigInteger.valueOf(5000), null).count());
+        assertEquals(galleryService.getArtByArtist("Potter 3"), galleryService.streamArtByArtist("Potter 3").collect(Collectors.toSet()));
+        assertEquals(0, galleryService.streamArtByArtist("Nobody").count());
+    }
+
+    @Test
+    public void test_findArt_ChecksAllCriteriaInOneScan() {
+        for (int i = 0; i < 100; i++) {
+            galleryService.addArt(new Art.ArtBuilder("Query piece " + i, i % 2 == 0 ? ArtType.PAINTING : ArtType.VASE, "Query artist " + (i % 4), LocalDate.of(1990, 01, 01).plusDays(i))
+                    .price(BigInteger.valueOf(i * 100))
+                    .build());
+        }
+        GalleryQuery query = new GalleryQuery.GalleryQueryBuilder()
+                .artist("Query artist 2")
+                .artTypes(ArtType.PAINTING)
+                .createdBetween(LocalDate.of(1990, 01, 01), LocalDate.of(1990, 01, 31))
+                .build();
+
+        assertEquals(8, galleryService.findArt(query).size());
+        assertTrue(galleryService.explain(query).startsWith("Scan: art type bitmaps, artist = Query artist 2, art type = PAINTING"));
+        assertTrue(galleryService.findArt(new GalleryQuery.GalleryQueryBuilder().artist("Nobody").build()).isEmpty());
+    }
+
+    @Test
+    public void test_getArtByType_UnionsTypeBitmaps() {
+        List<Art> arts = new ArrayList<>();
+        ArtType[] artTypes = ArtType.values();
+        for (int i = 0; i < 1000; i++) {
+            arts.add(new Art.ArtBuilder("Typed piece " + i, artTypes[i % artTypes.length], "Typist", LocalDate.of(1900, 01, 01))
+                    .price(i % 2 == 0 ? BigInteger.valueOf(i) : null)
+                    .build());
+        }
+        galleryService.addAllArt(arts);
+        galleryService.deleteArt(arts.get(0));
+
+        assertEquals(249, galleryService.getArtByType(ArtType.PAINTING).size());
+        assertEquals(499, galleryService.getArtByType(ArtType.PAINTING, ArtType.VASE, null).size());
+        assertEquals(999, galleryService.getArtByType(artTypes).size());
+        assertTrue(galleryService.getArtByType().isEmpty());
+        GalleryQuery pricedPaintings = new GalleryQuery.GalleryQueryBuilder().artTypes(ArtType.PAINTING).priceBetween(null, null).build();
+        assertEquals(249, galleryService.findArt(pricedPaintings).size());
+        assertTrue(galleryService.findArt(new GalleryQuery.GalleryQueryBuilder().artTypes(ArtType.VASE).priceBetween(null, null).build()).isEmpty());
+        assertTrue(galleryService.explain(pricedPaintings).startsWith("Scan: art type and priced rows bitmaps"));
+    }
+
+    @Test
+    public void test_findTopArt_SameAsFullSort() {
+        galleryService.addAllArt(GalleryServiceImplTest.topArtCatalogue());
+        List<GalleryQuery> queries = Arrays.asList(
+                new GalleryQuery.GalleryQueryBuilder().build(),
+                new GalleryQuery.GalleryQueryBuilder().artist("Artist 3").build(),
+                new GalleryQuery.GalleryQueryBuilder().artTypes(ArtType.VASE).priceBetween(null, BigInteger.valueOf(250)).build(),
+                new GalleryQuery.GalleryQueryBuilder().artist("Nobody").build());
+
+        for (GalleryQuery query : queries) {
+            for (ArtOrder order : ArtOrder.values()) {
+                List<Art> expected = galleryService.findArt(query).stream()
+                        .filter(art -> !TopArt.isByPrice(order) || art.getPrice() != null)
+                        .sorted(TopArt.rank(order))
+                        .limit(25)
+                        .collect(Collectors.toList());
+                assertEquals(query + " " + order, expected, galleryService.findTopArt(query, order, 25));
+            }
+        }
+        assertEquals(1600, galleryService.getCheapestArt(5000).size());
+    }
+
+    @Test
+    public void test_getAllStats_KeepsBoundsThroughDeletes() {
+        List<Art> arts = GalleryServiceImplTest.topArtCatalogue();
+        galleryService.addAllArt(arts);
+        GalleryServiceImplTest.assertStatsOf(arts, galleryService);
+        for (int i = 0; i < arts.size(); i += 2) {
+            galleryService.deleteArt(arts.get(i));
+        }
+
+        GalleryServiceImplTest.assertStatsOf(new ArrayList<>(galleryService.getAllArt()), galleryService);
+        galleryService.addArt(arts.get(0));
+        GalleryServiceImplTest.assertStatsOf(new ArrayList<>(galleryService.getAllArt()), galleryService);
+    }
+
+    @Test
+    public void test_findArtists_IgnoresCaseAndAccents() {
+        GalleryServiceImplTest.assertArtistSearch(galleryService);
+    }
+
+    @Test
+    public void test_searchArtByName_MatchesTermsAndPhrases() {
+        GalleryServiceImplTest.assertNameSearch(galleryService);
+    }
+}
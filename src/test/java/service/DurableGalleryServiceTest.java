@@ -0,0 +1,344 @@
+package service;
+
+import constants.AddArtStatus;
+import constants.ArtType;
+import dto.Art;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import store.GalleryLog;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class DurableGalleryServiceTest {
+    // The presence byte the codec wrote before a price in its first version.
+    private static final byte PRICE_PRESENT = 1;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    private Path directory;
+    private DurableGalleryService galleryService;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = temporaryFolder.newFolder("gallery").toPath();
+        galleryService = DurableGalleryService.open(directory, new ColumnarGalleryService());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        galleryService.close();
+    }
+
+    @Test
+    public void test_open_RestoresAddsAndDeletes() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+        Art sunflowers = new Art.ArtBuilder("Sunflowers", ArtType.PAINTING, "Vincent van Gogh", LocalDate.of(1888, 8, 1))
+                .price(new BigInteger("39921750000"))
+                .build();
+
+        assertTrue(galleryService.addArt(monaLisa));
+        assertTrue(galleryService.addArt(theThinker));
+        assertFalse(galleryService.addArt(monaLisa));
+        assertTrue(galleryService.deleteArt(theThinker));
+        galleryService.addAllArt(Arrays.asList(sunflowers, null, monaLisa));
+
+        reopen();
+
+        assertEquals(2, galleryService.getAllArt().size());
+        assertTrue(galleryService.getAllArt().containsAll(Arrays.asList(monaLisa, sunflowers)));
+        assertEquals(Arrays.asList("Leonard Di Vinci", "Vincent van Gogh"), galleryService.getArtists());
+        Art storedArt = galleryService.getArtByArtist("Vincent van Gogh").iterator().next();
+        assertEquals(sunflowers.getPrice(), storedArt.getPrice());
+        assertEquals(sunflowers.getCreationDate(), storedArt.getCreationDate());
+    }
+
+    @Test
+    public void test_addArt_LogsNothingForChangesThatDoNothing() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+        Art sunflowers = new Art.ArtBuilder("Sunflowers", ArtType.PAINTING, "Vincent van Gogh", LocalDate.of(1888, 8, 1))
+                .price(new BigInteger("39921750000"))
+                .build();
+
+        galleryService.addArt(monaLisa);
+        long logSize = Files.size(segments().get(0));
+
+        assertFalse(galleryService.addArt(monaLisa));
+        assertFalse(galleryService.deleteArt(theThinker));
+        assertFalse(galleryService.addAllArt(Arrays.asList(monaLisa, monaLisa)).contains(AddArtStatus.ADDED));
+
+        assertEquals(logSize, Files.size(segments().get(0)));
+        assertTrue(galleryService.addArt(sunflowers));
+        reopen();
+        assertEquals(new HashSet<>(Arrays.asList(monaLisa, sunflowers)), galleryService.getAllArt());
+    }
+
+    @Test
+    public void test_addAllArt_LogsOnlyTheArtItAdded() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art sunflowers = new Art.ArtBuilder("Sunflowers", ArtType.PAINTING, "Vincent van Gogh", LocalDate.of(1888, 8, 1))
+                .price(new BigInteger("39921750000"))
+                .build();
+
+        galleryService.addArt(monaLisa);
+
+        assertEquals(Arrays.asList(AddArtStatus.ALREADY_IN_GALLERY, AddArtStatus.ADDED, AddArtStatus.ALREADY_IN_GALLERY),
+                galleryService.addAllArt(Arrays.asList(monaLisa, sunflowers, sunflowers)));
+
+        galleryService.close();
+        List<Art> loggedArts = new ArrayList<>();
+        GalleryLog.replay(segments().get(0), (operation, art) -> loggedArts.add(art));
+        assertEquals(Arrays.asList(monaLisa, sunflowers), loggedArts);
+        galleryService = DurableGalleryService.open(directory, new ColumnarGalleryService());
+    }
+
+    @Test
+    public void test_addArt_CutsRecordOffWhenGalleryFails() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        galleryService.close();
+        galleryService = DurableGalleryService.open(directory, new ColumnarGalleryService() {
+            @Override
+            public boolean addArt(Art art) {
+                throw new IllegalStateException("Gallery is broken");
+            }
+
+            @Override
+            public boolean deleteArt(Art art) {
+                throw new IllegalStateException("Gallery is broken");
+            }
+        });
+
+        try {
+            galleryService.addArt(monaLisa);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expectedException) {
+            // The change was never made, so it must not be replayed.
+        }
+        try {
+            galleryService.deleteArt(monaLisa);
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expectedException) {
+            // As above.
+        }
+
+        assertEquals(0, Files.size(segments().get(0)));
+    }
+
+    @Test
+    public void test_compact_KeepsArtAndDeletesOldSegments() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        List<Art> arts = paintings(500);
+        galleryService.addAllArt(arts);
+        galleryService.deleteArt(arts.get(0));
+        galleryService.compact();
+        galleryService.deleteArt(arts.get(1));
+        galleryService.addArt(monaLisa);
+
+        assertEquals(1, segments().size());
+        reopen();
+
+        assertEquals(499, galleryService.getAllArt().size());
+        assertFalse(galleryService.getAllArt().contains(arts.get(1)));
+        assertTrue(galleryService.getAllArt().contains(monaLisa));
+    }
+
+    @Test
+    public void test_addArt_CompactsInTheBackgroundWhenLogIsLarge() throws Exception {
+        galleryService.close();
+        galleryService = DurableGalleryService.open(directory, new ColumnarGalleryService(), 4096);
+        List<Art> arts = paintings(200);
+        for (Art art : arts) {
+            galleryService.addArt(art);
+        }
+        galleryService.close();
+
+        assertTrue(Files.exists(directory.resolve("gallery.snapshot")));
+        reopen();
+        assertEquals(200, galleryService.getAllArt().size());
+    }
+
+    @Test
+    public void test_open_RecoversFromTruncatedLog() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+        Art sunflowers = new Art.ArtBuilder("Sunflowers", ArtType.PAINTING, "Vincent van Gogh", LocalDate.of(1888, 8, 1))
+                .price(new BigInteger("39921750000"))
+                .build();
+
+        galleryService.addArt(monaLisa);
+        galleryService.addArt(theThinker);
+        galleryService.close();
+        Path segment = segments().get(0);
+        long segmentLength = Files.size(segment);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            // A crash in the middle of writing the last record.
+            file.setLength(segmentLength - 7);
+        }
+
+        galleryService = DurableGalleryService.open(directory, new ColumnarGalleryService());
+
+        assertEquals(1, galleryService.getAllArt().size());
+        assertTrue(galleryService.getAllArt().contains(monaLisa));
+        assertTrue(galleryService.addArt(sunflowers));
+        reopen();
+        assertEquals(2, galleryService.getAllArt().size());
+        assertTrue(galleryService.getAllArt().contains(sunflowers));
+    }
+
+    @Test
+    public void test_open_CutsTornRecordOffAnOlderSegment() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+        Art sunflowers = new Art.ArtBuilder("Sunflowers", ArtType.PAINTING, "Vincent van Gogh", LocalDate.of(1888, 8, 1))
+                .price(new BigInteger("39921750000"))
+                .build();
+
+        galleryService.addArt(monaLisa);
+        galleryService.addArt(theThinker);
+        galleryService.close();
+        Path olderSegment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(olderSegment.toFile(), "rw")) {
+            // A crash before the older segment reached disk, after a newer one was started.
+            file.setLength(file.length() - 7);
+        }
+        try (GalleryLog newerSegment = GalleryLog.open(olderSegment.resolveSibling(String.format("gallery-%020d.log", 1)), 0)) {
+            newerSegment.append(GalleryLog.ADD, sunflowers);
+        }
+
+        galleryService = DurableGalleryService.open(directory, new ColumnarGalleryService());
+
+        assertEquals(new HashSet<>(Arrays.asList(monaLisa, sunflowers)), galleryService.getAllArt());
+        assertTrue(galleryService.addArt(theThinker));
+        reopen();
+        assertEquals(new HashSet<>(Arrays.asList(monaLisa, sunflowers, theThinker)), galleryService.getAllArt());
+    }
+
+    @Test
+    public void test_open_DropsRecordWithBadChecksum() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+
+        galleryService.addArt(monaLisa);
+        galleryService.addArt(theThinker);
+        galleryService.close();
+        Path segment = segments().get(0);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(file.length() - 1);
+            int lastByte = file.read();
+            file.seek(file.length() - 1);
+            file.write(lastByte ^ 0xFF);
+        }
+
+        galleryService = DurableGalleryService.open(directory, new ColumnarGalleryService());
+
+        assertEquals(1, galleryService.getAllArt().size());
+        assertTrue(galleryService.getAllArt().contains(monaLisa));
+    }
+
+    @Test
+    public void test_open_WorksWithGalleryServiceImpl() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art theThinker = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+
+        galleryService.addArt(monaLisa);
+        galleryService.compact();
+        galleryService.addArt(theThinker);
+        galleryService.close();
+
+        galleryService = DurableGalleryService.open(directory, new GalleryServiceImpl(Clock.systemDefaultZone()));
+
+        assertEquals(2, galleryService.getAllArt().size());
+    }
+
+    @Test
+    public void test_open_ReplaysRecordsWrittenBeforeCodecVersions() throws IOException {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        galleryService.close();
+        Path segment = segments().get(0);
+        byte[] name = "Mona Lisa".getBytes(StandardCharsets.UTF_8);
+        byte[] artistName = "Leonard Di Vinci".getBytes(StandardCharsets.UTF_8);
+        byte[] price = monaLisa.getPrice().toByteArray();
+        ByteBuffer payload = ByteBuffer.allocate(1 + 4 + name.length + 1 + 4 + artistName.length + 8 + 1 + 4 + price.length);
+        payload.put(GalleryLog.ADD);
+        payload.putInt(name.length).put(name).put((byte) ArtType.PAINTING.ordinal());
+        payload.putInt(artistName.length).put(artistName);
+        payload.putLong(monaLisa.getCreationDate().toEpochDay());
+        payload.put(PRICE_PRESENT).putInt(price.length).put(price);
+        CRC32 crc = new CRC32();
+        crc.update(payload.array());
+        ByteBuffer record = ByteBuffer.allocate(8 + payload.capacity());
+        record.putInt(payload.capacity()).putInt((int) crc.getValue()).put(payload.array());
+        Files.write(segment, record.array());
+
+        galleryService = DurableGalleryService.open(directory, new ColumnarGalleryService());
+
+        Art storedArt = galleryService.getArtByArtist("Leonard Di Vinci").iterator().next();
+        assertEquals(monaLisa, storedArt);
+        assertEquals(monaLisa.getPrice(), storedArt.getPrice());
+    }
+
+    private void reopen() throws IOException {
+        galleryService.close();
+        galleryService = DurableGalleryService.open(directory, new ColumnarGalleryService());
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).collect(Collectors.toList());
+        }
+    }
+
+    private static List<Art> paintings(int count) {
+        List<Art> arts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            arts.add(new Art.ArtBuilder("Painting " + i, ArtType.PAINTING, "Artist " + (i % 7), LocalDate.of(2000, 1, 1).plusDays(i))
+                    .price(BigInteger.valueOf(100 + i))
+                    .build());
+        }
+        return arts;
+    }
+}
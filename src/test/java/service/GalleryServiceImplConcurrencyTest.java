@@ -0,0 +1,127 @@
+package service;
+
+import constants.ArtType;
+import dto.Art;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class GalleryServiceImplConcurrencyTest {
+    private static final int WRITERS = 8;
+    private static final int READERS = 8;
+    private static final int ARTS_PER_WRITER = 2000;
+    private static final int ARTISTS = 50;
+
+    private GalleryServiceImpl galleryService;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        galleryService = GalleryServiceImpl.getInstance();
+        executor = Executors.newFixedThreadPool(WRITERS + READERS);
+    }
+
+    @After
+    public void cleanup() throws InterruptedException {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        GalleryServiceImpl.setInstanceNull();
+    }
+
+    /*
+     Every writer adds its own pieces, deletes every other one and races the other writers for a shared set of
+     pieces, while readers run every query. Nothing may be lost, duplicated or left behind in an index.
+     */
+    @Test
+    public void test_concurrentAddAndDelete_NoLostUpdates() throws Exception {
+        List<Art> sharedArts = new ArrayList<>();
+        for (int i = 0; i < ARTS_PER_WRITER; i++) {
+            sharedArts.add(newArt("Shared " + i, i));
+        }
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<Integer>> writers = new ArrayList<>();
+        List<Future<?>> readers = new ArrayList<>();
+
+        for (int writer = 0; writer < WRITERS; writer++) {
+            int writerId = writer;
+            writers.add(executor.submit(() -> {
+                start.await();
+                int sharedAdded = 0;
+                for (int i = 0; i < ARTS_PER_WRITER; i++) {
+                    Art art = newArt("Writer " + writerId + " piece " + i, i);
+                    assertTrue(galleryService.addArt(art));
+                    if (i % 2 == 0) {
+                        assertTrue(galleryService.deleteArt(art));
+                    }
+                    if (galleryService.addArt(sharedArts.get(i))) {
+                        sharedAdded++;
+                    }
+                }
+                return sharedAdded;
+            }));
+        }
+        for (int reader = 0; reader < READERS; reader++) {
+            readers.add(executor.submit(() -> {
+                start.await();
+                while (writing.get()) {
+                    galleryService.getAllArt();
+                    galleryService.getArtists();
+                    galleryService.getArtByArtist("Artist 7");
+                    galleryService.getRecentArt();
+                    galleryService.getArtByPrice(BigInteger.valueOf(100), BigInteger.valueOf(900));
+                    galleryService.getArtCreatedBetween(LocalDate.of(1900, 01, 01), null);
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        int sharedAdded = 0;
+        for (Future<Integer> writer : writers) {
+            sharedAdded += writer.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        for (Future<?> reader : readers) {
+            reader.get(60, TimeUnit.SECONDS);
+        }
+
+        int expectedSize = WRITERS * ARTS_PER_WRITER / 2 + ARTS_PER_WRITER;
+        assertEquals(ARTS_PER_WRITER, sharedAdded);
+        assertEquals(expectedSize, galleryService.getAllArt().size());
+        assertEquals(expectedSize, galleryService.getArtByPrice(null, null).size());
+        assertEquals(expectedSize, galleryService.getArtCreatedBetween(null, null).size());
+        assertEquals(ARTISTS, galleryService.getArtists().size());
+        int artByArtist = 0;
+        for (String artistName : galleryService.getArtists()) {
+            artByArtist += galleryService.getArtByArtist(artistName).size();
+        }
+        assertEquals(expectedSize, artByArtist);
+
+        for (Art art : galleryService.getAllArt()) {
+            assertTrue(galleryService.deleteArt(art));
+        }
+        assertTrue(galleryService.getArtists().isEmpty());
+        assertTrue(galleryService.getArtByPrice(null, null).isEmpty());
+        assertTrue(galleryService.getArtCreatedBetween(null, null).isEmpty());
+    }
+
+    private static Art newArt(String name, int i) {
+        return new Art.ArtBuilder(name, ArtType.values()[i % ArtType.values().length], "Artist " + (i % ARTISTS), LocalDate.of(1900, 01, 01).plusDays(i))
+                .price(BigInteger.valueOf(i % 1000))
+                .build();
+    }
+}
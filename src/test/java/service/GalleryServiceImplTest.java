@@ -1,7 +1,14 @@
 package service;
 
+import constants.AddArtStatus;
+import constants.ArtOrder;
 import constants.ArtType;
+import constants.NameMatch;
 import dto.Art;
+import dto.ArtStats;
+import dto.GalleryQuery;
+import dto.GalleryStats;
+import exceptions.InvalidDateRangeException;
 import exceptions.InvalidPriceRangeException;
 import org.junit.After;
 import org.junit.Before;
@@ -9,12 +16,23 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.time.Clock;
 import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -83,6 +101,24 @@ public class GalleryServiceImplTest {
         assertFalse(galleryService.addArt(artTwo));
     }
 
+    @Test
+    public void test_addAllArt() {
+        Art artOne = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23)).build();
+        Art artTwo = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("1000"))
+                .build();
+        Art artTwoCopy = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23)).build();
+        galleryService.addArt(artOne);
+
+        List<AddArtStatus> statuses = galleryService.addAllArt(Arrays.asList(artOne, artTwo, null, artTwoCopy));
+
+        assertEquals(Arrays.asList(AddArtStatus.ALREADY_IN_GALLERY, AddArtStatus.ADDED, AddArtStatus.REJECTED, AddArtStatus.ALREADY_IN_GALLERY), statuses);
+        assertEquals(2, galleryService.getAllArt().size());
+        assertEquals(2, galleryService.snapshot().getVersion());
+        assertTrue(galleryService.getArtByArtist("Thutmose").contains(artTwo));
+        assertTrue(galleryService.getArtByPrice(new BigInteger("1000"), null).contains(artTwo));
+    }
+
     @Test
     public void test_deleteArt_WithNullObject() {
         assertFalse(galleryService.deleteArt(null));
@@ -160,6 +196,33 @@ public class GalleryServiceImplTest {
 
     }
 
+    @Test
+    public void test_snapshot_IsNotChangedByLaterWrites() {
+        Art artOne = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art artTwo = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("1000"))
+                .build();
+        galleryService.addArt(artOne);
+        GallerySnapshot snapshot = galleryService.snapshot();
+
+        assertTrue(galleryService.addArt(artTwo));
+        assertTrue(galleryService.deleteArt(artOne));
+
+        assertEquals(1, snapshot.getAllArt().size());
+        assertTrue(snapshot.getAllArt().contains(artOne));
+        assertEquals(1, snapshot.getArtists().size());
+        assertEquals("Leonard Di Vinci", snapshot.getArtists().get(0));
+        assertTrue(snapshot.getArtByArtist("Thutmose").isEmpty());
+        assertEquals(1, snapshot.getArtByPrice(null, null).size());
+        assertTrue(snapshot.getArtByPrice(null, null).contains(artOne));
+        assertTrue(snapshot.getVersion() < galleryService.snapshot().getVersion());
+
+        assertEquals(1, galleryService.getAllArt().size());
+        assertTrue(galleryService.getAllArt().contains(artTwo));
+    }
+
     @Test
     public void test_getArtist_InAlphabeticalOrder_AllUniqueArtist() {
         Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "cde", LocalDate.of(1600, 02, 23)).build();
@@ -202,6 +265,27 @@ public class GalleryServiceImplTest {
         assertEquals("cde", artists.get(3));
     }
 
+    @Test
+    public void test_getArtist_AfterDelete() {
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "bbc", LocalDate.of(1600, 02, 23)).build();
+        Art artTwo = new Art.ArtBuilder("Duplicates of life", ArtType.SCLUPTURE, "bbc", LocalDate.of(1600, 02, 23)).build();
+        Art artThree = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Abc", LocalDate.of(1600, 02, 23)).build();
+        galleryService.addArt(artOne);
+        galleryService.addArt(artTwo);
+        galleryService.addArt(artThree);
+
+        assertTrue(galleryService.deleteArt(artOne));
+        List<String> artists = galleryService.getArtists();
+        assertEquals(2, artists.size());
+        assertEquals("Abc", artists.get(0));
+        assertEquals("bbc", artists.get(1));
+
+        assertTrue(galleryService.deleteArt(artTwo));
+        artists = galleryService.getArtists();
+        assertEquals(1, artists.size());
+        assertEquals("Abc", artists.get(0));
+    }
+
     @Test
     public void test_getArtByArtist() {
         Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23)).build();
@@ -223,6 +307,32 @@ public class GalleryServiceImplTest {
         assertTrue(arts.contains(artThree));
     }
 
+    @Test
+    public void test_getArtByArtist_AfterDelete() {
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23)).build();
+        Art artTwo = new Art.ArtBuilder("Bust of Nefertitin Version 2", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23)).build();
+        galleryService.addArt(artOne);
+        galleryService.addArt(artTwo);
+
+        assertTrue(galleryService.deleteArt(artOne));
+        Set<Art> arts = galleryService.getArtByArtist("Thutmose");
+        assertEquals(1, arts.size());
+        assertTrue(arts.contains(artTwo));
+
+        assertTrue(galleryService.deleteArt(artTwo));
+        assertTrue(galleryService.getArtByArtist("Thutmose").isEmpty());
+    }
+
+    @Test
+    public void test_getArtByArtist_UnknownArtist() {
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23)).build();
+        galleryService.addArt(artOne);
+
+        Set<Art> arts = galleryService.getArtByArtist("Leonard Di Vinci");
+        assertNotNull(arts);
+        assertTrue(arts.isEmpty());
+    }
+
     @Test
     public void test_getRecentArt() {
         Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23)).build();
@@ -241,6 +351,58 @@ public class GalleryServiceImplTest {
         assertTrue(recentArt.contains(artFour));
     }
 
+    @Test
+    public void test_getRecentArt_WithFixedClock() {
+        LocalDate today = LocalDate.of(2020, 03, 01);
+        GalleryServiceImpl fixedDayGallery = new GalleryServiceImpl(Clock.fixed(today.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", today.minusDays(365)).build();
+        Art artTwo = new Art.ArtBuilder("Bust of Nefertitin Version 2", ArtType.SCLUPTURE, "Thutmose", today.minusDays(364)).build();
+        Art artThree = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", today).build();
+        Art artFour = new Art.ArtBuilder("Faux Bust of Nefertiti", ArtType.SCLUPTURE, "Elton John", today.plusDays(1)).build();
+        fixedDayGallery.addArt(artOne);
+        fixedDayGallery.addArt(artTwo);
+        fixedDayGallery.addArt(artThree);
+        fixedDayGallery.addArt(artFour);
+
+        Set<Art> recentArt = fixedDayGallery.getRecentArt();
+        assertEquals(3, recentArt.size());
+        assertTrue(recentArt.contains(artTwo));
+        assertTrue(recentArt.contains(artThree));
+        assertTrue(recentArt.contains(artFour));
+    }
+
+    @Test
+    public void test_getArtCreatedBetween() {
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1345, 01, 01)).build();
+        Art artTwo = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1503, 10, 01)).build();
+        Art artThree = new Art.ArtBuilder("Water Lilies", ArtType.PAINTING, "Claude Monet", LocalDate.of(1906, 05, 12)).build();
+        galleryService.addArt(artOne);
+        galleryService.addArt(artTwo);
+        galleryService.addArt(artThree);
+
+        Set<Art> arts = galleryService.getArtCreatedBetween(LocalDate.of(1345, 01, 01), LocalDate.of(1503, 10, 01));
+        assertEquals(2, arts.size());
+        assertTrue(arts.contains(artOne));
+        assertTrue(arts.contains(artTwo));
+
+        arts = galleryService.getArtCreatedBetween(LocalDate.of(1500, 01, 01), null);
+        assertEquals(2, arts.size());
+        assertTrue(arts.contains(artTwo));
+        assertTrue(arts.contains(artThree));
+
+        arts = galleryService.getArtCreatedBetween(null, LocalDate.of(1500, 01, 01));
+        assertEquals(1, arts.size());
+        assertTrue(arts.contains(artOne));
+
+        assertEquals(3, galleryService.getArtCreatedBetween(null, null).size());
+    }
+
+    @Test
+    public void test_getArtCreatedBetween_InvalidRange() {
+        thrown.expect(InvalidDateRangeException.class);
+        galleryService.getArtCreatedBetween(LocalDate.of(1600, 02, 23), LocalDate.of(1500, 02, 23));
+    }
+
     @Test
     public void test_getArtByPrice_NoMinLimit() {
         Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23))
@@ -351,9 +513,372 @@ public class GalleryServiceImplTest {
         assertTrue(artsByPrice.contains(artSix));
     }
 
+    @Test
+    public void test_getArtByPrice_NoLimit() {
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("1500000"))
+                .build();
+        Art artTwo = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .build();
+        galleryService.addArt(artOne);
+        galleryService.addArt(artTwo);
+
+        Set<Art> artsByPrice = galleryService.getArtByPrice(null, null);
+        assertEquals(1, artsByPrice.size());
+        assertTrue(artsByPrice.contains(artOne));
+    }
+
+    @Test
+    public void test_getArtByPrice_AfterDeleteWithDifferentPrice() {
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art artOneRepriced = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("1000"))
+                .build();
+        galleryService.addArt(artOne);
+
+        assertTrue(galleryService.deleteArt(artOneRepriced));
+        assertTrue(galleryService.getArtByPrice(null, null).isEmpty());
+    }
+
     @Test
     public void test_getArtByPrice_InvalidLimit() {
         thrown.expect(InvalidPriceRangeException.class);
         galleryService.getArtByPrice(new BigInteger("20000"), new BigInteger("10000"));
     }
+
+    @Test
+    public void test_streamArtByPrice_PagesInPriceOrder() {
+        for (int i = 0; i < 50; i++) {
+            galleryService.addArt(new Art.ArtBuilder("Print " + i, ArtType.PAINTING, "Printer", LocalDate.of(1990, 01, 01))
+                    .price(BigInteger.valueOf(1000 - i))
+                    .build());
+        }
+
+        List<Art> firstPage = galleryService.streamArtByPrice(null, BigInteger.valueOf(990)).limit(10).collect(Collectors.toList());
+        List<Art> secondPage = galleryService.streamArtByPrice(null, BigInteger.valueOf(990)).skip(10).limit(10).collect(Collectors.toList());
+
+        assertEquals(10, firstPage.size());
+        assertEquals(BigInteger.valueOf(951), firstPage.get(0).getPrice());
+        assertEquals(BigInteger.valueOf(960), firstPage.get(9).getPrice());
+        assertEquals(BigInteger.valueOf(961), secondPage.get(0).getPrice());
+        assertEquals(40, galleryService.streamArtByPrice(null, BigInteger.valueOf(990)).count());
+    }
+
+    @Test
+    public void test_streamArtCreatedBetween_MatchesSetQuery() {
+        for (int i = 0; i < 30; i++) {
+            galleryService.addArt(new Art.ArtBuilder("Sketch " + i, ArtType.PAINTING, "Sketcher " + (i % 3), LocalDate.of(1990, 01, 01).plusDays(i)).build());
+        }
+        LocalDate createdFrom = LocalDate.of(1990, 01, 05);
+        LocalDate createdTo = LocalDate.of(1990, 01, 20);
+
+        List<Art> streamedArts = galleryService.streamArtCreatedBetween(createdFrom, createdTo).collect(Collectors.toList());
+
+        assertEquals(galleryService.getArtCreatedBetween(createdFrom, createdTo), new HashSet<>(streamedArts));
+        assertEquals(createdFrom, streamedArts.get(0).getCreationDate());
+        assertEquals(10, galleryService.streamArtByArtist("Sketcher 1").count());
+        assertEquals(0, galleryService.streamArtByArtist("Nobody").count());
+    }
+
+    @Test
+    public void test_streamArtByPrice_InvalidLimit() {
+        thrown.expect(InvalidPriceRangeException.class);
+        galleryService.streamArtByPrice(new BigInteger("20000"), new BigInteger("10000"));
+    }
+
+    @Test
+    public void test_findArt_DrivesFromMostSelectiveIndex() {
+        for (int i = 0; i < 100; i++) {
+            galleryService.addArt(new Art.ArtBuilder("Piece " + i, i % 2 == 0 ? ArtType.PAINTING : ArtType.VASE, "Artist " + (i % 4), LocalDate.of(1990, 01, 01).plusDays(i))
+                    .price(BigInteger.valueOf(i * 100))
+                    .build());
+        }
+        GalleryQuery query = new GalleryQuery.GalleryQueryBuilder()
+                .artist("Artist 2")
+                .artTypes(ArtType.PAINTING)
+                .priceBetween(BigInteger.valueOf(1000), BigInteger.valueOf(1500))
+                .build();
+
+        Set<Art> arts = galleryService.findArt(query);
+        String plan = galleryService.explain(query);
+
+        assertEquals(2, arts.size());
+        for (Art art : arts) {
+            assertEquals("Artist 2", art.getArtistName());
+            assertTrue(art.getPrice().compareTo(BigInteger.valueOf(1000)) >= 0 && art.getPrice().compareTo(BigInteger.valueOf(1500)) <= 0);
+        }
+        assertTrue(plan, plan.startsWith("Scan: price index, 1000 <= price <= 1500 (estimated 6 pieces)"));
+        assertTrue(plan, plan.contains("Filter: artist = Artist 2\nFilter: art type = PAINTING"));
+        assertTrue(plan, plan.contains("Not chosen: artist index (estimated 25 pieces)"));
+        assertTrue(plan, plan.contains("Not chosen: full scan (estimated 100 pieces)"));
+    }
+
+    @Test
+    public void test_findArt_WithoutCriteriaOrQuery() {
+        Art artOne = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23)).build();
+        galleryService.addArt(artOne);
+
+        assertEquals(galleryService.getAllArt(), galleryService.findArt(new GalleryQuery.GalleryQueryBuilder().build()));
+        assertTrue(galleryService.findArt(null).isEmpty());
+        assertTrue(galleryService.findArt(new GalleryQuery.GalleryQueryBuilder().artist("Nobody").build()).isEmpty());
+        assertEquals(1, galleryService.findArt(new GalleryQuery.GalleryQueryBuilder().createdBetween(null, LocalDate.of(1700, 01, 01)).build()).size());
+    }
+
+    @Test
+    public void test_findArt_InvalidDateRange() {
+        thrown.expect(InvalidDateRangeException.class);
+        galleryService.findArt(new GalleryQuery.GalleryQueryBuilder().createdBetween(LocalDate.of(1600, 02, 23), LocalDate.of(1500, 02, 23)).build());
+    }
+
+    @Test
+    public void test_getArtByType() {
+        Art artOne = new Art.ArtBuilder("Bust of Nefertiti", ArtType.SCLUPTURE, "Thutmose", LocalDate.of(1600, 02, 23)).build();
+        Art artTwo = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23)).build();
+        Art artThree = new Art.ArtBuilder("Portland Vase", ArtType.VASE, "Unknown", LocalDate.of(1600, 02, 23)).build();
+        galleryService.addAllArt(Arrays.asList(artOne, artTwo, artThree));
+        galleryService.deleteArt(artThree);
+
+        assertEquals(new HashSet<>(Arrays.asList(artOne)), galleryService.getArtByType(ArtType.SCLUPTURE));
+        assertEquals(new HashSet<>(Arrays.asList(artOne, artTwo)), galleryService.getArtByType(ArtType.SCLUPTURE, ArtType.PAINTING, ArtType.VASE));
+        assertTrue(galleryService.getArtByType(ArtType.VASE).isEmpty());
+        assertTrue(galleryService.getArtByType().isEmpty());
+        assertTrue(galleryService.getArtByType((ArtType[]) null).isEmpty());
+        assertTrue(galleryService.explain(new GalleryQuery.GalleryQueryBuilder().artTypes(ArtType.PAINTING).build())
+                .startsWith("Scan: art type index, art type = PAINTING (estimated 1 pieces)"));
+    }
+
+    @Test
+    public void test_findTopArt_SameAsFullSort() {
+        List<Art> arts = topArtCatalogue();
+        galleryService.addAllArt(arts);
+        List<GalleryQuery> queries = Arrays.asList(
+                new GalleryQuery.GalleryQueryBuilder().build(),
+                new GalleryQuery.GalleryQueryBuilder().artist("Artist 3").build(),
+                new GalleryQuery.GalleryQueryBuilder().artTypes(ArtType.VASE, ArtType.TAPESTRY).build(),
+                new GalleryQuery.GalleryQueryBuilder().priceBetween(BigInteger.valueOf(100), BigInteger.valueOf(400)).build(),
+                new GalleryQuery.GalleryQueryBuilder().artist("Artist 5").createdBetween(LocalDate.of(1990, 1, 1), null).build());
+
+        // Few matches for many pieces are kept in a heap, the others read from the index in order.
+        for (int count : new int[]{10, 1000}) {
+            for (GalleryQuery query : queries) {
+                for (ArtOrder order : ArtOrder.values()) {
+                    List<Art> expected = galleryService.findArt(query).stream()
+                            .filter(art -> !TopArt.isByPrice(order) || art.getPrice() != null)
+                            .sorted(TopArt.rank(order))
+                            .limit(count)
+                            .collect(Collectors.toList());
+                    assertEquals(query + " " + order, expected, galleryService.findTopArt(query, order, count));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test_getTopArtByPrice_IgnoresArtWithNoPrice() {
+        Art artOne = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23)).price(new BigInteger("15000")).build();
+        Art artTwo = new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build();
+        Art artThree = new Art.ArtBuilder("Sunflowers", ArtType.PAINTING, "Vincent van Gogh", LocalDate.of(1888, 8, 1)).price(new BigInteger("39921750000")).build();
+        galleryService.addAllArt(Arrays.asList(artOne, artTwo, artThree));
+
+        assertEquals(Arrays.asList(artThree, artOne), galleryService.getTopArtByPrice(5));
+        assertEquals(Arrays.asList(artOne), galleryService.getCheapestArt(1));
+        assertEquals(Arrays.asList(artTwo, artThree), galleryService.getNewestArt(2));
+        assertTrue(galleryService.getNewestArt(0).isEmpty());
+        assertTrue(galleryService.findTopArt(null, ArtOrder.NEWEST, 5).isEmpty());
+    }
+
+    @Test
+    public void test_findTopArt_NegativeCount() {
+        thrown.expect(IllegalArgumentException.class);
+        galleryService.getTopArtByPrice(-1);
+    }
+
+    @Test
+    public void test_findArtists_IgnoresCaseAndAccents() {
+        assertArtistSearch(galleryService);
+    }
+
+    /**
+     * asserts prefix searches of artist names ignore case and accents and follow adds and deletes.
+     */
+    static void assertArtistSearch(GalleryService galleryService) {
+        Art durer = new Art.ArtBuilder("Melencolia I", ArtType.PAINTING, "Albrecht Dürer", LocalDate.of(1514, 1, 1)).build();
+        Art altdorfer = new Art.ArtBuilder("The Battle of Alexander at Issus", ArtType.PAINTING, "Albrecht Altdorfer", LocalDate.of(1529, 1, 1)).build();
+        Art alma = new Art.ArtBuilder("The Roses of Heliogabalus", ArtType.PAINTING, "Lawrence Alma-Tadema", LocalDate.of(1888, 1, 1)).build();
+        Art emile = new Art.ArtBuilder("Water Lilies", ArtType.TAPESTRY, "Émile Gallé", LocalDate.of(1900, 1, 1)).build();
+        Art emileVase = new Art.ArtBuilder("Vase", ArtType.VASE, "Émile Gallé", LocalDate.of(1901, 1, 1)).build();
+        galleryService.addAllArt(Arrays.asList(durer, altdorfer, alma, emile, emileVase));
+
+        assertEquals(Arrays.asList("Albrecht Altdorfer", "Albrecht Dürer"), galleryService.findArtists("albrecht", 10));
+        assertEquals(Arrays.asList("Albrecht Dürer"), galleryService.findArtists("ALBRECHT DUR", 10));
+        assertEquals(Arrays.asList("Albrecht Altdorfer"), galleryService.findArtists("Al", 1));
+        assertEquals(Arrays.asList("Émile Gallé"), galleryService.findArtists("emile g", 10));
+        assertEquals(4, galleryService.findArtists("", 10).size());
+        assertTrue(galleryService.findArtists("Rembrandt", 10).isEmpty());
+        assertTrue(galleryService.findArtists(null, 10).isEmpty());
+        assertTrue(galleryService.findArtists("al", 0).isEmpty());
+        assertEquals(new HashSet<>(Arrays.asList(emile, emileVase)), galleryService.getArtByArtistPrefix("EMI"));
+        assertEquals(new HashSet<>(Arrays.asList(durer, altdorfer)), galleryService.getArtByArtistPrefix("Albrecht"));
+        assertTrue(galleryService.getArtByArtistPrefix("Z").isEmpty());
+
+        galleryService.deleteArt(durer);
+        galleryService.deleteArt(emile);
+
+        assertEquals(Arrays.asList("Albrecht Altdorfer"), galleryService.findArtists("albrecht", 10));
+        assertEquals(Arrays.asList("Émile Gallé"), galleryService.findArtists("É", 10));
+    }
+
+    @Test
+    public void test_getArtByArtistPrefix_IsUnmodifiable() {
+        galleryService.addArt(new Art.ArtBuilder("Melencolia I", ArtType.PAINTING, "Albrecht Dürer", LocalDate.of(1514, 1, 1)).build());
+        Set<Art> arts = galleryService.getArtByArtistPrefix("Albrecht");
+
+        thrown.expect(UnsupportedOperationException.class);
+        arts.clear();
+    }
+
+    @Test
+    public void test_findArtists_NegativeLimit() {
+        thrown.expect(IllegalArgumentException.class);
+        galleryService.findArtists("a", -1);
+    }
+
+    @Test
+    public void test_searchArtByName_MatchesTermsAndPhrases() {
+        assertNameSearch(galleryService);
+    }
+
+    @Test
+    public void test_searchArtByName_IsUnmodifiable() {
+        galleryService.addArt(new Art.ArtBuilder("Water Lilies", ArtType.PAINTING, "Claude Monet", LocalDate.of(1906, 1, 1)).build());
+        Set<Art> arts = galleryService.searchArtByName("water");
+
+        thrown.expect(UnsupportedOperationException.class);
+        arts.clear();
+    }
+
+    /**
+     * asserts searches of art names match terms and phrase prefixes ignoring case and accents, and follow adds
+     * and deletes.
+     */
+    static void assertNameSearch(GalleryService galleryService) {
+        Art waterLilies = new Art.ArtBuilder("Water Lilies", ArtType.PAINTING, "Claude Monet", LocalDate.of(1906, 1, 1)).build();
+        Art waterLiliesVase = new Art.ArtBuilder("Water Lilies", ArtType.VASE, "Émile Gallé", LocalDate.of(1900, 1, 1)).build();
+        Art lilyPond = new Art.ArtBuilder("The Water-Lily Pond", ArtType.PAINTING, "Claude Monet", LocalDate.of(1899, 1, 1)).build();
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 2, 23)).build();
+        Art cafe = new Art.ArtBuilder("Café Terrace at Night", ArtType.PAINTING, "Vincent van Gogh", LocalDate.of(1888, 9, 1)).build();
+        galleryService.addAllArt(Arrays.asList(waterLilies, waterLiliesVase, lilyPond, monaLisa, cafe));
+
+        assertEquals(new HashSet<>(Arrays.asList(waterLilies, waterLiliesVase)), galleryService.searchArtByName("lilies WATER"));
+        assertEquals(new HashSet<>(Arrays.asList(waterLilies, waterLiliesVase, monaLisa)), galleryService.searchArtByName("mona, lilies", NameMatch.ANY_TERM));
+        assertEquals(Collections.singleton(cafe), galleryService.searchArtByName("cafe terrace"));
+        assertEquals(new HashSet<>(Arrays.asList(waterLilies, waterLiliesVase, lilyPond)), galleryService.searchArtByName("water lil", NameMatch.PHRASE_PREFIX));
+        assertEquals(Collections.singleton(lilyPond), galleryService.searchArtByName("water lily p", NameMatch.PHRASE_PREFIX));
+        assertEquals(Collections.singleton(monaLisa), galleryService.searchArtByName("mo", NameMatch.PHRASE_PREFIX));
+        assertTrue(galleryService.searchArtByName("lilies water", NameMatch.PHRASE_PREFIX).isEmpty());
+        assertTrue(galleryService.searchArtByName("water mona").isEmpty());
+        assertTrue(galleryService.searchArtByName("lil").isEmpty());
+        assertTrue(galleryService.searchArtByName(" - ").isEmpty());
+        assertTrue(galleryService.searchArtByName(null, NameMatch.ANY_TERM).isEmpty());
+
+        galleryService.deleteArt(waterLilies);
+        galleryService.deleteArt(monaLisa);
+
+        assertEquals(Collections.singleton(waterLiliesVase), galleryService.searchArtByName("water lilies"));
+        assertTrue(galleryService.searchArtByName("mona", NameMatch.PHRASE_PREFIX).isEmpty());
+    }
+
+    @Test
+    public void test_searchArtByName_NullMatch() {
+        thrown.expect(IllegalArgumentException.class);
+        galleryService.searchArtByName("Mona Lisa", null);
+    }
+
+    // Few prices and dates so that ranks are often decided by the tie breaks.
+    static List<Art> topArtCatalogue() {
+        List<Art> arts = new ArrayList<>();
+        ArtType[] artTypes = ArtType.values();
+        for (int i = 0; i < 2000; i++) {
+            Art.ArtBuilder artBuilder = new Art.ArtBuilder("Piece " + (i * 7919 % 2000), artTypes[i % artTypes.length], "Artist " + (i % 13),
+                    LocalDate.of(1980, 1, 1).plusYears(i % 40));
+            if (i % 5 != 0) {
+                artBuilder.price(i % 11 == 0 ? new BigInteger("1000000000000000000000").add(BigInteger.valueOf(i % 3)) : BigInteger.valueOf(i % 500));
+            }
+            arts.add(artBuilder.build());
+        }
+        return arts;
+    }
+
+    @Test
+    public void test_getAllStats_KeptUpToDateByAddsAndDeletes() {
+        List<Art> arts = topArtCatalogue();
+        galleryService.addAllArt(arts);
+        // Deleting every other piece takes away many of the min and max prices and dates.
+        for (int i = 0; i < arts.size(); i += 2) {
+            galleryService.deleteArt(arts.get(i));
+        }
+        List<Art> remainingArts = new ArrayList<>(galleryService.getAllArt());
+
+        assertStatsOf(remainingArts, galleryService);
+    }
+
+    @Test
+    public void test_getArtistStats() {
+        Art artOne = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23)).price(new BigInteger("15000")).build();
+        Art artTwo = new Art.ArtBuilder("Lady with an Ermine", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1490, 01, 01)).price(new BigInteger("10001")).build();
+        Art artThree = new Art.ArtBuilder("Vitruvian Man", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1490, 06, 01)).build();
+        galleryService.addAllArt(Arrays.asList(artOne, artTwo, artThree));
+
+        ArtStats stats = galleryService.getArtistStats("Leonard Di Vinci");
+
+        assertEquals(3, stats.getCount());
+        assertEquals(2, stats.getPricedCount());
+        assertEquals(new BigInteger("25001"), stats.getTotalPrice());
+        assertEquals(new BigInteger("10001"), stats.getMinPrice());
+        assertEquals(new BigInteger("15000"), stats.getMaxPrice());
+        assertEquals(new BigDecimal("12500.50"), stats.getAveragePrice());
+        assertEquals(LocalDate.of(1490, 01, 01), stats.getEarliestCreationDate());
+        assertEquals(LocalDate.of(1600, 02, 23), stats.getLatestCreationDate());
+        galleryService.deleteArt(artOne);
+        assertEquals(new BigInteger("10001"), galleryService.getArtistStats("Leonard Di Vinci").getMaxPrice());
+        assertEquals(LocalDate.of(1490, 06, 01), galleryService.getArtistStats("Leonard Di Vinci").getLatestCreationDate());
+        assertEquals(ArtStats.empty(), galleryService.getArtistStats("Nobody"));
+        assertEquals(ArtStats.empty(), galleryService.getArtistStats(null));
+        assertNull(ArtStats.empty().getAveragePrice());
+    }
+
+    /**
+     * asserts the gallery's figures are those worked out from scratch from the given art.
+     */
+    static void assertStatsOf(Collection<Art> arts, GalleryService galleryService) {
+        Map<String, List<Art>> artsByArtist = arts.stream().collect(Collectors.groupingBy(Art::getArtistName));
+        GalleryStats stats = galleryService.getAllStats();
+
+        assertEquals(artsByArtist.keySet(), stats.getArtistStats().keySet());
+        for (Map.Entry<String, List<Art>> artistArts : artsByArtist.entrySet()) {
+            assertEquals(statsOf(artistArts.getValue()), stats.getArtistStats().get(artistArts.getKey()));
+            assertEquals(statsOf(artistArts.getValue()), galleryService.getArtistStats(artistArts.getKey()));
+        }
+        for (ArtType artType : ArtType.values()) {
+            assertEquals(statsOf(arts.stream().filter(art -> art.getArtType() == artType).collect(Collectors.toList())), stats.getArtTypeStats().get(artType));
+        }
+        assertEquals(statsOf(arts), stats.getTotalStats());
+    }
+
+    private static ArtStats statsOf(Collection<Art> arts) {
+        if (arts.isEmpty()) {
+            return ArtStats.empty();
+        }
+        List<BigInteger> prices = arts.stream().map(Art::getPrice).filter(Objects::nonNull).sorted().collect(Collectors.toList());
+        List<LocalDate> creationDates = arts.stream().map(Art::getCreationDate).sorted().collect(Collectors.toList());
+        ArtStats.ArtStatsBuilder statsBuilder = new ArtStats.ArtStatsBuilder()
+                .count(arts.size())
+                .creationDates(creationDates.get(0), creationDates.get(creationDates.size() - 1));
+        if (!prices.isEmpty()) {
+            statsBuilder.prices(prices.size(), prices.stream().reduce(BigInteger.ZERO, BigInteger::add), prices.get(0), prices.get(prices.size() - 1));
+        }
+        return statsBuilder.build();
+    }
 }
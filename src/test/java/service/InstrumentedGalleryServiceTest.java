@@ -0,0 +1,104 @@
+package service;
+
+import constants.ArtType;
+import constants.GalleryOperation;
+import dto.Art;
+import exceptions.InvalidPriceRangeException;
+import metrics.OperationSnapshot;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class InstrumentedGalleryServiceTest {
+    private InstrumentedGalleryService galleryService;
+
+    @Before
+    public void setUp() {
+        galleryService = new InstrumentedGalleryService(new GalleryServiceImpl(Clock.systemDefaultZone()));
+    }
+
+    @After
+    public void tearDown() {
+        galleryService.unregisterMBeans();
+    }
+
+    @Test
+    public void test_addArt_CountsCalls() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        assertTrue(galleryService.addArt(monaLisa));
+        assertFalse(galleryService.addArt(monaLisa));
+        galleryService.getAllArt();
+
+        assertEquals(2, galleryService.getMetrics(GalleryOperation.ADD_ART).getCount());
+        assertEquals(1, galleryService.getMetrics(GalleryOperation.GET_ALL_ART).getCount());
+        assertEquals(0, galleryService.getMetrics(GalleryOperation.DELETE_ART).getCount());
+        assertTrue(galleryService.getMetrics(GalleryOperation.ADD_ART).getMaxNanos() > 0);
+    }
+
+    @Test
+    public void test_getArtByPrice_CountsErrors() {
+        try {
+            galleryService.getArtByPrice(BigInteger.TEN, BigInteger.ONE);
+            fail();
+        } catch (InvalidPriceRangeException e) {
+            // expected
+        }
+
+        assertEquals(1, galleryService.getMetrics(GalleryOperation.GET_ART_BY_PRICE).getCount());
+        assertEquals(1, galleryService.getMetrics(GalleryOperation.GET_ART_BY_PRICE).getErrorCount());
+    }
+
+    @Test
+    public void test_registerMBeans_ExposesOperationMetrics() throws Exception {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        galleryService.registerMBeans("test gallery");
+        galleryService.addArt(monaLisa);
+
+        MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = new ObjectName("gallery:type=GalleryService,name=\"test gallery\",operation=ADD_ART");
+
+        assertEquals(1L, mBeanServer.getAttribute(objectName, "Count"));
+        assertEquals(0L, mBeanServer.getAttribute(objectName, "ErrorCount"));
+        mBeanServer.invoke(objectName, "reset", null, null);
+        assertEquals(0, galleryService.getMetrics(GalleryOperation.ADD_ART).getCount());
+    }
+
+    @Test
+    public void test_startReporting_SendsSnapshots() throws Exception {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        BlockingQueue<List<OperationSnapshot>> reports = new ArrayBlockingQueue<>(100);
+        galleryService.addArt(monaLisa);
+
+        try (Closeable reporting = galleryService.startReporting(reports::offer, 10, TimeUnit.MILLISECONDS)) {
+            List<OperationSnapshot> report = reports.poll(10, TimeUnit.SECONDS);
+
+            assertNotNull(report);
+            assertEquals(GalleryOperation.values().length, report.size());
+            assertEquals("ADD_ART", report.get(GalleryOperation.ADD_ART.ordinal()).getOperation());
+            assertEquals(1, report.get(GalleryOperation.ADD_ART.ordinal()).getCount());
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package service;
+
+import constants.AddArtStatus;
+import constants.ArtOrder;
+import constants.ArtType;
+import constants.NameMatch;
+import dto.Art;
+import dto.GalleryQuery;
+import exceptions.InvalidPriceRangeException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.math.BigInteger;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class ShardedGalleryServiceTest {
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+    private ShardedGalleryService galleryService;
+    private List<Art> arts;
+
+    @Before
+    public void setUp() {
+        galleryService = new ShardedGalleryService(4);
+        arts = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            arts.add(new Art.ArtBuilder("Painting " + i, i % 2 == 0 ? ArtType.PAINTING : ArtType.VASE, "Artist " + (i % 23), LocalDate.of(2000, 1, 1).plusDays(i))
+                    .price(BigInteger.valueOf(i))
+                    .build());
+        }
+        galleryService.addAllArt(arts);
+    }
+
+    @Test
+    public void test_addAllArt_StatusesInInputOrder() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        List<AddArtStatus> statuses = galleryService.addAllArt(Arrays.asList(monaLisa, arts.get(5), null, arts.get(6)));
+
+        assertEquals(Arrays.asList(AddArtStatus.ADDED, AddArtStatus.ALREADY_IN_GALLERY, AddArtStatus.REJECTED, AddArtStatus.ALREADY_IN_GALLERY), statuses);
+        assertEquals(201, galleryService.getAllArt().size());
+    }
+
+    @Test
+    public void test_getArtists_MergedInAlphabeticalOrder() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        galleryService.addArt(monaLisa);
+
+        List<String> artists = galleryService.getArtists();
+
+        List<String> expected = arts.stream().map(Art::getArtistName).distinct().collect(Collectors.toList());
+        expected.add("Leonard Di Vinci");
+        expected.sort(null);
+        assertEquals(expected, artists);
+    }
+
+    @Test
+    public void test_getArtByPrice_MergesAllShards() {
+        Set<Art> arts = galleryService.getArtByPrice(BigInteger.valueOf(50), BigInteger.valueOf(149));
+
+        assertEquals(100, arts.size());
+        assertEquals(new HashSet<>(this.arts.subList(50, 150)), arts);
+        assertTrue(arts.contains(this.arts.get(50)));
+        assertFalse(arts.contains(this.arts.get(49)));
+    }
+
+    @Test
+    public void test_getArtByPrice_InvalidRange() {
+        thrown.expect(InvalidPriceRangeException.class);
+        galleryService.streamArtByPrice(BigInteger.TEN, BigInteger.ONE);
+    }
+
+    @Test
+    public void test_getArtByArtist_ReadsOneShard() {
+        assertTrue(galleryService.deleteArt(arts.get(0)));
+
+        assertEquals(8, galleryService.getArtByArtist("Artist 0").size());
+        assertTrue(galleryService.explain(new GalleryQuery.GalleryQueryBuilder().artist("Artist 0").build()).startsWith("Shard "));
+    }
+
+    @Test
+    public void test_findArt_FansOut() {
+        GalleryQuery query = new GalleryQuery.GalleryQueryBuilder()
+                .artTypes(ArtType.VASE)
+                .createdBetween(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 1, 20))
+                .build();
+
+        assertEquals(10, galleryService.findArt(query).size());
+        assertEquals(10, galleryService.streamArt(query).count());
+        assertTrue(galleryService.explain(query).startsWith("Fan out to all 4 shards"));
+    }
+
+    @Test
+    public void test_findTopArt_MergesAllShards() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        galleryService.addArt(monaLisa);
+
+        List<Art> topArts = galleryService.getTopArtByPrice(3);
+
+        assertEquals(Arrays.asList(monaLisa, arts.get(199), arts.get(198)), topArts);
+        assertEquals(Arrays.asList(arts.get(199), arts.get(176)), galleryService.findTopArt(new GalleryQuery.GalleryQueryBuilder().artist("Artist 15").build(), ArtOrder.NEWEST, 2));
+    }
+
+    @Test
+    public void test_getAllStats_MergesAllShards() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        galleryService.addArt(monaLisa);
+
+        GalleryServiceImplTest.assertStatsOf(new ArrayList<>(galleryService.getAllArt()), galleryService);
+    }
+
+    @Test
+    public void test_findArtists_MergesAllShards() {
+        assertEquals(Arrays.asList("Artist 1", "Artist 10", "Artist 11"), galleryService.findArtists("artist 1", 3));
+        assertEquals(arts.stream().filter(art -> art.getArtistName().startsWith("Artist 2")).collect(Collectors.toSet()),
+                galleryService.getArtByArtistPrefix("ARTIST 2"));
+        GalleryServiceImplTest.assertArtistSearch(new ShardedGalleryService(3));
+    }
+
+    @Test
+    public void test_searchArtByName_MergesAllShards() {
+        assertEquals(arts.stream().filter(art -> art.getName().startsWith("Painting 1")).collect(Collectors.toSet()),
+                galleryService.searchArtByName("painting 1", NameMatch.PHRASE_PREFIX));
+        assertEquals(new HashSet<>(arts), galleryService.searchArtByName("PAINTING"));
+        GalleryServiceImplTest.assertNameSearch(new ShardedGalleryService(3));
+    }
+}
@@ -0,0 +1,114 @@
+package store;
+
+import constants.ArtType;
+import dto.Art;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ArtCodecTest {
+    // The presence byte written before a price in the first version.
+    private static final byte PRICE_PRESENT = 1;
+
+    @Test
+    public void test_encode_RoundTripsPrices() {
+        for (BigInteger price : Arrays.asList(null, BigInteger.ZERO, BigInteger.ONE, new BigInteger("39921750000"),
+                BigInteger.ONE.shiftLeft(62).subtract(BigInteger.ONE), BigInteger.ONE.shiftLeft(62), new BigInteger("123456789012345678901234567890"))) {
+            Art art = new Art.ArtBuilder("Piece", ArtType.VASE, "Artist", LocalDate.of(2000, 1, 1)).price(price).build();
+
+            Art decodedArt = roundTrip(art, ByteBuffer.allocate(ArtCodec.encodedSize(art)));
+
+            assertEquals(price, decodedArt.getPrice());
+        }
+    }
+
+    @Test
+    public void test_encode_RoundTripsTextAndDatesInDirectBuffer() {
+        Art art = new Art.ArtBuilder("Nymphéas 🌸 水", ArtType.TAPESTRY, "Claude Monet", LocalDate.of(-500, 12, 31)).build();
+
+        Art decodedArt = roundTrip(art, ByteBuffer.allocateDirect(ArtCodec.encodedSize(art)));
+
+        assertEquals(art, decodedArt);
+        assertEquals(art.getName(), decodedArt.getName());
+        assertEquals(art.getArtType(), decodedArt.getArtType());
+        assertEquals(art.getCreationDate(), decodedArt.getCreationDate());
+    }
+
+    @Test
+    public void test_encode_UnpairedSurrogateWrittenAsQuestionMark() {
+        Art art = new Art.ArtBuilder("Broken \uD83C text", ArtType.VASE, "Artist", LocalDate.of(2000, 1, 1)).build();
+
+        Art decodedArt = roundTrip(art, ByteBuffer.allocate(ArtCodec.encodedSize(art)));
+
+        assertEquals(new String(art.getName().getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8), decodedArt.getName());
+    }
+
+    @Test
+    public void test_encode_SmallerThanVersion1() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        assertEquals(34, ArtCodec.encodedSize(monaLisa));
+        assertTrue(ArtCodec.encodedSize(monaLisa) < version1(monaLisa).remaining());
+    }
+
+    @Test
+    public void test_decode_ReadsVersion1() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+        Art decodedArt = ArtCodec.decode(version1(monaLisa), ArtCodec.VERSION_1);
+
+        assertEquals(monaLisa, decodedArt);
+        assertEquals(monaLisa.getPrice(), decodedArt.getPrice());
+        assertEquals(monaLisa.getCreationDate(), decodedArt.getCreationDate());
+    }
+
+    @Test
+    public void test_encodeAll_RoundTripsBatch() {
+        Art monaLisa = new Art.ArtBuilder("Mona Lisa", ArtType.PAINTING, "Leonard Di Vinci", LocalDate.of(1600, 02, 23))
+                .price(new BigInteger("15000"))
+                .build();
+
+        List<Art> arts = Arrays.asList(monaLisa, new Art.ArtBuilder("The Thinker", ArtType.SCLUPTURE, "Auguste Rodin", LocalDate.of(1904, 01, 01)).build());
+        ByteBuffer buffer = ByteBuffer.allocate(ArtCodec.encodedSize(arts));
+
+        ArtCodec.encodeAll(arts, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+
+        assertEquals(arts, ArtCodec.decodeAll(buffer));
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private static Art roundTrip(Art art, ByteBuffer buffer) {
+        ArtCodec.encode(art, buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        Art decodedArt = ArtCodec.decode(buffer);
+        assertFalse(buffer.hasRemaining());
+        return decodedArt;
+    }
+
+    // The layout written before the codec was versioned.
+    private static ByteBuffer version1(Art art) {
+        byte[] name = art.getName().getBytes(StandardCharsets.UTF_8);
+        byte[] artistName = art.getArtistName().getBytes(StandardCharsets.UTF_8);
+        byte[] price = art.getPrice().toByteArray();
+        ByteBuffer record = ByteBuffer.allocate(4 + name.length + 1 + 4 + artistName.length + 8 + 1 + 4 + price.length);
+        record.putInt(name.length).put(name);
+        record.put((byte) art.getArtType().ordinal());
+        record.putInt(artistName.length).put(artistName);
+        record.putLong(art.getCreationDate().toEpochDay());
+        record.put(PRICE_PRESENT).putInt(price.length).put(price);
+        return record.flip();
+    }
+}
@@ -0,0 +1,116 @@
+package store;
+
+import constants.ArtType;
+import constants.CatalogueFormat;
+import dto.Art;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import service.ColumnarGalleryService;
+import service.GalleryService;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class CatalogueLoaderTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private GalleryService gallery;
+
+    @Before
+    public void setUp() {
+        gallery = new ColumnarGalleryService();
+    }
+
+    @Test
+    public void test_load_Csv() throws IOException {
+        Path file = write("catalogue.csv", "\uFEFFname,artType,artistName,creationDate,price\r\n"
+                + "Mona Lisa,PAINTING,Leonard Di Vinci,1600-02-23,15000\r\n"
+                + "\"The \"\"Thinker\"\", cast\",sclupture,Auguste Rodin,1904-01-01,\r\n"
+                + "\r\n"
+                + "Mona Lisa,PAINTING,Leonard Di Vinci,1600-02-23,15000\n"
+                + "Water Lilies,WATERCOLOUR,Claude Monet,1906-01-01,1\n"
+                + "Sunflowers,PAINTING,Vincent van Gogh,1888-8-1,1\n"
+                + "Sunflowers,PAINTING,Vincent van Gogh,1888-08-01,39921750000000000000000\n"
+                + "Untitled,VASE,,2000-01-01\n");
+
+        CatalogueLoadReport report = new CatalogueLoader(gallery).load(file);
+
+        assertEquals(7, report.getRowCount());
+        assertEquals(3, report.getAddedCount());
+        assertEquals(1, report.getDuplicateCount());
+        assertEquals(3, report.getRejectedCount());
+        assertEquals(3, report.getRejections().size());
+        Art monaLisa = gallery.getArtByArtist("Leonard Di Vinci").iterator().next();
+        assertEquals(new BigInteger("15000"), monaLisa.getPrice());
+        assertEquals(LocalDate.of(1600, 2, 23), monaLisa.getCreationDate());
+        Art theThinker = gallery.getArtByArtist("Auguste Rodin").iterator().next();
+        assertEquals("The \"Thinker\", cast", theThinker.getName());
+        assertEquals(ArtType.SCLUPTURE, theThinker.getArtType());
+        assertNull(theThinker.getPrice());
+        assertEquals(new BigInteger("39921750000000000000000"), gallery.getArtByArtist("Vincent van Gogh").iterator().next().getPrice());
+    }
+
+    @Test
+    public void test_load_Ndjson() throws IOException {
+        Path file = write("catalogue.ndjson", "{\"name\": \"Mona Lisa\", \"artType\": \"PAINTING\", \"artistName\": \"Leonard Di Vinci\", \"creationDate\": \"1600-02-23\", \"price\": 15000}\n"
+                + "{\"artistName\":\"Auguste Rodin\",\"name\":\"The \\\"Thinker\\\"\",\"artType\":\"SCLUPTURE\",\"price\":null,\"museum\":\"Mus\\u00e9e Rodin\"}\n"
+                + "{\"name\":\"Sunflowers\",\"artType\":\"PAINTING\",\"artistName\":\"Vincent van Gogh\",\"price\":\"39921750000\"}\n"
+                + "{\"name\":\"Broken\",\"artType\":\"PAINTING\"\n"
+                + "{\"name\":\"No Artist\",\"artType\":\"VASE\"}\n");
+
+        CatalogueLoadReport report = new CatalogueLoader(gallery).load(file);
+
+        assertEquals(5, report.getRowCount());
+        assertEquals(3, report.getAddedCount());
+        assertEquals(2, report.getRejectedCount());
+        Art theThinker = gallery.getArtByArtist("Auguste Rodin").iterator().next();
+        assertEquals("The \"Thinker\"", theThinker.getName());
+        assertNull(theThinker.getPrice());
+        assertEquals(new BigInteger("39921750000"), gallery.getArtByArtist("Vincent van Gogh").iterator().next().getPrice());
+    }
+
+    @Test
+    public void test_load_SplitsLargeFilesIntoChunks() throws IOException {
+        StringBuilder catalogue = new StringBuilder("name,artType,artistName,creationDate,price\n");
+        for (int i = 0; i < 20_000; i++) {
+            catalogue.append("Painting ").append(i).append(",PAINTING,Artist ").append(i % 97)
+                    .append(',').append(LocalDate.of(2000, 1, 1).plusDays(i % 3650)).append(',').append(100 + i).append('\n');
+        }
+        Path file = write("catalogue.csv", catalogue.toString());
+
+        CatalogueLoadReport report = new CatalogueLoader(gallery, 1000, new ForkJoinPool(4), 4096).load(file, CatalogueFormat.CSV);
+
+        assertEquals(20_000, report.getRowCount());
+        assertEquals(20_000, report.getAddedCount());
+        assertEquals(0, report.getRejectedCount());
+        assertEquals(20_000, gallery.getAllArt().size());
+        assertEquals(97, gallery.getArtists().size());
+    }
+
+    @Test
+    public void test_load_UnknownExtension() throws IOException {
+        Path file = write("catalogue.txt", "");
+        expectedException.expect(IllegalArgumentException.class);
+
+        new CatalogueLoader(gallery).load(file);
+    }
+
+    private Path write(String fileName, String contents) throws IOException {
+        Path file = temporaryFolder.getRoot().toPath().resolve(fileName);
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,88 @@
+package store;
+
+import constants.ArtType;
+import dto.Art;
+import exceptions.GalleryPersistenceException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import static org.junit.Assert.*;
+
+public class SnapshotFileTest {
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void test_read_ReturnsWhatWasWritten() throws IOException {
+        Path snapshot = temporaryFolder.getRoot().toPath().resolve("gallery.snapshot");
+        List<Art> arts = paintings(5);
+        SnapshotFile.write(snapshot, 7, arts);
+        List<Art> readArts = new ArrayList<>();
+
+        assertEquals(7, SnapshotFile.read(snapshot, 2, readArts::addAll));
+        assertEquals(arts, readArts);
+    }
+
+    @Test
+    public void test_read_CorruptSnapshotLoadsNothing() throws IOException {
+        Path snapshot = temporaryFolder.getRoot().toPath().resolve("gallery.snapshot");
+        SnapshotFile.write(snapshot, 7, paintings(5));
+        try (RandomAccessFile file = new RandomAccessFile(snapshot.toFile(), "rw")) {
+            // Flip a byte in the last record.
+            file.seek(file.length() - 10);
+            int b = file.read();
+            file.seek(file.length() - 10);
+            file.write(b ^ 0xFF);
+        }
+        List<Art> readArts = new ArrayList<>();
+
+        try {
+            SnapshotFile.read(snapshot, 2, readArts::addAll);
+            fail("Expected GalleryPersistenceException");
+        } catch (GalleryPersistenceException expectedException) {
+            assertTrue(readArts.isEmpty());
+        }
+    }
+
+    @Test
+    public void test_read_RejectsRecordLengthPastTheEnd() throws IOException {
+        Path snapshot = temporaryFolder.getRoot().toPath().resolve("gallery.snapshot");
+        // One record whose length runs past the file, with a checksum that matches it.
+        ByteBuffer records = ByteBuffer.allocate(Integer.BYTES + 3).putInt(1000).put(new byte[3]).flip();
+        CRC32 crc = new CRC32();
+        crc.update(records.duplicate());
+        ByteBuffer file = ByteBuffer.allocate(20 + records.remaining() + Integer.BYTES)
+                .putInt(0x47414C53).putInt(ArtCodec.CURRENT_VERSION).putLong(7).putInt(1)
+                .put(records).putInt((int) crc.getValue());
+        Files.write(snapshot, file.array());
+
+        thrown.expect(GalleryPersistenceException.class);
+        SnapshotFile.read(snapshot, 2, arts -> fail("Nothing should be loaded"));
+    }
+
+    private static List<Art> paintings(int count) {
+        Art[] arts = new Art[count];
+        for (int i = 0; i < count; i++) {
+            arts[i] = new Art.ArtBuilder("Painting " + i, ArtType.PAINTING, "Artist " + i, LocalDate.of(2000, 1, 1).plusDays(i))
+                    .price(BigInteger.valueOf(100 * i))
+                    .build();
+        }
+        return Arrays.asList(arts);
+    }
+}